@@ -49,8 +49,8 @@ CREATE TABLE IF NOT EXISTS chat_message (
     role VARCHAR(50) NOT NULL,
     status VARCHAR(50) NOT NULL DEFAULT 'ACTIVE',
     content TEXT NOT NULL,
-    chat_content TEXT,
-    metadata TEXT,
+    chat_content JSONB,
+    metadata JSONB,
     is_deleted BIGINT NOT NULL DEFAULT 0,
     create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     update_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -68,10 +68,34 @@ CREATE INDEX idx_chat_message_create_time ON chat_message(create_time);
 CREATE INDEX idx_chat_message_is_deleted ON chat_message(is_deleted);
 
 -- 创建复合索引
-CREATE INDEX idx_chat_message_session_id_request_create ON chat_message(session_id, request_id, create_time);
+CREATE INDEX idx_chat_message_session_id_request_create ON chat_message(session_id, request_id, create_time, id);
 CREATE INDEX idx_chat_message_session_code_request_create ON chat_message(session_code, request_id, create_time);
 CREATE INDEX idx_chat_message_session_role ON chat_message(session_id, role);
 CREATE INDEX idx_chat_message_session_status ON chat_message(session_id, status);
 
 -- 添加注释
 COMMENT ON TABLE chat_message IS '聊天消息表';
+COMMENT ON COLUMN chat_message.chat_content IS '模型消息JSON，超过阈值时为压缩信封 {"$codec":"deflate","v":1,"data":"..."}';
+
+-- =====================================================
+-- 3. chat_media_ref - 会话多媒体引用表
+-- =====================================================
+CREATE TABLE IF NOT EXISTS chat_media_ref (
+    id BIGINT PRIMARY KEY,
+    session_id BIGINT NOT NULL,
+    media_hash VARCHAR(64) NOT NULL,
+    create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 访问多媒体内容时按会话和内容哈希校验（不加唯一约束，并发保存时的重复记录不影响校验）
+CREATE INDEX idx_chat_media_ref_session_hash ON chat_media_ref(session_id, media_hash);
+
+-- 添加注释
+COMMENT ON TABLE chat_media_ref IS '会话多媒体引用表（已有消息的引用由应用启动后的后台任务补录）';
+
+-- =====================================================
+-- 已有数据库升级：chat_content、metadata 改为 JSONB
+--    历史数据由应用启动后的后台迁移任务改写为紧凑/压缩格式
+-- =====================================================
+-- ALTER TABLE chat_message ALTER COLUMN chat_content TYPE JSONB USING NULLIF(chat_content, '')::jsonb;
+-- ALTER TABLE chat_message ALTER COLUMN metadata TYPE JSONB USING NULLIF(metadata, '')::jsonb;
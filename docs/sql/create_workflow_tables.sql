@@ -55,7 +55,13 @@ CREATE TABLE workflow_version (
     id BIGINT PRIMARY KEY,
     workflow_id BIGINT NOT NULL,
     version_code VARCHAR(255) NOT NULL,
-    content TEXT NOT NULL,
+    from_version_code VARCHAR(255),
+    content TEXT,
+    content_data BYTEA,
+    storage_type VARCHAR(20),
+    base_version_id BIGINT,
+    keyframe_id BIGINT,
+    chain_depth INT,
     content_hash VARCHAR(64) NOT NULL,
     change_summary VARCHAR(500),
     session_id BIGINT,
@@ -70,7 +76,13 @@ COMMENT ON TABLE workflow_version IS '工作流版本表';
 COMMENT ON COLUMN workflow_version.id IS '主键ID（雪花算法）';
 COMMENT ON COLUMN workflow_version.workflow_id IS '所属工作流ID';
 COMMENT ON COLUMN workflow_version.version_code IS '版本号（UUID）';
-COMMENT ON COLUMN workflow_version.content IS '版本内容（JSON格式）';
+COMMENT ON COLUMN workflow_version.from_version_code IS '来源版本号';
+COMMENT ON COLUMN workflow_version.content IS '版本内容（JSON格式，仅旧数据使用）';
+COMMENT ON COLUMN workflow_version.content_data IS 'GZIP压缩的版本内容（FULL为完整内容，DELTA为相对基准版本的JSON Patch）';
+COMMENT ON COLUMN workflow_version.storage_type IS '存储方式（FULL-完整内容，DELTA-增量补丁）';
+COMMENT ON COLUMN workflow_version.base_version_id IS '补丁基准版本ID';
+COMMENT ON COLUMN workflow_version.keyframe_id IS '所属关键帧版本ID（FULL为自身ID）';
+COMMENT ON COLUMN workflow_version.chain_depth IS '距关键帧的补丁数量';
 COMMENT ON COLUMN workflow_version.content_hash IS '内容的SHA-256哈希值';
 COMMENT ON COLUMN workflow_version.change_summary IS '变更摘要（Agent生成）';
 COMMENT ON COLUMN workflow_version.session_id IS '关联的会话ID（如果是Agent对话生成）';
@@ -88,3 +100,16 @@ CREATE INDEX idx_version_content_hash ON workflow_version(content_hash);
 CREATE INDEX idx_version_session_id ON workflow_version(session_id);
 CREATE INDEX idx_version_message_id ON workflow_version(message_id);
 CREATE INDEX idx_version_create_time ON workflow_version(create_time);
+CREATE INDEX idx_version_keyframe_id ON workflow_version(keyframe_id);
+
+-- =====================================================
+-- 5. 已有数据库升级：版本内容增量压缩存储
+--    旧版本保持 content 明文，新版本写入 content_data
+-- =====================================================
+-- ALTER TABLE workflow_version ALTER COLUMN content DROP NOT NULL;
+-- ALTER TABLE workflow_version ADD COLUMN content_data BYTEA;
+-- ALTER TABLE workflow_version ADD COLUMN storage_type VARCHAR(20);
+-- ALTER TABLE workflow_version ADD COLUMN base_version_id BIGINT;
+-- ALTER TABLE workflow_version ADD COLUMN keyframe_id BIGINT;
+-- ALTER TABLE workflow_version ADD COLUMN chain_depth INT;
+-- CREATE INDEX idx_version_keyframe_id ON workflow_version(keyframe_id);
@@ -0,0 +1,143 @@
+package org.joker.comfypilot.agent.application.executor;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.config.ExecutorProperties;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Agent 任务并发限制
+ * <p>
+ * 以整个 Agent 执行（从开始到 completeExecution）为单位发放名额，分为全局和单用户两级。
+ * 名额不作用于执行器上的单个异步阶段，Agent 内部的嵌套异步任务不会因为等待名额而互相阻塞。
+ * Agent 执行大部分时间在等待模型输出和工具调用结果，名额按配置发放，与 agentExecutor 的线程数无关。
+ */
+@Slf4j
+@Component
+public class AgentConcurrencyLimiter {
+
+    @Autowired
+    private ExecutorProperties properties;
+
+    private Semaphore globalPermits;
+
+    /**
+     * Key: 用户ID
+     * Value: 用户名额，没有等待或持有名额的请求时移除
+     */
+    private final Map<Long, UserPermits> userPermits = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        globalPermits = new Semaphore(properties.getAgentMaxConcurrentRuns(), true);
+    }
+
+    /**
+     * 获取执行名额，达到上限时最多等待 {@code executor.agent-acquire-timeout}
+     *
+     * @param userId 用户ID
+     * @return 执行名额（执行结束后必须释放）
+     * @throws BusinessException 等待超时
+     */
+    public Permit acquire(Long userId) {
+        UserPermits user = retain(userId);
+        Semaphore globalSemaphore = globalPermits;
+        long timeout = properties.getAgentAcquireTimeout();
+        boolean acquired = false;
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            if (!user.semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                log.warn("用户执行中的Agent任务已达上限: userId={}, limit={}", userId, properties.getAgentMaxConcurrentRunsPerUser());
+                throw new BusinessException("执行中的任务过多，请等待当前任务完成后再试");
+            }
+            if (!globalSemaphore.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                user.semaphore.release();
+                log.warn("全局执行中的Agent任务已达上限: limit={}", properties.getAgentMaxConcurrentRuns());
+                throw new BusinessException("服务繁忙，请稍后再试");
+            }
+            acquired = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("等待执行名额被中断");
+        } finally {
+            if (!acquired) {
+                unretain(userId);
+            }
+        }
+        return new Permit(this, userId, user.semaphore, globalSemaphore);
+    }
+
+    /**
+     * 引用用户名额，不存在时创建
+     */
+    private UserPermits retain(Long userId) {
+        return userPermits.compute(userId, (k, v) -> {
+            UserPermits user = v != null ? v : new UserPermits(new Semaphore(properties.getAgentMaxConcurrentRunsPerUser(), true));
+            user.references++;
+            return user;
+        });
+    }
+
+    /**
+     * 释放用户名额的引用，没有引用时移除
+     */
+    private void unretain(Long userId) {
+        userPermits.computeIfPresent(userId, (k, v) -> --v.references == 0 ? null : v);
+    }
+
+    /**
+     * 用户名额
+     */
+    private static final class UserPermits {
+
+        private final Semaphore semaphore;
+
+        /**
+         * 等待或持有名额的请求数，只在 Map 的 compute 中修改
+         */
+        private int references;
+
+        private UserPermits(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+    }
+
+    /**
+     * 执行名额，重复释放无副作用
+     */
+    public static final class Permit {
+
+        private final AgentConcurrencyLimiter limiter;
+
+        private final Long userId;
+
+        private final Semaphore userSemaphore;
+
+        private final Semaphore globalSemaphore;
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(AgentConcurrencyLimiter limiter, Long userId, Semaphore userSemaphore, Semaphore globalSemaphore) {
+            this.limiter = limiter;
+            this.userId = userId;
+            this.userSemaphore = userSemaphore;
+            this.globalSemaphore = globalSemaphore;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                globalSemaphore.release();
+                userSemaphore.release();
+                limiter.unretain(userId);
+            }
+        }
+    }
+}
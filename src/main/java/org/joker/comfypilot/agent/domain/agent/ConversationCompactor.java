@@ -0,0 +1,295 @@
+package org.joker.comfypilot.agent.domain.agent;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ToolChoice;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.agent.domain.callback.AgentCallback;
+import org.joker.comfypilot.agent.domain.context.AgentExecutionContext;
+import org.joker.comfypilot.agent.infrastructure.config.AgentCompactionProperties;
+import org.joker.comfypilot.agent.infrastructure.memory.ChatMemoryChatMemoryStore;
+import org.joker.comfypilot.common.constant.RedisKeyConstants;
+import org.joker.comfypilot.common.domain.message.PersistableChatMessage;
+import org.joker.comfypilot.common.enums.MessageRole;
+import org.joker.comfypilot.common.util.RedisUtil;
+import org.joker.comfypilot.model.domain.service.ChatModelFactory;
+import org.joker.comfypilot.session.application.dto.ChatMessageDTO;
+import org.joker.comfypilot.session.application.service.ChatSessionService;
+import org.joker.comfypilot.session.infrastructure.websocket.WebSocketSessionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 对话历史压缩
+ * <p>
+ * 上下文达到低水位（{@code agent.compaction.soft-watermark}）时，在后台对当前请求之前的历史消息生成摘要；
+ * 达到上限时，若摘要已就绪且历史消息未发生变化，直接将历史替换为摘要并保留当前请求的消息，
+ * 不再阻塞等待模型生成摘要。没有可用的摘要时退回 {@link OrderAgent#summery} 同步生成。
+ */
+@Slf4j
+@Component
+public class ConversationCompactor {
+
+    @Autowired
+    private ChatModelFactory chatModelFactory;
+    @Autowired
+    private ChatSessionService chatSessionService;
+    @Autowired
+    private ChatMemoryChatMemoryStore chatMemoryChatMemoryStore;
+    @Autowired
+    private WebSocketSessionManager webSocketSessionManager;
+    @Autowired
+    private OrderAgent orderAgent;
+    @Autowired
+    private RedisUtil redisUtil;
+    @Autowired
+    private AgentCompactionProperties properties;
+    @Autowired
+    @Qualifier("agentExecutor")
+    private Executor agentExecutor;
+
+    /**
+     * Key: 连接会话ID
+     * Value: 后台摘要任务
+     */
+    private final Map<String, Compaction> compactions = new ConcurrentHashMap<>();
+
+    /**
+     * 迭代开始时检查上下文用量，按水位启动后台摘要或替换历史
+     */
+    public void onIterationStart(AgentExecutionContext executionContext) {
+        Map<String, Object> agentScope = executionContext.getAgentScope();
+        int maxTokens = Integer.parseInt(agentScope.get("MaxTokens").toString());
+        int maxMessages = Integer.parseInt(agentScope.get("MaxMessages").toString());
+
+        long tokenUsage = 0;
+        Object tokenUsageObj = redisUtil.get(RedisKeyConstants.getSessionTokenUsageKey(executionContext.getSessionCode()));
+        if (tokenUsageObj instanceof Number number) {
+            tokenUsage = number.longValue();
+        }
+        int messageCount = executionContext.getAgentCallback().getMemoryMessages().size();
+
+        // 自动摘要
+        if (tokenUsage > maxTokens * properties.getHardWatermark() || messageCount >= maxMessages) {
+            if (!swap(executionContext)) {
+                orderAgent.summery(executionContext).join();
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(properties.getEnabled())
+                && (tokenUsage > maxTokens * properties.getSoftWatermark() || messageCount >= maxMessages * properties.getSoftWatermark())) {
+            startCompaction(executionContext);
+        }
+    }
+
+    /**
+     * 在后台对当前请求之前的历史消息生成摘要，已有进行中或已就绪的摘要时不重复生成
+     */
+    private void startCompaction(AgentExecutionContext executionContext) {
+        String connectSessionId = executionContext.getConnectSessionId();
+        Compaction existing = compactions.get(connectSessionId);
+        if (existing != null) {
+            // 同一请求中生成失败后不再重试，避免每次迭代都调用模型
+            if (!existing.result().isCompletedExceptionally() || existing.requestId().equals(executionContext.getRequestId())) {
+                return;
+            }
+        }
+
+        Map<String, Object> agentScope = executionContext.getAgentScope();
+        List<ChatMessage> messages = withoutSystemMessage(executionContext.getAgentCallback().getMemoryMessages());
+        int boundary = indexOf(messages, agentScope.get("UserMessage"));
+        if (boundary < properties.getMinMessages()) {
+            return;
+        }
+
+        Compaction compaction = new Compaction(executionContext.getRequestId(), new ArrayList<>(messages.subList(0, boundary)), new CompletableFuture<>());
+        boolean started = existing == null
+                ? compactions.putIfAbsent(connectSessionId, compaction) == null
+                : compactions.replace(connectSessionId, existing, compaction);
+        if (!started) {
+            return;
+        }
+        webSocketSessionManager.addRemovedCallback(connectSessionId, () -> compactions.remove(connectSessionId));
+
+        Map<String, Object> agentConfig = (Map<String, Object>) agentScope.get("AgentConfig");
+        log.info("后台生成历史摘要: sessionCode={}, messageCount={}", executionContext.getSessionCode(), boundary);
+        CompletableFuture.supplyAsync(() -> summarize(agentConfig, compaction.prefix()), agentExecutor)
+                .whenComplete((summary, e) -> {
+                    if (e != null) {
+                        log.warn("后台生成历史摘要失败: sessionCode={}, error={}", executionContext.getSessionCode(), e.getMessage());
+                        compaction.result().completeExceptionally(e);
+                    } else {
+                        compaction.result().complete(summary);
+                    }
+                });
+    }
+
+    private Summary summarize(Map<String, Object> agentConfig, List<ChatMessage> prefix) {
+        ChatModel chatModel = chatModelFactory.createChatModel(
+                agentConfig.get("llmModelIdentifier").toString(),
+                agentConfig
+        );
+
+        UserMessage summeryUserMessage = UserMessage.from(AgentPrompts.SUMMARY_USER_PROMPT);
+        List<ChatMessage> messages = new ArrayList<>(prefix.size() + 2);
+        messages.add(SystemMessage.from(AgentPrompts.SUMMARY_SYSTEM_PROMPT));
+        messages.addAll(prefix);
+        messages.add(summeryUserMessage);
+
+        ChatRequest chatRequest = ChatRequest.builder()
+                .messages(messages)
+                .toolChoice(ToolChoice.NONE)
+                .build();
+        ChatResponse chatResponse = chatModel.chat(chatRequest);
+        return new Summary(summeryUserMessage, chatResponse.aiMessage(), chatResponse.tokenUsage());
+    }
+
+    /**
+     * 用已生成的摘要替换历史消息，保留摘要之后追加的消息
+     *
+     * @return 是否替换成功，没有可用的摘要或历史已变化时返回false
+     */
+    private boolean swap(AgentExecutionContext executionContext) {
+        String connectSessionId = executionContext.getConnectSessionId();
+        Compaction compaction = compactions.remove(connectSessionId);
+        if (compaction == null) {
+            return false;
+        }
+
+        Summary summary;
+        try {
+            // 仍在生成时等待其完成，比重新生成摘要更快
+            summary = compaction.result().join();
+        } catch (Exception e) {
+            return false;
+        }
+
+        AgentCallback agentCallback = executionContext.getAgentCallback();
+        List<ChatMessage> messages = withoutSystemMessage(agentCallback.getMemoryMessages());
+        if (!startsWith(messages, compaction.prefix())) {
+            // 历史已被清空、压缩或重新加载
+            log.debug("历史摘要已过期: sessionCode={}", executionContext.getSessionCode());
+            return false;
+        }
+
+        String summery = summary.aiMessage().text();
+        List<ChatMessageDTO> summeryMessageDTOList = List.of(
+                ChatMessageDTO.builder()
+                        .sessionId(executionContext.getSessionId())
+                        .sessionCode(executionContext.getSessionCode())
+                        .requestId(compaction.requestId())
+                        .role(MessageRole.AGENT_PROMPT.name())
+                        .content("")
+                        .chatContent(PersistableChatMessage.toJsonString(summary.userMessage()))
+                        .metadata(new HashMap<>())
+                        .build(),
+                ChatMessageDTO.builder()
+                        .sessionId(executionContext.getSessionId())
+                        .sessionCode(executionContext.getSessionCode())
+                        .requestId(compaction.requestId())
+                        .role(MessageRole.ASSISTANT_PROMPT.name())
+                        .content("")
+                        .chatContent(PersistableChatMessage.toJsonString(summary.aiMessage()))
+                        .metadata(new HashMap<>())
+                        .build(),
+                ChatMessageDTO.builder()
+                        .sessionId(executionContext.getSessionId())
+                        .sessionCode(executionContext.getSessionCode())
+                        .requestId(compaction.requestId())
+                        .role(MessageRole.AGENT_MESSAGE.name())
+                        .content(summery)
+                        .metadata(new HashMap<>())
+                        .build()
+        );
+        try {
+            chatSessionService.compactSession(executionContext.getSessionCode(), executionContext.getUserId(), compaction.requestId(), summeryMessageDTOList);
+        } catch (Exception e) {
+            log.error("保存历史摘要失败: sessionCode={}", executionContext.getSessionCode(), e);
+            return false;
+        }
+
+        Map<String, Object> agentScope = executionContext.getAgentScope();
+        List<ChatMessage> retained = messages.subList(compaction.prefix().size(), messages.size());
+        List<ChatMessage> newMessageList = new ArrayList<>(retained.size() + 3);
+        if (agentScope.get("SystemMessage") != null) {
+            newMessageList.add((ChatMessage) agentScope.get("SystemMessage"));
+        }
+        newMessageList.add(summary.userMessage());
+        newMessageList.add(summary.aiMessage());
+        newMessageList.addAll(retained);
+        chatMemoryChatMemoryStore.updateMessages(connectSessionId, newMessageList);
+
+        redisUtil.del(RedisKeyConstants.getSessionTokenUsageKey(executionContext.getSessionCode()));
+
+        TokenUsage tokenUsage = summary.tokenUsage();
+        agentCallback.onTokenUsage(agentScope, tokenUsage.inputTokenCount(), tokenUsage.outputTokenCount(), tokenUsage.totalTokenCount(), newMessageList.size());
+        log.info("已替换为历史摘要: sessionCode={}, compacted={}, retained={}", executionContext.getSessionCode(), compaction.prefix().size(), retained.size());
+        return true;
+    }
+
+    private static List<ChatMessage> withoutSystemMessage(List<ChatMessage> messages) {
+        if (!messages.isEmpty() && messages.get(0) instanceof SystemMessage) {
+            return messages.subList(1, messages.size());
+        }
+        return messages;
+    }
+
+    /**
+     * 按引用查找消息位置
+     */
+    private static int indexOf(List<ChatMessage> messages, Object message) {
+        if (message == null) {
+            return -1;
+        }
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) == message) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按引用比较历史消息是否仍以摘要前缀开头
+     */
+    private static boolean startsWith(List<ChatMessage> messages, List<ChatMessage> prefix) {
+        if (messages.size() < prefix.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (messages.get(i) != prefix.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 后台摘要任务
+     *
+     * @param requestId 开始生成时的请求ID，该请求之前的消息为摘要范围
+     * @param prefix    参与摘要的历史消息
+     * @param result    摘要结果
+     */
+    private record Compaction(String requestId, List<ChatMessage> prefix, CompletableFuture<Summary> result) {
+    }
+
+    private record Summary(UserMessage userMessage, AiMessage aiMessage, TokenUsage tokenUsage) {
+    }
+}
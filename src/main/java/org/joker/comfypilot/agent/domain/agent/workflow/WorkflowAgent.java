@@ -13,6 +13,7 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.joker.comfypilot.agent.application.dto.AgentExecutionRequest;
 import org.joker.comfypilot.agent.domain.agent.AgentPrompts;
+import org.joker.comfypilot.agent.domain.agent.ConversationCompactor;
 import org.joker.comfypilot.agent.domain.agent.OrderAgent;
 import org.joker.comfypilot.agent.domain.callback.AgentCallback;
 import org.joker.comfypilot.agent.domain.context.AgentExecutionContext;
@@ -24,6 +25,7 @@ import org.joker.comfypilot.agent.domain.service.AbstractAgent;
 import org.joker.comfypilot.agent.domain.service.Agent;
 import org.joker.comfypilot.agent.domain.service.AgentConfigDefinition;
 import org.joker.comfypilot.agent.domain.toolcall.ToolCallWaitManager;
+import org.joker.comfypilot.agent.infrastructure.config.AgentEventProperties;
 import org.joker.comfypilot.agent.infrastructure.tool.StatusUpdateTool;
 import org.joker.comfypilot.agent.infrastructure.tool.TodoWriteTool;
 import org.joker.comfypilot.cfsvr.application.dto.ComfyuiDirectoryConfigDTO;
@@ -63,9 +65,11 @@ import org.joker.comfypilot.tool.domain.service.ToolRegistry;
 import org.joker.comfypilot.agent.domain.react.ReactExecutor;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -98,6 +102,13 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
     @Autowired
     private OrderAgent orderAgent;
     @Autowired
+    private ConversationCompactor conversationCompactor;
+    @Autowired
+    private AgentEventProperties agentEventProperties;
+    @Autowired
+    @Qualifier("agentEventExecutor")
+    private Executor agentEventExecutor;
+    @Autowired
     private SkillsRegistry skillsRegistry;
     @Autowired
     private RedisUtil redisUtil;
@@ -233,6 +244,15 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                 addAgentTools(executionContext, toolSpecs, SkillsDocumentTools.class);
             }
 
+            // 添加外部MCP服务器工具（与客户端工具重名时以客户端工具为准）
+            for (Tool externalTool : toolRegistry.getExternalTools()) {
+                if (executionContext.getClientToolNames().contains(externalTool.toolName())) {
+                    log.warn("外部工具与客户端工具重名，已忽略: toolName={}", externalTool.toolName());
+                    continue;
+                }
+                toolSpecs.add(externalTool.toolSpecification());
+            }
+
             // Agent构建ComfyUI服务高级功能提示词和补充工具
             ChatSessionDTO chatSessionDTO = chatSessionService.getSessionByCode(executionContext.getSessionCode());
             ComfyuiServerDTO comfyuiServerDTO = comfyuiServerService.getById(chatSessionDTO.getComfyuiServerId());
@@ -376,8 +396,10 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
 
             AtomicReference<StringBuilder> streamOutputBuilder = new AtomicReference<>();
 
-            // 初始化事件发布器
-            AgentEventPublisher eventPublisher = new AgentEventPublisher();
+            // 初始化事件发布器（推送消息、保存消息等监听器异步有序执行，不阻塞流式输出）
+            AgentEventPublisher eventPublisher = new AgentEventPublisher(
+                    Boolean.TRUE.equals(agentEventProperties.getAsyncDispatch()) ? agentEventExecutor : null,
+                    agentEventProperties.getSlowListenerThreshold());
             executionContext.setEventPublisher(eventPublisher);
 
             // ==================== 注册事件监听器 ====================
@@ -393,7 +415,7 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
 
             eventPublisher.addEventListener(AgentEventType.AFTER_TOOL_CALL, (AfterToolCallEvent event) -> {
                 agentCallback.onPrompt(AgentPromptType.TOOL_COMPLETE, null, false);
-            });
+            }, true);
 
             // 流式输出事件 -> AgentCallback.onStream()
             eventPublisher.addEventListener(AgentEventType.STREAM, (StreamEvent event) -> {
@@ -401,7 +423,7 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                 if (streamOutputBuilder.get() != null) {
                     streamOutputBuilder.get().append(event.getChunk());
                 }
-            });
+            }, true);
 
             // 流式输出完成事件 -> AgentCallback.onStreamComplete()
             eventPublisher.addEventListener(AgentEventType.STREAM_COMPLETE, (StreamCompleteEvent event) -> {
@@ -415,7 +437,7 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                     long totalTokens = tokenUsage.totalTokenCount();
                     redisUtil.set(tokenUsageRedisKey, totalTokens);
                 }
-            });
+            }, true);
 
             AtomicBoolean isStarted = new AtomicBoolean(false);
             // 迭代开始事件
@@ -424,22 +446,8 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                     agentCallback.onPrompt(AgentPromptType.STARTED, null, false);
                 }
 
-                boolean needAutoSummery = false;
-                String tokenUsageRedisKey = RedisKeyConstants.getSessionTokenUsageKey(executionContext.getSessionCode());
-                Object tokenUsageObj = redisUtil.get(tokenUsageRedisKey);
-                // 自动摘要
-                if (tokenUsageObj instanceof Long tokenUsage) {
-                    if (tokenUsage > maxTokens * 0.9) {
-                        needAutoSummery = true;
-                    }
-                }
-                if (agentCallback.getMemoryMessages().size() >= maxMessages) {
-                    needAutoSummery = true;
-                }
-
-                if (needAutoSummery) {
-                    orderAgent.summery(executionContext).join();
-                }
+                // 自动摘要（提前在后台生成，达到上限时直接替换）
+                conversationCompactor.onIterationStart(executionContext);
             });
 
             // 迭代结束事件
@@ -462,7 +470,7 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                                                     .content("")
                                                     .chatContent(PersistableChatMessage.toJsonString(AiMessage.aiMessage(streamOutput.toString())))
                                                     .build();
-                                    chatSessionService.saveMessage(dbMessage);
+                                    chatSessionService.saveMessageDeferred(dbMessage);
                                 }
                             }
                         }
@@ -472,6 +480,9 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                     }
                 }
 
+                // 每轮迭代结束时把延迟保存的消息批量写入数据库
+                chatSessionService.flushMessages(executionContext.getSessionId());
+
                 if (!event.isWillContinue() && executionContext.getExecutionLog() != null) {
                     // 记录日志
                     AgentExecutionLog executionLog = executionContext.getExecutionLog();
@@ -486,6 +497,7 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                 }
 
                 if (!event.isWillContinue()) {
+                    eventPublisher.logListenerLatencies();
                     if (executionContext.getWebSocketSessionContext().completeExecution(executionContext.getRequestId())) {
                         agentCallback.onPrompt(AgentPromptType.COMPLETE, null, false);
                         executionContext.executeCompleteCallbacks(event.isSuccess(), event.getException());
@@ -495,7 +507,11 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
 
             // 工具调用通知事件 -> AgentCallback.onToolCall()
             eventPublisher.addEventListener(AgentEventType.TOOL_CALL_NOTIFY, (ToolCallNotifyEvent event) -> {
-                agentCallback.onToolCall(executionContext.getClientToolNames().contains(event.getToolName()), false, event.getToolCallId(), event.getToolName(), event.getToolArgs());
+                agentCallback.onToolCall(executionContext.getClientToolNames().contains(event.getToolName()), false, event.isDirectExecute(), event.getToolCallId(), event.getToolName(), event.getToolArgs());
+                if (event.isDirectExecute()) {
+                    // 服务端直接执行的工具没有等待回调
+                    return;
+                }
                 // 连接断开时直接取消回调
                 sessionManager.addRemovedCallback(executionContext.getConnectSessionId(), () -> {
                     toolCallWaitManager.cancelWait(event.getToolCallId(), event.getToolName());
@@ -529,14 +545,14 @@ public class WorkflowAgent extends AbstractAgent implements Agent {
                                     .content("")
                                     .chatContent(PersistableChatMessage.toJsonString(langchainChatMessage))
                                     .build();
-                    dbMessage = chatSessionService.saveMessage(dbMessage);
+                    dbMessage = chatSessionService.saveMessageDeferred(dbMessage);
                     log.debug("消息已保存到数据库: sessionCode={}, messageType={}, iteration={}",
                             event.getContext().getSessionCode(), event.getMessageType(), event.getIteration());
                 } catch (Exception e) {
                     log.error("保存消息到数据库失败: sessionCode={}", event.getContext().getSessionCode(), e);
                     throw new BusinessException("保存消息到数据库失败");
                 }
-            });
+            }, true);
 
             // 执行 ReAct 循环（响应式，非阻塞）
             reactExecutor.executeReactLoop(streamingModel, chatRequest, executionContext, 100);
@@ -66,7 +66,21 @@ public interface AgentCallback {
      * @param toolName     工具名称
      * @param toolArgs     工具参数
      */
-    void onToolCall(boolean isClientTool, boolean isMcpTool, String toolCallId, String toolName, String toolArgs);
+    default void onToolCall(boolean isClientTool, boolean isMcpTool, String toolCallId, String toolName, String toolArgs) {
+        onToolCall(isClientTool, isMcpTool, false, toolCallId, toolName, toolArgs);
+    }
+
+    /**
+     * 当Agent调用Tool时调用
+     *
+     * @param isClientTool    是否是客户端工具
+     * @param isMcpTool       是否是MCP工具
+     * @param isDirectExecute 是否由服务端直接执行（客户端仅展示，无需响应）
+     * @param toolCallId      工具调用ID
+     * @param toolName        工具名称
+     * @param toolArgs        工具参数
+     */
+    void onToolCall(boolean isClientTool, boolean isMcpTool, boolean isDirectExecute, String toolCallId, String toolName, String toolArgs);
 
     /**
      * 检查是否被中断
@@ -82,6 +96,8 @@ public interface AgentCallback {
 
     /**
      * 获取历史消息
+     *
+     * @return 历史消息的不可变快照
      */
     List<ChatMessage> getMemoryMessages();
 }
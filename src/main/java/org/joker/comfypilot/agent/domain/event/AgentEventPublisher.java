@@ -5,11 +5,20 @@ import lombok.extern.slf4j.Slf4j;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Agent 事件发布器
  * 管理事件监听器的注册和事件的发布
+ * <p>
+ * 监听器默认在发布线程上同步执行。指定了异步执行器时，注册为异步的监听器会进入本发布器的有序队列，
+ * 在执行器上按发布顺序依次执行，不阻塞发布线程（例如流式输出）。
+ * 同步监听器执行前会等待队列中已发布的异步任务执行完成，保证所有监听器看到的事件顺序与发布顺序一致。
+ * 可取消的事件（{@link AgentEventType#isCancellable()}）始终同步分发。
  */
 @Slf4j
 public class AgentEventPublisher {
@@ -19,17 +28,62 @@ public class AgentEventPublisher {
      * Key: 事件类型
      * Value: 监听器列表
      */
-    private final Map<AgentEventType, List<AgentEventListener<? extends AgentEvent>>> listeners = new ConcurrentHashMap<>(1024);
+    private final Map<AgentEventType, List<Registration>> listeners = new ConcurrentHashMap<>(1024);
 
     /**
-     * 注册事件监听器
+     * 监听器耗时统计
+     * Key: 事件类型
+     * Value: 耗时统计
+     */
+    private final Map<AgentEventType, LatencyStats> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * 异步监听器的有序队列，为null时所有监听器同步执行
+     */
+    private final OrderedQueue asyncQueue;
+
+    /**
+     * 慢监听器告警阈值（纳秒）
+     */
+    private final long slowListenerThresholdNanos;
+
+    public AgentEventPublisher() {
+        this(null, 0);
+    }
+
+    /**
+     * @param asyncExecutor          异步监听器执行器，为null时所有监听器同步执行
+     * @param slowListenerThresholdMs 单个监听器执行超过该时间（毫秒）时输出告警日志，0表示不告警
+     */
+    public AgentEventPublisher(Executor asyncExecutor, long slowListenerThresholdMs) {
+        this.asyncQueue = asyncExecutor != null ? new OrderedQueue(asyncExecutor) : null;
+        this.slowListenerThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowListenerThresholdMs);
+    }
+
+    /**
+     * 注册事件监听器（同步执行）
      *
      * @param eventType 事件类型
      * @param listener  监听器
      */
     public <T extends AgentEvent> void addEventListener(AgentEventType eventType, AgentEventListener<T> listener) {
-        listeners.computeIfAbsent(eventType, k -> new ArrayList<>()).add(listener);
-        log.debug("注册事件监听器: eventType={}", eventType);
+        addEventListener(eventType, listener, false);
+    }
+
+    /**
+     * 注册事件监听器
+     *
+     * @param eventType 事件类型
+     * @param listener  监听器
+     * @param async     是否异步执行（可取消的事件或未指定异步执行器时忽略，仍同步执行）
+     */
+    public <T extends AgentEvent> void addEventListener(AgentEventType eventType, AgentEventListener<T> listener, boolean async) {
+        if (async && eventType.isCancellable()) {
+            log.warn("可取消的事件只能同步分发，监听器改为同步执行: eventType={}", eventType);
+        }
+        boolean dispatchAsync = async && asyncQueue != null && !eventType.isCancellable();
+        listeners.computeIfAbsent(eventType, k -> new ArrayList<>()).add(new Registration(listener, dispatchAsync));
+        log.debug("注册事件监听器: eventType={}, async={}", eventType, dispatchAsync);
     }
 
     /**
@@ -39,9 +93,9 @@ public class AgentEventPublisher {
      * @param listener  监听器
      */
     public <T extends AgentEvent> void removeEventListener(AgentEventType eventType, AgentEventListener<T> listener) {
-        List<AgentEventListener<? extends AgentEvent>> eventListeners = listeners.get(eventType);
+        List<Registration> eventListeners = listeners.get(eventType);
         if (eventListeners != null) {
-            eventListeners.remove(listener);
+            eventListeners.removeIf(registration -> registration.listener() == listener);
             log.debug("移除事件监听器: eventType={}", eventType);
         }
     }
@@ -51,26 +105,56 @@ public class AgentEventPublisher {
      *
      * @param event 事件对象
      */
-    @SuppressWarnings("unchecked")
     public <T extends AgentEvent> void publishEvent(T event) {
-        List<AgentEventListener<? extends AgentEvent>> eventListeners = listeners.get(event.getEventType());
+        List<Registration> eventListeners = listeners.get(event.getEventType());
         if (eventListeners != null && !eventListeners.isEmpty()) {
-            for (AgentEventListener<? extends AgentEvent> listener : eventListeners) {
-                try {
-                    ((AgentEventListener<T>) listener).onEvent(event);
+            for (Registration registration : eventListeners) {
+                if (registration.async()) {
+                    asyncQueue.submit(() -> invoke(registration, event));
+                    continue;
+                }
 
-                    // 如果事件被取消，停止传播
-                    if (event.isCancelled()) {
-                        log.debug("事件已被取消，停止传播: eventType={}", event.getEventType());
-                        break;
-                    }
-                } catch (Exception e) {
-                    log.error("事件监听器执行失败: eventType={}, error={}", event.getEventType(), e.getMessage(), e);
+                awaitAsyncListeners();
+                invoke(registration, event);
+
+                // 如果事件被取消，停止传播
+                if (event.isCancelled()) {
+                    log.debug("事件已被取消，停止传播: eventType={}", event.getEventType());
+                    break;
                 }
             }
         }
     }
 
+    /**
+     * 等待已发布事件的异步监听器执行完成
+     */
+    public void awaitAsyncListeners() {
+        if (asyncQueue != null) {
+            asyncQueue.awaitIdle();
+        }
+    }
+
+    /**
+     * 获取各事件类型的监听器耗时统计
+     */
+    public Map<AgentEventType, ListenerLatency> getListenerLatencies() {
+        Map<AgentEventType, ListenerLatency> result = new ConcurrentHashMap<>();
+        latencies.forEach((eventType, stats) -> result.put(eventType, stats.snapshot()));
+        return result;
+    }
+
+    /**
+     * 输出各事件类型的监听器耗时统计
+     */
+    public void logListenerLatencies() {
+        latencies.forEach((eventType, stats) -> {
+            ListenerLatency latency = stats.snapshot();
+            log.info("事件监听器耗时: eventType={}, count={}, totalMs={}, avgMs={}, maxMs={}",
+                    eventType, latency.count(), latency.totalMs(), latency.avgMs(), latency.maxMs());
+        });
+    }
+
     /**
      * 清空所有监听器
      */
@@ -78,4 +162,117 @@ public class AgentEventPublisher {
         listeners.clear();
         log.debug("清空所有事件监听器");
     }
+
+    @SuppressWarnings("unchecked")
+    private <T extends AgentEvent> void invoke(Registration registration, T event) {
+        long start = System.nanoTime();
+        try {
+            ((AgentEventListener<T>) registration.listener()).onEvent(event);
+        } catch (Exception e) {
+            log.error("事件监听器执行失败: eventType={}, error={}", event.getEventType(), e.getMessage(), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            latencies.computeIfAbsent(event.getEventType(), k -> new LatencyStats()).record(elapsed);
+            if (slowListenerThresholdNanos > 0 && elapsed > slowListenerThresholdNanos) {
+                log.warn("事件监听器执行缓慢: eventType={}, async={}, costMs={}",
+                        event.getEventType(), registration.async(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+
+    private record Registration(AgentEventListener<? extends AgentEvent> listener, boolean async) {
+    }
+
+    /**
+     * 监听器耗时
+     *
+     * @param count   执行次数
+     * @param totalMs 总耗时（毫秒）
+     * @param maxMs   最大耗时（毫秒）
+     */
+    public record ListenerLatency(long count, long totalMs, long maxMs) {
+
+        public long avgMs() {
+            return count > 0 ? totalMs / count : 0;
+        }
+    }
+
+    private static final class LatencyStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        ListenerLatency snapshot() {
+            return new ListenerLatency(count.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+        }
+    }
+
+    /**
+     * 有序执行队列，同一时刻最多有一个线程在执行队列中的任务
+     */
+    private static final class OrderedQueue {
+
+        /**
+         * 当前线程正在执行的队列
+         */
+        private static final ThreadLocal<OrderedQueue> DRAINING = new ThreadLocal<>();
+
+        private final Executor executor;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        OrderedQueue(Executor executor) {
+            this.executor = executor;
+        }
+
+        void submit(Runnable task) {
+            // 先入队再计数，计数大于0时队列中一定有任务
+            tasks.offer(task);
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    drain();
+                }
+            }
+        }
+
+        /**
+         * 等待队列中的任务执行完成，在队列自身的执行线程上调用时直接返回
+         */
+        void awaitIdle() {
+            if (pending.get() == 0 || DRAINING.get() == this) {
+                return;
+            }
+            CompletableFuture<Void> barrier = new CompletableFuture<>();
+            submit(() -> barrier.complete(null));
+            barrier.join();
+        }
+
+        private void drain() {
+            OrderedQueue previous = DRAINING.get();
+            DRAINING.set(this);
+            try {
+                do {
+                    Runnable task = tasks.poll();
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        log.error("异步事件任务执行失败: {}", e.getMessage(), e);
+                    }
+                } while (pending.decrementAndGet() > 0);
+            } finally {
+                DRAINING.set(previous);
+            }
+        }
+    }
 }
@@ -11,57 +11,57 @@ public enum AgentEventType {
     /**
      * LLM 调用前
      */
-    BEFORE_LLM_CALL("LLM调用前", BeforeLlmCallEvent.class),
+    BEFORE_LLM_CALL("LLM调用前", BeforeLlmCallEvent.class, true),
 
     /**
      * LLM 调用后
      */
-    AFTER_LLM_CALL("LLM调用后", AfterLlmCallEvent.class),
+    AFTER_LLM_CALL("LLM调用后", AfterLlmCallEvent.class, false),
 
     /**
      * 消息添加前
      */
-    BEFORE_MESSAGE_ADD("消息添加前", BeforeMessageAddEvent.class),
+    BEFORE_MESSAGE_ADD("消息添加前", BeforeMessageAddEvent.class, true),
 
     /**
      * 消息添加后
      */
-    AFTER_MESSAGE_ADD("消息添加后", AfterMessageAddEvent.class),
+    AFTER_MESSAGE_ADD("消息添加后", AfterMessageAddEvent.class, false),
 
     /**
      * 工具调用前
      */
-    BEFORE_TOOL_CALL("工具调用前", BeforeToolCallEvent.class),
+    BEFORE_TOOL_CALL("工具调用前", BeforeToolCallEvent.class, true),
 
     /**
      * 工具调用后
      */
-    AFTER_TOOL_CALL("工具调用后", AfterToolCallEvent.class),
+    AFTER_TOOL_CALL("工具调用后", AfterToolCallEvent.class, false),
 
     /**
      * 迭代开始
      */
-    ITERATION_START("迭代开始", IterationStartEvent.class),
+    ITERATION_START("迭代开始", IterationStartEvent.class, true),
 
     /**
      * 迭代结束
      */
-    ITERATION_END("迭代结束", IterationEndEvent.class),
+    ITERATION_END("迭代结束", IterationEndEvent.class, false),
 
     /**
      * 流式输出片段
      */
-    STREAM("流式输出", StreamEvent.class),
+    STREAM("流式输出", StreamEvent.class, false),
 
     /**
      * 流式输出完成
      */
-    STREAM_COMPLETE("流式输出完成", StreamCompleteEvent.class),
+    STREAM_COMPLETE("流式输出完成", StreamCompleteEvent.class, false),
 
     /**
      * 工具调用通知
      */
-    TOOL_CALL_NOTIFY("工具调用通知", ToolCallNotifyEvent.class);
+    TOOL_CALL_NOTIFY("工具调用通知", ToolCallNotifyEvent.class, false);
 
     private final String description;
 
@@ -70,8 +70,14 @@ public enum AgentEventType {
      */
     private final Class<? extends AgentEvent> eventClass;
 
-    AgentEventType(String description, Class<? extends AgentEvent> eventClass) {
+    /**
+     * 是否可取消（监听器可通过取消事件中断后续执行，只能同步分发）
+     */
+    private final boolean cancellable;
+
+    AgentEventType(String description, Class<? extends AgentEvent> eventClass, boolean cancellable) {
         this.description = description;
         this.eventClass = eventClass;
+        this.cancellable = cancellable;
     }
 }
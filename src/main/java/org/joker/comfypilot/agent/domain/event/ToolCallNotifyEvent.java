@@ -32,12 +32,23 @@ public class ToolCallNotifyEvent extends AgentEvent {
      */
     private final String toolCallId;
 
+    /**
+     * 是否由服务端直接执行（客户端仅展示，无需响应）
+     */
+    private final boolean directExecute;
+
     public ToolCallNotifyEvent(AgentExecutionContext context, int iteration,
                                String toolName, String toolArgs, String toolCallId) {
+        this(context, iteration, toolName, toolArgs, toolCallId, false);
+    }
+
+    public ToolCallNotifyEvent(AgentExecutionContext context, int iteration,
+                               String toolName, String toolArgs, String toolCallId, boolean directExecute) {
         super(AgentEventType.TOOL_CALL_NOTIFY, context);
         this.iteration = iteration;
         this.toolName = toolName;
         this.toolArgs = toolArgs;
         this.toolCallId = toolCallId;
+        this.directExecute = directExecute;
     }
 }
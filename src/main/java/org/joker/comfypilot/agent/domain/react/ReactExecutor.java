@@ -1,5 +1,6 @@
 package org.joker.comfypilot.agent.domain.react;
 
+import cn.hutool.core.exceptions.ExceptionUtil;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
@@ -13,11 +14,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.joker.comfypilot.agent.domain.callback.AgentCallback;
 import org.joker.comfypilot.agent.domain.context.AgentExecutionContext;
+import org.joker.comfypilot.agent.domain.context.AgentExecutionContextHolder;
 import org.joker.comfypilot.agent.domain.event.*;
 import org.joker.comfypilot.agent.domain.toolcall.ToolCallWaitManager;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.common.util.TraceIdUtil;
 import org.joker.comfypilot.session.application.dto.AgentCallToolResult;
+import org.joker.comfypilot.tool.domain.service.Tool;
+import org.joker.comfypilot.tool.domain.service.ToolRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -25,8 +29,10 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * ReAct 执行器
@@ -39,6 +45,9 @@ public class ReactExecutor {
     @Autowired
     private ToolCallWaitManager toolCallWaitManager;
 
+    @Autowired
+    private ToolRegistry toolRegistry;
+
     @Autowired
     @Qualifier("agentExecutor")
     private Executor agentExecutor;
@@ -184,7 +193,7 @@ public class ReactExecutor {
                                             throw new BusinessException(new InterruptedException("迭代被手动中断"));
                                         }
 
-                                        // 6. 构建下一轮请求
+                                        // 6. 构建下一轮请求（内存消息的不可变快照，本轮迭代内不受后续追加影响）
                                         ChatRequest nextRequest = ChatRequest.builder()
                                                 .messages(context.getAgentCallback().getMemoryMessages())
                                                 .toolSpecifications(chatRequest.toolSpecifications())
@@ -332,11 +341,19 @@ public class ReactExecutor {
                 context.getEventPublisher().publishEvent(beforeToolCallEvent);
             }
 
-            // 创建异步等待回调
-            CompletableFuture<AgentCallToolResult> responseFuture = toolCallWaitManager.createWait(
-                    toolCallId,
-                    toolName
-            );
+            CompletableFuture<AgentCallToolResult> responseFuture;
+            Tool directTool = getDirectExecuteTool(context, toolName);
+            if (directTool != null) {
+                // 无需用户确认的服务端工具：先通知客户端展示，再直接在服务端执行，不经过客户端往返
+                publishToolCallNotify(context, iteration, request, true);
+                responseFuture = executeServerTool(context, directTool, toolCallId, toolName, toolArgs);
+            } else {
+                // 创建异步等待回调
+                responseFuture = toolCallWaitManager.createWait(
+                        toolCallId,
+                        toolName
+                );
+            }
 
             // 将响应 Future 转换为结果消息 Future
             CompletableFuture<ToolExecutionResultMessage> resultFuture = responseFuture
@@ -367,12 +384,9 @@ public class ReactExecutor {
 
             toolFutures.add(resultFuture);
 
-            // 发布工具调用通知事件
-            if (context.getEventPublisher() != null) {
-                ToolCallNotifyEvent notifyEvent = new ToolCallNotifyEvent(
-                        context, iteration, toolName, toolArgs, toolCallId
-                );
-                context.getEventPublisher().publishEvent(notifyEvent);
+            // 发布工具调用通知事件（等待创建后再通知，避免响应先于等待到达）
+            if (directTool == null) {
+                publishToolCallNotify(context, iteration, request, false);
             }
         }
 
@@ -383,6 +397,77 @@ public class ReactExecutor {
                         .toList(), agentExecutor);
     }
 
+    /**
+     * 发布工具调用通知事件
+     */
+    private void publishToolCallNotify(AgentExecutionContext context, int iteration,
+                                       ToolExecutionRequest request, boolean directExecute) {
+        if (context.getEventPublisher() != null) {
+            ToolCallNotifyEvent notifyEvent = new ToolCallNotifyEvent(
+                    context, iteration, request.name(), request.arguments(), request.id(), directExecute
+            );
+            context.getEventPublisher().publishEvent(notifyEvent);
+        }
+    }
+
+    /**
+     * 获取可在服务端直接执行的工具
+     *
+     * @return 无需用户确认的服务端工具，不满足条件时返回 null
+     */
+    private Tool getDirectExecuteTool(AgentExecutionContext context, String toolName) {
+        // 同名的客户端工具、MCP工具优先
+        if (context.getClientToolNames() != null && context.getClientToolNames().contains(toolName)) {
+            return null;
+        }
+        if (context.getMcpToolNames() != null && context.getMcpToolNames().contains(toolName)) {
+            return null;
+        }
+        Tool tool = toolRegistry.getToolByName(toolName);
+        if (tool == null || tool.isClientTool() || !tool.isDirectExecute()) {
+            return null;
+        }
+        return tool;
+    }
+
+    /**
+     * 执行服务端工具（与客户端响应后的执行逻辑一致）
+     * <p>
+     * 同步工具在执行器上执行；异步工具（如 MCP 外部工具）在响应到达时直接完成返回的 Future
+     */
+    private CompletableFuture<AgentCallToolResult> executeServerTool(AgentExecutionContext context, Tool serverTool,
+                                                                     String toolCallId, String toolName, String toolArgs) {
+        return CompletableFuture.supplyAsync(() -> {
+                    TraceIdUtil.setTraceId(context.getTraceId());
+                    try {
+                        AgentExecutionContextHolder.set(context);
+                        return serverTool.executeToolAsync(toolCallId, toolName, toolArgs);
+                    } finally {
+                        AgentExecutionContextHolder.clear();
+                    }
+                }, agentExecutor)
+                .thenCompose(Function.identity())
+                .handle((executeResult, ex) -> {
+                    AgentCallToolResult.AgentCallToolResultBuilder resultBuilder = AgentCallToolResult.builder()
+                            .toolCallId(toolCallId)
+                            .toolName(toolName)
+                            .isClientTool(false)
+                            .isMcpTool(false)
+                            .toolArgs(toolArgs)
+                            .isAllow(true);
+                    if (ex == null) {
+                        return resultBuilder.success(true).result(executeResult).build();
+                    }
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    TraceIdUtil.setTraceId(context.getTraceId());
+                    log.error("服务端工具执行失败: toolName={}", toolName, cause);
+                    return resultBuilder.success(false)
+                            .result(ExceptionUtil.stacktraceToString(cause))
+                            .error(cause.getMessage())
+                            .build();
+                });
+    }
+
     /**
      * 构建工具结果文本
      */
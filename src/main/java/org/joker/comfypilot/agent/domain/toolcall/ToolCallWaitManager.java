@@ -99,6 +99,17 @@ public class ToolCallWaitManager {
         }
     }
 
+    /**
+     * 是否存在工具调用等待
+     *
+     * @param toolCallId 请求ID
+     * @param toolName   工具名称
+     * @return 是否正在等待
+     */
+    public boolean isWaiting(String toolCallId, String toolName) {
+        return waitingToolCalls.containsKey(buildKey(toolCallId, toolName));
+    }
+
     /**
      * 构建唯一键
      */
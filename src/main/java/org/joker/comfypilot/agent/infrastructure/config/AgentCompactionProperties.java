@@ -0,0 +1,34 @@
+package org.joker.comfypilot.agent.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 对话历史后台压缩配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.compaction")
+public class AgentCompactionProperties {
+
+    /**
+     * 是否在后台提前生成摘要（关闭时达到上限才同步生成摘要）
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 开始后台生成摘要的比例（相对最大Token数、最大消息数）
+     */
+    private Double softWatermark = 0.6;
+
+    /**
+     * 必须替换为摘要的比例（相对最大Token数）
+     */
+    private Double hardWatermark = 0.9;
+
+    /**
+     * 参与摘要的历史消息最少条数，少于该值时不在后台生成摘要
+     */
+    private Integer minMessages = 4;
+}
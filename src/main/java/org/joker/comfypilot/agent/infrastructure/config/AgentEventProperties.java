@@ -0,0 +1,24 @@
+package org.joker.comfypilot.agent.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agent 事件分发配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.event")
+public class AgentEventProperties {
+
+    /**
+     * 是否启用异步分发（关闭时所有监听器在Agent线程上同步执行）
+     */
+    private Boolean asyncDispatch = true;
+
+    /**
+     * 单个监听器执行超过该时间（毫秒）时输出告警日志，0表示不告警
+     */
+    private Long slowListenerThreshold = 200L;
+}
@@ -0,0 +1,186 @@
+package org.joker.comfypilot.agent.infrastructure.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 分段追加式消息日志
+ * 消息按固定大小的分段存储，追加时只写入尾部分段，不会复制已有消息；
+ * 读取时返回不可变的快照视图，快照创建后不受后续追加影响。
+ * <p>
+ * 写操作需要由调用方串行化（ChatMemoryChatMemoryStore 中通过 ConcurrentHashMap.compute 保证），
+ * 读操作（快照）无需加锁。
+ */
+public class SegmentedMessageLog {
+
+    /**
+     * 每个分段的容量（2的幂，便于位运算定位）
+     */
+    private static final int SEGMENT_SHIFT = 6;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * 当前状态（分段目录 + 消息数量 + 系统消息），整体替换发布，保证快照读取的一致性
+     * 分段目录仅在新增分段或截断时复制目录本身，已写入的分段不会被复制
+     */
+    private volatile State state = new State(new ChatMessage[4][], 0, null);
+
+    /**
+     * 最后一条带工具调用请求的AiMessage的位置，-1表示不存在
+     */
+    private int lastToolRequestIndex = -1;
+
+    public void setSystemMessage(SystemMessage systemMessage) {
+        State current = state;
+        state = new State(current.segments, current.size, systemMessage);
+    }
+
+    public SystemMessage getSystemMessage() {
+        return state.systemMessage;
+    }
+
+    /**
+     * 追加一条非系统消息
+     */
+    public void append(ChatMessage message) {
+        State current = state;
+        int index = current.size;
+        int segmentIndex = index >>> SEGMENT_SHIFT;
+        ChatMessage[][] segments = current.segments;
+        if (segmentIndex >= segments.length) {
+            segments = Arrays.copyOf(segments, segments.length << 1);
+        }
+        if (segments[segmentIndex] == null) {
+            segments[segmentIndex] = new ChatMessage[SEGMENT_SIZE];
+        }
+        segments[segmentIndex][index & SEGMENT_MASK] = message;
+        if (message instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+            lastToolRequestIndex = index;
+        }
+        state = new State(segments, index + 1, current.systemMessage);
+    }
+
+    /**
+     * 获取非系统消息
+     */
+    public ChatMessage get(int index) {
+        return state.body(index);
+    }
+
+    /**
+     * 非系统消息数量
+     */
+    public int size() {
+        return state.size;
+    }
+
+    /**
+     * 包含系统消息在内的最后一条消息
+     */
+    public ChatMessage last() {
+        State current = state;
+        if (current.size == 0) {
+            return current.systemMessage;
+        }
+        return current.body(current.size - 1);
+    }
+
+    public boolean isEmpty() {
+        State current = state;
+        return current.size == 0 && current.systemMessage == null;
+    }
+
+    /**
+     * 截断尾部消息（仅用于移除异常的尾部消息）
+     * 被截断范围所在的分段会被复制，已发出的快照仍然引用旧分段，不受影响
+     *
+     * @param newSize 截断后的非系统消息数量
+     */
+    public void truncate(int newSize) {
+        State current = state;
+        if (newSize < 0 || newSize >= current.size) {
+            return;
+        }
+        ChatMessage[][] segments = current.segments.clone();
+        int segmentIndex = newSize >>> SEGMENT_SHIFT;
+        if (segments[segmentIndex] != null) {
+            ChatMessage[] copied = new ChatMessage[SEGMENT_SIZE];
+            System.arraycopy(segments[segmentIndex], 0, copied, 0, newSize & SEGMENT_MASK);
+            segments[segmentIndex] = copied;
+        }
+        for (int i = segmentIndex + 1; i < segments.length; i++) {
+            segments[i] = null;
+        }
+        if (lastToolRequestIndex >= newSize) {
+            lastToolRequestIndex = -1;
+            for (int i = newSize - 1; i >= 0; i--) {
+                if (current.body(i) instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                    lastToolRequestIndex = i;
+                    break;
+                }
+            }
+        }
+        state = new State(segments, newSize, current.systemMessage);
+    }
+
+    /**
+     * 最后一条带工具调用请求的AiMessage的位置
+     */
+    public int lastToolRequestIndex() {
+        return lastToolRequestIndex;
+    }
+
+    /**
+     * 创建不可变快照视图，不复制消息
+     */
+    public List<ChatMessage> snapshot() {
+        return new Snapshot(state);
+    }
+
+    /**
+     * 日志状态，发布后不再修改（分段中 size 之后的位置可能被后续追加写入，但不在本状态可见范围内）
+     */
+    private record State(ChatMessage[][] segments, int size, SystemMessage systemMessage) {
+
+        ChatMessage body(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+        }
+    }
+
+    /**
+     * 不可变快照视图
+     */
+    private static final class Snapshot extends AbstractList<ChatMessage> implements RandomAccess {
+
+        private final State state;
+        private final int offset;
+
+        private Snapshot(State state) {
+            this.state = state;
+            this.offset = state.systemMessage != null ? 1 : 0;
+        }
+
+        @Override
+        public ChatMessage get(int index) {
+            if (offset == 1 && index == 0) {
+                return state.systemMessage;
+            }
+            return state.body(index - offset);
+        }
+
+        @Override
+        public int size() {
+            return state.size + offset;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
+import org.joker.comfypilot.common.infrastructure.persistence.annotation.IgnoreLogicalDeleteInsert;
 import org.joker.comfypilot.common.infrastructure.persistence.po.BasePO;
 
 /**
@@ -16,6 +17,7 @@ import org.joker.comfypilot.common.infrastructure.persistence.po.BasePO;
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
+@IgnoreLogicalDeleteInsert
 @TableName("agent_execution_log")
 public class AgentExecutionLogPO extends BasePO {
 
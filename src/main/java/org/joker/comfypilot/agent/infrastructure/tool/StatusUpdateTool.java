@@ -12,6 +12,7 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.joker.comfypilot.agent.domain.context.AgentExecutionContext;
 import org.joker.comfypilot.agent.domain.context.AgentExecutionContextHolder;
+import org.joker.comfypilot.common.annotation.DirectExecute;
 import org.joker.comfypilot.common.annotation.ToolSet;
 import org.joker.comfypilot.common.config.JacksonConfig;
 import org.joker.comfypilot.common.exception.BusinessException;
@@ -32,6 +33,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 @Component
 @ToolSet
+@DirectExecute
 @RequiredArgsConstructor
 public class StatusUpdateTool {
 
@@ -1,6 +1,8 @@
 package org.joker.comfypilot.auth.application.service;
 
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.auth.infrastructure.cache.AuthNearCache;
 import org.joker.comfypilot.auth.infrastructure.redis.model.UserSessionRedis;
 import org.joker.comfypilot.auth.infrastructure.redis.model.UserTokenRedis;
 import org.joker.comfypilot.auth.infrastructure.redis.repository.SessionRedisRepository;
@@ -24,6 +26,8 @@ public class TokenAuthService {
     private TokenRedisRepository tokenRedisRepository;
     @Autowired
     private SessionRedisRepository sessionRedisRepository;
+    @Autowired
+    private AuthNearCache authNearCache;
 
     /**
      * 验证Token并返回用户会话
@@ -43,8 +47,17 @@ public class TokenAuthService {
         }
 
         try {
+            // 0. 本地缓存命中时无需解析JWT和访问Redis
+            UserSessionRedis cachedSession = authNearCache.getSession(token);
+            if (cachedSession != null) {
+                sessionRedisRepository.refreshSessionIfNeeded(cachedSession.getUserId());
+                return cachedSession;
+            }
+            long cacheVersion = authNearCache.currentVersion();
+
             // 1. 验证Token格式和签名
-            if (!jwtUtil.validateToken(token)) {
+            Claims claims = jwtUtil.getValidClaims(token);
+            if (claims == null) {
                 log.warn("Token验证失败");
                 return null;
             }
@@ -63,7 +76,7 @@ public class TokenAuthService {
             }
 
             // 4. 获取用户ID
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = claims.get("userId", Long.class);
 
             // 5. 从Redis获取用户会话
             UserSessionRedis session = sessionRedisRepository.getSession(userId);
@@ -72,8 +85,9 @@ public class TokenAuthService {
                 return null;
             }
 
-            // 6. 刷新会话过期时间
-            sessionRedisRepository.refreshSession(userId);
+            // 6. 写入本地缓存并按需刷新会话过期时间
+            authNearCache.put(token, session, claims.getExpiration().getTime(), cacheVersion);
+            sessionRedisRepository.refreshSessionIfNeeded(userId);
 
             log.debug("Token验证成功, userId: {}", userId);
             return session;
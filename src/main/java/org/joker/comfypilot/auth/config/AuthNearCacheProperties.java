@@ -0,0 +1,35 @@
+package org.joker.comfypilot.auth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 认证本地缓存配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "auth.near-cache")
+public class AuthNearCacheProperties {
+
+    /**
+     * 是否启用本地缓存，关闭时每次请求都查询 Redis
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 已验证Token和用户会话在本地的缓存时间（秒）
+     * 撤销、登出、会话更新通过 Redis 发布订阅即时通知各节点，该时间只是消息丢失时的兜底
+     */
+    private Integer ttl = 30;
+
+    /**
+     * 本地最多缓存的Token数量
+     */
+    private Integer maxSize = 10000;
+
+    /**
+     * 会话剩余有效期（秒）低于该值时才刷新 Redis 过期时间，默认会话有效期 24 小时，即每个节点每个用户约 1 小时刷新一次
+     */
+    private Long sessionRefreshThreshold = 82800L;
+}
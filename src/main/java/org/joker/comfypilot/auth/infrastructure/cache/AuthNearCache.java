@@ -0,0 +1,247 @@
+package org.joker.comfypilot.auth.infrastructure.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.auth.config.AuthNearCacheProperties;
+import org.joker.comfypilot.auth.infrastructure.redis.model.UserSessionRedis;
+import org.joker.comfypilot.auth.infrastructure.redis.repository.SessionRedisRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 认证本地缓存
+ * <p>
+ * 缓存已验证通过的访问令牌（Token -> 用户ID）和用户会话，命中时认证无需解析 JWT 也无需访问 Redis。
+ * 令牌撤销、登出、会话更新时通过 Redis 频道 {@link #INVALIDATION_CHANNEL} 广播失效消息，所有节点同步清除本地缓存。
+ * <p>
+ * 同时记录每个用户会话最近一次刷新过期时间的时刻，只有估算的剩余有效期低于阈值时才再次刷新。
+ */
+@Slf4j
+@Component
+public class AuthNearCache implements MessageListener {
+
+    /**
+     * 失效消息频道
+     */
+    public static final String INVALIDATION_CHANNEL = "auth:near-cache:invalidate";
+
+    private static final String TOKEN_MESSAGE_PREFIX = "T:";
+    private static final String USER_MESSAGE_PREFIX = "U:";
+
+    @Autowired
+    private AuthNearCacheProperties properties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * Key: 访问令牌
+     * Value: 令牌缓存项
+     */
+    private final Map<String, TokenEntry> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * Key: 用户ID
+     * Value: 会话缓存项
+     */
+    private final Map<Long, SessionEntry> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Key: 用户ID
+     * Value: 本节点最近一次刷新会话过期时间的时刻（毫秒）
+     */
+    private final Map<Long, Long> sessionRefreshedAt = new ConcurrentHashMap<>();
+
+    /**
+     * 失效版本号，每次收到失效通知加一
+     * 从 Redis 加载前取版本号，写入缓存时版本号已变化则放弃写入，避免加载期间发生的撤销被旧数据覆盖
+     */
+    private final AtomicLong invalidationVersion = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * 获取已缓存的用户会话（令牌和会话均命中且未过期时返回）
+     *
+     * @param token 访问令牌（不含Bearer前缀）
+     * @return 用户会话，未命中返回null
+     */
+    public UserSessionRedis getSession(String token) {
+        if (!isEnabled()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        TokenEntry tokenEntry = tokens.get(token);
+        if (tokenEntry == null || tokenEntry.expiresAt() <= now) {
+            return null;
+        }
+        SessionEntry sessionEntry = sessions.get(tokenEntry.userId());
+        if (sessionEntry == null || sessionEntry.expiresAt() <= now) {
+            return null;
+        }
+        return sessionEntry.session();
+    }
+
+    /**
+     * 获取当前失效版本号（从 Redis 加载令牌和会话之前调用）
+     *
+     * @return 失效版本号
+     */
+    public long currentVersion() {
+        return invalidationVersion.get();
+    }
+
+    /**
+     * 缓存验证通过的令牌和会话
+     *
+     * @param token          访问令牌
+     * @param session        用户会话
+     * @param tokenExpiresAt 令牌本身的过期时间（毫秒），缓存不会超过该时间
+     * @param version        加载前获取的失效版本号
+     */
+    public void put(String token, UserSessionRedis session, long tokenExpiresAt, long version) {
+        if (!isEnabled() || invalidationVersion.get() != version) {
+            return;
+        }
+        if (tokens.size() >= properties.getMaxSize()) {
+            evictExpired();
+            if (tokens.size() >= properties.getMaxSize()) {
+                return;
+            }
+        }
+        long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(properties.getTtl());
+        tokens.put(token, new TokenEntry(session.getUserId(), Math.min(expiresAt, tokenExpiresAt)));
+        sessions.put(session.getUserId(), new SessionEntry(session, expiresAt));
+    }
+
+    /**
+     * 判断是否需要刷新会话过期时间（需要时同时记录本次刷新时刻）
+     *
+     * @param userId     用户ID
+     * @param sessionTtl 会话有效期（秒）
+     * @return true-需要刷新
+     */
+    public boolean shouldRefreshSession(Long userId, long sessionTtl) {
+        if (!isEnabled()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        long refreshAfter = TimeUnit.SECONDS.toMillis(Math.max(0, sessionTtl - properties.getSessionRefreshThreshold()));
+        boolean[] refresh = {false};
+        sessionRefreshedAt.compute(userId, (id, refreshedAt) -> {
+            if (refreshedAt == null || now - refreshedAt >= refreshAfter) {
+                refresh[0] = true;
+                return now;
+            }
+            return refreshedAt;
+        });
+        return refresh[0];
+    }
+
+    /**
+     * 广播令牌失效（撤销）
+     *
+     * @param token 令牌
+     */
+    public void publishTokenInvalidated(String token) {
+        evictToken(token);
+        publish(TOKEN_MESSAGE_PREFIX + token);
+    }
+
+    /**
+     * 广播用户失效（登出、会话更新、撤销全部令牌）
+     *
+     * @param userId 用户ID
+     */
+    public void publishUserInvalidated(Long userId) {
+        evictUser(userId);
+        publish(USER_MESSAGE_PREFIX + userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(TOKEN_MESSAGE_PREFIX)) {
+            evictToken(body.substring(TOKEN_MESSAGE_PREFIX.length()));
+        } else if (body.startsWith(USER_MESSAGE_PREFIX)) {
+            try {
+                evictUser(Long.valueOf(body.substring(USER_MESSAGE_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                log.warn("无法识别的认证缓存失效消息: {}", body);
+            }
+        }
+    }
+
+    /**
+     * 定时清理过期缓存项
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        tokens.values().removeIf(entry -> entry.expiresAt() <= now);
+        sessions.values().removeIf(entry -> entry.expiresAt() <= now);
+        // 刷新记录超过会话有效期后已无意义
+        long refreshExpiry = TimeUnit.SECONDS.toMillis(SessionRedisRepository.SESSION_TTL);
+        sessionRefreshedAt.values().removeIf(refreshedAt -> now - refreshedAt >= refreshExpiry);
+    }
+
+    private void evictToken(String token) {
+        invalidationVersion.incrementAndGet();
+        tokens.remove(token);
+    }
+
+    private void evictUser(Long userId) {
+        invalidationVersion.incrementAndGet();
+        sessions.remove(userId);
+        sessionRefreshedAt.remove(userId);
+        tokens.values().removeIf(entry -> Objects.equals(entry.userId(), userId));
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            // 其他节点依靠缓存过期兜底
+            log.error("发布认证缓存失效消息失败", e);
+        }
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(properties.getEnabled());
+    }
+
+    /**
+     * 令牌缓存项
+     *
+     * @param userId    用户ID
+     * @param expiresAt 缓存过期时间（毫秒）
+     */
+    private record TokenEntry(Long userId, long expiresAt) {
+    }
+
+    /**
+     * 会话缓存项
+     *
+     * @param session   用户会话
+     * @param expiresAt 缓存过期时间（毫秒）
+     */
+    private record SessionEntry(UserSessionRedis session, long expiresAt) {
+    }
+}
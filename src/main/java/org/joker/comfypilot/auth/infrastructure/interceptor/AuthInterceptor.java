@@ -1,6 +1,8 @@
 package org.joker.comfypilot.auth.infrastructure.interceptor;
 
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.auth.infrastructure.cache.AuthNearCache;
 import org.joker.comfypilot.auth.infrastructure.context.UserContextHolder;
 import org.joker.comfypilot.auth.infrastructure.redis.model.UserSessionRedis;
 import org.joker.comfypilot.auth.infrastructure.redis.model.UserTokenRedis;
@@ -18,6 +20,7 @@ import jakarta.servlet.http.HttpServletResponse;
 /**
  * 认证拦截器
  * 从请求头获取Token，验证并设置用户上下文
+ * 本地缓存（{@link AuthNearCache}）命中时不解析JWT也不访问Redis
  */
 @Slf4j
 @Component
@@ -29,6 +32,8 @@ public class AuthInterceptor implements HandlerInterceptor {
     private TokenRedisRepository tokenRedisRepository;
     @Autowired
     private SessionRedisRepository sessionRedisRepository;
+    @Autowired
+    private AuthNearCache authNearCache;
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -42,8 +47,19 @@ public class AuthInterceptor implements HandlerInterceptor {
         String token = authHeader.substring(AuthConstants.BEARER_PREFIX.length());
 
         try {
+            // 本地缓存命中
+            UserSessionRedis cachedSession = authNearCache.getSession(token);
+            if (cachedSession != null) {
+                UserContextHolder.setUserSession(cachedSession);
+                sessionRedisRepository.refreshSessionIfNeeded(cachedSession.getUserId());
+                log.debug("用户认证成功（本地缓存）, userId: {}", cachedSession.getUserId());
+                return true;
+            }
+            long cacheVersion = authNearCache.currentVersion();
+
             // 验证Token
-            if (!jwtUtil.validateToken(token)) {
+            Claims claims = jwtUtil.getValidClaims(token);
+            if (claims == null) {
                 log.warn("Token验证失败");
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.setContentType("application/json;charset=UTF-8");
@@ -71,7 +87,7 @@ public class AuthInterceptor implements HandlerInterceptor {
             }
 
             // 获取用户ID
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = claims.get("userId", Long.class);
 
             // 从Redis获取用户会话
             UserSessionRedis session = sessionRedisRepository.getSession(userId);
@@ -86,8 +102,11 @@ public class AuthInterceptor implements HandlerInterceptor {
             // 设置到ThreadLocal
             UserContextHolder.setUserSession(session);
 
-            // 刷新会话过期时间
-            sessionRedisRepository.refreshSession(userId);
+            // 写入本地缓存
+            authNearCache.put(token, session, claims.getExpiration().getTime(), cacheVersion);
+
+            // 按需刷新会话过期时间
+            sessionRedisRepository.refreshSessionIfNeeded(userId);
 
             log.debug("用户认证成功, userId: {}", userId);
             return true; // 认证成功，放行
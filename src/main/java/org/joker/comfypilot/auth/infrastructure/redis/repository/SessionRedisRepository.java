@@ -3,6 +3,7 @@ package org.joker.comfypilot.auth.infrastructure.redis.repository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.auth.infrastructure.cache.AuthNearCache;
 import org.joker.comfypilot.auth.infrastructure.redis.model.UserSessionRedis;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.common.util.RedisUtil;
@@ -23,9 +24,11 @@ public class SessionRedisRepository {
     private RedisUtil redisUtil;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private AuthNearCache authNearCache;
 
     private static final String SESSION_PREFIX = "auth:session:";
-    private static final long SESSION_TTL = 86400; // 24小时
+    public static final long SESSION_TTL = 86400; // 24小时
 
     /**
      * 保存用户会话
@@ -36,6 +39,7 @@ public class SessionRedisRepository {
             session.setLastAccessTime(LocalDateTime.now());
             String json = objectMapper.writeValueAsString(session);
             redisUtil.set(key, json, SESSION_TTL, TimeUnit.SECONDS);
+            authNearCache.publishUserInvalidated(session.getUserId());
             log.debug("保存用户会话成功, userId: {}", session.getUserId());
         } catch (JsonProcessingException e) {
             log.error("保存用户会话失败", e);
@@ -66,6 +70,7 @@ public class SessionRedisRepository {
     public void deleteSession(Long userId) {
         String key = SESSION_PREFIX + userId;
         redisUtil.del(key);
+        authNearCache.publishUserInvalidated(userId);
         log.debug("删除用户会话成功, userId: {}", userId);
     }
 
@@ -76,4 +81,13 @@ public class SessionRedisRepository {
         String key = SESSION_PREFIX + userId;
         redisUtil.expire(key, SESSION_TTL, TimeUnit.SECONDS);
     }
+
+    /**
+     * 按需刷新会话过期时间（剩余有效期低于阈值时才访问 Redis）
+     */
+    public void refreshSessionIfNeeded(Long userId) {
+        if (authNearCache.shouldRefreshSession(userId, SESSION_TTL)) {
+            refreshSession(userId);
+        }
+    }
 }
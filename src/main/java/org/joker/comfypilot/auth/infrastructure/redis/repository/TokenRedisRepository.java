@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.joker.comfypilot.auth.domain.enums.TokenType;
+import org.joker.comfypilot.auth.infrastructure.cache.AuthNearCache;
 import org.joker.comfypilot.auth.infrastructure.redis.model.UserTokenRedis;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.common.util.RedisUtil;
@@ -24,6 +25,8 @@ public class TokenRedisRepository {
     private RedisUtil redisUtil;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private AuthNearCache authNearCache;
 
     private static final String ACCESS_TOKEN_PREFIX = "auth:access_token:";
     private static final String REFRESH_TOKEN_PREFIX = "auth:refresh_token:";
@@ -78,6 +81,9 @@ public class TokenRedisRepository {
             tokenRedis.setIsRevoked(true);
             tokenRedis.setRevokedAt(LocalDateTime.now());
             saveToken(key, tokenRedis, tokenType == TokenType.ACCESS ? ACCESS_TOKEN_TTL : REFRESH_TOKEN_TTL);
+            if (tokenType == TokenType.ACCESS) {
+                authNearCache.publishTokenInvalidated(token);
+            }
         }
     }
 
@@ -139,6 +145,7 @@ public class TokenRedisRepository {
 
             // 清空用户Token列表
             redisUtil.del(key);
+            authNearCache.publishUserInvalidated(userId);
             log.info("已撤销用户所有Token, userId: {}", userId);
         }
     }
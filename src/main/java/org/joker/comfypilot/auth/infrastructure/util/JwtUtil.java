@@ -1,8 +1,10 @@
 package org.joker.comfypilot.auth.infrastructure.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -29,6 +31,24 @@ public class JwtUtil {
     @Value("${jwt.refresh-token-expiration:604800000}")
     private Long refreshTokenExpiration; // 7天
 
+    /**
+     * 签名密钥（由 secret 派生，只构建一次）
+     */
+    private SecretKey key;
+
+    /**
+     * JWT 解析器（线程安全，复用）
+     */
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+    }
+
     /**
      * 生成访问令牌
      *
@@ -66,8 +86,6 @@ public class JwtUtil {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
 
-        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-
         return Jwts.builder()
                 .claims(claims)
                 .issuedAt(now)
@@ -94,12 +112,21 @@ public class JwtUtil {
      * @return true-有效，false-无效
      */
     public boolean validateToken(String token) {
+        return getValidClaims(token) != null;
+    }
+
+    /**
+     * 验证并解析Token（只解析一次，同时完成验证和取值）
+     *
+     * @param token JWT Token
+     * @return Claims，Token无效时返回null
+     */
+    public Claims getValidClaims(String token) {
         try {
-            parseToken(token);
-            return true;
+            return parseToken(token);
         } catch (Exception e) {
             log.error("Token验证失败: {}", e.getMessage());
-            return false;
+            return null;
         }
     }
 
@@ -110,11 +137,7 @@ public class JwtUtil {
      * @return Claims
      */
     private Claims parseToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
+        return parser.parseSignedClaims(token)
                 .getPayload();
     }
 
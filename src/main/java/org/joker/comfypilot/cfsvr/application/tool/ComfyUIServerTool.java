@@ -8,6 +8,7 @@ import org.joker.comfypilot.cfsvr.infrastructure.client.ComfyUIClientFactory;
 import org.joker.comfypilot.cfsvr.infrastructure.client.ComfyUIRestClient;
 import org.joker.comfypilot.cfsvr.infrastructure.client.dto.QueueStatusResponse;
 import org.joker.comfypilot.cfsvr.infrastructure.client.dto.SystemStatsResponse;
+import org.joker.comfypilot.common.annotation.DirectExecute;
 import org.joker.comfypilot.common.annotation.ToolSet;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.session.application.dto.ChatSessionDTO;
@@ -24,6 +25,7 @@ import java.util.List;
 @Slf4j
 @Component
 @ToolSet
+@DirectExecute
 public class ComfyUIServerTool {
 
     @Autowired
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.joker.comfypilot.cfsvr.domain.entity.ComfyuiServer;
 import org.joker.comfypilot.cfsvr.domain.enums.AuthMode;
 import org.joker.comfypilot.cfsvr.domain.repository.ComfyuiServerRepository;
+import org.joker.comfypilot.cfsvr.infrastructure.config.ComfyUIClientProperties;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -17,7 +18,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ComfyUI客户端工厂
- * 使用缓存机制避免重复创建WebClient实例
+ * 使用缓存机制避免重复创建WebClient实例，同一服务器的阻塞式和响应式客户端共享元数据缓存
  */
 @Slf4j
 @Component
@@ -29,9 +30,17 @@ public class ComfyUIClientFactory {
      */
     private final ConcurrentHashMap<Long, ComfyUIRestClient> clientCache = new ConcurrentHashMap<>();
 
+    /**
+     * 响应式客户端缓存，key为serverId
+     */
+    private final ConcurrentHashMap<Long, ReactiveComfyUIRestClient> reactiveClientCache = new ConcurrentHashMap<>();
+
     @Autowired
     private ComfyuiServerRepository comfyuiServerRepository;
 
+    @Autowired
+    private ComfyUIClientProperties properties;
+
     /**
      * 根据服务配置创建或获取缓存的REST客户端
      * 使用computeIfAbsent保证线程安全的懒加载
@@ -40,13 +49,41 @@ public class ComfyUIClientFactory {
      * @return REST客户端实例
      */
     public ComfyUIRestClient createRestClient(ComfyuiServer server) {
-        return clientCache.computeIfAbsent(server.getId(), id -> {
+        return clientCache.computeIfAbsent(server.getId(),
+                id -> new ComfyUIRestClientImpl(createReactiveRestClient(server)));
+    }
+
+    /**
+     * 根据服务配置创建或获取缓存的响应式REST客户端
+     *
+     * @param server ComfyUI服务配置
+     * @return 响应式REST客户端实例
+     */
+    public ReactiveComfyUIRestClient createReactiveRestClient(ComfyuiServer server) {
+        return reactiveClientCache.computeIfAbsent(server.getId(), id -> {
             log.debug("创建并缓存ComfyUI REST客户端, serverId: {}, serverKey: {}, baseUrl: {}",
                     id, server.getServerKey(), server.getBaseUrl());
             return buildClient(server);
         });
     }
 
+    /**
+     * 根据服务器ID创建或获取缓存的响应式REST客户端
+     *
+     * @param serverId 服务器ID
+     * @return 响应式REST客户端实例
+     * @throws RuntimeException 如果服务器不存在
+     */
+    public ReactiveComfyUIRestClient createReactiveRestClient(Long serverId) {
+        ReactiveComfyUIRestClient cached = reactiveClientCache.get(serverId);
+        if (cached != null) {
+            return cached;
+        }
+        ComfyuiServer server = comfyuiServerRepository.findById(serverId)
+                .orElseThrow(() -> new BusinessException("服务器不存在, serverId: " + serverId));
+        return createReactiveRestClient(server);
+    }
+
     /**
      * 根据服务器ID创建或获取缓存的REST客户端
      *
@@ -55,6 +92,12 @@ public class ComfyUIClientFactory {
      * @throws RuntimeException 如果服务器不存在
      */
     public ComfyUIRestClient createRestClient(Long serverId) {
+        // 已缓存时无需查询数据库
+        ComfyUIRestClient cached = clientCache.get(serverId);
+        if (cached != null) {
+            return cached;
+        }
+
         // 查询服务器
         ComfyuiServer server = comfyuiServerRepository.findById(serverId)
                 .orElseThrow(() -> new BusinessException("服务器不存在, serverId: " + serverId));
@@ -81,7 +124,7 @@ public class ComfyUIClientFactory {
      * @param server ComfyUI服务配置
      * @return REST客户端实例
      */
-    private ComfyUIRestClient buildClient(ComfyuiServer server) {
+    private ReactiveComfyUIRestClient buildClient(ComfyuiServer server) {
         // 创建WebClient.Builder
         WebClient.Builder builder = WebClient.builder()
                 .baseUrl(server.getBaseUrl());
@@ -98,7 +141,10 @@ public class ComfyUIClientFactory {
         // 创建超时时间
         Duration timeout = Duration.ofSeconds(server.getTimeoutSeconds());
 
-        return new ComfyUIRestClientImpl(webClient, timeout);
+        // 元数据缓存时间
+        Duration metadataCacheTtl = Duration.ofSeconds(Math.max(0, properties.getMetadataCacheTtl()));
+
+        return new ReactiveComfyUIRestClientImpl(webClient, timeout, metadataCacheTtl);
     }
 
     /**
@@ -108,7 +154,8 @@ public class ComfyUIClientFactory {
      */
     public void invalidateCache(Long serverId) {
         ComfyUIRestClient removed = clientCache.remove(serverId);
-        if (removed != null) {
+        ReactiveComfyUIRestClient removedReactive = reactiveClientCache.remove(serverId);
+        if (removed != null || removedReactive != null) {
             log.info("清除客户端缓存, serverId: {}", serverId);
         }
     }
@@ -117,8 +164,9 @@ public class ComfyUIClientFactory {
      * 清空所有缓存
      */
     public void clearAllCache() {
-        int size = clientCache.size();
+        int size = reactiveClientCache.size();
         clientCache.clear();
+        reactiveClientCache.clear();
         log.info("清空所有客户端缓存, 数量: {}", size);
     }
 
@@ -0,0 +1,59 @@
+package org.joker.comfypilot.cfsvr.infrastructure.client;
+
+import org.joker.comfypilot.cfsvr.infrastructure.client.dto.QueueStatusResponse;
+import org.joker.comfypilot.cfsvr.infrastructure.client.dto.SystemStatsResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ComfyUI 响应式 REST 客户端接口
+ * 所有方法均不阻塞调用线程，模型文件夹和模型列表按服务器缓存，并发请求合并为一次 HTTP 调用
+ */
+public interface ReactiveComfyUIRestClient {
+
+    /**
+     * 获取系统状态
+     *
+     * @return 系统状态信息
+     */
+    Mono<SystemStatsResponse> getSystemStats();
+
+    /**
+     * 获取队列状态
+     *
+     * @return 队列状态信息
+     */
+    Mono<QueueStatusResponse> getQueueStatus();
+
+    /**
+     * 获取模型文件夹列表（缓存）
+     *
+     * @return 模型文件夹列表
+     */
+    Mono<List<String>> getModelFolders();
+
+    /**
+     * 获取指定文件夹的模型列表（缓存）
+     *
+     * @param folder 文件夹名称
+     * @return 模型列表
+     */
+    Mono<List<String>> getModels(String folder);
+
+    /**
+     * 获取历史记录
+     *
+     * @return 历史记录
+     */
+    Mono<Map<String, Object>> getHistory();
+
+    /**
+     * 获取特定任务的历史记录
+     *
+     * @param promptId 任务ID
+     * @return 任务历史记录
+     */
+    Mono<Map<String, Object>> getHistoryByPromptId(String promptId);
+}
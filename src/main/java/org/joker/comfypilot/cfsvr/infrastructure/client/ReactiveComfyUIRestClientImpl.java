@@ -0,0 +1,141 @@
+package org.joker.comfypilot.cfsvr.infrastructure.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.cfsvr.infrastructure.client.dto.QueueStatusResponse;
+import org.joker.comfypilot.cfsvr.infrastructure.client.dto.SystemStatsResponse;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * ComfyUI 响应式 REST 客户端实现
+ * <p>
+ * 元数据缓存基于 {@link Mono#cache(java.util.function.Function, java.util.function.Function, Supplier)}：
+ * 请求进行中时，后续订阅者共享同一次 HTTP 调用；成功结果保留 TTL 时长，失败和空结果不缓存。
+ */
+@Slf4j
+public class ReactiveComfyUIRestClientImpl implements ReactiveComfyUIRestClient {
+
+    private static final ParameterizedTypeReference<List<String>> STRING_LIST_TYPE = new ParameterizedTypeReference<>() {};
+
+    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE = new ParameterizedTypeReference<>() {};
+
+    /**
+     * 模型文件夹列表缓存键
+     */
+    private static final String MODEL_FOLDERS_KEY = "/models";
+
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final Duration metadataCacheTtl;
+
+    /**
+     * Key: 请求路径
+     * Value: 带缓存的请求
+     */
+    private final Map<String, Mono<List<String>>> metadataCache = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param webClient        WebClient实例
+     * @param timeout          请求超时时间
+     * @param metadataCacheTtl 元数据缓存时间
+     */
+    public ReactiveComfyUIRestClientImpl(WebClient webClient, Duration timeout, Duration metadataCacheTtl) {
+        this.webClient = webClient;
+        this.timeout = timeout;
+        this.metadataCacheTtl = metadataCacheTtl;
+    }
+
+    @Override
+    public Mono<SystemStatsResponse> getSystemStats() {
+        return webClient.get()
+                .uri("/system_stats")
+                .retrieve()
+                .bodyToMono(SystemStatsResponse.class)
+                .timeout(timeout)
+                .doOnSubscribe(subscription -> log.debug("调用ComfyUI接口: GET /system_stats"))
+                .doOnSuccess(response -> log.debug("获取系统状态成功"))
+                .doOnError(error -> log.error("获取系统状态失败", error));
+    }
+
+    @Override
+    public Mono<QueueStatusResponse> getQueueStatus() {
+        return webClient.get()
+                .uri("/queue")
+                .retrieve()
+                .bodyToMono(QueueStatusResponse.class)
+                .timeout(timeout)
+                .doOnSubscribe(subscription -> log.debug("调用ComfyUI接口: GET /queue"))
+                .doOnSuccess(response -> log.debug("获取队列状态成功"))
+                .doOnError(error -> log.error("获取队列状态失败", error));
+    }
+
+    @Override
+    public Mono<List<String>> getModelFolders() {
+        return cached(MODEL_FOLDERS_KEY, () -> webClient.get()
+                .uri("/models")
+                .retrieve()
+                .bodyToMono(STRING_LIST_TYPE)
+                .timeout(timeout)
+                .doOnSubscribe(subscription -> log.debug("调用ComfyUI接口: GET /models"))
+                .doOnSuccess(response -> log.debug("获取模型文件夹列表成功, 数量: {}", response == null ? 0 : response.size()))
+                .doOnError(error -> log.error("获取模型文件夹列表失败", error)));
+    }
+
+    @Override
+    public Mono<List<String>> getModels(String folder) {
+        return cached(MODEL_FOLDERS_KEY + "/" + folder, () -> webClient.get()
+                .uri("/models/{folder}", folder)
+                .retrieve()
+                .bodyToMono(STRING_LIST_TYPE)
+                .timeout(timeout)
+                .doOnSubscribe(subscription -> log.debug("调用ComfyUI接口: GET /models/{}", folder))
+                .doOnSuccess(response -> log.debug("获取模型列表成功, 文件夹: {}, 数量: {}", folder, response == null ? 0 : response.size()))
+                .doOnError(error -> log.error("获取模型列表失败, 文件夹: {}", folder, error)));
+    }
+
+    @Override
+    public Mono<Map<String, Object>> getHistory() {
+        return webClient.get()
+                .uri("/history")
+                .retrieve()
+                .bodyToMono(MAP_TYPE)
+                .timeout(timeout)
+                .doOnSubscribe(subscription -> log.debug("调用ComfyUI接口: GET /history"))
+                .doOnSuccess(response -> log.debug("获取历史记录成功"))
+                .doOnError(error -> log.error("获取历史记录失败", error));
+    }
+
+    @Override
+    public Mono<Map<String, Object>> getHistoryByPromptId(String promptId) {
+        return webClient.get()
+                .uri("/history/{promptId}", promptId)
+                .retrieve()
+                .bodyToMono(MAP_TYPE)
+                .timeout(timeout)
+                .doOnSubscribe(subscription -> log.debug("调用ComfyUI接口: GET /history/{}", promptId))
+                .doOnSuccess(response -> log.debug("获取任务历史记录成功, promptId: {}", promptId))
+                .doOnError(error -> log.error("获取任务历史记录失败, promptId: {}", promptId, error));
+    }
+
+    /**
+     * 获取带缓存的请求
+     * 同一路径共享一个缓存的 Mono：进行中的请求被合并，成功结果在 TTL 内直接返回
+     *
+     * @param key     缓存键（请求路径）
+     * @param request 实际请求
+     * @return 带缓存的请求
+     */
+    private Mono<List<String>> cached(String key, Supplier<Mono<List<String>>> request) {
+        return metadataCache.computeIfAbsent(key, k -> request.get()
+                .cache(value -> metadataCacheTtl, error -> Duration.ZERO, () -> Duration.ZERO));
+    }
+}
@@ -0,0 +1,19 @@
+package org.joker.comfypilot.cfsvr.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * ComfyUI 客户端配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "comfyui.client")
+public class ComfyUIClientProperties {
+
+    /**
+     * 模型文件夹、模型列表等变化较少的元数据缓存时间（秒），0 表示不缓存（仍合并并发请求）
+     */
+    private Integer metadataCacheTtl = 60;
+}
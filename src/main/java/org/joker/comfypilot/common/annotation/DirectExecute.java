@@ -0,0 +1,27 @@
+package org.joker.comfypilot.common.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 服务端直接执行注解
+ * 用于标记无需用户确认的服务端工具（类或方法）
+ *
+ * <p>被标记的工具由 Agent 在服务端直接执行，不再经过客户端确认往返，
+ * 客户端只会收到工具调用通知用于展示。</p>
+ *
+ * <p>只应标记只读或仅影响会话自身状态的工具，执行命令、写文件等需要用户确认的工具不要标记。</p>
+ *
+ * <p>示例：</p>
+ * <pre>
+ * {@code @ToolSet}
+ * {@code @DirectExecute}
+ * public class TodoWriteTool {
+ *     // 该类中所有工具方法都直接执行
+ * }
+ * </pre>
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DirectExecute {
+}
@@ -2,6 +2,7 @@ package org.joker.comfypilot.common.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -10,7 +11,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 异步配置
- * 配置支持 TraceId 传递的线程池
+ * 配置支持 TraceId 传递的线程池，{@code executor.mode=VIRTUAL} 时改为每个任务一个虚拟线程
  */
 @Configuration
 @EnableAsync
@@ -21,7 +22,10 @@ public class AsyncConfig {
      * 命令执行线程池
      */
     @Bean
-    public Executor commandExecutor() {
+    public Executor commandExecutor(ExecutorProperties executorProperties) {
+        if (executorProperties.getMode() == ExecutorProperties.Mode.VIRTUAL) {
+            return virtualThreadExecutor("command-executor-");
+        }
         return new ThreadPoolExecutor(
                 Runtime.getRuntime().availableProcessors() * 2 + 1,
                 Runtime.getRuntime().availableProcessors() * 4 + 1,
@@ -71,16 +75,20 @@ public class AsyncConfig {
      * 使用 ForkJoinPool 配置,支持 TraceId 传递
      */
     @Bean(name = "agentExecutor")
-    public Executor agentExecutor() {
+    public Executor agentExecutor(ExecutorProperties executorProperties) {
+        if (executorProperties.getMode() == ExecutorProperties.Mode.VIRTUAL) {
+            return virtualThreadExecutor("agent-executor-");
+        }
         // 使用与 ForkJoinPool.commonPool() 相同的并行度
         int parallelism = ForkJoinPool.getCommonPoolParallelism();
 
-        return new ThreadPoolExecutor(
+        // 有界队列：队列满时拒绝提交，由提交方按任务失败处理，不在提交线程（模型回调、WebSocket 线程）上执行 Agent 阶段
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
                 parallelism,
                 parallelism,
                 60L,
                 TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(),
+                new LinkedBlockingQueue<>(executorProperties.getAgentQueueCapacity()),
                 new ThreadFactory() {
                     private AtomicInteger count = new AtomicInteger(0);
 
@@ -117,6 +125,64 @@ public class AsyncConfig {
                 return super.submit(task);
             }
         };
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * Agent 事件异步监听器线程池
+     * 与 agentExecutor 分开，Agent 线程等待异步监听器执行完成时不会占用同一线程池
+     */
+    @Bean(name = "agentEventExecutor")
+    public Executor agentEventExecutor(ExecutorProperties executorProperties) {
+        if (executorProperties.getMode() == ExecutorProperties.Mode.VIRTUAL) {
+            return virtualThreadExecutor("agent-event-");
+        }
+        int poolSize = Runtime.getRuntime().availableProcessors();
+
+        return new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactory() {
+                    private AtomicInteger count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r);
+                        thread.setName("agent-event-" + count.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }
+        ) {
+            @Override
+            public void execute(Runnable command) {
+                command = TraceIdTaskDecorator.decorate(command);
+                super.execute(command);
+            }
+        };
+    }
+
+    /**
+     * WebSocket 出站消息发送执行器
+     * 发送线程阻塞于慢客户端的网络写入，始终使用虚拟线程，避免占用平台线程
+     */
+    @Bean(name = "webSocketWriterExecutor")
+    public Executor webSocketWriterExecutor() {
+        return virtualThreadExecutor("ws-writer-");
+    }
+
+    /**
+     * 虚拟线程执行器（不排队，每个任务一个虚拟线程，支持 TraceId 传递）
+     */
+    private static Executor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(TraceIdTaskDecorator::decorate);
+        return executor;
     }
 
 }
@@ -0,0 +1,56 @@
+package org.joker.comfypilot.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 异步执行器配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "executor")
+public class ExecutorProperties {
+
+    /**
+     * agentExecutor、commandExecutor 的线程模式
+     */
+    private Mode mode = Mode.PLATFORM;
+
+    /**
+     * 全局同时执行的 Agent 任务数上限
+     */
+    private Integer agentMaxConcurrentRuns = 64;
+
+    /**
+     * 单个用户同时执行的 Agent 任务数上限
+     */
+    private Integer agentMaxConcurrentRunsPerUser = 3;
+
+    /**
+     * 达到上限时等待执行名额的时间（毫秒），超时后拒绝本次请求
+     */
+    private Long agentAcquireTimeout = 5000L;
+
+    /**
+     * PLATFORM 模式下 agentExecutor 的任务队列容量，队列满时拒绝提交的任务
+     */
+    private Integer agentQueueCapacity = 1000;
+
+    /**
+     * 线程模式
+     */
+    public enum Mode {
+
+        /**
+         * 固定大小的平台线程池
+         */
+        PLATFORM,
+
+        /**
+         * 每个任务一个虚拟线程，阻塞等待（模型流式输出、工具调用结果、进程结束）不占用平台线程，
+         * 并发量由 Agent 任务名额限制
+         */
+        VIRTUAL
+    }
+}
@@ -0,0 +1,29 @@
+package org.joker.comfypilot.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天多媒体内容存储配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "media.store")
+public class MediaStoreProperties {
+
+    /**
+     * 是否将消息中的Base64多媒体内容存入内容寻址存储（关闭时仍内联保存在消息中）
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 存储根目录（多节点部署时必须是所有节点共享的目录）
+     */
+    private String rootPath = System.getProperty("user.home") + "/.comfy-pilot/media";
+
+    /**
+     * 已还原Base64内容的本地缓存数量
+     */
+    private Integer cacheSize = 64;
+}
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
 import org.joker.comfypilot.common.infrastructure.persistence.interceptor.LogicalDeleteInsertInterceptor;
 import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -38,10 +39,11 @@ public class MybatisPlusConfig {
     /**
      * 配置逻辑删除插入拦截器
      * 在逻辑删除场景下，如果插入操作指定了主键或唯一键，
-     * 先检查是否存在逻辑删除的记录，如果存在则物理删除后再插入
+     * 先检查是否存在逻辑删除的记录，如果存在则物理删除后再插入（PostgreSQL 下改写为 INSERT ... ON CONFLICT 一条语句完成）
      */
     @Bean
-    public LogicalDeleteInsertInterceptor logicalDeleteInsertInterceptor() {
-        return new LogicalDeleteInsertInterceptor();
+    public LogicalDeleteInsertInterceptor logicalDeleteInsertInterceptor(
+            @Value("${persistence.logical-delete-insert.strategy:AUTO}") LogicalDeleteInsertInterceptor.Strategy strategy) {
+        return new LogicalDeleteInsertInterceptor(strategy);
     }
 }
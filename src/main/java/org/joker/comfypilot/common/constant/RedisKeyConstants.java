@@ -23,4 +23,25 @@ public class RedisKeyConstants {
     public static String getSessionTokenUsageKey(String sessionCode) {
         return SESSION_TOKEN_USAGE_PREFIX + sessionCode;
     }
+
+    /**
+     * 聊天消息存储格式改写进度（已处理的最大消息ID）
+     * 格式: session:message:storage:migrated:{存储格式版本}
+     */
+    public static final String CHAT_MESSAGE_STORAGE_MIGRATED_PREFIX = "session:message:storage:migrated:";
+
+    /**
+     * 获取聊天消息存储格式改写进度 Key
+     *
+     * @param version 存储格式版本
+     * @return Redis Key
+     */
+    public static String getChatMessageStorageMigratedKey(int version) {
+        return CHAT_MESSAGE_STORAGE_MIGRATED_PREFIX + version;
+    }
+
+    /**
+     * 会话多媒体引用补录进度（已处理的最大消息ID，-1 表示已完成）
+     */
+    public static final String CHAT_MEDIA_REF_BACKFILLED_KEY = "session:message:media-ref:backfilled";
 }
@@ -26,10 +26,15 @@ public class AudioChatContent extends MediaChatContent {
         super(isUseBase64, url, base64Data, mimeType);
     }
 
+    @Override
+    protected AudioChatContent newInstance() {
+        return new AudioChatContent();
+    }
+
     @Override
     public Content toContent() {
         if (Boolean.TRUE.equals(getIsUseBase64())) {
-            return new AudioContent(getBase64Data(), getMimeType());
+            return new AudioContent(resolveBase64Data(), getMimeType());
         } else {
             return new AudioContent(getUrl());
         }
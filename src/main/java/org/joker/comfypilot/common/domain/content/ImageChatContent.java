@@ -26,10 +26,15 @@ public class ImageChatContent extends MediaChatContent {
         super(isUseBase64, url, base64Data, mimeType);
     }
 
+    @Override
+    protected ImageChatContent newInstance() {
+        return new ImageChatContent();
+    }
+
     @Override
     public Content toContent() {
         if (Boolean.TRUE.equals(getIsUseBase64())) {
-            return new ImageContent(getBase64Data(), getMimeType());
+            return new ImageContent(resolveBase64Data(), getMimeType());
         } else {
             return new ImageContent(getUrl());
         }
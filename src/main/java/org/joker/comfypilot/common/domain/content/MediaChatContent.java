@@ -1,18 +1,24 @@
 package org.joker.comfypilot.common.domain.content;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.joker.comfypilot.common.infrastructure.storage.MediaBlobStore;
+import org.joker.comfypilot.common.util.SpringContextUtil;
 
 import java.io.Serializable;
 
 /**
  * 多媒体内容抽象基类
  * 处理Base64和URL两种数据格式的共同逻辑
+ *
+ * <p>持久化时Base64数据存入 {@link MediaBlobStore}，消息中只保存 {@link #mediaHash}，
+ * 调用 {@link #toContent()} 构建模型请求时再按哈希还原。
  */
+@Slf4j
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public abstract class MediaChatContent implements ChatContent, Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -28,7 +34,7 @@ public abstract class MediaChatContent implements ChatContent, Serializable {
     private String url;
 
     /**
-     * Base64编码数据（当isUseBase64=true时使用）
+     * Base64编码数据（当isUseBase64=true时使用，持久化后为空，由mediaHash引用）
      */
     private String base64Data;
 
@@ -37,4 +43,59 @@ public abstract class MediaChatContent implements ChatContent, Serializable {
      */
     private String mimeType;
 
+    /**
+     * 内容哈希（SHA-256，Base64数据存入多媒体存储后的引用）
+     */
+    private String mediaHash;
+
+    protected MediaChatContent(Boolean isUseBase64, String url, String base64Data, String mimeType) {
+        this.isUseBase64 = isUseBase64;
+        this.url = url;
+        this.base64Data = base64Data;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * 创建同类型的空内容对象
+     */
+    protected abstract MediaChatContent newInstance();
+
+    /**
+     * 获取Base64数据，只有哈希引用时从多媒体存储读取
+     *
+     * @return Base64编码数据
+     */
+    public String resolveBase64Data() {
+        if (StringUtils.isNotBlank(base64Data) || StringUtils.isBlank(mediaHash)) {
+            return base64Data;
+        }
+        return SpringContextUtil.getBean(MediaBlobStore.class).getBase64(mediaHash);
+    }
+
+    /**
+     * 转换为持久化形式：Base64数据存入多媒体存储，返回只包含哈希引用的新对象
+     * 未启用存储或保存失败时返回当前对象（内联保存）
+     *
+     * @return 持久化用的内容对象
+     */
+    public MediaChatContent toStoredReference() {
+        if (!Boolean.TRUE.equals(isUseBase64) || StringUtils.isBlank(base64Data)) {
+            return this;
+        }
+        try {
+            MediaBlobStore store = SpringContextUtil.getBean(MediaBlobStore.class);
+            if (!store.isEnabled()) {
+                return this;
+            }
+            MediaChatContent reference = newInstance();
+            reference.setIsUseBase64(true);
+            reference.setMimeType(mimeType);
+            reference.setMediaHash(store.put(base64Data));
+            return reference;
+        } catch (Exception e) {
+            log.warn("多媒体内容存储失败，改为内联保存: mimeType={}", mimeType, e);
+            return this;
+        }
+    }
+
 }
@@ -26,10 +26,15 @@ public class PdfChatContent extends MediaChatContent {
         super(isUseBase64, url, base64Data, mimeType);
     }
 
+    @Override
+    protected PdfChatContent newInstance() {
+        return new PdfChatContent();
+    }
+
     @Override
     public Content toContent() {
         if (Boolean.TRUE.equals(getIsUseBase64())) {
-            return new PdfFileContent(getBase64Data(), getMimeType());
+            return new PdfFileContent(resolveBase64Data(), getMimeType());
         } else {
             return new PdfFileContent(getUrl());
         }
@@ -26,10 +26,15 @@ public class VideoChatContent extends MediaChatContent {
         super(isUseBase64, url, base64Data, mimeType);
     }
 
+    @Override
+    protected VideoChatContent newInstance() {
+        return new VideoChatContent();
+    }
+
     @Override
     public Content toContent() {
         if (Boolean.TRUE.equals(getIsUseBase64())) {
-            return new VideoContent(getBase64Data(), getMimeType());
+            return new VideoContent(resolveBase64Data(), getMimeType());
         } else {
             return new VideoContent(getUrl());
         }
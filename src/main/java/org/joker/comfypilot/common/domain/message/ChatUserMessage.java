@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.joker.comfypilot.common.domain.content.ChatContent;
+import org.joker.comfypilot.common.domain.content.MediaChatContent;
 
 import java.util.List;
 
@@ -33,6 +34,19 @@ public class ChatUserMessage implements PersistableChatMessage {
         return UserMessage.from(contents.stream().map(ChatContent::toContent).toList());
     }
 
+    /**
+     * 转换为持久化形式（多媒体内容只保留哈希引用）
+     */
+    public ChatUserMessage toStoredReference() {
+        if (contents == null) {
+            return this;
+        }
+        List<ChatContent> storedContents = contents.stream()
+                .map(content -> content instanceof MediaChatContent media ? media.toStoredReference() : content)
+                .toList();
+        return new ChatUserMessage(storedContents);
+    }
+
     /**
      * 从LangChain4j的UserMessage创建ChatUserMessage
      */
@@ -74,12 +74,22 @@ public interface PersistableChatMessage extends Serializable {
         }
         ObjectMapper mapper = JacksonConfig.getObjectMapper();
         try {
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(persistableMsg);
+            return mapper.writeValueAsString(toStoredReference(persistableMsg));
         } catch (JsonProcessingException e) {
             throw new BusinessException("PersistableChatMessage序列化失败", e);
         }
     }
 
+    /**
+     * 转换为持久化形式：用户消息中的Base64多媒体内容存入多媒体存储，只保留哈希引用
+     */
+    private static PersistableChatMessage toStoredReference(PersistableChatMessage persistableMsg) {
+        if (persistableMsg instanceof ChatUserMessage userMessage) {
+            return userMessage.toStoredReference();
+        }
+        return persistableMsg;
+    }
+
     static PersistableChatMessage parseFromJsonString(String jsonString) {
         if (StringUtils.isBlank(jsonString)) {
             return null;
@@ -100,7 +110,7 @@ public interface PersistableChatMessage extends Serializable {
         PersistableChatMessage persistableMsg = from(message);
         ObjectMapper mapper = JacksonConfig.getObjectMapper();
         try {
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(persistableMsg);
+            return mapper.writeValueAsString(toStoredReference(persistableMsg));
         } catch (JsonProcessingException e) {
             throw new BusinessException("PersistableChatMessage序列化失败", e);
         }
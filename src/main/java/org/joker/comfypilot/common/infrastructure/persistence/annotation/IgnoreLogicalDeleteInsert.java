@@ -0,0 +1,22 @@
+package org.joker.comfypilot.common.infrastructure.persistence.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 跳过逻辑删除插入处理注解
+ * 用于标记主键不会与已逻辑删除记录冲突的 PO 类（例如主键总是新分配的雪花ID、从不复用的追加型表），
+ * 插入时 {@code LogicalDeleteInsertInterceptor} 不再检查和清理逻辑删除的记录
+ *
+ * <p>示例：</p>
+ * <pre>
+ * {@code @IgnoreLogicalDeleteInsert}
+ * {@code @TableName("chat_message")}
+ * public class ChatMessagePO extends BasePO {
+ * }
+ * </pre>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface IgnoreLogicalDeleteInsert {
+}
@@ -3,11 +3,22 @@ package org.joker.comfypilot.common.infrastructure.persistence.interceptor;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableLogic;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.joker.comfypilot.common.infrastructure.persistence.annotation.IgnoreLogicalDeleteInsert;
+import org.joker.comfypilot.common.infrastructure.persistence.annotation.UniqueKey;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Field;
@@ -15,12 +26,32 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 逻辑删除插入拦截器
  *
  * 功能：在逻辑删除场景下，如果插入操作指定了主键，
  * 先检查是否存在逻辑删除的记录，如果存在则物理删除后再插入
+ * <p>
+ * 两种处理策略：
+ * <ul>
+ *   <li>PROBE：先查询主键对应的记录，逻辑删除的记录物理删除后再插入（通用，额外一次查询）</li>
+ *   <li>UPSERT：将 INSERT 改写为 PostgreSQL 的 {@code INSERT ... ON CONFLICT (id) DO UPDATE ... WHERE is_deleted <> 0}，
+ *   一条语句完成，冲突记录未被逻辑删除时影响行数为0，按原逻辑报错</li>
+ * </ul>
+ * AUTO 模式下根据数据库类型选择（PostgreSQL 使用 UPSERT，其他数据库如内嵌 H2 使用 PROBE）；
+ * 批量执行器无法获取单条影响行数，始终使用 PROBE。
+ * <p>
+ * 唯一键：部分唯一索引不包含 is_deleted 列（如 user_code、email、server_key），逻辑删除的记录仍会与新记录冲突。
+ * 实体中标记了 {@link UniqueKey} 的字段按组解析为唯一键，插入前物理删除唯一键相同的逻辑删除记录；
+ * ON CONFLICT 只能指定一个冲突目标，唯一键始终按 PROBE 处理，UPSERT 只用于主键。
+ * 唯一键相同的记录未被逻辑删除时不做处理，由数据库的唯一约束报错。
+ * <p>
+ * 实体元数据（表名、主键列与访问器、逻辑删除列、全部列、唯一键列组）按类缓存，只在首次插入时反射解析一次。
+ * 标记了 {@link IgnoreLogicalDeleteInsert} 的实体直接跳过。
  */
 @Slf4j
 @Component
@@ -29,12 +60,61 @@ import java.util.*;
         type = Executor.class,
         method = "update",
         args = {MappedStatement.class, Object.class}
+    ),
+    @Signature(
+        type = StatementHandler.class,
+        method = "prepare",
+        args = {Connection.class, Integer.class}
     )
 })
 public class LogicalDeleteInsertInterceptor implements Interceptor {
 
+    /**
+     * 匹配 INSERT 语句的列清单
+     */
+    private static final Pattern INSERT_COLUMNS_PATTERN =
+            Pattern.compile("^\\s*INSERT\\s+INTO\\s+\\S+\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern ON_CONFLICT_PATTERN = Pattern.compile("\\bON\\s+CONFLICT\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 不需要处理的实体
+     */
+    private static final EntityMeta DISABLED = new EntityMeta(false, null, null, null, null, List.of(), List.of());
+
+    /**
+     * 当前线程待改写为 UPSERT 的插入（在 Executor.update 中设置，在 StatementHandler.prepare 中消费）
+     */
+    private static final ThreadLocal<EntityMeta> UPSERT_META = new ThreadLocal<>();
+
+    /**
+     * Key: 参数对象的类
+     * Value: 实体元数据
+     */
+    private final Map<Class<?>, EntityMeta> metaCache = new ConcurrentHashMap<>();
+
+    private final Strategy strategy;
+
+    /**
+     * AUTO 模式下检测到的数据库是否为 PostgreSQL（null 表示尚未检测）
+     */
+    private volatile Boolean postgres;
+
+    public LogicalDeleteInsertInterceptor() {
+        this(Strategy.AUTO);
+    }
+
+    public LogicalDeleteInsertInterceptor(Strategy strategy) {
+        this.strategy = strategy != null ? strategy : Strategy.AUTO;
+    }
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
+        if (invocation.getTarget() instanceof StatementHandler statementHandler) {
+            rewriteToUpsert(statementHandler);
+            return invocation.proceed();
+        }
+
         MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
         Object parameter = invocation.getArgs()[1];
 
@@ -48,25 +128,58 @@ public class LogicalDeleteInsertInterceptor implements Interceptor {
             return invocation.proceed();
         }
 
-        // 3. 判断是否有逻辑删除字段
-        Field logicDeleteField = findLogicDeleteField(parameter.getClass());
-        if (logicDeleteField == null) {
+        // 3. 获取实体元数据（无逻辑删除字段、无主键或标记跳过的实体不处理）
+        EntityMeta meta = metaCache.computeIfAbsent(parameter.getClass(), this::resolveEntityMeta);
+        if (!meta.enabled()) {
             return invocation.proceed();
         }
 
-        // 4. 提取主键和唯一键
-        KeyInfo keyInfo = extractKeyInfo(parameter);
-        if (keyInfo.isEmpty()) {
+        Executor executor = (Executor) invocation.getTarget();
+        Connection connection = null;
+
+        // 4. 物理删除唯一键相同的逻辑删除记录
+        for (UniqueKeyMeta uniqueKey : meta.uniqueKeys()) {
+            List<Object> values = uniqueKey.values(parameter);
+            if (values != null) {
+                if (connection == null) {
+                    connection = executor.getTransaction().getConnection();
+                }
+                deleteLogicalDeletedByUniqueKey(connection, meta, uniqueKey, values);
+            }
+        }
+
+        // 提取主键
+        Object primaryKeyValue = meta.idField().get(parameter);
+        if (primaryKeyValue == null) {
             return invocation.proceed();
         }
+        if (connection == null) {
+            connection = executor.getTransaction().getConnection();
+        }
 
-        // 5. 查询是否存在逻辑删除的记录
-        Executor executor = (Executor) invocation.getTarget();
-        Connection connection = executor.getTransaction().getConnection();
+        // 5. PostgreSQL 下改写为一条 INSERT ... ON CONFLICT 语句
+        if (useUpsert(connection, meta, executor)) {
+            UPSERT_META.set(meta);
+            Object result;
+            try {
+                result = invocation.proceed();
+            } finally {
+                UPSERT_META.remove();
+            }
+            if (result instanceof Integer rows && rows == 0) {
+                // 冲突的记录未被逻辑删除，没有更新
+                throw new IllegalStateException(
+                    String.format("记录已存在且未删除，无法插入！表: %s, 条件: %s = %s",
+                        meta.tableName(), meta.idColumn(), primaryKeyValue)
+                );
+            }
+            return result;
+        }
 
-        handleLogicalDeletedRecord(connection, parameter, keyInfo, logicDeleteField);
+        // 6. 查询是否存在逻辑删除的记录
+        handleLogicalDeletedRecord(connection, meta, primaryKeyValue);
 
-        // 6. 执行原始插入操作
+        // 7. 执行原始插入操作
         return invocation.proceed();
     }
 
@@ -80,6 +193,144 @@ public class LogicalDeleteInsertInterceptor implements Interceptor {
         // 可以从配置文件读取属性
     }
 
+    /**
+     * 解析实体元数据
+     */
+    private EntityMeta resolveEntityMeta(Class<?> clazz) {
+        if (clazz.isAnnotationPresent(IgnoreLogicalDeleteInsert.class)) {
+            return DISABLED;
+        }
+
+        Field logicDeleteField = findLogicDeleteField(clazz);
+        if (logicDeleteField == null) {
+            return DISABLED;
+        }
+
+        Field idField = findIdField(clazz);
+        if (idField == null) {
+            return DISABLED;
+        }
+        idField.setAccessible(true);
+
+        String tableName = getTableName(clazz);
+        // UPSERT 需要完整的列清单，从 MyBatis-Plus 的表信息中获取，获取不到时只能使用 PROBE
+        List<String> columns = new ArrayList<>();
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(clazz);
+        if (tableInfo != null) {
+            tableName = tableInfo.getTableName();
+            for (TableFieldInfo fieldInfo : tableInfo.getFieldList()) {
+                columns.add(fieldInfo.getColumn());
+            }
+        }
+
+        List<UniqueKeyMeta> uniqueKeys = findUniqueKeys(clazz);
+        EntityMeta meta = new EntityMeta(true, tableName, getColumnName(idField), idField,
+                getColumnName(logicDeleteField), List.copyOf(columns), uniqueKeys);
+        log.debug("解析逻辑删除插入元数据: class={}, table={}, columns={}, uniqueKeys={}",
+                clazz.getName(), tableName, columns.size(), uniqueKeys.size());
+        return meta;
+    }
+
+    /**
+     * 按组解析 {@link UniqueKey} 字段，未指定组的字段各自为单列唯一键
+     */
+    private List<UniqueKeyMeta> findUniqueKeys(Class<?> clazz) {
+        Map<String, List<Field>> groups = new LinkedHashMap<>();
+        Class<?> currentClass = clazz;
+        while (currentClass != null && currentClass != Object.class) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                UniqueKey uniqueKey = field.getAnnotation(UniqueKey.class);
+                if (uniqueKey == null) {
+                    continue;
+                }
+                field.setAccessible(true);
+                String group = uniqueKey.group().isEmpty() ? "#" + field.getName() : uniqueKey.group();
+                groups.computeIfAbsent(group, key -> new ArrayList<>()).add(field);
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+
+        List<UniqueKeyMeta> uniqueKeys = new ArrayList<>();
+        for (List<Field> fields : groups.values()) {
+            fields.sort(Comparator.comparingInt(field -> field.getAnnotation(UniqueKey.class).order()));
+            List<String> keyColumns = new ArrayList<>();
+            for (Field field : fields) {
+                keyColumns.add(getColumnName(field));
+            }
+            uniqueKeys.add(new UniqueKeyMeta(List.copyOf(keyColumns), List.copyOf(fields)));
+        }
+        return List.copyOf(uniqueKeys);
+    }
+
+    /**
+     * 是否使用 UPSERT 策略
+     */
+    private boolean useUpsert(Connection connection, EntityMeta meta, Executor executor) throws Exception {
+        if (meta.columns().isEmpty() || isBatchExecutor(executor)) {
+            return false;
+        }
+        return switch (strategy) {
+            case PROBE -> false;
+            case UPSERT -> true;
+            case AUTO -> isPostgres(connection);
+        };
+    }
+
+    private boolean isPostgres(Connection connection) throws Exception {
+        Boolean detected = postgres;
+        if (detected == null) {
+            detected = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            postgres = detected;
+            log.info("逻辑删除插入拦截器使用策略: {}", detected ? Strategy.UPSERT : Strategy.PROBE);
+        }
+        return detected;
+    }
+
+    /**
+     * 判断是否为批量执行器（需要穿透插件代理和二级缓存执行器）
+     */
+    private boolean isBatchExecutor(Executor executor) {
+        Object current = PluginUtils.realTarget(executor);
+        while (current instanceof CachingExecutor) {
+            current = PluginUtils.realTarget(SystemMetaObject.forObject(current).getValue("delegate"));
+        }
+        return current instanceof BatchExecutor;
+    }
+
+    /**
+     * 将当前线程待处理的 INSERT 改写为 INSERT ... ON CONFLICT
+     * 冲突时用新值覆盖已逻辑删除的记录（未插入的列恢复默认值），效果等同于物理删除后再插入
+     */
+    private void rewriteToUpsert(StatementHandler statementHandler) {
+        EntityMeta meta = UPSERT_META.get();
+        if (meta == null) {
+            return;
+        }
+        UPSERT_META.remove();
+
+        BoundSql boundSql = statementHandler.getBoundSql();
+        String sql = boundSql.getSql();
+        Matcher matcher = INSERT_COLUMNS_PATTERN.matcher(sql);
+        if (!matcher.find() || ON_CONFLICT_PATTERN.matcher(sql).find()) {
+            return;
+        }
+
+        Set<String> insertColumns = new HashSet<>();
+        for (String column : matcher.group(1).split(",")) {
+            insertColumns.add(column.trim().toLowerCase());
+        }
+
+        StringJoiner setClause = new StringJoiner(", ");
+        for (String column : meta.columns()) {
+            setClause.add(column + " = " + (insertColumns.contains(column.toLowerCase()) ? "EXCLUDED." + column : "DEFAULT"));
+        }
+
+        String upsertSql = String.format("%s ON CONFLICT (%s) DO UPDATE SET %s WHERE %s.%s <> 0",
+                sql.strip(), meta.idColumn(), setClause, meta.tableName(), meta.logicDeleteColumn());
+        log.debug("逻辑删除插入改写 SQL: {}", upsertSql);
+        PluginUtils.mpBoundSql(boundSql).sql(upsertSql);
+    }
+
     /**
      * 查找逻辑删除字段
      */
@@ -97,66 +348,42 @@ public class LogicalDeleteInsertInterceptor implements Interceptor {
     }
 
     /**
-     * 提取主键和唯一键信息
+     * 查找主键字段
      */
-    private KeyInfo extractKeyInfo(Object parameter) {
-        KeyInfo keyInfo = new KeyInfo();
-        Class<?> clazz = parameter.getClass();
-
-        // 遍历所有字段（包括父类）
+    private Field findIdField(Class<?> clazz) {
         Class<?> currentClass = clazz;
         while (currentClass != null && currentClass != Object.class) {
             for (Field field : currentClass.getDeclaredFields()) {
-                field.setAccessible(true);
-                try {
-                    Object value = field.get(parameter);
-                    if (value == null) {
-                        continue;
-                    }
-
-                    // 检查主键
-                    if (field.isAnnotationPresent(TableId.class)) {
-                        keyInfo.setPrimaryKey(field.getName(), value);
-                    }
-                } catch (IllegalAccessException e) {
-                    log.warn("无法访问字段: {}", field.getName(), e);
+                if (field.isAnnotationPresent(TableId.class)) {
+                    return field;
                 }
             }
             currentClass = currentClass.getSuperclass();
         }
-
-        return keyInfo;
+        return null;
     }
 
     /**
      * 处理逻辑删除的记录
      */
-    private void handleLogicalDeletedRecord(Connection connection, Object parameter,
-                                            KeyInfo keyInfo, Field logicDeleteField) throws Exception {
-        String tableName = getTableName(parameter.getClass());
-        String logicDeleteFieldName = getColumnName(logicDeleteField);
-
-        // 构建查询条件
-        QueryCondition condition = buildQueryCondition(keyInfo);
-        if (condition == null) {
-            return;
-        }
+    private void handleLogicalDeletedRecord(Connection connection, EntityMeta meta, Object primaryKeyValue) throws Exception {
+        String tableName = meta.tableName();
+        String logicDeleteFieldName = meta.logicDeleteColumn();
+        String whereClause = meta.idColumn() + " = ?";
 
         // 查询记录（忽略逻辑删除）
         String querySql = String.format(
-            "SELECT * FROM %s WHERE %s",
+            "SELECT id, %s FROM %s WHERE %s",
+            logicDeleteFieldName,
             tableName,
-            condition.getWhereClause()
+            whereClause
         );
 
         log.debug("查询逻辑删除记录 SQL: {}", querySql);
 
         try (PreparedStatement ps = connection.prepareStatement(querySql)) {
             // 设置参数
-            int paramIndex = 1;
-            for (Object value : condition.getParams()) {
-                ps.setObject(paramIndex++, value);
-            }
+            ps.setObject(1, primaryKeyValue);
 
             try (ResultSet rs = ps.executeQuery()) {
                 List<Map<String, Object>> records = new ArrayList<>();
@@ -177,7 +404,7 @@ public class LogicalDeleteInsertInterceptor implements Interceptor {
                     // 查到多条记录，数据不一致
                     throw new IllegalStateException(
                         String.format("发现多条记录匹配相同的主键/唯一键，数据不一致！表: %s, 条件: %s",
-                            tableName, condition.getWhereClause())
+                            tableName, whereClause)
                     );
                 }
 
@@ -193,13 +420,42 @@ public class LogicalDeleteInsertInterceptor implements Interceptor {
                     // 是活跃记录，报错
                     throw new IllegalStateException(
                         String.format("记录已存在且未删除，无法插入！表: %s, 条件: %s",
-                            tableName, condition.getWhereClause())
+                            tableName, whereClause)
                     );
                 }
             }
         }
     }
 
+    /**
+     * 物理删除唯一键与新记录相同的逻辑删除记录（唯一键相同的有效记录由数据库唯一约束处理）
+     */
+    private void deleteLogicalDeletedByUniqueKey(Connection connection, EntityMeta meta, UniqueKeyMeta uniqueKey,
+                                                 List<Object> values) throws Exception {
+        StringJoiner whereClause = new StringJoiner(" AND ");
+        for (String column : uniqueKey.columns()) {
+            whereClause.add(column + " = ?");
+        }
+        String querySql = String.format("SELECT id FROM %s WHERE %s AND %s <> 0",
+                meta.tableName(), whereClause, meta.logicDeleteColumn());
+        log.debug("查询唯一键相同的逻辑删除记录 SQL: {}", querySql);
+
+        List<Long> recordIds = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(querySql)) {
+            for (int i = 0; i < values.size(); i++) {
+                ps.setObject(i + 1, values.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    recordIds.add(rs.getLong(1));
+                }
+            }
+        }
+        for (Long recordId : recordIds) {
+            physicalDelete(connection, meta.tableName(), recordId);
+        }
+    }
+
     /**
      * 物理删除记录
      */
@@ -242,68 +498,59 @@ public class LogicalDeleteInsertInterceptor implements Interceptor {
     }
 
     /**
-     * 构建查询条件
+     * 处理策略
      */
-    private QueryCondition buildQueryCondition(KeyInfo keyInfo) {
-        // 优先使用主键
-        if (keyInfo.hasPrimaryKey()) {
-            return new QueryCondition(
-                keyInfo.getPrimaryKeyName() + " = ?",
-                Collections.singletonList(keyInfo.getPrimaryKeyValue())
-            );
-        }
-
-        return null;
+    public enum Strategy {
+        /**
+         * 根据数据库类型自动选择
+         */
+        AUTO,
+        /**
+         * 先查询再物理删除
+         */
+        PROBE,
+        /**
+         * PostgreSQL INSERT ... ON CONFLICT
+         */
+        UPSERT
     }
 
     /**
-     * 键信息类
+     * 实体元数据
+     *
+     * @param enabled           是否需要处理
+     * @param tableName         表名
+     * @param idColumn          主键列名
+     * @param idField           主键字段（已设置可访问）
+     * @param logicDeleteColumn 逻辑删除列名
+     * @param columns           除主键外的全部列（用于 UPSERT 覆盖）
+     * @param uniqueKeys        唯一键列组
      */
-    private static class KeyInfo {
-        private String primaryKeyName;
-        private Object primaryKeyValue;
-
-        public void setPrimaryKey(String name, Object value) {
-            this.primaryKeyName = name;
-            this.primaryKeyValue = value;
-        }
-
-        public boolean isEmpty() {
-            return primaryKeyValue == null;
-        }
-
-        public boolean hasPrimaryKey() {
-            return primaryKeyValue != null;
-        }
-
-        public String getPrimaryKeyName() {
-            return primaryKeyName;
-        }
-
-        public Object getPrimaryKeyValue() {
-            return primaryKeyValue;
-        }
-
+    private record EntityMeta(boolean enabled, String tableName, String idColumn, Field idField,
+                              String logicDeleteColumn, List<String> columns, List<UniqueKeyMeta> uniqueKeys) {
     }
 
     /**
-     * 查询条件类
+     * 唯一键元数据
+     *
+     * @param columns 列名（按 {@link UniqueKey#order()} 排序）
+     * @param fields  对应的字段（已设置可访问）
      */
-    private static class QueryCondition {
-        private final String whereClause;
-        private final List<Object> params;
-
-        public QueryCondition(String whereClause, List<Object> params) {
-            this.whereClause = whereClause;
-            this.params = params;
-        }
-
-        public String getWhereClause() {
-            return whereClause;
-        }
-
-        public List<Object> getParams() {
-            return params;
+    private record UniqueKeyMeta(List<String> columns, List<Field> fields) {
+
+        /**
+         * 新记录的唯一键值，任一列为 null 时返回 null（null 不参与唯一约束）
+         */
+        List<Object> values(Object entity) throws IllegalAccessException {
+            List<Object> values = new ArrayList<>(fields.size());
+            for (Field field : fields) {
+                Object value = field.get(entity);
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+            }
+            return values;
         }
     }
 }
@@ -0,0 +1,154 @@
+package org.joker.comfypilot.common.infrastructure.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.config.MediaStoreProperties;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.common.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 多媒体内容寻址存储
+ * <p>
+ * 按内容的 SHA-256 保存解码后的原始字节（路径为 {@code <rootPath>/<前两位>/<哈希>}），相同内容只保存一份。
+ * 聊天消息持久化时只保存哈希引用，构建模型请求时再按哈希还原为 Base64。
+ * 文件写入后不再修改，写入使用临时文件 + 原子移动，并发写入同一内容时结果一致。
+ * <p>
+ * 限制：
+ * <ul>
+ *   <li>存储在节点本地磁盘，多节点部署（{@code session.cluster}）时 {@code media.store.root-path}
+ *   必须指向所有节点共享的目录（如 NFS），否则其他节点读取不到内容，或关闭 {@code media.store.enabled} 改为内联保存</li>
+ *   <li>内容可能被多条消息引用，删除消息或会话时不会删除文件，未被引用的文件需要另行清理</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class MediaBlobStore {
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+    @Autowired
+    private MediaStoreProperties properties;
+
+    private Path rootPath;
+
+    /**
+     * Key: 内容哈希
+     * Value: Base64 编码内容
+     */
+    private Map<String, String> base64Cache;
+
+    @PostConstruct
+    public void init() {
+        rootPath = Paths.get(properties.getRootPath()).toAbsolutePath().normalize();
+        int cacheSize = Math.max(0, properties.getCacheSize());
+        base64Cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * 是否启用内容寻址存储
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(properties.getEnabled());
+    }
+
+    /**
+     * 保存 Base64 内容
+     *
+     * @param base64Data Base64 编码内容
+     * @return 内容哈希（SHA-256 十六进制）
+     */
+    public String put(String base64Data) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getMimeDecoder().decode(base64Data);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Base64内容格式错误", e);
+        }
+        String hash = sha256(bytes);
+        Path target = resolve(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                Files.write(temp, bytes);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 其他线程已写入相同内容
+                log.debug("多媒体内容已存在: {}", hash);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new BusinessException("保存多媒体内容失败: " + hash, e);
+        }
+        log.debug("已保存多媒体内容: hash={}, size={}", hash, bytes.length);
+        return hash;
+    }
+
+    /**
+     * 按哈希读取 Base64 内容
+     *
+     * @param hash 内容哈希
+     * @return Base64 编码内容
+     */
+    public String getBase64(String hash) {
+        String cached = base64Cache.get(hash);
+        if (cached != null) {
+            return cached;
+        }
+        Path path = getPath(hash);
+        try {
+            String base64Data = Base64.getEncoder().encodeToString(Files.readAllBytes(path));
+            base64Cache.put(hash, base64Data);
+            return base64Data;
+        } catch (IOException e) {
+            throw new BusinessException("读取多媒体内容失败: " + hash, e);
+        }
+    }
+
+    /**
+     * 获取内容文件路径
+     *
+     * @param hash 内容哈希
+     * @return 文件路径
+     */
+    public Path getPath(String hash) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            throw new ResourceNotFoundException("多媒体内容", hash);
+        }
+        Path path = resolve(hash);
+        if (!Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("多媒体内容", hash);
+        }
+        return path;
+    }
+
+    private Path resolve(String hash) {
+        return rootPath.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
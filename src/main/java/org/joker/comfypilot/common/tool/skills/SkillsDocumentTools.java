@@ -11,6 +11,7 @@ import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.joker.comfypilot.common.annotation.DirectExecute;
 import org.joker.comfypilot.common.annotation.ToolSet;
 import org.springframework.stereotype.Component;
 
@@ -30,6 +31,7 @@ import java.util.*;
 @Slf4j
 @Component
 @ToolSet
+@DirectExecute
 public class SkillsDocumentTools {
 
     private final SkillsRegistry skillsRegistry;
@@ -3,6 +3,7 @@ package org.joker.comfypilot.common.tool.skills;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.annotation.DirectExecute;
 import org.joker.comfypilot.common.annotation.ToolSet;
 import org.joker.comfypilot.common.tool.filesystem.FileInfo;
 import org.springframework.stereotype.Component;
@@ -24,6 +25,7 @@ import java.util.stream.Stream;
 @Slf4j
 @Component
 @ToolSet
+@DirectExecute
 public class SkillsTools {
 
     private final SkillsRegistry skillsRegistry;
@@ -0,0 +1,163 @@
+package org.joker.comfypilot.common.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 文件输出工具类
+ * 直接向 Servlet 响应输出本地文件，支持：
+ * <ul>
+ *   <li>ETag / If-None-Match 条件请求（未变化时返回 304）</li>
+ *   <li>单个字节范围请求（Range / If-Range，返回 206，支持断点续传），多范围请求按完整文件返回</li>
+ *   <li>零拷贝输出：容器支持时使用 Tomcat sendfile，否则使用 {@link FileChannel#transferTo}</li>
+ * </ul>
+ */
+@Slf4j
+public class FileServingUtil {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private FileServingUtil() {
+    }
+
+    /**
+     * 输出文件
+     *
+     * @param request      请求
+     * @param response     响应
+     * @param file         文件路径
+     * @param contentType  内容类型
+     * @param downloadName 下载文件名
+     * @return 输出的起始字节位置（304/416 时返回 -1），调用方可据此只统计从头开始的下载
+     * @throws IOException IO 异常
+     */
+    public static long serve(HttpServletRequest request, HttpServletResponse response,
+                             Path file, String contentType, String downloadName) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            log.error("文件不存在: {}", file);
+            throw new BusinessException("文件不存在");
+        }
+        long fileSize = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(fileSize) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        // 1. 条件请求
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return -1;
+        }
+
+        // 2. 范围请求（If-Range 与当前 ETag 不一致时忽略 Range，返回完整文件）
+        long start = 0;
+        long end = fileSize - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        boolean partial = false;
+        if (rangeHeader != null && fileSize > 0 && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(fileSize);
+                    end = range.getRangeEnd(fileSize);
+                    partial = true;
+                } catch (IllegalArgumentException e) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+                    return -1;
+                }
+            }
+        }
+        long length = fileSize == 0 ? 0 : end - start + 1;
+
+        if (partial) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        response.setContentType(contentType);
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(downloadName, StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return start;
+        }
+
+        // 3. 输出文件内容
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // 由 Tomcat 在请求结束后通过 sendfile 直接从内核发送
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return start;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        } catch (IOException e) {
+            // 客户端中断下载（暂停、取消）属于正常情况
+            log.debug("文件输出中断: {}, {}", file, e.getMessage());
+        }
+        return start;
+    }
+
+    /**
+     * 判断 If-None-Match 是否匹配当前 ETag（支持 * 、多个值和弱校验前缀）
+     */
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
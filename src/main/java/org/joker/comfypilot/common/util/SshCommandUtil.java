@@ -1,16 +1,20 @@
 package org.joker.comfypilot.common.util;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.channel.ChannelExec;
 import org.apache.sshd.client.channel.ClientChannel;
 import org.apache.sshd.client.channel.ClientChannelEvent;
 import org.apache.sshd.client.session.ClientSession;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.util.EnumSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -21,7 +25,7 @@ import java.util.concurrent.TimeUnit;
  * <p>主要功能：</p>
  * <ul>
  *   <li>支持 SSH 密码认证和密钥认证</li>
- *   <li>支持 Shell 通道交互式命令执行</li>
+ *   <li>按服务器复用已认证的会话（见 {@link SshSessionPool}），每条命令使用独立的 exec 通道</li>
  *   <li>支持实时输出回调</li>
  *   <li>支持超时控制</li>
  *   <li>支持环境变量设置</li>
@@ -131,167 +135,75 @@ public class SshCommandUtil {
     public static CommandResult execute(SshCommandConfig config) throws IOException, InterruptedException {
         log.info("执行 SSH 命令: {}", config.command);
 
-        SshClient client = null;
-        ClientSession session = null;
+        // 1. 构建最终执行的命令
+        String finalCommand = buildFinalCommand(config);
+        log.debug("最终执行命令: {}", finalCommand);
 
-        try {
-            // 1. 创建并启动 SSH 客户端
-            client = SshClient.setUpDefaultClient();
-            client.start();
-            log.debug("SSH 客户端已启动");
-
-            // 2. 连接到 SSH 服务器
-            SshConfig sshConfig = config.sshConfig;
-            session = client.connect(
-                    sshConfig.username,
-                    sshConfig.host,
-                    sshConfig.port
-            ).verify(10, TimeUnit.SECONDS).getSession();
-            log.debug("已连接到 SSH 服务器: {}:{}", sshConfig.host, sshConfig.port);
-
-            // 3. 认证
-            if (sshConfig.password != null && !sshConfig.password.isEmpty()) {
-                // 密码认证
-                session.addPasswordIdentity(sshConfig.password);
-                log.debug("使用密码认证");
-            } else if (sshConfig.privateKeyContent != null && !sshConfig.privateKeyContent.isEmpty()) {
-                // 使用私钥内容认证
-                loadPrivateKeyFromContent(session, sshConfig.privateKeyContent);
-                log.debug("使用私钥内容认证");
-            } else {
-                throw new IllegalArgumentException("必须提供密码、私钥内容或私钥路径");
-            }
-
-            session.auth().verify(10, TimeUnit.SECONDS);
-            log.debug("SSH 认证成功");
-
-            // 4. 构建最终执行的命令
-            String finalCommand = buildFinalCommand(config);
-            log.debug("最终执行命令: {}", finalCommand);
-
-            // 5. 创建 Shell 通道并执行命令
-            CommandResult result = executeInShellChannel(session, finalCommand, config);
-
-            log.info("SSH 命令执行完成，退出码: {}", result.getExitCode());
-            return result;
-
-        } finally {
-            // 清理资源
-            if (session != null) {
-                try {
-                    session.close();
-                } catch (Exception e) {
-                    log.warn("关闭 SSH 会话失败", e);
-                }
-            }
-            if (client != null) {
+        // 2. 从会话池借用已认证的会话，在独立的 exec 通道中执行命令
+        //    通道打开失败通常是会话已失效（服务器重启、网络中断），关闭会话后重试一次
+        for (int attempt = 1; ; attempt++) {
+            try (SshSessionPool.Lease lease = SshSessionPool.INSTANCE.acquire(config.sshConfig)) {
+                ExecChannel channel;
                 try {
-                    client.stop();
-                } catch (Exception e) {
-                    log.warn("停止 SSH 客户端失败", e);
+                    channel = openExecChannel(lease.getSession(), finalCommand, config);
+                } catch (IOException e) {
+                    lease.invalidate();
+                    if (attempt >= 2) {
+                        throw e;
+                    }
+                    log.warn("打开 SSH 通道失败，重新连接后重试: {}", e.getMessage());
+                    continue;
                 }
+                CommandResult result = waitForExecChannel(channel, config);
+                log.info("SSH 命令执行完成，退出码: {}", result.getExitCode());
+                return result;
             }
         }
     }
 
     /**
-     * 在 Shell 通道中执行命令
+     * 打开 exec 通道并开始执行命令
+     * 通道分配伪终端，与交互式 Shell 的输出行为保持一致
      *
      * @param session SSH 会话
      * @param command 要执行的命令
      * @param config  命令配置
-     * @return 命令执行结果
-     * @throws IOException          IO 异常
-     * @throws InterruptedException 中断异常
+     * @return 已打开的通道及其输出流
+     * @throws IOException IO 异常
      */
-    private static CommandResult executeInShellChannel(
+    private static ExecChannel openExecChannel(
             ClientSession session,
             String command,
             SshCommandConfig config
-    ) throws IOException, InterruptedException {
-
-        // 创建管道流（用于实时写入命令）
-        PipedOutputStream pipedOut = new PipedOutputStream();
-        PipedInputStream pipedIn = new PipedInputStream(pipedOut);
-
-        PipedOutputStream outputStream = new PipedOutputStream();
-        PipedOutputStream errorStream = new PipedOutputStream();
-        PipedInputStream pipedOutput = new PipedInputStream(outputStream);
-        PipedInputStream pipedError = new PipedInputStream(errorStream);
-
-        ClientChannel channel = session.createShellChannel();
-
+    ) throws IOException {
+        ChannelExec channel = session.createExecChannel(command);
+        channel.setUsePty(true);
+        ChannelOutputStream out = new ChannelOutputStream(channel, config, false);
+        ChannelOutputStream err = new ChannelOutputStream(channel, config, true);
+        channel.setOut(out);
+        channel.setErr(err);
         try {
-            // 设置输入输出流
-            channel.setIn(pipedIn);           // 使用管道输入流
-            channel.setOut(outputStream);     // 标准输出
-            channel.setErr(errorStream);      // 错误输出
-
-            // 打开 Shell 通道
             channel.open().verify(10, TimeUnit.SECONDS);
-            log.debug("Shell 通道已打开");
-
-            // 启动输出读取线程
-            StringBuilder output = new StringBuilder();
-            StringBuilder error = new StringBuilder();
-            // 标准输出读取线程
-            Thread outputThread = new Thread(() -> {
-                char[] buf = new char[1024];
-                try (InputStreamReader reader = new InputStreamReader(pipedOutput, config.charset)) {
-                    int flag;
-                    while ((flag = reader.read(buf)) != -1) {
-                        String line = new String(buf, 0, flag);
-                        output.append(line);
-                        if (config.outputCallback != null) {
-                            config.outputCallback.accept(line, false, channel);
-                        }
-                    }
-                } catch (IOException e) {
-                    log.error("读取标准输出失败", e);
-                }
-            });
-
-            // 错误输出读取线程
-            Thread errorThread = new Thread(() -> {
-                char[] buf = new char[1024];
-                try (InputStreamReader reader = new InputStreamReader(pipedError, config.charset)) {
-                    int flag;
-                    while ((flag = reader.read(buf)) != -1) {
-                        String line = new String(buf, 0, flag);
-                        error.append(line);
-                        if (config.outputCallback != null) {
-                            config.outputCallback.accept(line, false, channel);
-                        }
-                    }
-                } catch (IOException e) {
-                    log.error("读取错误输出失败", e);
-                }
-            });
-
-            outputThread.start();
-            errorThread.start();
-
-            // 在单独的线程中发送命令
-            Thread commandThread = new Thread(() -> {
-                try {
-                    // 发送命令
-                    sendCommand(pipedOut, command);
-
-                    // 发送 exit 命令关闭 Shell
-                    sendCommand(pipedOut, "exit");
-
-                    // 关闭输出流
-                    pipedOut.close();
-
-                } catch (Exception e) {
-                    log.error("发送命令失败", e);
-                }
-            });
-
-            // 启动命令发送线程
-            commandThread.start();
+        } catch (IOException | RuntimeException e) {
+            closeChannel(channel);
+            throw e;
+        }
+        log.debug("Exec 通道已打开");
+        return new ExecChannel(channel, out, err);
+    }
 
-            // 等待 Shell 通道关闭（命令执行完成）
+    /**
+     * 等待 exec 通道执行完成并收集结果
+     *
+     * @param execChannel 已打开的通道及其输出流
+     * @param config      命令配置
+     * @return 命令执行结果
+     * @throws IOException IO 异常
+     */
+    private static CommandResult waitForExecChannel(ExecChannel execChannel, SshCommandConfig config) throws IOException {
+        ClientChannel channel = execChannel.channel();
+        try {
+            // 等待通道关闭（命令执行完成）
             Set<ClientChannelEvent> events = channel.waitFor(
                     EnumSet.of(ClientChannelEvent.CLOSED),
                     TimeUnit.SECONDS.toMillis(config.timeout)
@@ -302,82 +214,109 @@ public class SshCommandUtil {
                 throw new IOException("命令执行超时: " + config.timeout + " 秒");
             }
 
-            // 等待命令线程结束
-            commandThread.join(5000);
+            ChannelOutputStream out = execChannel.out();
+            ChannelOutputStream err = execChannel.err();
+            out.close();
+            err.close();
 
             // 获取退出状态
             Integer exitStatus = channel.getExitStatus();
             int exitCode = exitStatus != null ? exitStatus : -1;
 
-            return new CommandResult(exitCode, output.toString(), error.toString());
-
+            return new CommandResult(exitCode, out.getContent(), err.getContent());
         } finally {
-            // 关闭资源
-            try {
-                channel.close();
-            } catch (Exception e) {
-                log.warn("关闭通道失败", e);
-            }
-            try {
-                outputStream.close();
-            } catch (Exception e) {
-                log.warn("关闭输出流失败", e);
-            }
-            try {
-                errorStream.close();
-            } catch (Exception e) {
-                log.warn("关闭错误流失败", e);
-            }
+            closeChannel(channel);
         }
     }
 
     /**
-     * 发送命令到 Shell
-     *
-     * @param outputStream 输出流
-     * @param command      命令
-     * @throws IOException IO 异常
+     * 已打开的 exec 通道及其标准输出、错误输出流
      */
-    private static void sendCommand(OutputStream outputStream, String command) throws IOException {
-        log.debug("发送命令: {}", command);
-        outputStream.write((command + "\n").getBytes(StandardCharsets.UTF_8));
-        outputStream.flush();
+    private record ExecChannel(ClientChannel channel, ChannelOutputStream out, ChannelOutputStream err) {
+    }
+
+    private static void closeChannel(ClientChannel channel) {
+        try {
+            channel.close();
+        } catch (Exception e) {
+            log.warn("关闭通道失败", e);
+        }
     }
 
     /**
-     * 从私钥内容加载密钥对并添加到会话
-     *
-     * @param session           SSH 会话
-     * @param privateKeyContent 私钥内容（PEM 格式）
-     * @throws IOException 如果加载私钥失败
+     * 通道输出流
+     * 由 SSHD 的 IO 线程直接写入，按字符集增量解码（处理跨数据包的多字节字符），
+     * 收集完整输出并实时回调，不再需要管道流和读取线程
      */
-    private static void loadPrivateKeyFromContent(ClientSession session, String privateKeyContent) throws IOException {
-        /*try {
-            // 使用 Apache MINA SSHD 的 SecurityUtils 加载私钥
-            org.apache.sshd.common.config.keys.FilePasswordProvider passwordProvider = null;
-
-            // 将私钥内容转换为 InputStream
-            ByteArrayInputStream keyInputStream = new ByteArrayInputStream(
-                    privateKeyContent.getBytes(StandardCharsets.UTF_8)
-            );
+    private static final class ChannelOutputStream extends OutputStream {
 
-            // 加载私钥（支持 RSA, DSA, ECDSA, Ed25519 等格式）
-            Iterable<java.security.KeyPair> keyPairs = org.apache.sshd.common.config.keys.loader.KeyPairResourceLoader.loadKeyPairs(
-                    null,
-                    null,
-                    passwordProvider,
-                    keyInputStream
-            );
+        private final ClientChannel channel;
+
+        private final OutputCallbackWithChannel callback;
+
+        private final boolean isError;
+
+        private final CharsetDecoder decoder;
+
+        private final StringBuilder content = new StringBuilder();
+
+        /**
+         * 上一次写入中未能解码的不完整字符字节
+         */
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+
+        private ChannelOutputStream(ClientChannel channel, SshCommandConfig config, boolean isError) {
+            this.channel = channel;
+            this.callback = config.outputCallback;
+            this.isError = isError;
+            this.decoder = config.charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
 
-            // 添加所有加载的密钥对到会话
-            for (java.security.KeyPair keyPair : keyPairs) {
-                session.addPublicKeyIdentity(keyPair);
-                log.debug("已添加私钥到会话");
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            ByteBuffer in;
+            if (pending.hasRemaining()) {
+                in = ByteBuffer.allocate(pending.remaining() + len);
+                in.put(pending).put(b, off, len).flip();
+            } else {
+                in = ByteBuffer.wrap(b, off, len);
             }
+            CharBuffer out = CharBuffer.allocate((int) Math.ceil(in.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+            decoder.decode(in, out, false);
+            pending = in.hasRemaining() ? ByteBuffer.allocate(in.remaining()).put(in).flip() : ByteBuffer.allocate(0);
+            emit(out.flip());
+        }
 
-        } catch (Exception e) {
-            throw new IOException("加载私钥内容失败: " + e.getMessage(), e);
-        }*/
+        @Override
+        public synchronized void close() {
+            CharBuffer out = CharBuffer.allocate(pending.remaining() + 8);
+            decoder.decode(pending, out, true);
+            decoder.flush(out);
+            pending = ByteBuffer.allocate(0);
+            emit(out.flip());
+        }
+
+        private void emit(CharBuffer chars) {
+            if (!chars.hasRemaining()) {
+                return;
+            }
+            String chunk = chars.toString();
+            content.append(chunk);
+            if (callback != null) {
+                callback.accept(chunk, isError, channel);
+            }
+        }
+
+        private synchronized String getContent() {
+            return content.toString();
+        }
     }
 
     /**
@@ -391,6 +330,7 @@ public class SshCommandUtil {
      *   <li>切换工作目录（在环境准备好后再切换）</li>
      *   <li>用户命令（最后执行）</li>
      * </ol>
+     * 整段脚本在交互式登录 Shell 中执行，见 {@link #wrapInLoginShell(String)}
      *
      * @param config 命令配置
      * @return 最终执行的命令字符串
@@ -413,7 +353,19 @@ public class SshCommandUtil {
         // 执行用户命令
         commandBuilder.append(config.command);
 
-        return commandBuilder.toString();
+        return wrapInLoginShell(commandBuilder.toString());
+    }
+
+    /**
+     * 在交互式登录 Shell 中执行命令
+     * exec 通道不会像原 Shell 通道那样加载 .bash_profile / .bashrc，
+     * 依赖其中的别名、PATH 追加、conda 初始化的命令会表现不同；
+     * 远程有 bash 时使用 {@code bash -lic} 加载这些配置，否则退回 {@code sh -lc}
+     */
+    private static String wrapInLoginShell(String script) {
+        String quoted = "'" + script.replace("'", "'\\''") + "'";
+        return "if command -v bash >/dev/null 2>&1; then exec bash -lic " + quoted
+                + "; else exec sh -lc " + quoted + "; fi";
     }
 
     /**
@@ -458,6 +410,26 @@ public class SshCommandUtil {
             return new Builder();
         }
 
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public String getPrivateKeyContent() {
+            return privateKeyContent;
+        }
+
         /**
          * SSH 配置构建器
          */
@@ -0,0 +1,375 @@
+package org.joker.comfypilot.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.core.CoreModuleProperties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSH 会话池
+ * <p>
+ * 所有连接共用一个 {@link SshClient}，每个服务器（主机 + 端口 + 用户名 + 凭证）维护一个已认证的 {@link ClientSession}，
+ * 命令在该会话上各自打开独立的 exec 通道执行，多个命令可以并发复用同一个会话，只有首次连接需要握手和认证。
+ *
+ * <ul>
+ *   <li>会话开启心跳保活，断开后下次借用时自动重连</li>
+ *   <li>单个会话的并发通道数受限（OpenSSH 默认 MaxSessions 为 10）</li>
+ *   <li>空闲超过 {@link #IDLE_TIMEOUT_MILLIS} 且没有通道在使用的会话由后台线程关闭</li>
+ * </ul>
+ */
+@Slf4j
+final class SshSessionPool {
+
+    static final SshSessionPool INSTANCE = new SshSessionPool();
+
+    /**
+     * 连接超时时间（秒）
+     */
+    private static final long CONNECT_TIMEOUT = 10;
+
+    /**
+     * 认证超时时间（秒）
+     */
+    private static final long AUTH_TIMEOUT = 10;
+
+    /**
+     * 心跳间隔
+     */
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(30);
+
+    /**
+     * 会话空闲关闭时间（毫秒）
+     */
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 空闲检查间隔（秒）
+     */
+    private static final long EVICT_INTERVAL = 60;
+
+    /**
+     * 单个会话最大并发通道数
+     */
+    private static final int MAX_CHANNELS_PER_SESSION = 8;
+
+    /**
+     * 等待空闲通道的超时时间（秒）
+     */
+    private static final long CHANNEL_ACQUIRE_TIMEOUT = 60;
+
+    /**
+     * Key: 会话键
+     * Value: 池化会话
+     */
+    private final Map<SessionKey, PooledSession> sessions = new ConcurrentHashMap<>();
+
+    private volatile SshClient client;
+
+    private SshSessionPool() {
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ssh-session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleSessions, EVICT_INTERVAL, EVICT_INTERVAL, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "ssh-session-pool-shutdown"));
+    }
+
+    /**
+     * 借用会话（使用完毕后必须关闭租约以归还通道名额）
+     *
+     * @param config SSH 连接配置
+     * @return 会话租约
+     */
+    Lease acquire(SshCommandUtil.SshConfig config) throws IOException, InterruptedException {
+        SessionKey key = SessionKey.of(config);
+        while (true) {
+            PooledSession pooled = sessions.computeIfAbsent(key, PooledSession::new);
+            Lease lease = pooled.lease(config);
+            if (lease != null) {
+                return lease;
+            }
+            // 会话刚被空闲回收，重新获取
+        }
+    }
+
+    private SshClient getClient() {
+        SshClient current = client;
+        if (current == null) {
+            synchronized (this) {
+                current = client;
+                if (current == null) {
+                    current = SshClient.setUpDefaultClient();
+                    CoreModuleProperties.HEARTBEAT_INTERVAL.set(current, HEARTBEAT_INTERVAL);
+                    current.start();
+                    client = current;
+                    log.debug("SSH 客户端已启动");
+                }
+            }
+        }
+        return current;
+    }
+
+    private void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        sessions.forEach((key, pooled) -> {
+            try {
+                if (pooled.evictIfIdle(now)) {
+                    sessions.remove(key, pooled);
+                    log.debug("已关闭空闲 SSH 会话: {}@{}:{}", key.username(), key.host(), key.port());
+                }
+            } catch (Exception e) {
+                log.warn("关闭空闲 SSH 会话失败: {}@{}:{}", key.username(), key.host(), key.port(), e);
+            }
+        });
+    }
+
+    private void shutdown() {
+        sessions.values().forEach(pooled -> pooled.closeSession(null));
+        sessions.clear();
+        SshClient current = client;
+        if (current != null) {
+            try {
+                current.stop();
+            } catch (Exception e) {
+                log.warn("停止 SSH 客户端失败", e);
+            }
+        }
+    }
+
+    /**
+     * 池化会话
+     */
+    private final class PooledSession {
+
+        private final SessionKey key;
+
+        private final Semaphore channelPermits = new Semaphore(MAX_CHANNELS_PER_SESSION, true);
+
+        /**
+         * 当前会话（由 this 锁保护）
+         */
+        private ClientSession session;
+
+        /**
+         * 正在使用的通道数（由 this 锁保护）
+         */
+        private int activeLeases;
+
+        /**
+         * 是否已被回收（由 this 锁保护）
+         */
+        private boolean evicted;
+
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        private PooledSession(SessionKey key) {
+            this.key = key;
+        }
+
+        /**
+         * 借用会话，已被回收时返回 null
+         */
+        private Lease lease(SshCommandUtil.SshConfig config) throws IOException, InterruptedException {
+            if (!channelPermits.tryAcquire(CHANNEL_ACQUIRE_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new IOException("等待 SSH 通道超时，当前会话并发通道数已达上限: " + MAX_CHANNELS_PER_SESSION);
+            }
+            try {
+                synchronized (this) {
+                    if (evicted) {
+                        channelPermits.release();
+                        return null;
+                    }
+                    ClientSession current = ensureSession(config);
+                    activeLeases++;
+                    lastUsedAt = System.currentTimeMillis();
+                    return new Lease(this, current);
+                }
+            } catch (IOException | RuntimeException e) {
+                channelPermits.release();
+                throw e;
+            }
+        }
+
+        private ClientSession ensureSession(SshCommandUtil.SshConfig config) throws IOException {
+            if (session != null && session.isOpen() && !session.isClosing()) {
+                return session;
+            }
+            if (session != null) {
+                log.info("SSH 会话已断开，重新连接: {}@{}:{}", key.username(), key.host(), key.port());
+                closeQuietly(session);
+                session = null;
+            }
+            session = connect(config);
+            return session;
+        }
+
+        private ClientSession connect(SshCommandUtil.SshConfig config) throws IOException {
+            ClientSession newSession = getClient().connect(config.getUsername(), config.getHost(), config.getPort())
+                    .verify(CONNECT_TIMEOUT, TimeUnit.SECONDS)
+                    .getSession();
+            try {
+                if (config.getPassword() != null && !config.getPassword().isEmpty()) {
+                    newSession.addPasswordIdentity(config.getPassword());
+                    log.debug("使用密码认证");
+                } else if (config.getPrivateKeyContent() != null && !config.getPrivateKeyContent().isEmpty()) {
+                    loadPrivateKeyFromContent(newSession, config.getPrivateKeyContent());
+                    log.debug("使用私钥内容认证");
+                } else {
+                    throw new IllegalArgumentException("必须提供密码、私钥内容或私钥路径");
+                }
+                newSession.auth().verify(AUTH_TIMEOUT, TimeUnit.SECONDS);
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(newSession);
+                throw e;
+            }
+            log.info("已建立 SSH 会话: {}@{}:{}", key.username(), key.host(), key.port());
+            return newSession;
+        }
+
+        private synchronized void release() {
+            activeLeases--;
+            lastUsedAt = System.currentTimeMillis();
+            channelPermits.release();
+        }
+
+        private synchronized boolean evictIfIdle(long now) {
+            if (activeLeases > 0 || now - lastUsedAt < IDLE_TIMEOUT_MILLIS) {
+                return false;
+            }
+            evicted = true;
+            closeSession(null);
+            return true;
+        }
+
+        /**
+         * 关闭会话
+         *
+         * @param expected 仅当当前会话为该实例时关闭（为 null 时无条件关闭）
+         */
+        private synchronized void closeSession(ClientSession expected) {
+            if (session != null && (expected == null || session == expected)) {
+                closeQuietly(session);
+                session = null;
+            }
+        }
+    }
+
+    /**
+     * 会话租约
+     * 持有期间占用一个通道名额，关闭后归还
+     */
+    static final class Lease implements AutoCloseable {
+
+        private final PooledSession pooled;
+
+        private final ClientSession session;
+
+        private boolean closed;
+
+        private Lease(PooledSession pooled, ClientSession session) {
+            this.pooled = pooled;
+            this.session = session;
+        }
+
+        ClientSession getSession() {
+            return session;
+        }
+
+        /**
+         * 会话不可用（例如通道打开失败），关闭会话以便下次借用时重连
+         */
+        void invalidate() {
+            pooled.closeSession(session);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                pooled.release();
+            }
+        }
+    }
+
+    /**
+     * 会话键
+     * 凭证只保存摘要，避免在内存中多持有一份明文
+     */
+    private record SessionKey(String host, int port, String username, String credentialDigest) {
+
+        private static SessionKey of(SshCommandUtil.SshConfig config) {
+            return new SessionKey(config.getHost(), config.getPort(), config.getUsername(),
+                    digest(config.getPassword(), config.getPrivateKeyContent()));
+        }
+
+        private static String digest(String password, String privateKeyContent) {
+            try {
+                MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+                messageDigest.update(String.valueOf(password).getBytes(StandardCharsets.UTF_8));
+                messageDigest.update((byte) 0);
+                messageDigest.update(String.valueOf(privateKeyContent).getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(messageDigest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void closeQuietly(ClientSession session) {
+        try {
+            session.close();
+        } catch (Exception e) {
+            log.warn("关闭 SSH 会话失败", e);
+        }
+    }
+
+    /**
+     * 从私钥内容加载密钥对并添加到会话
+     *
+     * @param session           SSH 会话
+     * @param privateKeyContent 私钥内容（PEM 格式）
+     * @throws IOException 如果加载私钥失败
+     */
+    private static void loadPrivateKeyFromContent(ClientSession session, String privateKeyContent) throws IOException {
+        /*try {
+            // 使用 Apache MINA SSHD 的 SecurityUtils 加载私钥
+            org.apache.sshd.common.config.keys.FilePasswordProvider passwordProvider = null;
+
+            // 将私钥内容转换为 InputStream
+            ByteArrayInputStream keyInputStream = new ByteArrayInputStream(
+                    privateKeyContent.getBytes(StandardCharsets.UTF_8)
+            );
+
+            // 加载私钥（支持 RSA, DSA, ECDSA, Ed25519 等格式）
+            Iterable<java.security.KeyPair> keyPairs = org.apache.sshd.common.config.keys.loader.KeyPairResourceLoader.loadKeyPairs(
+                    null,
+                    null,
+                    passwordProvider,
+                    keyInputStream
+            );
+
+            // 添加所有加载的密钥对到会话
+            for (java.security.KeyPair keyPair : keyPairs) {
+                session.addPublicKeyIdentity(keyPair);
+                log.debug("已添加私钥到会话");
+            }
+
+        } catch (Exception e) {
+            throw new IOException("加载私钥内容失败: " + e.getMessage(), e);
+        }*/
+    }
+}
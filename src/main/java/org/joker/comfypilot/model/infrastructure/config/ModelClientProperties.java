@@ -0,0 +1,29 @@
+package org.joker.comfypilot.model.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 模型客户端配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "model.client")
+public class ModelClientProperties {
+
+    /**
+     * 是否缓存模型客户端，关闭时每次调用都重新创建
+     */
+    private Boolean cacheEnabled = true;
+
+    /**
+     * 共享 HTTP 连接的建立超时时间（秒）
+     */
+    private Integer connectTimeout = 10;
+
+    /**
+     * 是否优先使用 HTTP/2（多路复用同一连接），服务端不支持时自动降级为 HTTP/1.1
+     */
+    private Boolean http2 = true;
+}
@@ -0,0 +1,83 @@
+package org.joker.comfypilot.model.infrastructure.config;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * 共享 HttpClient 的构建器
+ * <p>
+ * LangChain4j 的 JDK HTTP 客户端在每次创建模型时都会调用 {@link HttpClient.Builder#build()} 生成新的 HttpClient，
+ * 导致连接池和 TLS 会话无法复用。该构建器忽略所有设置，始终返回同一个已配置好的 HttpClient，
+ * 所有模型客户端因此共用一个连接池。
+ * <p>
+ * 读超时由 LangChain4j 设置在每个请求上，不受影响。
+ */
+public class SharedHttpClientBuilder implements HttpClient.Builder {
+
+    private final HttpClient httpClient;
+
+    public SharedHttpClientBuilder(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public HttpClient.Builder cookieHandler(CookieHandler cookieHandler) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder connectTimeout(Duration duration) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder sslContext(SSLContext sslContext) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder sslParameters(SSLParameters sslParameters) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder executor(Executor executor) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder followRedirects(HttpClient.Redirect policy) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder version(HttpClient.Version version) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder priority(int priority) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder proxy(ProxySelector proxySelector) {
+        return this;
+    }
+
+    @Override
+    public HttpClient.Builder authenticator(Authenticator authenticator) {
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return httpClient;
+    }
+}
@@ -7,6 +7,7 @@ import org.joker.comfypilot.model.domain.repository.AiModelRepository;
 import org.joker.comfypilot.model.infrastructure.persistence.converter.AiModelConverter;
 import org.joker.comfypilot.model.infrastructure.persistence.mapper.AiModelMapper;
 import org.joker.comfypilot.model.infrastructure.persistence.po.AiModelPO;
+import org.joker.comfypilot.model.infrastructure.service.ChatModelClientCache;
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -24,11 +25,14 @@ public class AiModelRepositoryImpl implements AiModelRepository {
     private AiModelMapper mapper;
     @Autowired
     private AiModelConverter converter;
+    @Autowired
+    private ChatModelClientCache chatModelClientCache;
 
     @Override
     public AiModel save(AiModel model) {
         AiModelPO po = converter.toPO(model);
         mapper.insertOrUpdate(po);
+        chatModelClientCache.invalidateModel(po.getId(), po.getModelIdentifier());
         return converter.toDomain(po);
     }
 
@@ -87,5 +91,6 @@ public class AiModelRepositoryImpl implements AiModelRepository {
     @Override
     public void deleteById(Long id) {
         mapper.deleteById(id);
+        chatModelClientCache.invalidateModel(id, null);
     }
 }
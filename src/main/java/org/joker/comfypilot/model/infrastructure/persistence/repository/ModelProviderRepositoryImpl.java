@@ -9,6 +9,7 @@ import org.joker.comfypilot.model.infrastructure.persistence.mapper.AiModelMappe
 import org.joker.comfypilot.model.infrastructure.persistence.mapper.ModelProviderMapper;
 import org.joker.comfypilot.model.infrastructure.persistence.po.AiModelPO;
 import org.joker.comfypilot.model.infrastructure.persistence.po.ModelProviderPO;
+import org.joker.comfypilot.model.infrastructure.service.ChatModelClientCache;
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -28,11 +29,14 @@ public class ModelProviderRepositoryImpl implements ModelProviderRepository {
     private AiModelMapper aiModelMapper;
     @Autowired
     private ModelProviderConverter converter;
+    @Autowired
+    private ChatModelClientCache chatModelClientCache;
 
     @Override
     public ModelProvider save(ModelProvider provider) {
         ModelProviderPO po = converter.toPO(provider);
         mapper.insertOrUpdate(po);
+        chatModelClientCache.invalidateProvider(po.getId());
         return converter.toDomain(po);
     }
 
@@ -73,6 +77,7 @@ public class ModelProviderRepositoryImpl implements ModelProviderRepository {
     @Override
     public void deleteById(Long id) {
         mapper.deleteById(id);
+        chatModelClientCache.invalidateProvider(id);
     }
 
     @Override
@@ -6,17 +6,61 @@ import org.apache.commons.lang3.StringUtils;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.model.domain.entity.AiModel;
 import org.joker.comfypilot.model.domain.entity.ModelProvider;
+import org.joker.comfypilot.model.domain.enums.ModelCallingType;
+import org.joker.comfypilot.model.domain.repository.AiModelRepository;
+import org.joker.comfypilot.model.domain.repository.ModelProviderRepository;
+import org.joker.comfypilot.model.infrastructure.service.ChatModelClientCache.ModelDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Map;
 
 /**
  * ChatModel 工厂抽象基类
  * <p>
- * 提供公共的配置解析和类型转换逻辑
+ * 提供公共的模型加载、配置解析和类型转换逻辑
  */
 @Slf4j
 public abstract class AbstractChatModelFactory {
 
+    @Autowired
+    protected AiModelRepository aiModelRepository;
+    @Autowired
+    protected ModelProviderRepository modelProviderRepository;
+    @Autowired
+    protected ChatModelClientCache clientCache;
+
+    /**
+     * 获取模型定义（模型实体 + 提供商实体），优先从缓存获取
+     *
+     * @param modelIdentifier 模型标识
+     * @return 模型定义
+     */
+    protected ModelDefinition getModelDefinition(String modelIdentifier) {
+        return clientCache.getDefinition(modelIdentifier, this::loadModelDefinition);
+    }
+
+    /**
+     * 从数据库加载模型定义
+     */
+    private ModelDefinition loadModelDefinition(String modelIdentifier) {
+        // 根据模型标识符查询模型实体
+        AiModel model = aiModelRepository.findByModelIdentifier(modelIdentifier)
+                .orElseThrow(() -> new BusinessException("模型不存在: " + modelIdentifier));
+
+        if (!ModelCallingType.API_LLM.equals(model.getModelCallingType())) {
+            // 只提供远程API接入的LLM模型
+            throw new BusinessException("模型标识" + modelIdentifier + "对应模型" + model.getModelName() + "不是远程API调用的LLM模型");
+        }
+
+        ModelProvider provider = null;
+        if (model.getProviderId() != null) {
+            provider = modelProviderRepository.findById(model.getProviderId())
+                    .orElseThrow(() -> new BusinessException(
+                            "模型提供商不存在: providerId=" + model.getProviderId()));
+        }
+        return new ModelDefinition(model, provider);
+    }
+
     /**
      * 解析模型配置 JSON
      * <p>
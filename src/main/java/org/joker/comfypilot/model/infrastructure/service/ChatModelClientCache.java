@@ -0,0 +1,181 @@
+package org.joker.comfypilot.model.infrastructure.service;
+
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.model.domain.entity.AiModel;
+import org.joker.comfypilot.model.domain.entity.ModelProvider;
+import org.joker.comfypilot.model.infrastructure.config.ModelClientProperties;
+import org.joker.comfypilot.model.infrastructure.config.SharedHttpClientBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 模型客户端缓存
+ * <p>
+ * 缓存两类数据：
+ * <ul>
+ *   <li>模型定义：模型标识 -> 模型实体 + 提供商实体，避免每次对话都查询数据库</li>
+ *   <li>模型客户端：客户端类型 + 模型标识 + 模型名称 + 解析后的配置 -> ChatModel/StreamingChatModel 实例</li>
+ * </ul>
+ * 所有模型客户端共用一个 HttpClient，复用连接池和 TLS 会话。
+ * 模型或提供商更新、删除后（事务提交后）失效相关缓存。
+ */
+@Slf4j
+@Component
+public class ChatModelClientCache {
+
+    @Autowired
+    private ModelClientProperties properties;
+
+    /**
+     * 所有模型客户端共用的 HttpClient
+     */
+    private HttpClient sharedHttpClient;
+
+    /**
+     * Key: 模型标识
+     * Value: 模型定义
+     */
+    private final Map<String, ModelDefinition> definitions = new ConcurrentHashMap<>();
+
+    /**
+     * Key: 客户端缓存键
+     * Value: 模型客户端实例
+     */
+    private final Map<ClientKey, Object> clients = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        sharedHttpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(properties.getConnectTimeout()))
+                .version(Boolean.TRUE.equals(properties.getHttp2()) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * 创建基于共享 HttpClient 的 LangChain4j HTTP 客户端构建器
+     * 每个模型客户端使用独立的构建器（读超时各自设置），底层连接共享
+     */
+    public HttpClientBuilder createHttpClientBuilder() {
+        return JdkHttpClient.builder()
+                .httpClientBuilder(new SharedHttpClientBuilder(sharedHttpClient));
+    }
+
+    /**
+     * 获取模型定义
+     *
+     * @param modelIdentifier 模型标识
+     * @param loader          缓存未命中时的加载逻辑（加载失败抛出异常时不缓存）
+     * @return 模型定义
+     */
+    public ModelDefinition getDefinition(String modelIdentifier, Function<String, ModelDefinition> loader) {
+        if (!Boolean.TRUE.equals(properties.getCacheEnabled())) {
+            return loader.apply(modelIdentifier);
+        }
+        return definitions.computeIfAbsent(modelIdentifier, loader);
+    }
+
+    /**
+     * 获取模型客户端
+     *
+     * @param clientType 客户端类型
+     * @param model      模型实体
+     * @param config     解析后的模型配置（需要正确实现 equals/hashCode）
+     * @param creator    缓存未命中时的创建逻辑
+     * @return 模型客户端实例
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getClient(Class<T> clientType, AiModel model, Object config, Supplier<T> creator) {
+        if (!Boolean.TRUE.equals(properties.getCacheEnabled())) {
+            return creator.get();
+        }
+        ClientKey key = new ClientKey(clientType, model.getModelIdentifier(), model.getModelName(), config);
+        return (T) clients.computeIfAbsent(key, k -> {
+            log.info("创建模型客户端: clientType={}, modelIdentifier={}", clientType.getSimpleName(), model.getModelIdentifier());
+            return creator.get();
+        });
+    }
+
+    /**
+     * 模型变更后失效缓存（当前存在事务时，提交后再失效一次，防止并发读取到旧数据并重新缓存）
+     *
+     * @param modelId         模型ID
+     * @param modelIdentifier 模型标识（可为null）
+     */
+    public void invalidateModel(Long modelId, String modelIdentifier) {
+        runNowAndAfterCommit(() -> evict(definition ->
+                Objects.equals(definition.model().getId(), modelId)
+                        || Objects.equals(definition.model().getModelIdentifier(), modelIdentifier), modelIdentifier));
+    }
+
+    /**
+     * 提供商变更后失效该提供商下所有模型的缓存
+     *
+     * @param providerId 提供商ID
+     */
+    public void invalidateProvider(Long providerId) {
+        runNowAndAfterCommit(() -> evict(definition ->
+                definition.provider() != null && Objects.equals(definition.provider().getId(), providerId), null));
+    }
+
+    private void evict(Predicate<ModelDefinition> matcher, String extraIdentifier) {
+        Set<String> identifiers = new HashSet<>();
+        if (extraIdentifier != null) {
+            identifiers.add(extraIdentifier);
+        }
+        definitions.forEach((identifier, definition) -> {
+            if (matcher.test(definition)) {
+                identifiers.add(identifier);
+            }
+        });
+        if (identifiers.isEmpty()) {
+            return;
+        }
+        definitions.keySet().removeAll(identifiers);
+        clients.keySet().removeIf(key -> identifiers.contains(key.modelIdentifier()));
+        log.info("模型客户端缓存已失效: modelIdentifiers={}", identifiers);
+    }
+
+    private void runNowAndAfterCommit(Runnable task) {
+        task.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 模型定义
+     *
+     * @param model    模型实体
+     * @param provider 提供商实体（本地接入时为null）
+     */
+    public record ModelDefinition(AiModel model, ModelProvider provider) {
+    }
+
+    /**
+     * 客户端缓存键
+     */
+    private record ClientKey(Class<?> clientType, String modelIdentifier, String modelName, Object config) {
+    }
+}
@@ -8,13 +8,9 @@ import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.model.domain.entity.AiModel;
 import org.joker.comfypilot.model.domain.entity.ModelProvider;
 import org.joker.comfypilot.model.domain.enums.ModelAccessType;
-import org.joker.comfypilot.model.domain.enums.ModelCallingType;
 import org.joker.comfypilot.model.domain.enums.ModelType;
 import org.joker.comfypilot.model.domain.enums.ProviderType;
-import org.joker.comfypilot.model.domain.repository.AiModelRepository;
-import org.joker.comfypilot.model.domain.repository.ModelProviderRepository;
 import org.joker.comfypilot.model.domain.service.StreamingChatModelFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -31,30 +27,13 @@ import java.util.Optional;
 @Service
 public class StreamingChatModelFactoryImpl extends AbstractChatModelFactory implements StreamingChatModelFactory {
 
-    @Autowired
-    private AiModelRepository aiModelRepository;
-    @Autowired
-    private ModelProviderRepository modelProviderRepository;
-
     @Override
     public StreamingChatModel createStreamingChatModel(String modelIdentifier, Map<String, Object> agentConfig) {
-        // 根据模型标识符查询模型实体
-        AiModel model = aiModelRepository.findByModelIdentifier(modelIdentifier)
-                .orElseThrow(() -> new BusinessException("模型不存在: " + modelIdentifier));
-
-        if (!ModelCallingType.API_LLM.equals(model.getModelCallingType())) {
-            // 只提供远程API接入的LLM模型
-            throw new BusinessException("模型标识" + modelIdentifier + "对应模型" + model.getModelName() + "不是远程API调用的LLM模型");
-        }
-
-        ModelProvider provider = null;
-        if (model.getProviderId() != null) {
-            provider = modelProviderRepository.findById(model.getProviderId())
-                    .orElseThrow(() -> new BusinessException(
-                            "模型提供商不存在: providerId=" + model.getProviderId()));
-        }
+        ChatModelClientCache.ModelDefinition definition = getModelDefinition(modelIdentifier);
+        AiModel model = definition.model();
+        ModelProvider provider = definition.provider();
 
-        log.info("创建 StreamingChatModel: modelIdentifier={}, accessType={}, hasAgentConfig={}",
+        log.debug("获取 StreamingChatModel: modelIdentifier={}, accessType={}, hasAgentConfig={}",
                 model.getModelIdentifier(), model.getAccessType(), agentConfig != null && !agentConfig.isEmpty());
 
         // 验证模型是否启用
@@ -115,6 +94,7 @@ public class StreamingChatModelFactoryImpl extends AbstractChatModelFactory impl
                 model.getModelName(), Optional.ofNullable(provider).map(ModelProvider::getApiBaseUrl).orElse(config.apiBaseUrl()));
 
         OpenAiStreamingChatModel.OpenAiStreamingChatModelBuilder builder = OpenAiStreamingChatModel.builder()
+                .httpClientBuilder(clientCache.createHttpClientBuilder())
                 .modelName(model.getModelName());
 
         // 设置模型 URL（如果提供商配置了使用提供商的）
@@ -146,7 +126,7 @@ public class StreamingChatModelFactoryImpl extends AbstractChatModelFactory impl
             builder.topP(config.topP());
         }
 
-        return builder.build();
+        return clientCache.getClient(StreamingChatModel.class, model, config, builder::build);
     }
 
     /**
@@ -0,0 +1,63 @@
+package org.joker.comfypilot.resource.application.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.resource.domain.repository.FileResourceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 下载次数聚合器
+ * 下载时只在内存中累加，定时批量写入数据库（原子自增，不读取实体），避免每次下载都同步写库
+ */
+@Slf4j
+@Component
+public class DownloadCountAggregator {
+
+    @Autowired
+    private FileResourceRepository fileResourceRepository;
+
+    /**
+     * Key: 文件资源ID
+     * Value: 未写入数据库的下载次数
+     */
+    private final Map<Long, Long> pendingCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次下载
+     *
+     * @param fileResourceId 文件资源ID
+     */
+    public void record(Long fileResourceId) {
+        pendingCounts.merge(fileResourceId, 1L, Long::sum);
+    }
+
+    /**
+     * 将累计的下载次数写入数据库
+     */
+    @Scheduled(fixedDelayString = "${file.download.count-flush-interval:30000}")
+    public void flush() {
+        for (Long fileResourceId : pendingCounts.keySet()) {
+            Long delta = pendingCounts.remove(fileResourceId);
+            if (delta == null || delta == 0) {
+                continue;
+            }
+            try {
+                fileResourceRepository.addDownloadCount(fileResourceId, delta);
+            } catch (Exception e) {
+                // 写入失败，放回等待下次重试
+                pendingCounts.merge(fileResourceId, delta, Long::sum);
+                log.error("写入文件下载次数失败, fileResourceId: {}, delta: {}", fileResourceId, delta, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
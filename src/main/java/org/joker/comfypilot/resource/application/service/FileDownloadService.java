@@ -8,9 +8,6 @@ import org.joker.comfypilot.resource.domain.repository.FileResourceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -23,31 +20,28 @@ public class FileDownloadService {
 
     @Autowired
     private FileResourceRepository fileResourceRepository;
+    @Autowired
+    private DownloadCountAggregator downloadCountAggregator;
 
     /**
      * 根据存储名下载文件
      */
     public FileResource downloadFileByStoredName(String storedName) {
-        FileResource fileResource = fileResourceRepository.findBySourceAndStoredName(storedName, FileSourceType.SERVER_LOCAL)
+        return fileResourceRepository.findBySourceAndStoredName(storedName, FileSourceType.SERVER_LOCAL)
                 .orElseThrow(() -> new BusinessException("文件不存在"));
+    }
 
-        // 增加下载次数
-        fileResource.incrementDownloadCount();
-        fileResourceRepository.save(fileResource);
-
-        return fileResource;
+    /**
+     * 记录一次下载（内存累加，定时写入数据库）
+     */
+    public void recordDownload(FileResource fileResource) {
+        downloadCountAggregator.record(fileResource.getId());
     }
 
     /**
-     * 获取文件输入流
+     * 获取文件路径
      */
-    public InputStream getFileInputStream(FileResource fileResource) {
-        Path filePath = Paths.get(fileResource.getFilePath(), fileResource.getStoredName());
-        try {
-            return new FileInputStream(filePath.toFile());
-        } catch (FileNotFoundException e) {
-            log.error("文件不存在: {}", filePath, e);
-            throw new BusinessException("文件不存在");
-        }
+    public Path getFilePath(FileResource fileResource) {
+        return Paths.get(fileResource.getFilePath(), fileResource.getStoredName());
     }
 }
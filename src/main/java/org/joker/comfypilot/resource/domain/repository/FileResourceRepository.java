@@ -36,6 +36,11 @@ public interface FileResourceRepository {
      */
     FileResource save(FileResource fileResource);
 
+    /**
+     * 累加下载次数（数据库原子自增）
+     */
+    void addDownloadCount(Long id, long delta);
+
     /**
      * 删除文件资源
      */
@@ -1,6 +1,7 @@
 package org.joker.comfypilot.resource.infrastructure.persistence.repository;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import org.joker.comfypilot.resource.domain.entity.FileResource;
 import org.joker.comfypilot.resource.domain.enums.FileSourceType;
 import org.joker.comfypilot.resource.domain.repository.FileResourceRepository;
@@ -67,6 +68,14 @@ public class FileResourceRepositoryImpl implements FileResourceRepository {
         return fileResourceConverter.toDomain(po);
     }
 
+    @Override
+    public void addDownloadCount(Long id, long delta) {
+        LambdaUpdateWrapper<FileResourcePO> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.setSql("download_count = COALESCE(download_count, 0) + " + delta)
+                .eq(FileResourcePO::getId, id);
+        fileResourceMapper.update(wrapper);
+    }
+
     @Override
     public void deleteById(Long id) {
         FileResourcePO po = fileResourceMapper.selectById(id);
@@ -3,23 +3,22 @@ package org.joker.comfypilot.resource.interfaces.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.joker.comfypilot.auth.infrastructure.context.UserContextHolder;
 import org.joker.comfypilot.common.interfaces.response.Result;
+import org.joker.comfypilot.common.util.FileServingUtil;
 import org.joker.comfypilot.resource.application.converter.FileResourceDTOConverter;
 import org.joker.comfypilot.resource.application.service.FileDownloadService;
 import org.joker.comfypilot.resource.application.service.FileManagementService;
 import org.joker.comfypilot.resource.application.service.FileUploadService;
 import org.joker.comfypilot.resource.domain.entity.FileResource;
 import org.joker.comfypilot.resource.interfaces.dto.FileResourceDTO;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -74,18 +73,21 @@ public class FileResourceController {
     /**
      * 下载文件
      */
-    @Operation(summary = "下载文件", description = "根据文件名下载文件")
+    @Operation(summary = "下载文件", description = "根据文件名下载文件，支持 Range 断点续传和 ETag 条件请求")
     @GetMapping("/download/{fileName}")
-    public ResponseEntity<InputStreamResource> downloadFile(
-            @Parameter(description = "文件名（storedName）", required = true) @PathVariable String fileName) {
+    public void downloadFile(
+            @Parameter(description = "文件名（storedName）", required = true) @PathVariable String fileName,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         FileResource fileResource = fileDownloadService.downloadFileByStoredName(fileName);
-        InputStream inputStream = fileDownloadService.getFileInputStream(fileResource);
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileResource.getFileName() + "\"")
-                .contentType(MediaType.parseMediaType(fileResource.getFileType()))
-                .contentLength(fileResource.getFileSize())
-                .body(new InputStreamResource(inputStream));
+        long start = FileServingUtil.serve(request, response, fileDownloadService.getFilePath(fileResource),
+                fileResource.getFileType(), fileResource.getFileName());
+
+        // 只统计从头开始的下载（续传和缓存命中不重复计数）
+        if (start == 0 && !"HEAD".equalsIgnoreCase(request.getMethod())) {
+            fileDownloadService.recordDownload(fileResource);
+        }
     }
 
     /**
@@ -63,6 +63,11 @@ public class ScriptRuntimeConfig {
          */
         private int scriptTimeout = 30;
 
+        /**
+         * 常驻工作进程池配置
+         */
+        private WorkerConfig worker = new WorkerConfig();
+
         /**
          * 自动检测默认的 Python 可执行文件名
          */
@@ -76,6 +81,44 @@ public class ScriptRuntimeConfig {
         }
     }
 
+    /**
+     * Python 常驻工作进程池配置
+     * 工作进程长期运行，通过 stdin/stdout 按行传递 JSON 请求，避免每次执行都启动解释器
+     */
+    @Data
+    public static class WorkerConfig {
+        /**
+         * 是否启用工作进程池（关闭时每次执行都启动新的解释器进程）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大工作进程数（同时执行的脚本数）
+         */
+        private int poolSize = 2;
+
+        /**
+         * 启动时预热的工作进程数
+         */
+        private int minIdle = 1;
+
+        /**
+         * 单个工作进程执行多少次后回收重建
+         */
+        private int maxRuns = 50;
+
+        /**
+         * 单个工作进程的数据段内存上限（MB，RLIMIT_DATA），0 表示不限制（仅 Linux/Mac 生效）
+         * 上限同时作用于工作进程启动的子进程；设置过小会使依赖大块内存映射的库导入失败
+         */
+        private int memoryLimitMb = 0;
+
+        /**
+         * 等待空闲工作进程的超时时间（毫秒）
+         */
+        private long acquireTimeout = 30000;
+    }
+
     /**
      * Node.js 运行时配置（预留）
      */
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.joker.comfypilot.script.config.ScriptRuntimeConfig;
 import org.joker.comfypilot.script.context.ScriptRuntimeContext;
+import org.joker.comfypilot.script.worker.PythonWorkerPool;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -17,7 +18,7 @@ import java.util.regex.Pattern;
 
 /**
  * Python 运行时检测器
- * 在应用启动时检测 Python 环境是否可用
+ * 在应用启动时检测 Python 环境是否可用，并指定 {@link PythonWorkerPool} 使用的解释器
  */
 @Slf4j
 @Component
@@ -25,6 +26,7 @@ import java.util.regex.Pattern;
 public class PythonRuntimeDetector implements CommandLineRunner {
 
     private final ScriptRuntimeConfig config;
+    private final PythonWorkerPool pythonWorkerPool;
 
     /**
      * Python 是否可用
@@ -103,6 +105,8 @@ public class PythonRuntimeDetector implements CommandLineRunner {
                     }
                 }
 
+                // 工作进程池使用检测到的解释器
+                pythonWorkerPool.initialize(pythonExecutable);
                 return;
             }
         }
@@ -7,6 +7,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.joker.comfypilot.common.annotation.ToolSet;
 import org.joker.comfypilot.script.config.ScriptRuntimeConfig;
 import org.joker.comfypilot.script.context.ScriptRuntimeContext;
+import org.joker.comfypilot.script.worker.PythonExecution;
+import org.joker.comfypilot.script.worker.PythonExecutionResult;
+import org.joker.comfypilot.script.worker.PythonWorkerPool;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
@@ -19,6 +22,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Python 脚本执行工具集
@@ -29,6 +33,8 @@ import java.util.concurrent.TimeUnit;
  * - 所有操作都需要 Python 运行时可用
  * - 脚本执行有超时限制
  * - 文件路径需要存在且可读
+ * <p>
+ * 工作进程池可用时在常驻的 Python 工作进程中执行，否则为每次执行启动新的解释器进程
  */
 @Slf4j
 @Component
@@ -37,6 +43,7 @@ import java.util.concurrent.TimeUnit;
 public class PythonScriptTools {
 
     private final ScriptRuntimeConfig config;
+    private final PythonWorkerPool pythonWorkerPool;
 
     /**
      * 读取进程输出
@@ -57,6 +64,68 @@ public class PythonScriptTools {
         }
     }
 
+    /**
+     * 执行 Python 脚本或模块
+     *
+     * @param execution      执行请求
+     * @param timeoutMessage 超时错误信息（包含一个超时秒数占位符）
+     * @return 执行结果
+     * @throws IOException          如果执行超时或进程启动失败
+     * @throws InterruptedException 如果等待被中断
+     */
+    private PythonExecutionResult execute(PythonExecution execution, String timeoutMessage)
+            throws IOException, InterruptedException {
+        int timeoutSeconds = config.getPython().getScriptTimeout();
+        List<String> command = execution.toCommand(ScriptRuntimeContext.getPythonExecutable());
+        log.debug("执行命令: {}", String.join(" ", command));
+
+        if (pythonWorkerPool.isAvailable()) {
+            try {
+                PythonExecutionResult result = pythonWorkerPool.execute(execution, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+                return new PythonExecutionResult(result.exitCode(), result.output().trim());
+            } catch (TimeoutException e) {
+                String errorMsg = String.format(timeoutMessage, timeoutSeconds);
+                log.error(errorMsg);
+                throw new IOException(errorMsg);
+            }
+        }
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+
+        // 执行命令
+        Process process = pb.start();
+
+        // 等待执行完成，带超时
+        boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+
+        if (!finished) {
+            process.destroyForcibly();
+            String errorMsg = String.format(timeoutMessage, timeoutSeconds);
+            log.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+
+        // 读取输出
+        String output = readProcessOutput(process);
+        return new PythonExecutionResult(process.exitValue(), output);
+    }
+
+    /**
+     * 拆分以空白分隔的参数
+     */
+    private List<String> splitArgs(String args) {
+        List<String> result = new ArrayList<>();
+        if (args != null && !args.trim().isEmpty()) {
+            for (String arg : args.trim().split("\\s+")) {
+                if (!arg.isEmpty()) {
+                    result.add(arg);
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 使用 pip 安装 Python 包
      *
@@ -75,7 +144,6 @@ public class PythonScriptTools {
         // 检查 Python 是否可用
         ScriptRuntimeContext.requirePython();
 
-        String pythonExecutable = ScriptRuntimeContext.getPythonExecutable();
         log.info("开始安装 Python 包: {}", packageSpec);
         if (extraArgs != null && !extraArgs.trim().isEmpty()) {
             log.info("额外参数: {}", extraArgs);
@@ -83,45 +151,15 @@ public class PythonScriptTools {
 
         try {
             // 构建命令：python -m pip install <package> [extra args]
-            List<String> command = new ArrayList<>();
-            command.add(pythonExecutable);
-            command.add("-m");
-            command.add("pip");
-            command.add("install");
-            command.add(packageSpec);
-
-            // 添加额外参数
-            if (extraArgs != null && !extraArgs.trim().isEmpty()) {
-                String[] args = extraArgs.trim().split("\\s+");
-                for (String arg : args) {
-                    if (!arg.isEmpty()) {
-                        command.add(arg);
-                    }
-                }
-            }
-
-            log.debug("执行命令: {}", String.join(" ", command));
+            List<String> pipArgs = new ArrayList<>();
+            pipArgs.add("install");
+            pipArgs.add(packageSpec);
+            pipArgs.addAll(splitArgs(extraArgs));
 
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-
-            // 执行命令
-            Process process = pb.start();
-
-            // 等待执行完成，带超时
-            int timeoutSeconds = config.getPython().getScriptTimeout();
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-
-            if (!finished) {
-                process.destroyForcibly();
-                String errorMsg = String.format("pip 安装超时（超过 %d 秒）", timeoutSeconds);
-                log.error(errorMsg);
-                throw new IOException(errorMsg);
-            }
-
-            // 读取输出
-            String output = readProcessOutput(process);
-            int exitCode = process.exitValue();
+            // 安装后已导入的模块可能过期，执行完成后回收工作进程
+            PythonExecutionResult result = execute(PythonExecution.module("pip", pipArgs, true), "pip 安装超时（超过 %d 秒）");
+            String output = result.output();
+            int exitCode = result.exitCode();
 
             if (exitCode != 0) {
                 log.error("pip 安装失败，退出码: {}, 输出: {}", exitCode, output);
@@ -153,40 +191,14 @@ public class PythonScriptTools {
         // 检查 Python 是否可用
         ScriptRuntimeContext.requirePython();
 
-        String pythonExecutable = ScriptRuntimeContext.getPythonExecutable();
         log.info("查询 Python 包信息: {}", packageName);
 
         try {
             // 构建命令：python -m pip show <package>
-            List<String> command = new ArrayList<>();
-            command.add(pythonExecutable);
-            command.add("-m");
-            command.add("pip");
-            command.add("show");
-            command.add(packageName);
-
-            log.debug("执行命令: {}", String.join(" ", command));
-
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-
-            // 执行命令
-            Process process = pb.start();
-
-            // 等待执行完成，带超时
-            int timeoutSeconds = config.getPython().getScriptTimeout();
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-
-            if (!finished) {
-                process.destroyForcibly();
-                String errorMsg = String.format("pip show 超时（超过 %d 秒）", timeoutSeconds);
-                log.error(errorMsg);
-                throw new IOException(errorMsg);
-            }
-
-            // 读取输出
-            String output = readProcessOutput(process);
-            int exitCode = process.exitValue();
+            PythonExecutionResult result = execute(
+                    PythonExecution.module("pip", List.of("show", packageName), false), "pip show 超时（超过 %d 秒）");
+            String output = result.output();
+            int exitCode = result.exitCode();
 
             if (exitCode != 0) {
                 log.warn("pip show 失败，退出码: {}, 可能包未安装: {}", exitCode, packageName);
@@ -232,7 +244,6 @@ public class PythonScriptTools {
             throw new IOException("文件不可读: " + scriptPath);
         }
 
-        String pythonExecutable = ScriptRuntimeContext.getPythonExecutable();
         log.info("开始执行 Python 脚本文件: {}", scriptPath);
         if (args != null && !args.trim().isEmpty()) {
             log.info("脚本参数: {}", args);
@@ -240,42 +251,9 @@ public class PythonScriptTools {
 
         try {
             // 构建命令：python <script_path> [args]
-            List<String> command = new ArrayList<>();
-            command.add(pythonExecutable);
-            command.add(scriptPath);
-
-            // 添加脚本参数
-            if (args != null && !args.trim().isEmpty()) {
-                String[] scriptArgs = args.trim().split("\\s+");
-                for (String arg : scriptArgs) {
-                    if (!arg.isEmpty()) {
-                        command.add(arg);
-                    }
-                }
-            }
-
-            log.debug("执行命令: {}", String.join(" ", command));
-
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-
-            // 执行脚本
-            Process process = pb.start();
-
-            // 等待执行完成，带超时
-            int timeoutSeconds = config.getPython().getScriptTimeout();
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-
-            if (!finished) {
-                process.destroyForcibly();
-                String errorMsg = String.format("脚本执行超时（超过 %d 秒）", timeoutSeconds);
-                log.error(errorMsg);
-                throw new IOException(errorMsg);
-            }
-
-            // 读取输出
-            String output = readProcessOutput(process);
-            int exitCode = process.exitValue();
+            PythonExecutionResult result = execute(PythonExecution.file(scriptPath, splitArgs(args)), "脚本执行超时（超过 %d 秒）");
+            String output = result.output();
+            int exitCode = result.exitCode();
 
             if (exitCode != 0) {
                 log.error("脚本执行失败，退出码: {}, 输出: {}", exitCode, output);
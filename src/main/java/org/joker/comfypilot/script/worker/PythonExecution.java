@@ -0,0 +1,45 @@
+package org.joker.comfypilot.script.worker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Python 执行请求
+ *
+ * @param module  是否以模块方式执行（python -m），否则执行脚本文件
+ * @param target  模块名或脚本文件路径
+ * @param args    命令行参数
+ * @param recycle 执行后是否回收工作进程（例如安装包后已导入的模块可能过期）
+ */
+public record PythonExecution(boolean module, String target, List<String> args, boolean recycle) {
+
+    /**
+     * 执行脚本文件
+     */
+    public static PythonExecution file(String scriptPath, List<String> args) {
+        return new PythonExecution(false, scriptPath, args, false);
+    }
+
+    /**
+     * 以模块方式执行
+     */
+    public static PythonExecution module(String module, List<String> args, boolean recycle) {
+        return new PythonExecution(true, module, args, recycle);
+    }
+
+    /**
+     * 构建在新解释器进程中执行的命令
+     *
+     * @param executable Python 可执行文件
+     */
+    public List<String> toCommand(String executable) {
+        List<String> command = new ArrayList<>(args.size() + 3);
+        command.add(executable);
+        if (module) {
+            command.add("-m");
+        }
+        command.add(target);
+        command.addAll(args);
+        return command;
+    }
+}
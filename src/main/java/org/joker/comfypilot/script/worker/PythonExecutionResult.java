@@ -0,0 +1,10 @@
+package org.joker.comfypilot.script.worker;
+
+/**
+ * Python 执行结果
+ *
+ * @param exitCode 退出码
+ * @param output   标准输出和标准错误合并后的内容
+ */
+public record PythonExecutionResult(int exitCode, String output) {
+}
@@ -0,0 +1,195 @@
+package org.joker.comfypilot.script.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.config.JacksonConfig;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Python 工作进程
+ * <p>
+ * 封装一个运行 python_worker.py 的常驻解释器进程，同一时刻只执行一个请求。
+ * 标准输出为协议通道（每行一个 JSON），标准错误转到日志（只包含执行之外的输出，执行期间的描述符输出合并到执行结果中）。
+ */
+@Slf4j
+class PythonWorker {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    /**
+     * 标准输出结束标记
+     */
+    private static final String EOF = "\u0000EOF";
+
+    @Getter
+    private final int id = SEQUENCE.incrementAndGet();
+
+    /**
+     * 启动该进程的 Python 可执行文件
+     */
+    @Getter
+    private final String executable;
+
+    private final Process process;
+
+    private final BufferedWriter writer;
+
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+    private long requestId;
+
+    /**
+     * 已执行次数
+     */
+    @Getter
+    private int runs;
+
+    /**
+     * 是否需要回收（工作进程报告内存不足或请求要求回收）
+     */
+    @Getter
+    private boolean recycleRequested;
+
+    private PythonWorker(String executable, Process process) {
+        this.executable = executable;
+        this.process = process;
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        Thread.ofPlatform().daemon().name("python-worker-" + id + "-out").start(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    responses.offer(line);
+                }
+            } catch (IOException e) {
+                log.debug("读取 Python 工作进程输出结束: worker={}, error={}", id, e.getMessage());
+            } finally {
+                responses.offer(EOF);
+            }
+        });
+        Thread.ofPlatform().daemon().name("python-worker-" + id + "-err").start(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.debug("[python-worker-{}] {}", id, line);
+                }
+            } catch (IOException e) {
+                log.debug("读取 Python 工作进程错误输出结束: worker={}, error={}", id, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 启动工作进程并等待其就绪
+     *
+     * @param executable     Python 可执行文件
+     * @param workerScript   python_worker.py 路径
+     * @param memoryLimitMb  内存上限（MB），0 表示不限制
+     * @param startupTimeout 启动超时时间（毫秒）
+     */
+    static PythonWorker start(String executable, Path workerScript, int memoryLimitMb, long startupTimeout)
+            throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(executable, "-u", workerScript.toString(), String.valueOf(memoryLimitMb));
+        pb.environment().put("PYTHONIOENCODING", "utf-8");
+        PythonWorker worker = new PythonWorker(executable, pb.start());
+
+        String line = worker.responses.poll(startupTimeout, TimeUnit.MILLISECONDS);
+        if (line == null || EOF.equals(line) || !JacksonConfig.getObjectMapper().readTree(line).path("ready").asBoolean()) {
+            worker.destroy();
+            throw new IOException("Python 工作进程启动失败: " + (line == null ? "超时" : line));
+        }
+        log.info("Python 工作进程已启动: worker={}, pid={}, executable={}", worker.id, worker.process.pid(), executable);
+        return worker;
+    }
+
+    /**
+     * 执行请求
+     *
+     * @param execution 执行请求
+     * @param timeout   超时时间（毫秒）
+     * @return 执行结果
+     * @throws TimeoutException 执行超时（工作进程需销毁）
+     * @throws IOException      工作进程已退出或通信失败
+     */
+    PythonExecutionResult execute(PythonExecution execution, long timeout)
+            throws IOException, TimeoutException, InterruptedException {
+        ObjectMapper objectMapper = JacksonConfig.getObjectMapper();
+        long currentId = ++requestId;
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("id", currentId);
+        request.put("type", execution.module() ? "module" : "file");
+        request.put("target", execution.target());
+        request.put("args", execution.args());
+        request.put("recycle", execution.recycle());
+
+        writer.write(objectMapper.writeValueAsString(request));
+        writer.newLine();
+        writer.flush();
+        runs++;
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            String line = responses.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (line == null) {
+                throw new TimeoutException();
+            }
+            if (EOF.equals(line)) {
+                throw new IOException("Python 工作进程已退出: worker=" + id);
+            }
+            JsonNode response = objectMapper.readTree(line);
+            if (response.path("id").asLong() != currentId) {
+                log.debug("忽略过期的 Python 工作进程响应: worker={}, response={}", id, line);
+                continue;
+            }
+            if (response.path("recycle").asBoolean()) {
+                recycleRequested = true;
+            }
+            return new PythonExecutionResult(response.path("exitCode").asInt(), response.path("output").asText(""));
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * 关闭工作进程（关闭输入后工作进程自行退出，超时则强制结束）
+     */
+    void close() {
+        try {
+            writer.close();
+            if (process.waitFor(1, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (IOException e) {
+            log.debug("关闭 Python 工作进程输入失败: worker={}, error={}", id, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        destroy();
+    }
+
+    /**
+     * 强制结束工作进程及其子进程
+     */
+    void destroy() {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
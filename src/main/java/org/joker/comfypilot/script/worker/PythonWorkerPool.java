@@ -0,0 +1,208 @@
+package org.joker.comfypilot.script.worker;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.script.config.ScriptRuntimeConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Python 工作进程池
+ * <p>
+ * 维护若干常驻的 Python 解释器进程（{@code script.python.worker}），脚本和 pip 命令在其中执行，
+ * 省去每次启动解释器和导入模块的开销。
+ * <ul>
+ *   <li>每次执行前后由工作进程恢复 argv、sys.path、当前目录和环境变量，并卸载脚本本地模块</li>
+ *   <li>执行超时的工作进程连同子进程一起强制结束</li>
+ *   <li>工作进程执行 {@code max-runs} 次、内存不足或请求要求时回收重建</li>
+ * </ul>
+ * 使用的解释器由 {@link org.joker.comfypilot.script.detector.PythonRuntimeDetector} 检测后通过 {@link #initialize(String)} 指定。
+ */
+@Slf4j
+@Component
+public class PythonWorkerPool {
+
+    private static final String WORKER_SCRIPT = "/script/python_worker.py";
+
+    @Autowired
+    private ScriptRuntimeConfig config;
+
+    private final BlockingQueue<PythonWorker> idleWorkers = new LinkedBlockingQueue<>();
+
+    /**
+     * 工作进程名额，数量为 {@code pool-size}
+     */
+    private Semaphore permits;
+
+    /**
+     * 工作进程使用的 Python 可执行文件
+     */
+    private volatile String executable;
+
+    private volatile Path workerScript;
+
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, config.getPython().getWorker().getPoolSize()), true);
+    }
+
+    /**
+     * 指定工作进程使用的解释器，并在后台预热工作进程
+     * <p>
+     * 已有的使用其他解释器的空闲工作进程会被关闭
+     *
+     * @param pythonExecutable Python 可执行文件
+     */
+    public void initialize(String pythonExecutable) {
+        ScriptRuntimeConfig.WorkerConfig workerConfig = config.getPython().getWorker();
+        if (!workerConfig.isEnabled()) {
+            log.info("Python 工作进程池已禁用（配置: script.python.worker.enabled=false）");
+            return;
+        }
+        try {
+            if (workerScript == null) {
+                workerScript = extractWorkerScript();
+            }
+        } catch (IOException e) {
+            log.warn("Python 工作进程脚本释放失败，脚本将在独立进程中执行: {}", e.getMessage());
+            return;
+        }
+        this.executable = pythonExecutable;
+        idleWorkers.removeIf(worker -> {
+            if (!worker.getExecutable().equals(pythonExecutable)) {
+                worker.close();
+                return true;
+            }
+            return false;
+        });
+
+        int prewarm = Math.min(workerConfig.getMinIdle(), workerConfig.getPoolSize()) - idleWorkers.size();
+        if (prewarm > 0) {
+            Thread.ofVirtual().name("python-worker-prewarm").start(() -> {
+                for (int i = 0; i < prewarm && !closed; i++) {
+                    if (!permits.tryAcquire()) {
+                        return;
+                    }
+                    try {
+                        idleWorkers.offer(startWorker());
+                    } catch (Exception e) {
+                        log.warn("预热 Python 工作进程失败: {}", e.getMessage());
+                        return;
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 工作进程池是否可用
+     */
+    public boolean isAvailable() {
+        return config.getPython().getWorker().isEnabled() && executable != null && workerScript != null && !closed;
+    }
+
+    /**
+     * 在工作进程中执行
+     *
+     * @param execution 执行请求
+     * @param timeout   执行超时时间（毫秒）
+     * @return 执行结果
+     * @throws TimeoutException     执行超时
+     * @throws IOException          等待空闲工作进程超时、工作进程启动失败或异常退出
+     * @throws InterruptedException 等待被中断
+     */
+    public PythonExecutionResult execute(PythonExecution execution, long timeout)
+            throws IOException, TimeoutException, InterruptedException {
+        ScriptRuntimeConfig.WorkerConfig workerConfig = config.getPython().getWorker();
+        if (!permits.tryAcquire(workerConfig.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+            throw new IOException("等待空闲 Python 工作进程超时");
+        }
+        PythonWorker worker = null;
+        boolean reusable = false;
+        try {
+            worker = borrow();
+            PythonExecutionResult result = worker.execute(execution, timeout);
+            reusable = true;
+            return result;
+        } catch (TimeoutException e) {
+            log.warn("Python 工作进程执行超时，强制结束: worker={}, target={}", worker.getId(), execution.target());
+            throw e;
+        } finally {
+            if (worker != null) {
+                giveBack(worker, reusable, workerConfig.getMaxRuns());
+            }
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        PythonWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.close();
+        }
+    }
+
+    private PythonWorker borrow() throws IOException, InterruptedException {
+        PythonWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            if (worker.isAlive() && Objects.equals(worker.getExecutable(), executable)) {
+                return worker;
+            }
+            worker.close();
+        }
+        return startWorker();
+    }
+
+    private void giveBack(PythonWorker worker, boolean reusable, int maxRuns) {
+        if (!reusable || !worker.isAlive()) {
+            worker.destroy();
+            return;
+        }
+        if (closed || worker.isRecycleRequested() || worker.getRuns() >= maxRuns
+                || !Objects.equals(worker.getExecutable(), executable)) {
+            log.debug("回收 Python 工作进程: worker={}, runs={}", worker.getId(), worker.getRuns());
+            worker.close();
+            return;
+        }
+        idleWorkers.offer(worker);
+    }
+
+    private PythonWorker startWorker() throws IOException, InterruptedException {
+        ScriptRuntimeConfig.PythonConfig pythonConfig = config.getPython();
+        return PythonWorker.start(executable, workerScript, pythonConfig.getWorker().getMemoryLimitMb(), pythonConfig.getTimeout());
+    }
+
+    /**
+     * 将工作进程脚本释放到临时文件（打包后脚本位于 jar 内，无法直接执行）
+     */
+    private Path extractWorkerScript() throws IOException {
+        try (InputStream in = PythonWorkerPool.class.getResourceAsStream(WORKER_SCRIPT)) {
+            if (in == null) {
+                throw new IOException("未找到 " + WORKER_SCRIPT);
+            }
+            Path path = Files.createTempFile("comfy-pilot-python-worker", ".py");
+            Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+            path.toFile().deleteOnExit();
+            return path;
+        }
+    }
+}
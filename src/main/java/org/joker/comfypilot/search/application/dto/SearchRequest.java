@@ -0,0 +1,23 @@
+package org.joker.comfypilot.search.application.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.joker.comfypilot.common.application.dto.PageRequest;
+
+/**
+ * 全文检索请求
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Schema(description = "全文检索请求")
+public class SearchRequest extends PageRequest {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "关键词", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String keyword;
+
+    @Schema(description = "文档类型（MESSAGE, SESSION, WORKFLOW），为空时搜索全部")
+    private String type;
+}
@@ -0,0 +1,44 @@
+package org.joker.comfypilot.search.application.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 全文检索结果 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "全文检索结果")
+public class SearchResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Schema(description = "文档类型（MESSAGE, SESSION, WORKFLOW）")
+    private String type;
+
+    @Schema(description = "业务ID（消息ID、会话ID或工作流ID）")
+    private Long id;
+
+    @Schema(description = "所属会话编码（工作流为空）")
+    private String sessionCode;
+
+    @Schema(description = "标题（会话标题、工作流名称）")
+    private String title;
+
+    @Schema(description = "高亮摘要（匹配词使用<em>标签包裹）")
+    private String highlight;
+
+    @Schema(description = "相关度得分")
+    private Float score;
+
+    @Schema(description = "创建时间")
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,60 @@
+package org.joker.comfypilot.search.application.listener;
+
+import org.joker.comfypilot.search.application.service.SearchService;
+import org.joker.comfypilot.session.domain.event.ChatMessageDeletedEvent;
+import org.joker.comfypilot.session.domain.event.ChatMessagesSavedEvent;
+import org.joker.comfypilot.session.domain.event.ChatSessionDeletedEvent;
+import org.joker.comfypilot.session.domain.event.ChatSessionMessagesDeletedEvent;
+import org.joker.comfypilot.session.domain.event.ChatSessionSavedEvent;
+import org.joker.comfypilot.workflow.domain.event.WorkflowDeletedEvent;
+import org.joker.comfypilot.workflow.domain.event.WorkflowSavedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 全文检索索引事件监听器
+ * 仓储保存、删除数据后发布领域事件，由此同步到全文检索索引。
+ * 监听器在发布线程上执行，存在事务时索引任务在事务提交后才入队
+ */
+@Component
+public class SearchIndexEventListener {
+
+    @Autowired
+    private SearchService searchService;
+
+    @EventListener
+    public void onChatMessagesSaved(ChatMessagesSavedEvent event) {
+        searchService.indexMessages(event.getChatMessages());
+    }
+
+    @EventListener
+    public void onChatMessageDeleted(ChatMessageDeletedEvent event) {
+        searchService.removeMessage(event.getMessageId());
+    }
+
+    @EventListener
+    public void onChatSessionMessagesDeleted(ChatSessionMessagesDeletedEvent event) {
+        searchService.removeMessages(event.getSessionId());
+    }
+
+    @EventListener
+    public void onChatSessionSaved(ChatSessionSavedEvent event) {
+        searchService.indexSession(event.getChatSession());
+    }
+
+    @EventListener
+    public void onChatSessionDeleted(ChatSessionDeletedEvent event) {
+        searchService.removeSession(event.getSessionId());
+    }
+
+    @EventListener
+    public void onWorkflowSaved(WorkflowSavedEvent event) {
+        searchService.indexWorkflow(event.getWorkflow());
+    }
+
+    @EventListener
+    public void onWorkflowDeleted(WorkflowDeletedEvent event) {
+        searchService.removeWorkflow(event.getWorkflowId());
+    }
+}
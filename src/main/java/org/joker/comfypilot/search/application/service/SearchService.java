@@ -0,0 +1,80 @@
+package org.joker.comfypilot.search.application.service;
+
+import org.joker.comfypilot.common.application.dto.PageResponse;
+import org.joker.comfypilot.search.application.dto.SearchRequest;
+import org.joker.comfypilot.search.application.dto.SearchResultDTO;
+import org.joker.comfypilot.session.domain.entity.ChatMessage;
+import org.joker.comfypilot.session.domain.entity.ChatSession;
+import org.joker.comfypilot.workflow.domain.entity.Workflow;
+
+import java.util.List;
+
+/**
+ * 全文检索服务接口
+ * 索引更新方法均为异步执行，只在索引队列已满时等待入队
+ */
+public interface SearchService {
+
+    /**
+     * 搜索当前用户的消息、会话和工作流
+     *
+     * @param userId  用户ID
+     * @param request 搜索请求
+     * @return 分页结果
+     */
+    PageResponse<SearchResultDTO> search(Long userId, SearchRequest request);
+
+    /**
+     * 索引聊天消息
+     *
+     * @param chatMessages 消息列表
+     */
+    void indexMessages(List<ChatMessage> chatMessages);
+
+    /**
+     * 删除消息索引
+     *
+     * @param messageId 消息ID
+     */
+    void removeMessage(Long messageId);
+
+    /**
+     * 删除会话下所有消息的索引
+     *
+     * @param sessionId 会话ID
+     */
+    void removeMessages(Long sessionId);
+
+    /**
+     * 索引会话
+     *
+     * @param chatSession 会话实体
+     */
+    void indexSession(ChatSession chatSession);
+
+    /**
+     * 删除会话及其消息的索引
+     *
+     * @param sessionId 会话ID
+     */
+    void removeSession(Long sessionId);
+
+    /**
+     * 索引工作流
+     *
+     * @param workflow 工作流实体
+     */
+    void indexWorkflow(Workflow workflow);
+
+    /**
+     * 删除工作流索引
+     *
+     * @param workflowId 工作流ID
+     */
+    void removeWorkflow(Long workflowId);
+
+    /**
+     * 从数据库重建全部索引
+     */
+    void rebuild();
+}
@@ -0,0 +1,385 @@
+package org.joker.comfypilot.search.application.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.joker.comfypilot.common.application.dto.PageResponse;
+import org.joker.comfypilot.common.enums.MessageRole;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.search.application.dto.SearchRequest;
+import org.joker.comfypilot.search.application.dto.SearchResultDTO;
+import org.joker.comfypilot.search.application.service.SearchService;
+import org.joker.comfypilot.search.domain.enums.SearchDocumentType;
+import org.joker.comfypilot.search.domain.model.SearchDocument;
+import org.joker.comfypilot.search.domain.model.SearchHit;
+import org.joker.comfypilot.search.infrastructure.config.SearchIndexProperties;
+import org.joker.comfypilot.search.infrastructure.lucene.LuceneSearchIndex;
+import org.joker.comfypilot.session.domain.entity.ChatMessage;
+import org.joker.comfypilot.session.domain.entity.ChatSession;
+import org.joker.comfypilot.session.domain.repository.ChatMessageRepository;
+import org.joker.comfypilot.session.domain.repository.ChatSessionRepository;
+import org.joker.comfypilot.workflow.domain.entity.Workflow;
+import org.joker.comfypilot.workflow.domain.repository.WorkflowRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * 全文检索服务实现
+ * <p>
+ * 索引写入全部在单个后台线程中按提交顺序执行（增量更新和重建不会交错），保存数据的线程只负责入队，
+ * 存在事务时在事务提交后才入队；队列满时保存数据的线程等待入队，不丢弃索引更新（由提交线程直接执行会打乱更新与删除的顺序）。
+ * 消息本身不包含用户ID，写入索引时按会话ID查询所属用户并缓存。
+ */
+@Slf4j
+@Service
+public class SearchServiceImpl implements SearchService, CommandLineRunner {
+
+    /**
+     * 参与检索的消息角色（客户端可见的文本消息）
+     */
+    private static final Set<MessageRole> INDEXED_ROLES = Set.of(
+            MessageRole.USER,
+            MessageRole.USER_ORDER,
+            MessageRole.ASSISTANT,
+            MessageRole.AGENT_MESSAGE
+    );
+
+    /**
+     * 会话所属用户缓存上限
+     */
+    private static final int SESSION_USER_CACHE_SIZE = 10000;
+
+    @Autowired
+    private SearchIndexProperties properties;
+    @Autowired
+    private LuceneSearchIndex searchIndex;
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    /**
+     * Key: 会话ID
+     * Value: 用户ID
+     */
+    private final Map<Long, Long> sessionUserIds = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor indexExecutor;
+
+    @PostConstruct
+    public void init() {
+        indexExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(properties.getQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "search-indexer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                SearchServiceImpl::awaitQueue);
+    }
+
+    /**
+     * 索引为空时（首次启用或索引目录被删除）在后台从数据库重建
+     */
+    @Override
+    public void run(String... args) {
+        if (isEnabled() && Boolean.TRUE.equals(properties.getRebuildOnEmpty()) && searchIndex.numDocs() == 0) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        indexExecutor.shutdown();
+        try {
+            if (!indexExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("全文检索索引队列未在关闭前处理完成，剩余: {}", indexExecutor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public PageResponse<SearchResultDTO> search(Long userId, SearchRequest request) {
+        if (StringUtils.isBlank(request.getKeyword())) {
+            throw new BusinessException("关键词不能为空");
+        }
+        SearchDocumentType type = null;
+        if (StringUtils.isNotBlank(request.getType())) {
+            try {
+                type = SearchDocumentType.valueOf(request.getType().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException("不支持的文档类型: " + request.getType());
+            }
+        }
+        int pageNum = request.getPageNum() == null ? 1 : Math.max(1, request.getPageNum());
+        int pageSize = request.getPageSize() == null ? 10 : Math.clamp(request.getPageSize(), 1, properties.getMaxPageSize());
+
+        PageResponse<SearchHit> hits;
+        try {
+            hits = searchIndex.search(userId, request.getKeyword().trim(), type, pageNum, pageSize);
+        } catch (IOException e) {
+            log.error("全文检索失败: keyword={}", request.getKeyword(), e);
+            throw new BusinessException("搜索失败", e);
+        }
+        List<SearchResultDTO> records = hits.getRecords().stream().map(this::toResultDTO).toList();
+        return new PageResponse<>(records, hits.getTotal(), pageNum, pageSize);
+    }
+
+    @Override
+    public void indexMessages(List<ChatMessage> chatMessages) {
+        if (!isEnabled() || chatMessages == null || chatMessages.isEmpty()) {
+            return;
+        }
+        List<ChatMessage> indexed = chatMessages.stream()
+                .filter(message -> message.getId() != null && message.getSessionId() != null)
+                .filter(message -> INDEXED_ROLES.contains(message.getRole()) && StringUtils.isNotBlank(message.getContent()))
+                .toList();
+        if (indexed.isEmpty()) {
+            return;
+        }
+        submit("索引消息", () -> {
+            for (ChatMessage message : indexed) {
+                Long userId = resolveSessionUserId(message.getSessionId());
+                if (userId != null) {
+                    searchIndex.upsert(toDocument(message, userId));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void removeMessage(Long messageId) {
+        if (!isEnabled()) {
+            return;
+        }
+        submit("删除消息索引", () -> searchIndex.delete(SearchDocumentType.MESSAGE, messageId));
+    }
+
+    @Override
+    public void removeMessages(Long sessionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        submit("删除消息索引", () -> searchIndex.deleteBySessionId(sessionId, SearchDocumentType.MESSAGE));
+    }
+
+    @Override
+    public void indexSession(ChatSession chatSession) {
+        if (!isEnabled() || chatSession == null || chatSession.getId() == null) {
+            return;
+        }
+        submit("索引会话", () -> {
+            ChatSession session = chatSession;
+            if (session.getUserId() == null) {
+                session = chatSessionRepository.findById(chatSession.getId()).orElse(null);
+                if (session == null) {
+                    return;
+                }
+            }
+            cacheSessionUserId(session.getId(), session.getUserId());
+            searchIndex.upsert(toDocument(session));
+        });
+    }
+
+    @Override
+    public void removeSession(Long sessionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        submit("删除会话索引", () -> {
+            sessionUserIds.remove(sessionId);
+            searchIndex.deleteBySessionId(sessionId, null);
+        });
+    }
+
+    @Override
+    public void indexWorkflow(Workflow workflow) {
+        if (!isEnabled() || workflow == null || workflow.getId() == null) {
+            return;
+        }
+        submit("索引工作流", () -> {
+            Workflow current = workflow;
+            if (current.getCreateBy() == null) {
+                current = workflowRepository.findById(workflow.getId()).orElse(null);
+                if (current == null || current.getCreateBy() == null) {
+                    return;
+                }
+            }
+            searchIndex.upsert(toDocument(current));
+        });
+    }
+
+    @Override
+    public void removeWorkflow(Long workflowId) {
+        if (!isEnabled()) {
+            return;
+        }
+        submit("删除工作流索引", () -> searchIndex.delete(SearchDocumentType.WORKFLOW, workflowId));
+    }
+
+    @Override
+    public void rebuild() {
+        if (!isEnabled()) {
+            return;
+        }
+        submit("重建索引", () -> {
+            long startTime = System.currentTimeMillis();
+            searchIndex.deleteAll();
+            sessionUserIds.clear();
+            int count = 0;
+            for (ChatSession session : chatSessionRepository.findAll()) {
+                List<SearchDocument> documents = new ArrayList<>();
+                documents.add(toDocument(session));
+                for (ChatMessage message : chatMessageRepository.findClientMessagesBySessionId(session.getId())) {
+                    if (INDEXED_ROLES.contains(message.getRole()) && StringUtils.isNotBlank(message.getContent())) {
+                        documents.add(toDocument(message, session.getUserId()));
+                    }
+                }
+                searchIndex.upsertAll(documents);
+                count += documents.size();
+            }
+            for (Workflow workflow : workflowRepository.findAll()) {
+                if (workflow.getCreateBy() != null) {
+                    searchIndex.upsert(toDocument(workflow));
+                    count++;
+                }
+            }
+            searchIndex.commit();
+            log.info("全文检索索引重建完成: documents={}, cost={}ms", count, System.currentTimeMillis() - startTime);
+        });
+    }
+
+    private boolean isEnabled() {
+        return searchIndex.isAvailable();
+    }
+
+    /**
+     * 提交索引任务（当前存在事务时在提交后入队，回滚的数据不会进入索引）
+     */
+    private void submit(String action, IndexTask task) {
+        Runnable command = () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("全文检索{}失败", action, e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexExecutor.execute(command);
+                }
+            });
+        } else {
+            indexExecutor.execute(command);
+        }
+    }
+
+    /**
+     * 队列满时等待入队，只有服务关闭后才放弃（重建索引可补全）
+     */
+    private static void awaitQueue(Runnable command, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            log.warn("全文检索索引服务已关闭，放弃本次索引更新");
+            return;
+        }
+        try {
+            executor.getQueue().put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待全文检索索引队列被中断，放弃本次索引更新");
+        }
+    }
+
+    private Long resolveSessionUserId(Long sessionId) {
+        Long userId = sessionUserIds.get(sessionId);
+        if (userId != null) {
+            return userId;
+        }
+        userId = chatSessionRepository.findById(sessionId).map(ChatSession::getUserId).orElse(null);
+        cacheSessionUserId(sessionId, userId);
+        return userId;
+    }
+
+    private void cacheSessionUserId(Long sessionId, Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (sessionUserIds.size() >= SESSION_USER_CACHE_SIZE) {
+            sessionUserIds.clear();
+        }
+        sessionUserIds.put(sessionId, userId);
+    }
+
+    private static SearchDocument toDocument(ChatMessage message, Long userId) {
+        return SearchDocument.builder()
+                .type(SearchDocumentType.MESSAGE)
+                .id(message.getId())
+                .userId(userId)
+                .sessionId(message.getSessionId())
+                .sessionCode(message.getSessionCode())
+                .content(message.getContent())
+                .createTime(message.getCreateTime())
+                .build();
+    }
+
+    private static SearchDocument toDocument(ChatSession session) {
+        return SearchDocument.builder()
+                .type(SearchDocumentType.SESSION)
+                .id(session.getId())
+                .userId(session.getUserId())
+                .sessionId(session.getId())
+                .sessionCode(session.getSessionCode())
+                .title(session.getTitle())
+                .createTime(session.getCreateTime())
+                .build();
+    }
+
+    private static SearchDocument toDocument(Workflow workflow) {
+        return SearchDocument.builder()
+                .type(SearchDocumentType.WORKFLOW)
+                .id(workflow.getId())
+                .userId(workflow.getCreateBy())
+                .title(workflow.getWorkflowName())
+                .content(workflow.getDescription())
+                .createTime(workflow.getCreateTime())
+                .build();
+    }
+
+    private SearchResultDTO toResultDTO(SearchHit hit) {
+        SearchDocument document = hit.document();
+        return SearchResultDTO.builder()
+                .type(document.getType().name())
+                .id(document.getId())
+                .sessionCode(document.getSessionCode())
+                .title(document.getTitle())
+                .highlight(hit.highlight())
+                .score(hit.score())
+                .createTime(document.getCreateTime())
+                .build();
+    }
+
+    /**
+     * 索引任务
+     */
+    @FunctionalInterface
+    private interface IndexTask {
+        void run() throws IOException;
+    }
+}
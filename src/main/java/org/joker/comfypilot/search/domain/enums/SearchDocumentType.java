@@ -0,0 +1,32 @@
+package org.joker.comfypilot.search.domain.enums;
+
+import lombok.Getter;
+
+/**
+ * 搜索文档类型枚举
+ */
+@Getter
+public enum SearchDocumentType {
+
+    /**
+     * 聊天消息
+     */
+    MESSAGE("聊天消息"),
+
+    /**
+     * 会话（按标题检索）
+     */
+    SESSION("会话"),
+
+    /**
+     * 工作流（按名称、描述检索）
+     */
+    WORKFLOW("工作流");
+
+    private final String description;
+
+    SearchDocumentType(String description) {
+        this.description = description;
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.joker.comfypilot.search.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.joker.comfypilot.search.domain.enums.SearchDocumentType;
+
+import java.time.LocalDateTime;
+
+/**
+ * 搜索文档
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchDocument {
+
+    /**
+     * 文档类型
+     */
+    private SearchDocumentType type;
+
+    /**
+     * 业务ID（消息ID、会话ID或工作流ID）
+     */
+    private Long id;
+
+    /**
+     * 所属用户ID
+     */
+    private Long userId;
+
+    /**
+     * 所属会话ID（工作流为空）
+     */
+    private Long sessionId;
+
+    /**
+     * 所属会话编码（工作流为空）
+     */
+    private String sessionCode;
+
+    /**
+     * 标题（会话标题、工作流名称）
+     */
+    private String title;
+
+    /**
+     * 正文（消息内容、工作流描述）
+     */
+    private String content;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
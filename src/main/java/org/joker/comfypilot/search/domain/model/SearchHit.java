@@ -0,0 +1,11 @@
+package org.joker.comfypilot.search.domain.model;
+
+/**
+ * 搜索命中结果
+ *
+ * @param document  命中的文档
+ * @param score     相关度得分
+ * @param highlight 高亮摘要（无匹配片段时为空）
+ */
+public record SearchHit(SearchDocument document, float score, String highlight) {
+}
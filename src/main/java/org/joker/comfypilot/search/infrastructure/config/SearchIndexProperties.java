@@ -0,0 +1,49 @@
+package org.joker.comfypilot.search.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 全文检索索引配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "search.index")
+public class SearchIndexProperties {
+
+    /**
+     * 是否启用全文检索（关闭时不写入索引，搜索返回空结果）
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 索引目录
+     */
+    private String path = System.getProperty("user.home") + "/.comfy-pilot/search-index";
+
+    /**
+     * 近实时刷新间隔（毫秒），新写入的文档最迟在该时间后可被搜索到
+     */
+    private Long refreshInterval = 1000L;
+
+    /**
+     * 提交间隔（毫秒），提交后的索引在进程崩溃后不会丢失
+     */
+    private Long commitInterval = 30000L;
+
+    /**
+     * 索引为空时是否在启动后从数据库重建
+     */
+    private Boolean rebuildOnEmpty = true;
+
+    /**
+     * 待写入索引的最大排队数量，超过时保存数据的线程等待入队
+     */
+    private Integer queueCapacity = 10000;
+
+    /**
+     * 单页最大条数
+     */
+    private Integer maxPageSize = 50;
+}
@@ -0,0 +1,26 @@
+package org.joker.comfypilot.search.infrastructure.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+
+/**
+ * 基于 IK 分词的中文分析器（中英文混合文本，英文统一转小写）
+ */
+public final class IKLuceneAnalyzer extends Analyzer {
+
+    private final boolean maxWordLength;
+
+    /**
+     * @param maxWordLength true-最大词长切分，false-最细粒度切分
+     */
+    public IKLuceneAnalyzer(boolean maxWordLength) {
+        this.maxWordLength = maxWordLength;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new IKTokenizer(maxWordLength);
+        return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+    }
+}
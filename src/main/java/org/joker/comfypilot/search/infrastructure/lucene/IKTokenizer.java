@@ -0,0 +1,61 @@
+package org.joker.comfypilot.search.infrastructure.lucene;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.wltea.analyzer.IKSegmentation;
+import org.wltea.analyzer.Lexeme;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * IK 分词器
+ * <p>
+ * lib 中的 IK Analyzer 3.2.8 自带的 Lucene 适配基于 Lucene 3.x 接口，无法用于当前 Lucene 版本，
+ * 这里直接使用与 Lucene 无关的 {@link IKSegmentation} 切分，按当前 Tokenizer 接口输出词元和偏移量。
+ */
+public final class IKTokenizer extends Tokenizer {
+
+    private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+
+    private final OffsetAttribute offsetAttribute = addAttribute(OffsetAttribute.class);
+
+    private final IKSegmentation segmentation;
+
+    private int endPosition;
+
+    /**
+     * @param maxWordLength true-最大词长切分，false-最细粒度切分
+     */
+    public IKTokenizer(boolean maxWordLength) {
+        this.segmentation = new IKSegmentation(new StringReader(""), maxWordLength);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        clearAttributes();
+        Lexeme lexeme = segmentation.next();
+        if (lexeme == null) {
+            return false;
+        }
+        termAttribute.append(lexeme.getLexemeText());
+        offsetAttribute.setOffset(correctOffset(lexeme.getBeginPosition()), correctOffset(lexeme.getEndPosition()));
+        endPosition = lexeme.getEndPosition();
+        return true;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        segmentation.reset(input);
+        endPosition = 0;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        int finalOffset = correctOffset(endPosition);
+        offsetAttribute.setOffset(finalOffset, finalOffset);
+    }
+}
@@ -0,0 +1,357 @@
+package org.joker.comfypilot.search.infrastructure.lucene;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleFragmenter;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.joker.comfypilot.common.application.dto.PageResponse;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.search.domain.enums.SearchDocumentType;
+import org.joker.comfypilot.search.domain.model.SearchDocument;
+import org.joker.comfypilot.search.domain.model.SearchHit;
+import org.joker.comfypilot.search.infrastructure.config.SearchIndexProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lucene 全文检索索引
+ * <p>
+ * 单个 {@link IndexWriter} 负责写入，{@link SearcherManager} 提供近实时搜索：
+ * 写入后不立即提交，由定时任务按 {@code refresh-interval} 刷新搜索视图、按 {@code commit-interval} 提交到磁盘。
+ * 所有文档按用户ID过滤，搜索结果只包含调用者自己的数据。
+ */
+@Slf4j
+@Component
+public class LuceneSearchIndex {
+
+    private static final String FIELD_DOC_KEY = "docKey";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_SESSION_ID = "sessionId";
+    private static final String FIELD_SESSION_CODE = "sessionCode";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_CREATE_TIME = "createTime";
+
+    /**
+     * 标题匹配的权重
+     */
+    private static final float TITLE_BOOST = 2.0f;
+
+    /**
+     * 高亮摘要长度
+     */
+    private static final int HIGHLIGHT_FRAGMENT_SIZE = 120;
+
+    @Autowired
+    private SearchIndexProperties properties;
+
+    private final Analyzer analyzer = new IKLuceneAnalyzer(false);
+
+    private FSDirectory directory;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return;
+        }
+        Path indexPath = Paths.get(properties.getPath()).toAbsolutePath().normalize();
+        Files.createDirectories(indexPath);
+        directory = FSDirectory.open(indexPath);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        indexWriter = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(indexWriter, null);
+        log.info("全文检索索引已打开: path={}, numDocs={}", indexPath, indexWriter.getDocStats().numDocs);
+    }
+
+    /**
+     * 是否可用
+     */
+    public boolean isAvailable() {
+        return indexWriter != null && indexWriter.isOpen();
+    }
+
+    /**
+     * 索引中的文档数量
+     */
+    public int numDocs() {
+        return isAvailable() ? indexWriter.getDocStats().numDocs : 0;
+    }
+
+    /**
+     * 写入或更新文档
+     *
+     * @param document 文档
+     */
+    public void upsert(SearchDocument document) throws IOException {
+        if (!isAvailable()) {
+            return;
+        }
+        indexWriter.updateDocument(new Term(FIELD_DOC_KEY, docKey(document.getType(), document.getId())), toLucene(document));
+    }
+
+    /**
+     * 批量写入或更新文档
+     *
+     * @param documents 文档列表
+     */
+    public void upsertAll(Collection<SearchDocument> documents) throws IOException {
+        for (SearchDocument document : documents) {
+            upsert(document);
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param type 文档类型
+     * @param id   业务ID
+     */
+    public void delete(SearchDocumentType type, Long id) throws IOException {
+        if (!isAvailable()) {
+            return;
+        }
+        indexWriter.deleteDocuments(new Term(FIELD_DOC_KEY, docKey(type, id)));
+    }
+
+    /**
+     * 删除会话下的文档
+     *
+     * @param sessionId 会话ID
+     * @param type      文档类型（为空时删除会话本身及其消息）
+     */
+    public void deleteBySessionId(Long sessionId, SearchDocumentType type) throws IOException {
+        if (!isAvailable()) {
+            return;
+        }
+        Term sessionTerm = new Term(FIELD_SESSION_ID, String.valueOf(sessionId));
+        if (type == null) {
+            indexWriter.deleteDocuments(sessionTerm);
+            return;
+        }
+        indexWriter.deleteDocuments(new BooleanQuery.Builder()
+                .add(new TermQuery(sessionTerm), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(FIELD_TYPE, type.name())), BooleanClause.Occur.FILTER)
+                .build());
+    }
+
+    /**
+     * 清空索引
+     */
+    public void deleteAll() throws IOException {
+        if (!isAvailable()) {
+            return;
+        }
+        indexWriter.deleteAll();
+    }
+
+    /**
+     * 搜索
+     *
+     * @param userId   用户ID
+     * @param keyword  关键词
+     * @param type     文档类型（为空时搜索全部类型）
+     * @param pageNum  页码（从 1 开始）
+     * @param pageSize 每页大小
+     * @return 分页结果
+     */
+    public PageResponse<SearchHit> search(Long userId, String keyword, SearchDocumentType type,
+                                          int pageNum, int pageSize) throws IOException {
+        pageNum = Math.max(1, pageNum);
+        pageSize = Math.max(1, pageSize);
+        if (!isAvailable() || StringUtils.isBlank(keyword)) {
+            return new PageResponse<>(List.of(), 0L, pageNum, pageSize);
+        }
+        QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+        Query titleQuery = queryBuilder.createBooleanQuery(FIELD_TITLE, keyword, BooleanClause.Occur.MUST);
+        Query contentQuery = queryBuilder.createBooleanQuery(FIELD_CONTENT, keyword, BooleanClause.Occur.MUST);
+        if (titleQuery == null && contentQuery == null) {
+            // 关键词全部为停用词或标点
+            return new PageResponse<>(List.of(), 0L, pageNum, pageSize);
+        }
+
+        BooleanQuery.Builder keywordQuery = new BooleanQuery.Builder();
+        if (titleQuery != null) {
+            keywordQuery.add(new BoostQuery(titleQuery, TITLE_BOOST), BooleanClause.Occur.SHOULD);
+        }
+        if (contentQuery != null) {
+            keywordQuery.add(contentQuery, BooleanClause.Occur.SHOULD);
+        }
+        BooleanQuery.Builder queryBuilderWithFilter = new BooleanQuery.Builder()
+                .add(keywordQuery.build(), BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(FIELD_USER_ID, String.valueOf(userId))), BooleanClause.Occur.FILTER);
+        if (type != null) {
+            queryBuilderWithFilter.add(new TermQuery(new Term(FIELD_TYPE, type.name())), BooleanClause.Occur.FILTER);
+        }
+        Query query = queryBuilderWithFilter.build();
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            int total = searcher.count(query);
+            // 按 long 计算，避免页码过大时溢出为负数
+            long offset = (long) (pageNum - 1) * pageSize;
+            if (offset >= total) {
+                return new PageResponse<>(List.of(), (long) total, pageNum, pageSize);
+            }
+            TopDocs topDocs = searcher.search(query, (int) Math.min(total, offset + pageSize));
+            StoredFields storedFields = searcher.storedFields();
+            // 高亮摘要以 HTML 返回，原文中的标签必须转义，只保留高亮标记
+            Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<em>", "</em>"), new SimpleHTMLEncoder(),
+                    new QueryScorer(contentQuery != null ? contentQuery : titleQuery));
+            highlighter.setTextFragmenter(new SimpleFragmenter(HIGHLIGHT_FRAGMENT_SIZE));
+
+            List<SearchHit> hits = new ArrayList<>();
+            for (int i = (int) offset; i < topDocs.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                SearchDocument document = fromLucene(storedFields.document(scoreDoc.doc));
+                hits.add(new SearchHit(document, scoreDoc.score, highlight(highlighter, document)));
+            }
+            return new PageResponse<>(hits, (long) total, pageNum, pageSize);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * 刷新近实时搜索视图
+     */
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval:1000}")
+    public void refresh() {
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("刷新全文检索视图失败", e);
+        }
+    }
+
+    /**
+     * 提交索引到磁盘
+     */
+    @Scheduled(fixedDelayString = "${search.index.commit-interval:30000}")
+    public void commit() {
+        if (!isAvailable() || !indexWriter.hasUncommittedChanges()) {
+            return;
+        }
+        try {
+            indexWriter.commit();
+        } catch (IOException e) {
+            log.warn("提交全文检索索引失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (indexWriter == null) {
+            return;
+        }
+        try {
+            searcherManager.close();
+            indexWriter.close();
+            directory.close();
+            log.info("全文检索索引已关闭");
+        } catch (IOException e) {
+            log.warn("关闭全文检索索引失败", e);
+        }
+    }
+
+    private String highlight(Highlighter highlighter, SearchDocument document) {
+        String field = StringUtils.isNotBlank(document.getContent()) ? FIELD_CONTENT : FIELD_TITLE;
+        String text = FIELD_CONTENT.equals(field) ? document.getContent() : document.getTitle();
+        if (StringUtils.isBlank(text)) {
+            return null;
+        }
+        try {
+            return highlighter.getBestFragment(analyzer, field, text);
+        } catch (IOException | InvalidTokenOffsetsException e) {
+            log.debug("生成高亮摘要失败: type={}, id={}", document.getType(), document.getId(), e);
+            return null;
+        }
+    }
+
+    private static String docKey(SearchDocumentType type, Long id) {
+        if (type == null || id == null) {
+            throw new BusinessException("搜索文档类型和ID不能为空");
+        }
+        return type.name() + ":" + id;
+    }
+
+    private static Document toLucene(SearchDocument source) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_DOC_KEY, docKey(source.getType(), source.getId()), Field.Store.NO));
+        document.add(new StringField(FIELD_TYPE, source.getType().name(), Field.Store.YES));
+        document.add(new StoredField(FIELD_ID, source.getId()));
+        document.add(new StringField(FIELD_USER_ID, String.valueOf(source.getUserId()), Field.Store.YES));
+        if (source.getSessionId() != null) {
+            document.add(new StringField(FIELD_SESSION_ID, String.valueOf(source.getSessionId()), Field.Store.YES));
+        }
+        if (source.getSessionCode() != null) {
+            document.add(new StoredField(FIELD_SESSION_CODE, source.getSessionCode()));
+        }
+        if (StringUtils.isNotBlank(source.getTitle())) {
+            document.add(new TextField(FIELD_TITLE, source.getTitle(), Field.Store.YES));
+        }
+        if (StringUtils.isNotBlank(source.getContent())) {
+            document.add(new TextField(FIELD_CONTENT, source.getContent(), Field.Store.YES));
+        }
+        if (source.getCreateTime() != null) {
+            document.add(new StoredField(FIELD_CREATE_TIME,
+                    source.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
+        return document;
+    }
+
+    private static SearchDocument fromLucene(Document document) {
+        IndexableField createTime = document.getField(FIELD_CREATE_TIME);
+        String userId = document.get(FIELD_USER_ID);
+        String sessionId = document.get(FIELD_SESSION_ID);
+        return SearchDocument.builder()
+                .type(SearchDocumentType.valueOf(document.get(FIELD_TYPE)))
+                .id(document.getField(FIELD_ID).numericValue().longValue())
+                .userId(userId != null ? Long.valueOf(userId) : null)
+                .sessionId(sessionId != null ? Long.valueOf(sessionId) : null)
+                .sessionCode(document.get(FIELD_SESSION_CODE))
+                .title(document.get(FIELD_TITLE))
+                .content(document.get(FIELD_CONTENT))
+                .createTime(createTime != null
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(createTime.numericValue().longValue()), ZoneId.systemDefault())
+                        : null)
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package org.joker.comfypilot.search.interfaces.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.joker.comfypilot.auth.infrastructure.context.UserContextHolder;
+import org.joker.comfypilot.common.application.dto.PageResponse;
+import org.joker.comfypilot.common.interfaces.response.Result;
+import org.joker.comfypilot.search.application.dto.SearchRequest;
+import org.joker.comfypilot.search.application.dto.SearchResultDTO;
+import org.joker.comfypilot.search.application.service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 全文检索控制器
+ */
+@Tag(name = "全文检索", description = "按关键词搜索当前用户的聊天消息、会话和工作流")
+@RestController
+@RequestMapping("/api/v1/search")
+public class SearchController {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Operation(summary = "全文检索", description = "按关键词搜索当前用户的聊天消息、会话标题和工作流名称/描述，按相关度分页返回")
+    @GetMapping
+    public Result<PageResponse<SearchResultDTO>> search(SearchRequest request) {
+        Long userId = UserContextHolder.getCurrentUserId();
+        return Result.success(searchService.search(userId, request));
+    }
+}
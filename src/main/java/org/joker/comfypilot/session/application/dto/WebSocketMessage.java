@@ -13,7 +13,7 @@ import java.io.Serializable;
  * @param <T> 附加数据类型
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -53,4 +53,9 @@ public class WebSocketMessage<T extends WebSocketMessageData> implements Seriali
      * 时间戳
      */
     private Long timestamp;
+
+    /**
+     * 帧序号（服务端 -> 客户端，同一请求内从 1 递增，断线重连时用于补发）
+     */
+    private Long seq;
 }
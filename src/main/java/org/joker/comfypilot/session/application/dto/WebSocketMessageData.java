@@ -3,6 +3,7 @@ package org.joker.comfypilot.session.application.dto;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import org.joker.comfypilot.session.application.dto.client2server.AgentToolCallResponseData;
+import org.joker.comfypilot.session.application.dto.client2server.ResumeRequestData;
 import org.joker.comfypilot.session.application.dto.client2server.UserMessageRequestData;
 import org.joker.comfypilot.session.application.dto.server2client.AgentCompleteResponseData;
 import org.joker.comfypilot.session.application.dto.server2client.AgentPromptData;
@@ -35,6 +36,7 @@ import java.io.Serializable;
         @JsonSubTypes.Type(value = AgentToolCallResponseData.class, name = "AGENT_TOOL_CALL_RESPONSE"),
         @JsonSubTypes.Type(value = VoidWebSocketMessageData.class, name = "INTERRUPT"),
         @JsonSubTypes.Type(value = VoidWebSocketMessageData.class, name = "PING"),
+        @JsonSubTypes.Type(value = ResumeRequestData.class, name = "RESUME"),
 
         // 服务端 -> 客户端
         @JsonSubTypes.Type(value = AgentPromptData.class, name = "AGENT_PROMPT"),
@@ -0,0 +1,28 @@
+package org.joker.comfypilot.session.application.dto.client2server;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.joker.comfypilot.session.application.dto.ClientToServerMessage;
+
+/**
+ * 恢复流式输出请求数据
+ * 客户端 -> 服务端（断线重连后，requestId 为断线前执行中的请求）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "恢复流式输出请求数据")
+public class ResumeRequestData implements ClientToServerMessage {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 断线前最后收到的帧序号，0 表示从头补发
+     */
+    @Schema(description = "断线前最后收到的帧序号", example = "42")
+    private Long lastSeq;
+}
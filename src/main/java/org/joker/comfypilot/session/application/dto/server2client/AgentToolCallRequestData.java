@@ -49,4 +49,10 @@ public class AgentToolCallRequestData implements ServerToClientMessage {
      */
     @Schema(description = "是否是MCP工具，如果不是只需要返回是否允许执行就行了", example = "true")
     private Boolean isMcpTool;
+
+    /**
+     * 是否由服务端直接执行
+     */
+    @Schema(description = "是否由服务端直接执行，为true时工具已在服务端执行，客户端仅展示，不需要返回响应", example = "false")
+    private Boolean isDirectExecute;
 }
@@ -1,5 +1,6 @@
 package org.joker.comfypilot.session.application.service;
 
+import org.joker.comfypilot.common.application.dto.CursorPageResponse;
 import org.joker.comfypilot.session.application.dto.*;
 import org.joker.comfypilot.session.domain.context.WebSocketSessionContext;
 import org.springframework.web.socket.WebSocketSession;
@@ -82,6 +83,35 @@ public interface ChatSessionService {
      */
     List<ChatMessageDTO> getClientMessageHistory(String sessionCode);
 
+    /**
+     * 按游标向前分页查询客户端显示的会话消息历史
+     *
+     * @param sessionCode 会话编码
+     * @param userId      用户ID
+     * @param cursor      上一页返回的游标，为空时查询最新一页
+     * @param pageSize    每页数量
+     * @return 分页结果（每页内按时间正序）
+     */
+    CursorPageResponse<ChatMessageDTO> getClientMessagePage(String sessionCode, Long userId, String cursor, Integer pageSize);
+
+    /**
+     * 校验多媒体内容的访问权限：会话属于该用户，且会话中有消息引用该内容
+     *
+     * @param sessionCode 会话编码
+     * @param userId      用户ID
+     * @param mediaHash   内容哈希
+     */
+    void checkMediaAccess(String sessionCode, Long userId, String mediaHash);
+
+    /**
+     * 查询加载到聊天记忆的最新消息（数量由 {@code session.history.memory-window} 限制，从用户消息开始）
+     * 窗口截断时，最早的压缩摘要消息对始终加载在最前面
+     *
+     * @param sessionCode 会话编码
+     * @return 消息列表
+     */
+    List<ChatMessageDTO> getRecentMessageHistory(String sessionCode);
+
     /**
      * 查询会话消息历史
      *
@@ -98,6 +128,17 @@ public interface ChatSessionService {
      */
     void archiveSession(String sessionCode, Long userId, List<ChatMessageDTO> summeryMessages);
 
+    /**
+     * 归档指定请求之前的历史消息，并以摘要消息代替
+     * 摘要消息的请求ID会被设置为最后一个被归档的请求ID，重新加载历史时排在保留的消息之前
+     *
+     * @param sessionCode     会话编码
+     * @param userId          用户ID
+     * @param beforeRequestId 请求ID（该请求及之后的消息保持不变）
+     * @param summeryMessages 摘要消息
+     */
+    void compactSession(String sessionCode, Long userId, String beforeRequestId, List<ChatMessageDTO> summeryMessages);
+
     /**
      * 删除会话
      *
@@ -114,4 +155,16 @@ public interface ChatSessionService {
      * 保存消息
      */
     ChatMessageDTO saveMessage(ChatMessageDTO messageDTO);
+
+    /**
+     * 延迟保存消息（写入本地日志后立即返回，由后台批量写入数据库）
+     */
+    ChatMessageDTO saveMessageDeferred(ChatMessageDTO messageDTO);
+
+    /**
+     * 将会话中延迟保存的消息立即写入数据库
+     *
+     * @param sessionId 会话ID
+     */
+    void flushMessages(Long sessionId);
 }
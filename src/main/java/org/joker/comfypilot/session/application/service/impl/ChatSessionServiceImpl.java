@@ -7,12 +7,16 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.joker.comfypilot.agent.application.dto.AgentExecutionRequest;
 import org.joker.comfypilot.agent.application.dto.UserAgentConfigDTO;
+import org.joker.comfypilot.agent.application.executor.AgentConcurrencyLimiter;
 import org.joker.comfypilot.agent.application.executor.AgentExecutor;
 import org.joker.comfypilot.agent.application.service.AgentConfigService;
 import org.joker.comfypilot.agent.domain.context.AgentExecutionContext;
 import org.joker.comfypilot.cfsvr.application.service.ComfyuiServerService;
+import org.joker.comfypilot.common.application.dto.CursorPageResponse;
 import org.joker.comfypilot.common.constant.RedisKeyConstants;
+import org.joker.comfypilot.common.enums.MessageRole;
 import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.common.exception.ResourceNotFoundException;
 import org.joker.comfypilot.common.util.RedisUtil;
 import org.joker.comfypilot.session.application.converter.ChatSessionDTOConverter;
 import org.joker.comfypilot.session.application.dto.*;
@@ -28,6 +32,8 @@ import org.joker.comfypilot.session.domain.enums.SessionStatus;
 import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
 import org.joker.comfypilot.session.domain.repository.ChatMessageRepository;
 import org.joker.comfypilot.session.domain.repository.ChatSessionRepository;
+import org.joker.comfypilot.session.infrastructure.cluster.SessionOwnershipRegistry;
+import org.joker.comfypilot.session.infrastructure.config.ChatHistoryProperties;
 import org.joker.comfypilot.session.infrastructure.websocket.WebSocketAgentCallback;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -37,6 +43,10 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -63,9 +73,15 @@ public class ChatSessionServiceImpl implements ChatSessionService {
     @Autowired
     private AgentExecutor agentExecutor;
     @Autowired
+    private AgentConcurrencyLimiter agentConcurrencyLimiter;
+    @Autowired
     private ObjectMapper objectMapper;
     @Autowired
     private RedisUtil redisUtil;
+    @Autowired
+    private ChatHistoryProperties chatHistoryProperties;
+    @Autowired
+    private SessionOwnershipRegistry sessionOwnershipRegistry;
 
     @Override
     @Transactional
@@ -174,6 +190,97 @@ public class ChatSessionServiceImpl implements ChatSessionService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public CursorPageResponse<ChatMessageDTO> getClientMessagePage(String sessionCode, Long userId, String cursor, Integer pageSize) {
+        ChatSession chatSession = chatSessionRepository.findBySessionCode(sessionCode)
+                .orElseThrow(() -> new BusinessException("会话不存在: " + sessionCode));
+
+        if (!chatSession.getUserId().equals(userId)) {
+            throw new BusinessException("只允许查询用户自己的会话");
+        }
+
+        int limit = pageSize == null || pageSize <= 0 ? chatHistoryProperties.getDefaultPageSize() : Math.min(pageSize, chatHistoryProperties.getMaxPageSize());
+        String[] cursorParts = decodeCursor(cursor);
+        List<ChatMessage> messages = cursorParts == null
+                ? chatMessageRepository.findClientMessagesBefore(chatSession.getId(), null, null, null, limit + 1)
+                : chatMessageRepository.findClientMessagesBefore(chatSession.getId(), cursorParts[0], LocalDateTime.parse(cursorParts[1]), Long.parseLong(cursorParts[2]), limit + 1);
+
+        // 多查一条判断是否还有更早的消息
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages = messages.subList(0, limit);
+        }
+        String nextCursor = hasMore ? encodeCursor(messages.get(messages.size() - 1)) : null;
+
+        // 按时间正序返回
+        List<ChatMessageDTO> records = new ArrayList<>(messages.size());
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            records.add(dtoConverter.toMessageDTO(messages.get(i)));
+        }
+        return new CursorPageResponse<>(records, nextCursor, hasMore);
+    }
+
+    @Override
+    public void checkMediaAccess(String sessionCode, Long userId, String mediaHash) {
+        ChatSession chatSession = chatSessionRepository.findBySessionCode(sessionCode)
+                .orElseThrow(() -> new BusinessException("会话不存在: " + sessionCode));
+
+        if (!chatSession.getUserId().equals(userId)) {
+            throw new BusinessException("只允许查询用户自己的会话");
+        }
+
+        // 保存消息时记录会话引用的内容哈希，包含已归档的消息
+        if (StringUtils.isBlank(mediaHash) || !chatMessageRepository.existsMediaReference(chatSession.getId(), mediaHash)) {
+            throw new ResourceNotFoundException("多媒体内容", mediaHash);
+        }
+    }
+
+    @Override
+    public List<ChatMessageDTO> getRecentMessageHistory(String sessionCode) {
+        ChatSession chatSession = chatSessionRepository.findBySessionCode(sessionCode)
+                .orElseThrow(() -> new BusinessException("会话不存在: " + sessionCode));
+
+        int window = chatHistoryProperties.getMemoryWindow();
+        List<ChatMessage> messages = chatMessageRepository.findLatestMessagesBySessionId(chatSession.getId(), window);
+        if (messages.size() < window) {
+            return messages.stream().map(dtoConverter::toMessageDTO).collect(Collectors.toList());
+        }
+
+        // 窗口截断在某次请求中间时，跳过开头的AI消息、工具结果，从用户消息开始
+        int start = 0;
+        while (start < messages.size()
+                && messages.get(start).getRole() != MessageRole.USER
+                && messages.get(start).getRole() != MessageRole.AGENT_PROMPT) {
+            start++;
+        }
+        if (start == messages.size()) {
+            start = 0;
+        }
+        List<ChatMessage> recent = new ArrayList<>(messages.subList(start, messages.size()));
+
+        // 窗口外最早的消息是压缩摘要时，始终加载摘要，避免窗口截断后丢失更早历史的上下文
+        List<ChatMessage> summary = findSummaryMessages(chatSession.getId());
+        if (!summary.isEmpty() && recent.stream().noneMatch(message -> message.getId().equals(summary.get(0).getId()))) {
+            recent.addAll(0, summary);
+        }
+        return recent.stream()
+                .map(dtoConverter::toMessageDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 查询压缩摘要消息对（归档或压缩后写入的 AGENT_PROMPT + ASSISTANT_PROMPT，排在有效消息的最前面）
+     */
+    private List<ChatMessage> findSummaryMessages(Long sessionId) {
+        List<ChatMessage> earliest = chatMessageRepository.findEarliestMessagesBySessionId(sessionId, 2);
+        if (earliest.size() == 2
+                && earliest.get(0).getRole() == MessageRole.AGENT_PROMPT
+                && earliest.get(1).getRole() == MessageRole.ASSISTANT_PROMPT) {
+            return earliest;
+        }
+        return List.of();
+    }
+
     @Override
     public List<ChatMessageDTO> getMessageHistory(String sessionCode) {
         log.info("查询会话消息历史: sessionCode={}", sessionCode);
@@ -209,6 +316,33 @@ public class ChatSessionServiceImpl implements ChatSessionService {
         log.info("会话已归档: sessionCode={}", sessionCode);
     }
 
+    @Override
+    @Transactional
+    public void compactSession(String sessionCode, Long userId, String beforeRequestId, List<ChatMessageDTO> summeryMessages) {
+        log.info("压缩会话历史: sessionCode={}, beforeRequestId={}", sessionCode, beforeRequestId);
+
+        ChatSession chatSession = chatSessionRepository.findBySessionCode(sessionCode)
+                .orElseThrow(() -> new BusinessException("会话不存在: " + sessionCode));
+
+        if (!chatSession.getUserId().equals(userId)) {
+            throw new BusinessException("只允许归档用户自己的会话");
+        }
+
+        String archivedRequestId = chatMessageRepository.archiveBySessionIdBeforeRequest(chatSession.getId(), beforeRequestId);
+        if (CollectionUtils.isNotEmpty(summeryMessages)) {
+            String summeryRequestId = archivedRequestId != null ? archivedRequestId : beforeRequestId;
+            chatMessageRepository.saveAll(summeryMessages.stream()
+                    .map(dtoConverter::toMessageEntity)
+                    .peek(entity -> {
+                        entity.setRequestId(summeryRequestId);
+                        entity.setStatus(MessageStatus.ACTIVE);
+                    })
+                    .toList());
+        }
+
+        log.info("会话历史已压缩: sessionCode={}", sessionCode);
+    }
+
     @Override
     @Transactional
     public void deleteSession(String sessionCode, Long userId) {
@@ -252,6 +386,19 @@ public class ChatSessionServiceImpl implements ChatSessionService {
         return dtoConverter.toMessageDTO(message);
     }
 
+    @Override
+    public ChatMessageDTO saveMessageDeferred(ChatMessageDTO messageDTO) {
+        ChatMessage message = dtoConverter.toMessageEntity(messageDTO);
+        message.setStatus(MessageStatus.ACTIVE);
+        message = chatMessageRepository.saveDeferred(message);
+        return dtoConverter.toMessageDTO(message);
+    }
+
+    @Override
+    public void flushMessages(Long sessionId) {
+        chatMessageRepository.flushDeferred(sessionId);
+    }
+
     @Override
     @Async("agentExecutor")
     public void sendMessageAsync(String sessionCode, String requestId, WebSocketMessage<?> wsMessage,
@@ -293,13 +440,20 @@ public class ChatSessionServiceImpl implements ChatSessionService {
             // 获取Agent执行上下文（直接使用传入的agentCode）
             AgentExecutionContext executionContext = agentExecutor.getExecutionContext(agentCode, agentRequest);
             executionContext.setSessionCode(sessionCode);
-            executionContext.setConnectSessionId(wsContext.getWebSocketSession().getId());
+            executionContext.setConnectSessionId(wsContext.getConnectSessionId());
             executionContext.setWebSocketSessionContext(wsContext);
 
+            // 获取执行名额（全局、单用户并发上限），执行完成时释放
+            AgentConcurrencyLimiter.Permit permit = agentConcurrencyLimiter.acquire(wsContext.getUserId());
+
             // 标记开始执行
             if (!wsContext.startExecution(requestId)) {
+                permit.release();
                 throw new BusinessException("会话未结束，请稍后再试");
             }
+            wsContext.attachExecutionPermit(permit);
+            // 多节点部署时登记本节点为会话归属节点，其他节点收到该请求的工具调用响应等消息时转发到本节点
+            sessionOwnershipRegistry.claim(sessionCode, wsContext.getConnectSessionId());
             executionContext.getAgentScope().put("UserQueryMessage", content);
             executionContext.getAgentScope().put("UserRules", chatSession.getRules() != null ? chatSession.getRules() : "");
 
@@ -325,4 +479,29 @@ public class ChatSessionServiceImpl implements ChatSessionService {
         }
     }
 
+
+    /**
+     * 游标格式：Base64URL(请求ID \n 创建时间 \n 消息ID)
+     */
+    private static String encodeCursor(ChatMessage message) {
+        String raw = message.getRequestId() + "\n" + message.getCreateTime() + "\n" + message.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException(cursor);
+            }
+            LocalDateTime.parse(parts[1]);
+            Long.parseLong(parts[2]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new BusinessException("分页游标格式错误");
+        }
+    }
 }
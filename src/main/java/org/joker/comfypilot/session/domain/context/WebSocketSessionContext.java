@@ -3,21 +3,28 @@ package org.joker.comfypilot.session.domain.context;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.agent.application.executor.AgentConcurrencyLimiter;
 import org.joker.comfypilot.agent.domain.context.AgentExecutionContext;
-import org.joker.comfypilot.common.config.JacksonConfig;
 import org.joker.comfypilot.session.application.dto.WebSocketMessage;
 import org.joker.comfypilot.session.application.dto.server2client.AgentPromptData;
 import org.joker.comfypilot.session.domain.enums.AgentPromptType;
 import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
-import org.springframework.web.socket.TextMessage;
+import org.joker.comfypilot.session.infrastructure.websocket.WebSocketOutbound;
+import org.joker.comfypilot.session.infrastructure.websocket.WebSocketReplayBuffer;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * WebSocket会话执行上下文
  * 管理单个WebSocket连接的执行状态
+ * <p>
+ * 执行中连接断开时上下文保留一段时间，客户端在新连接上发送 RESUME 后继续使用该上下文，
+ * 并补发断开期间 Agent 输出的帧
  */
 @Data
 @Builder
@@ -25,9 +32,15 @@ import java.util.concurrent.locks.Lock;
 public class WebSocketSessionContext {
 
     /**
-     * WebSocket会话
+     * WebSocket会话（断线恢复后为新连接）
      */
-    private WebSocketSession webSocketSession;
+    private volatile WebSocketSession webSocketSession;
+
+    /**
+     * 首次连接的WebSocket会话ID
+     * 聊天记忆、会话移除回调等以此为键，断线恢复后保持不变
+     */
+    private String connectSessionId;
 
     /**
      * 聊天会话编码
@@ -60,9 +73,41 @@ public class WebSocketSessionContext {
     private AtomicReference<AgentExecutionContext> agentExecutionContext;
 
     /**
-     * 消息发送锁
+     * 出站通道（本节点连接为出站消息队列，序列化和发送在独立的发送任务中完成）
+     */
+    private volatile WebSocketOutbound outbound;
+
+    /**
+     * Agent 输出帧补发缓冲区，未启用断线恢复时为 null
+     */
+    private WebSocketReplayBuffer replayBuffer;
+
+    /**
+     * 补发缓冲区和连接切换锁
+     */
+    @Builder.Default
+    private Lock replayLock = new ReentrantLock();
+
+    /**
+     * 连接断开、等待重连的开始时间，连接中为 null
+     */
+    private volatile Long detachedTime;
+
+    /**
+     * 上下文是否已结束（连接关闭且不再等待重连）
      */
-    private Lock sendMessageLock;
+    private volatile boolean closed;
+
+    /**
+     * 多节点部署时，本连接的消息被转发到的会话归属节点ID，未转发过时为 null
+     */
+    private volatile String remoteOwner;
+
+    /**
+     * 当前执行占用的Agent任务名额
+     */
+    @Builder.Default
+    private AtomicReference<AgentConcurrencyLimiter.Permit> executionPermit = new AtomicReference<>(null);
 
     /**
      * 开始执行
@@ -77,11 +122,32 @@ public class WebSocketSessionContext {
     public boolean completeExecution(String requestId) {
         if (currentRequestId.compareAndSet(requestId, null)) {
             agentExecutionContext.set(null);
+            releaseExecutionPermit();
             return true;
         }
         return false;
     }
 
+    /**
+     * 绑定当前执行占用的Agent任务名额（执行完成或连接关闭时释放）
+     */
+    public void attachExecutionPermit(AgentConcurrencyLimiter.Permit permit) {
+        AgentConcurrencyLimiter.Permit previous = executionPermit.getAndSet(permit);
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    /**
+     * 释放当前执行占用的Agent任务名额
+     */
+    public void releaseExecutionPermit() {
+        AgentConcurrencyLimiter.Permit permit = executionPermit.getAndSet(null);
+        if (permit != null) {
+            permit.release();
+        }
+    }
+
     /**
      * 更新活跃时间
      */
@@ -89,19 +155,128 @@ public class WebSocketSessionContext {
         this.lastActiveTime = System.currentTimeMillis();
     }
 
-    public void sendMessage(WebSocketMessage<?> message) {
+    /**
+     * 发送消息（放入出站队列后立即返回）
+     *
+     * @return 连接已关闭时返回 false
+     */
+    public boolean sendMessage(WebSocketMessage<?> message) {
+        boolean queued = outbound.offer(message);
+        if (!queued) {
+            log.warn("WebSocket连接已关闭,消息未发送: sessionCode={}, type={}", sessionCode, message.getType());
+        }
+        return queued;
+    }
+
+    /**
+     * 发送 Agent 输出帧
+     * 分配序号并放入补发缓冲区，连接断开等待重连期间只缓冲不发送
+     *
+     * @return 上下文已结束时返回 false
+     */
+    public boolean sendAgentMessage(WebSocketMessage<?> message) {
+        if (replayBuffer == null) {
+            return sendMessage(message);
+        }
+        replayLock.lock();
         try {
-            if (webSocketSession.isOpen()) {
-                String json = JacksonConfig.getObjectMapper().writeValueAsString(message);
-                try {
-                    getSendMessageLock().lock();
-                    webSocketSession.sendMessage(new TextMessage(json));
-                } finally {
-                    getSendMessageLock().unlock();
-                }
+            if (closed) {
+                return false;
             }
-        } catch (Exception e) {
-            log.error("发送WebSocket消息失败: {}", e.getMessage(), e);
+            replayBuffer.append(message);
+            if (detachedTime == null) {
+                // 连接异常时出站队列会关闭连接，随后进入等待重连状态，帧已在缓冲区中
+                outbound.offer(message);
+            }
+            return true;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * 连接断开，等待客户端重连
+     */
+    public void detach() {
+        replayLock.lock();
+        try {
+            detachedTime = System.currentTimeMillis();
+            outbound.close();
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * 切换到新连接并补发客户端未收到的帧
+     *
+     * @param session     新连接，连接在其他节点时为 null
+     * @param newOutbound 新连接的出站通道
+     * @param requestId   断线前执行中的请求ID
+     * @param lastSeq     客户端最后收到的帧序号
+     * @return 所需的帧已不在缓冲区中时返回 false，上下文保持不变
+     */
+    public boolean resume(WebSocketSession session, WebSocketOutbound newOutbound, String requestId, long lastSeq) {
+        replayLock.lock();
+        try {
+            List<WebSocketMessage<?>> missed = closed || replayBuffer == null ? null : replayBuffer.framesAfter(requestId, lastSeq);
+            if (missed == null) {
+                return false;
+            }
+            switchOutbound(session, newOutbound);
+            for (WebSocketMessage<?> frame : missed) {
+                newOutbound.offer(frame);
+            }
+            return true;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * 切换到其他节点上的连接，不补发（客户端未发送 RESUME 而直接发送了工具调用响应等消息）
+     */
+    public void attach(WebSocketOutbound newOutbound) {
+        replayLock.lock();
+        try {
+            if (!closed) {
+                switchOutbound(null, newOutbound);
+            }
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * 出站通道当前的连接标识
+     */
+    public String getConnectionId() {
+        return outbound.getConnectionId();
+    }
+
+    private void switchOutbound(WebSocketSession session, WebSocketOutbound newOutbound) {
+        WebSocketOutbound previous = outbound;
+        if (detachedTime == null && previous != newOutbound) {
+            // 服务端尚未察觉旧连接断开，主动关闭旧连接
+            previous.closeConnection(CloseStatus.NORMAL.withReason("已在新连接上恢复"));
+        }
+        if (session != null) {
+            webSocketSession = session;
+        }
+        outbound = newOutbound;
+        detachedTime = null;
+    }
+
+    /**
+     * 结束上下文，之后的输出不再缓冲和发送
+     */
+    public void close() {
+        replayLock.lock();
+        try {
+            closed = true;
+            outbound.close();
+        } finally {
+            replayLock.unlock();
         }
     }
 
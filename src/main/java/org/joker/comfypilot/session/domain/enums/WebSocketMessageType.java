@@ -3,6 +3,7 @@ package org.joker.comfypilot.session.domain.enums;
 import lombok.Getter;
 import org.joker.comfypilot.session.application.dto.VoidWebSocketMessageData;
 import org.joker.comfypilot.session.application.dto.client2server.AgentToolCallResponseData;
+import org.joker.comfypilot.session.application.dto.client2server.ResumeRequestData;
 import org.joker.comfypilot.session.application.dto.client2server.UserMessageRequestData;
 import org.joker.comfypilot.session.application.dto.server2client.AgentCompleteResponseData;
 import org.joker.comfypilot.session.application.dto.server2client.AgentPromptData;
@@ -39,6 +40,11 @@ public enum WebSocketMessageType {
      */
     PING("心跳", VoidWebSocketMessageData.class),
 
+    /**
+     * 客户端 -> 服务端：断线重连后恢复执行中请求的输出，补发最后收到的帧之后的帧
+     */
+    RESUME("恢复输出", ResumeRequestData.class),
+
     /**
      * 服务端 -> 客户端：Agent状态提示（统一的提示消息）
      */
@@ -0,0 +1,18 @@
+package org.joker.comfypilot.session.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 聊天消息已删除事件
+ */
+@Data
+@AllArgsConstructor
+public class ChatMessageDeletedEvent {
+
+    /**
+     * 消息ID
+     */
+    private Long messageId;
+
+}
@@ -0,0 +1,21 @@
+package org.joker.comfypilot.session.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.joker.comfypilot.session.domain.entity.ChatMessage;
+
+import java.util.List;
+
+/**
+ * 聊天消息已保存事件（包括延迟写入的消息）
+ */
+@Data
+@AllArgsConstructor
+public class ChatMessagesSavedEvent {
+
+    /**
+     * 保存后的消息
+     */
+    private List<ChatMessage> chatMessages;
+
+}
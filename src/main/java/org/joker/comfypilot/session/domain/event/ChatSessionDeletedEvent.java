@@ -0,0 +1,18 @@
+package org.joker.comfypilot.session.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 会话已删除事件
+ */
+@Data
+@AllArgsConstructor
+public class ChatSessionDeletedEvent {
+
+    /**
+     * 会话ID
+     */
+    private Long sessionId;
+
+}
@@ -0,0 +1,18 @@
+package org.joker.comfypilot.session.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 会话下所有消息已删除事件
+ */
+@Data
+@AllArgsConstructor
+public class ChatSessionMessagesDeletedEvent {
+
+    /**
+     * 会话ID
+     */
+    private Long sessionId;
+
+}
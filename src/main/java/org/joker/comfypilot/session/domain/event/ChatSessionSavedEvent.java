@@ -0,0 +1,19 @@
+package org.joker.comfypilot.session.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.joker.comfypilot.session.domain.entity.ChatSession;
+
+/**
+ * 会话已保存事件（新增或更新）
+ */
+@Data
+@AllArgsConstructor
+public class ChatSessionSavedEvent {
+
+    /**
+     * 保存后的会话
+     */
+    private ChatSession chatSession;
+
+}
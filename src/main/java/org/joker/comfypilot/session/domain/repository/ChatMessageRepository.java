@@ -2,6 +2,7 @@ package org.joker.comfypilot.session.domain.repository;
 
 import org.joker.comfypilot.session.domain.entity.ChatMessage;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,21 @@ public interface ChatMessageRepository {
      */
     void saveAll(List<ChatMessage> chatMessages);
 
+    /**
+     * 延迟保存消息（写入本地日志后返回，之后批量写入数据库）
+     *
+     * @param chatMessage 消息实体
+     * @return 已分配ID和创建时间的消息实体
+     */
+    ChatMessage saveDeferred(ChatMessage chatMessage);
+
+    /**
+     * 将会话中延迟保存的消息立即写入数据库
+     *
+     * @param sessionId 会话ID
+     */
+    void flushDeferred(Long sessionId);
+
     /**
      * 根据ID查询消息
      *
@@ -47,6 +63,36 @@ public interface ChatMessageRepository {
      */
     List<ChatMessage> findMessagesBySessionId(Long sessionId);
 
+    /**
+     * 按游标向前查询客户端展示的消息（按请求ID、创建时间、ID倒序）
+     *
+     * @param sessionId  会话ID
+     * @param requestId  游标消息的请求ID，为null时从最新的消息开始
+     * @param createTime 游标消息的创建时间
+     * @param id         游标消息ID
+     * @param limit      限制数量
+     * @return 消息列表（从新到旧）
+     */
+    List<ChatMessage> findClientMessagesBefore(Long sessionId, String requestId, LocalDateTime createTime, Long id, int limit);
+
+    /**
+     * 查询最新的有效聊天记忆消息
+     *
+     * @param sessionId 会话ID
+     * @param limit     限制数量
+     * @return 消息列表（从旧到新）
+     */
+    List<ChatMessage> findLatestMessagesBySessionId(Long sessionId, int limit);
+
+    /**
+     * 查询最早的有效聊天记忆消息
+     *
+     * @param sessionId 会话ID
+     * @param limit     限制数量
+     * @return 消息列表（从旧到新）
+     */
+    List<ChatMessage> findEarliestMessagesBySessionId(Long sessionId, int limit);
+
     /**
      * 根据会话ID查询消息列表（分页）
      *
@@ -79,10 +125,28 @@ public interface ChatMessageRepository {
      */
     void deleteBySessionId(Long sessionId);
 
+    /**
+     * 会话的消息是否引用了多媒体内容（保存消息时记录的引用，按索引查询）
+     *
+     * @param sessionId 会话ID
+     * @param mediaHash 内容哈希
+     * @return 是否引用
+     */
+    boolean existsMediaReference(Long sessionId, String mediaHash);
+
     /**
      * 根据sessionId归档消息
      *
      * @param sessionId 会话ID
      */
     void archiveBySessionId(Long sessionId);
+
+    /**
+     * 归档指定请求之前的消息（按请求ID排序，与历史消息的读取顺序一致）
+     *
+     * @param sessionId 会话ID
+     * @param requestId 请求ID（该请求及之后的消息保持不变）
+     * @return 被归档消息中最大的请求ID，没有消息被归档时返回null
+     */
+    String archiveBySessionIdBeforeRequest(Long sessionId, String requestId);
 }
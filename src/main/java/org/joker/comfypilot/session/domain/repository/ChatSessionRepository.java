@@ -43,6 +43,13 @@ public interface ChatSessionRepository {
      */
     Optional<ChatSession> findBySessionCode(String sessionCode);
 
+    /**
+     * 查询所有会话
+     *
+     * @return 会话列表
+     */
+    List<ChatSession> findAll();
+
     /**
      * 根据用户ID查询会话列表
      *
@@ -0,0 +1,40 @@
+package org.joker.comfypilot.session.infrastructure.cluster;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * 节点间转发的 WebSocket 消息
+ *
+ * @param kind        转发类型
+ * @param sourceNode  发送节点ID
+ * @param wsSessionId 客户端连接所在节点上的 WebSocket Session ID
+ * @param userId      用户ID
+ * @param sessionCode 会话编码
+ * @param payload     WebSocket 消息 JSON（DETACH 时为空）
+ */
+public record ClusterEnvelope(Kind kind, String sourceNode, String wsSessionId, Long userId, String sessionCode,
+                              String payload) {
+
+    public enum Kind {
+        /**
+         * 客户端消息，由连接所在节点转发到会话归属节点
+         */
+        INBOUND,
+        /**
+         * 服务端消息，由会话归属节点转发到连接所在节点
+         */
+        OUTBOUND,
+        /**
+         * 连接所在节点上的连接已关闭
+         */
+        DETACH
+    }
+
+    /**
+     * 远程连接标识
+     */
+    @JsonIgnore
+    public String connectionId() {
+        return RemoteWebSocketOutbound.connectionId(sourceNode, wsSessionId);
+    }
+}
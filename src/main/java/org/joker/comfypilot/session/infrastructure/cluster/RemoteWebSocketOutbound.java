@@ -0,0 +1,68 @@
+package org.joker.comfypilot.session.infrastructure.cluster;
+
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.joker.comfypilot.session.infrastructure.websocket.WebSocketOutbound;
+import org.springframework.web.socket.CloseStatus;
+
+/**
+ * 连接在其他节点上的出站通道
+ * <p>
+ * 消息通过集群路由发布到连接所在节点的频道，由该节点放入连接的出站队列。
+ * 发布在调用线程上同步完成，同一会话的 Agent 输出在补发缓冲区锁内发送，节点间保持发送顺序。
+ * 连接所在节点下线时按连接关闭处理会话上下文（等待重连或结束）
+ */
+public class RemoteWebSocketOutbound implements WebSocketOutbound {
+
+    private final WebSocketClusterRouter router;
+    private final String nodeId;
+    private final String wsSessionId;
+    private final Long userId;
+    private final String sessionCode;
+    private final String connectionId;
+
+    private volatile boolean closed;
+
+    public RemoteWebSocketOutbound(WebSocketClusterRouter router, String nodeId, String wsSessionId,
+                                   Long userId, String sessionCode) {
+        this.router = router;
+        this.nodeId = nodeId;
+        this.wsSessionId = wsSessionId;
+        this.userId = userId;
+        this.sessionCode = sessionCode;
+        this.connectionId = connectionId(nodeId, wsSessionId);
+    }
+
+    static String connectionId(String nodeId, String wsSessionId) {
+        return nodeId + "/" + wsSessionId;
+    }
+
+    @Override
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+    @Override
+    public boolean offer(WebSocketMessage<?> message) {
+        if (closed) {
+            return false;
+        }
+        if (!router.forward(nodeId, wsSessionId, message)) {
+            // 连接所在节点已下线，调用方可能持有补发缓冲区锁，会话上下文在转发线程上处理
+            closed = true;
+            router.connectionLost(nodeId, wsSessionId, userId, sessionCode);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public void closeConnection(CloseStatus status) {
+        // 连接由所在节点管理，客户端在该节点上的后续消息不再转发到本节点
+        closed = true;
+    }
+}
@@ -0,0 +1,161 @@
+package org.joker.comfypilot.session.infrastructure.cluster;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketClusterProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话归属登记
+ * <p>
+ * 多节点部署时，Agent 执行所在的节点在 Redis 中登记会话的归属（会话编码 -> 节点ID），
+ * 并在会话上下文存活期间定时续期。其他节点收到该会话的消息时据此转发到归属节点，
+ * 会话的聊天记忆和工具调用等待因此只需保存在归属节点上。
+ * 节点宕机后登记在 {@code session.cluster.ownership-ttl} 后过期，会话由新节点接管。
+ */
+@Slf4j
+@Component
+public class SessionOwnershipRegistry {
+
+    private static final String KEY_PREFIX = "ws:session:owner:";
+
+    /**
+     * 仅在归属未变化时删除
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /**
+     * 仅在归属未变化时续期
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private WebSocketClusterProperties properties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本节点ID
+     */
+    @Getter
+    private String nodeId;
+
+    /**
+     * 本节点登记的会话
+     * Key: 会话编码
+     * Value: 会话上下文的首次连接ID
+     */
+    private final Map<String, String> ownedSessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        nodeId = StringUtils.isNotBlank(properties.getNodeId()) ? properties.getNodeId() : generateNodeId();
+        if (isEnabled()) {
+            log.info("WebSocket多节点路由已启用: nodeId={}", nodeId);
+        }
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(properties.getEnabled());
+    }
+
+    /**
+     * 登记本节点为会话的归属节点（覆盖原有登记，最近开始执行的节点为准）
+     *
+     * @param sessionCode      会话编码
+     * @param connectSessionId 会话上下文的首次连接ID
+     */
+    public void claim(String sessionCode, String connectSessionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        ownedSessions.put(sessionCode, connectSessionId);
+        stringRedisTemplate.opsForValue().set(key(sessionCode), nodeId, Duration.ofMillis(properties.getOwnershipTtl()));
+    }
+
+    /**
+     * 查询会话的归属节点
+     *
+     * @return 节点ID，未登记时返回 null
+     */
+    public String getOwner(String sessionCode) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return stringRedisTemplate.opsForValue().get(key(sessionCode));
+    }
+
+    /**
+     * 会话上下文结束时注销本节点的登记
+     *
+     * @param sessionCode      会话编码
+     * @param connectSessionId 会话上下文的首次连接ID（只注销由该上下文登记的归属）
+     */
+    public void release(String sessionCode, String connectSessionId) {
+        if (!isEnabled() || !ownedSessions.remove(sessionCode, connectSessionId)) {
+            return;
+        }
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(key(sessionCode)), nodeId);
+    }
+
+    /**
+     * 移除其他节点的失效登记（归属节点已不再订阅路由频道）
+     */
+    public void evict(String sessionCode, String ownerNodeId) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(key(sessionCode)), ownerNodeId);
+    }
+
+    /**
+     * 续期本节点登记的会话，已被其他节点接管的会话不再续期
+     */
+    @Scheduled(fixedDelayString = "${session.cluster.heartbeat-interval:10000}")
+    public void renewOwnership() {
+        if (!isEnabled() || ownedSessions.isEmpty()) {
+            return;
+        }
+        String ttl = String.valueOf(properties.getOwnershipTtl());
+        ownedSessions.forEach((sessionCode, connectSessionId) -> {
+            try {
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(key(sessionCode)), nodeId, ttl);
+                if (renewed == null || renewed == 0) {
+                    log.info("会话归属已被其他节点接管: sessionCode={}", sessionCode);
+                    ownedSessions.remove(sessionCode, connectSessionId);
+                }
+            } catch (Exception e) {
+                log.warn("续期会话归属失败: sessionCode={}, error={}", sessionCode, e.getMessage());
+            }
+        });
+    }
+
+    private static String key(String sessionCode) {
+        return KEY_PREFIX + sessionCode;
+    }
+
+    private static String generateNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
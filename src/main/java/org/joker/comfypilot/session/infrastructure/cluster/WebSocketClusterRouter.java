@@ -0,0 +1,302 @@
+package org.joker.comfypilot.session.infrastructure.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.util.TraceIdUtil;
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.joker.comfypilot.session.application.dto.WebSocketMessageData;
+import org.joker.comfypilot.session.application.dto.client2server.ResumeRequestData;
+import org.joker.comfypilot.session.application.dto.server2client.AgentPromptData;
+import org.joker.comfypilot.session.domain.context.WebSocketSessionContext;
+import org.joker.comfypilot.session.domain.enums.AgentPromptType;
+import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
+import org.joker.comfypilot.session.infrastructure.websocket.WebSocketSessionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * WebSocket 多节点路由
+ * <p>
+ * 每个节点订阅自己的频道 {@code ws:node:{nodeId}}。客户端连接所在节点不是会话归属节点时：
+ * <ul>
+ *   <li>用户消息、工具调用响应、中断、恢复输出转发到归属节点，使用归属节点上的会话上下文处理</li>
+ *   <li>归属节点把会话的输出通过 {@link RemoteWebSocketOutbound} 转发回连接所在节点</li>
+ * </ul>
+ * 聊天记忆、工具调用等待等执行状态只保存在归属节点，不在节点间复制。
+ * 归属节点未订阅（已下线）时清除其登记，消息在本节点处理
+ */
+@Slf4j
+@Component
+public class WebSocketClusterRouter implements MessageListener {
+
+    private static final String CHANNEL_PREFIX = "ws:node:";
+
+    /**
+     * 转发到归属节点处理的消息类型
+     */
+    private static final Set<WebSocketMessageType> ROUTED_TYPES = EnumSet.of(
+            WebSocketMessageType.USER_MESSAGE,
+            WebSocketMessageType.USER_ORDER,
+            WebSocketMessageType.AGENT_TOOL_CALL_RESPONSE,
+            WebSocketMessageType.INTERRUPT,
+            WebSocketMessageType.RESUME);
+
+    private static final TypeReference<WebSocketMessage<WebSocketMessageData>> MESSAGE_TYPE = new TypeReference<>() {
+    };
+
+    @Autowired
+    private SessionOwnershipRegistry ownershipRegistry;
+    @Autowired
+    private WebSocketSessionManager sessionManager;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    @Qualifier("webSocketWriterExecutor")
+    private Executor inboundExecutor;
+
+    /**
+     * 本节点的频道监听容器，在订阅线程上按到达顺序分发
+     */
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 转发来的客户端消息的处理器，由 WebSocket 处理器注册
+     */
+    private volatile InboundHandler inboundHandler;
+
+    /**
+     * 同一远程连接的客户端消息按到达顺序处理
+     * Key: 远程连接标识
+     */
+    private final Map<String, CompletableFuture<Void>> inboundLanes = new ConcurrentHashMap<>();
+
+    /**
+     * 转发来的客户端消息的处理器
+     */
+    @FunctionalInterface
+    public interface InboundHandler {
+        void handle(WebSocketSessionContext context, WebSocketMessageType messageType, WebSocketMessage<?> wsMessage) throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!ownershipRegistry.isEnabled()) {
+            return;
+        }
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(redisConnectionFactory);
+        listenerContainer.setTaskExecutor(new SyncTaskExecutor());
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel(ownershipRegistry.getNodeId())));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+            listenerContainer = null;
+        }
+    }
+
+    public void setInboundHandler(InboundHandler inboundHandler) {
+        this.inboundHandler = inboundHandler;
+    }
+
+    /**
+     * 会话归属于其他节点时把客户端消息转发到归属节点
+     *
+     * @param context     连接所在节点的会话上下文
+     * @param messageType 消息类型
+     * @param payload     客户端消息原文
+     * @return 已转发时返回 true，否则由本节点处理
+     */
+    public boolean routeInbound(WebSocketSessionContext context, WebSocketMessageType messageType, String payload) {
+        if (!ownershipRegistry.isEnabled() || !ROUTED_TYPES.contains(messageType)
+                || context.getCurrentRequestId().get() != null) {
+            return false;
+        }
+        String owner = ownershipRegistry.getOwner(context.getSessionCode());
+        if (owner == null || owner.equals(ownershipRegistry.getNodeId())) {
+            return false;
+        }
+        ClusterEnvelope envelope = new ClusterEnvelope(ClusterEnvelope.Kind.INBOUND, ownershipRegistry.getNodeId(),
+                context.getWebSocketSession().getId(), context.getUserId(), context.getSessionCode(), payload);
+        if (!publish(owner, envelope)) {
+            log.warn("会话归属节点已下线，由本节点处理: sessionCode={}, owner={}", context.getSessionCode(), owner);
+            ownershipRegistry.evict(context.getSessionCode(), owner);
+            return false;
+        }
+        context.setRemoteOwner(owner);
+        return true;
+    }
+
+    /**
+     * 通知归属节点本节点上的连接已关闭
+     */
+    public void detach(WebSocketSessionContext context) {
+        String owner = context.getRemoteOwner();
+        if (owner == null) {
+            return;
+        }
+        publish(owner, new ClusterEnvelope(ClusterEnvelope.Kind.DETACH, ownershipRegistry.getNodeId(),
+                context.getWebSocketSession().getId(), context.getUserId(), context.getSessionCode(), null));
+    }
+
+    /**
+     * 把服务端消息转发到连接所在节点
+     *
+     * @return 连接所在节点未订阅（已下线）时返回 false
+     */
+    boolean forward(String nodeId, String wsSessionId, WebSocketMessage<?> message) {
+        try {
+            ClusterEnvelope envelope = new ClusterEnvelope(ClusterEnvelope.Kind.OUTBOUND, ownershipRegistry.getNodeId(),
+                    wsSessionId, null, message.getSessionCode(), objectMapper.writeValueAsString(message));
+            return publish(nodeId, envelope);
+        } catch (Exception e) {
+            log.error("转发WebSocket消息失败: nodeId={}, wsSessionId={}, error={}", nodeId, wsSessionId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 连接所在节点已下线，与收到该节点的连接关闭通知处理一致
+     */
+    void connectionLost(String nodeId, String wsSessionId, Long userId, String sessionCode) {
+        log.warn("WebSocket连接所在节点不可用: nodeId={}, wsSessionId={}", nodeId, wsSessionId);
+        submitInbound(new ClusterEnvelope(ClusterEnvelope.Kind.DETACH, nodeId, wsSessionId, userId, sessionCode, null));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        ClusterEnvelope envelope;
+        try {
+            envelope = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), ClusterEnvelope.class);
+        } catch (Exception e) {
+            log.error("解析节点间消息失败: {}", e.getMessage(), e);
+            return;
+        }
+        switch (envelope.kind()) {
+            case OUTBOUND -> handleOutbound(envelope);
+            case INBOUND, DETACH -> submitInbound(envelope);
+        }
+    }
+
+    /**
+     * 服务端消息放入本节点连接的出站队列（不阻塞订阅线程）
+     */
+    private void handleOutbound(ClusterEnvelope envelope) {
+        WebSocketSessionContext context = sessionManager.getContext(envelope.wsSessionId());
+        if (context == null) {
+            return;
+        }
+        try {
+            context.sendMessage(objectMapper.readValue(envelope.payload(), MESSAGE_TYPE));
+        } catch (Exception e) {
+            log.error("发送转发的WebSocket消息失败: wsSessionId={}, error={}", envelope.wsSessionId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 客户端消息可能查询数据库或等待锁，在订阅线程外按连接顺序处理
+     */
+    private void submitInbound(ClusterEnvelope envelope) {
+        String lane = envelope.connectionId();
+        CompletableFuture<Void> next = inboundLanes.compute(lane, (key, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                        .thenRunAsync(() -> handleInbound(envelope), inboundExecutor));
+        next.whenComplete((v, e) -> inboundLanes.remove(lane, next));
+    }
+
+    private void handleInbound(ClusterEnvelope envelope) {
+        TraceIdUtil.setTraceId(TraceIdUtil.generateTraceId());
+        RemoteWebSocketOutbound remoteOutbound = new RemoteWebSocketOutbound(this, envelope.sourceNode(), envelope.wsSessionId(),
+                envelope.userId(), envelope.sessionCode());
+        String requestId = null;
+        try {
+            if (envelope.kind() == ClusterEnvelope.Kind.DETACH) {
+                sessionManager.detachRemote(envelope.userId(), envelope.sessionCode(), envelope.connectionId());
+                return;
+            }
+            WebSocketMessage<WebSocketMessageData> wsMessage = objectMapper.readValue(envelope.payload(), MESSAGE_TYPE);
+            requestId = wsMessage.getRequestId();
+            WebSocketMessageType messageType = WebSocketMessageType.valueOf(wsMessage.getType());
+            // 用户消息开始新的请求，使用会话的任一上下文；其他消息针对执行中的请求
+            boolean newRequest = messageType == WebSocketMessageType.USER_MESSAGE || messageType == WebSocketMessageType.USER_ORDER;
+            WebSocketSessionContext context = sessionManager.findOwnerContext(envelope.userId(), envelope.sessionCode(),
+                    newRequest ? null : requestId);
+            if (context == null) {
+                remoteOutbound.offer(errorMessage(envelope.sessionCode(), requestId, "没有执行中的请求: " + requestId));
+                return;
+            }
+            log.info("收到转发的WebSocket消息: connectionId={}, type={}", envelope.connectionId(), messageType);
+            if (messageType == WebSocketMessageType.RESUME) {
+                long lastSeq = wsMessage.getData() instanceof ResumeRequestData resumeData && resumeData.getLastSeq() != null
+                        ? resumeData.getLastSeq() : 0;
+                sessionManager.resumeRemote(context, remoteOutbound, requestId, lastSeq);
+                return;
+            }
+            if (!remoteOutbound.getConnectionId().equals(context.getConnectionId())) {
+                // 客户端未发送 RESUME，之后的输出发送到当前连接
+                sessionManager.attachRemote(context, remoteOutbound);
+            }
+            InboundHandler handler = inboundHandler;
+            if (handler == null) {
+                throw new IllegalStateException("未注册转发消息处理器");
+            }
+            handler.handle(context, messageType, wsMessage);
+        } catch (Exception e) {
+            log.error("处理转发的WebSocket消息失败: connectionId={}, error={}", envelope.connectionId(), e.getMessage(), e);
+            remoteOutbound.offer(errorMessage(envelope.sessionCode(), requestId, e.getMessage()));
+        } finally {
+            TraceIdUtil.clear();
+        }
+    }
+
+    private boolean publish(String nodeId, ClusterEnvelope envelope) {
+        try {
+            Long receivers = stringRedisTemplate.convertAndSend(channel(nodeId), objectMapper.writeValueAsString(envelope));
+            return receivers != null && receivers > 0;
+        } catch (Exception e) {
+            log.error("发布节点间消息失败: nodeId={}, kind={}, error={}", nodeId, envelope.kind(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private static WebSocketMessage<?> errorMessage(String sessionCode, String requestId, String error) {
+        return WebSocketMessage.builder()
+                .type(WebSocketMessageType.AGENT_PROMPT.name())
+                .sessionCode(sessionCode)
+                .requestId(requestId)
+                .data(AgentPromptData.builder().promptType(AgentPromptType.ERROR).message(error).build())
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static String channel(String nodeId) {
+        return CHANNEL_PREFIX + nodeId;
+    }
+}
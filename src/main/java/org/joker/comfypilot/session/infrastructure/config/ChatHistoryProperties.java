@@ -0,0 +1,29 @@
+package org.joker.comfypilot.session.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天历史配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session.history")
+public class ChatHistoryProperties {
+
+    /**
+     * 连接时加载到聊天记忆的最新消息数量
+     */
+    private Integer memoryWindow = 500;
+
+    /**
+     * 历史消息分页默认每页数量
+     */
+    private Integer defaultPageSize = 50;
+
+    /**
+     * 历史消息分页最大每页数量
+     */
+    private Integer maxPageSize = 200;
+}
@@ -0,0 +1,39 @@
+package org.joker.comfypilot.session.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天消息存储格式配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session.message.storage")
+public class ChatMessageStorageProperties {
+
+    /**
+     * 是否压缩较大的消息内容数据（如工具执行结果）
+     */
+    private Boolean compressionEnabled = true;
+
+    /**
+     * 消息内容数据超过该长度（字符）时压缩
+     */
+    private Integer compressionThreshold = 8192;
+
+    /**
+     * 是否在启动后于后台处理已有消息（改写为当前存储格式、补录多媒体引用）
+     */
+    private Boolean migrationEnabled = true;
+
+    /**
+     * 后台处理每批的消息数量
+     */
+    private Integer migrationBatchSize = 500;
+
+    /**
+     * 后台处理每批之间的间隔（毫秒），避免占满数据库
+     */
+    private Long migrationBatchInterval = 200L;
+}
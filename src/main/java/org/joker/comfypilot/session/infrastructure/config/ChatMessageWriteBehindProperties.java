@@ -0,0 +1,39 @@
+package org.joker.comfypilot.session.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天消息延迟写入（write-behind）配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session.message.write-behind")
+public class ChatMessageWriteBehindProperties {
+
+    /**
+     * 是否启用延迟批量写入，关闭时退化为同步逐条写入
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 单个会话缓冲的消息达到该数量时立即批量写入
+     */
+    private Integer batchSize = 50;
+
+    /**
+     * 后台定时刷新间隔（毫秒）
+     */
+    private Long flushInterval = 1000L;
+
+    /**
+     * 会话缓冲空闲多久后释放（毫秒）
+     */
+    private Long idleTimeout = 300000L;
+
+    /**
+     * 本地持久化日志目录，消息写入日志后才视为已确认，进程崩溃后启动时从日志恢复
+     */
+    private String journalPath = System.getProperty("user.home") + "/.comfy-pilot/chat-message-journal";
+}
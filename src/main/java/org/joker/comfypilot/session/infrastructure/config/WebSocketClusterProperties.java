@@ -0,0 +1,34 @@
+package org.joker.comfypilot.session.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket 多节点部署配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session.cluster")
+public class WebSocketClusterProperties {
+
+    /**
+     * 是否启用多节点路由，单节点部署无需启用
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 节点ID，为空时使用主机名加随机后缀
+     */
+    private String nodeId;
+
+    /**
+     * 会话归属记录的有效期（毫秒），节点宕机后超过该时间其他节点才接管会话
+     */
+    private Long ownershipTtl = 30000L;
+
+    /**
+     * 续期会话归属记录的间隔（毫秒），应小于 ownership-ttl
+     */
+    private Long heartbeatInterval = 10000L;
+}
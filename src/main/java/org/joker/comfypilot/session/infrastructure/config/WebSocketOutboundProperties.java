@@ -0,0 +1,29 @@
+package org.joker.comfypilot.session.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket 出站消息队列配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session.websocket.outbound")
+public class WebSocketOutboundProperties {
+
+    /**
+     * 单个连接最多排队的消息数，超过时断开连接（控制消息不丢弃）
+     */
+    private Integer capacity = 1024;
+
+    /**
+     * 高水位：排队消息数达到该值时，连续的 AGENT_STREAM 增量合并为一条消息
+     */
+    private Integer highWaterMark = 128;
+
+    /**
+     * 排队消息数持续超过高水位的最长时间（毫秒），超过后视为慢客户端并断开连接
+     */
+    private Long slowClientTimeout = 10000L;
+}
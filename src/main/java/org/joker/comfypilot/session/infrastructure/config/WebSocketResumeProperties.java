@@ -0,0 +1,34 @@
+package org.joker.comfypilot.session.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket 断线恢复配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session.websocket.resume")
+public class WebSocketResumeProperties {
+
+    /**
+     * 是否启用断线恢复，关闭时连接断开即结束会话上下文
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 每个会话保留的最近出站帧数量
+     */
+    private Integer replayBufferSize = 1024;
+
+    /**
+     * 连接断开后保留会话上下文等待重连的时间（毫秒），超时后按连接关闭处理
+     */
+    private Long timeout = 60000L;
+
+    /**
+     * 检查等待重连超时的间隔（毫秒）
+     */
+    private Long sweepInterval = 5000L;
+}
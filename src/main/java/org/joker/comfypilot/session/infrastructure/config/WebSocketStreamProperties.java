@@ -0,0 +1,44 @@
+package org.joker.comfypilot.session.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agent 流式输出发送配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session.websocket.stream")
+public class WebSocketStreamProperties {
+
+    /**
+     * 两次发送的最小间隔（毫秒），客户端接收及时时按该间隔合并增量
+     */
+    private Long minFlushInterval = 40L;
+
+    /**
+     * 增量在缓冲区中的最长停留时间（毫秒），积压或连接延迟较高时发送间隔不超过该值
+     */
+    private Long maxFlushInterval = 300L;
+
+    /**
+     * 单次发送的最大字符数，缓冲内容达到该值时立即发送
+     */
+    private Integer maxChunkChars = 2000;
+
+    /**
+     * 出站队列每积压该数量的消息，发送间隔增加一个最小间隔
+     */
+    private Integer queueDepthStep = 16;
+
+    /**
+     * 连接写入延迟计入发送间隔的比例
+     */
+    private Double latencyWeight = 0.5;
+
+    /**
+     * 增量到达间隔的平滑系数（0~1，越大越偏向最近的间隔）
+     */
+    private Double rateSmoothing = 0.3;
+}
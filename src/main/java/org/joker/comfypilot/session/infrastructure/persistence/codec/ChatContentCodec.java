@@ -0,0 +1,177 @@
+package org.joker.comfypilot.session.infrastructure.persistence.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.joker.comfypilot.common.config.JacksonConfig;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.session.infrastructure.config.ChatMessageStorageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 聊天消息内容数据（chat_content）存储编解码
+ * <p>
+ * 存储格式：
+ * <ul>
+ *     <li>旧格式：格式化（带缩进）的 JSON</li>
+ *     <li>版本1：压缩前的紧凑 JSON，超过 {@code session.message.storage.compression-threshold} 时压缩为
+ *     {@code {"$codec":"deflate","v":1,"data":"<Base64>"}}</li>
+ * </ul>
+ * 两种格式都是合法 JSON，可以保存在 PostgreSQL 的 JSONB 列中；读取时兼容所有格式。
+ */
+@Component
+public class ChatContentCodec {
+
+    /**
+     * 当前存储格式版本
+     */
+    public static final int VERSION = 1;
+
+    private static final String CODEC_FIELD = "$codec";
+    private static final String VERSION_FIELD = "v";
+    private static final String DATA_FIELD = "data";
+    private static final String DEFLATE = "deflate";
+
+    @Autowired
+    private ChatMessageStorageProperties properties;
+
+    /**
+     * 编码为存储格式
+     *
+     * @param json 消息内容数据 JSON
+     * @return 存储内容
+     */
+    public String encode(String json) {
+        if (StringUtils.isBlank(json)) {
+            return json;
+        }
+        if (!Boolean.TRUE.equals(properties.getCompressionEnabled()) || json.length() < properties.getCompressionThreshold()) {
+            return json;
+        }
+        String data = Base64.getEncoder().encodeToString(deflate(json.getBytes(StandardCharsets.UTF_8)));
+        // 压缩收益太小时保持原样，方便直接在数据库中查看
+        if (data.length() > json.length() * 0.8) {
+            return json;
+        }
+        ObjectNode envelope = JacksonConfig.getObjectMapper().createObjectNode();
+        envelope.put(CODEC_FIELD, DEFLATE);
+        envelope.put(VERSION_FIELD, VERSION);
+        envelope.put(DATA_FIELD, data);
+        return envelope.toString();
+    }
+
+    /**
+     * 从存储格式解码
+     *
+     * @param stored 存储内容
+     * @return 消息内容数据 JSON
+     */
+    public String decode(String stored) {
+        // JSONB 会重排字段顺序，不能只判断前缀
+        if (StringUtils.isBlank(stored) || !stored.contains(CODEC_FIELD)) {
+            return stored;
+        }
+        JsonNode envelope = readEnvelope(stored);
+        if (envelope == null) {
+            return stored;
+        }
+        String codec = envelope.get(CODEC_FIELD).asText();
+        if (!DEFLATE.equals(codec)) {
+            throw new BusinessException("不支持的消息内容编码: " + codec);
+        }
+        byte[] bytes = inflate(Base64.getDecoder().decode(envelope.path(DATA_FIELD).asText()));
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 是否需要改写为当前存储格式
+     *
+     * @param stored 存储内容
+     * @return 是否需要改写
+     */
+    public boolean needsRewrite(String stored) {
+        if (StringUtils.isBlank(stored)) {
+            return false;
+        }
+        if (stored.contains(CODEC_FIELD) && readEnvelope(stored) != null) {
+            return false;
+        }
+        // 旧格式带缩进换行；未压缩的大内容需要压缩
+        return stored.indexOf('\n') >= 0 || !stored.equals(encode(stored));
+    }
+
+    /**
+     * 解码任意格式的存储内容并转换为紧凑 JSON（写入时再由 {@link #encode} 决定是否压缩）
+     *
+     * @param stored 存储内容（任意格式）
+     * @return 紧凑 JSON
+     */
+    public String toCompactJson(String stored) {
+        String json = decode(stored);
+        if (StringUtils.isBlank(json)) {
+            return json;
+        }
+        ObjectMapper mapper = JacksonConfig.getObjectMapper();
+        try {
+            return mapper.writeValueAsString(mapper.readTree(json));
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("消息内容数据格式错误", e);
+        }
+    }
+
+    private static JsonNode readEnvelope(String stored) {
+        try {
+            JsonNode node = JacksonConfig.getObjectMapper().readTree(stored);
+            return node != null && node.isObject() && node.path(CODEC_FIELD).isTextual() ? node : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new BusinessException("消息内容数据已损坏");
+                }
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new BusinessException("消息内容数据已损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
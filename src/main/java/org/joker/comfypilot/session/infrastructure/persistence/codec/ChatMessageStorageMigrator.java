@@ -0,0 +1,114 @@
+package org.joker.comfypilot.session.infrastructure.persistence.codec;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.constant.RedisKeyConstants;
+import org.joker.comfypilot.common.util.RedisUtil;
+import org.joker.comfypilot.session.infrastructure.config.ChatMessageStorageProperties;
+import org.joker.comfypilot.session.infrastructure.persistence.mapper.ChatMessageMapper;
+import org.joker.comfypilot.session.infrastructure.persistence.po.ChatMessagePO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聊天消息存储格式后台改写
+ * <p>
+ * 启动后按消息ID顺序分批读取原始存储内容，把旧格式（带缩进的 JSON）或未压缩的大内容改写为当前格式。
+ * 进度保存在 Redis 中，重启后从上次位置继续；读取兼容所有格式，改写完成前不影响使用。
+ */
+@Slf4j
+@Component
+public class ChatMessageStorageMigrator implements CommandLineRunner {
+
+    @Autowired
+    private ChatMessageMapper chatMessageMapper;
+    @Autowired
+    private ChatContentCodec chatContentCodec;
+    @Autowired
+    private ChatMessageStorageProperties properties;
+    @Autowired
+    private RedisUtil redisUtil;
+
+    private volatile boolean stopped;
+
+    @Override
+    public void run(String... args) {
+        if (!Boolean.TRUE.equals(properties.getMigrationEnabled())) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "chat-message-storage-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopped = true;
+    }
+
+    private void migrate() {
+        String progressKey = RedisKeyConstants.getChatMessageStorageMigratedKey(ChatContentCodec.VERSION);
+        Object progress = redisUtil.get(progressKey);
+        long lastId = progress instanceof Number number ? number.longValue() : 0L;
+        long scanned = 0;
+        long rewritten = 0;
+        log.info("开始改写聊天消息存储格式: fromId={}", lastId);
+
+        try {
+            while (!stopped) {
+                // 读取原始列值（不经过类型处理器解码），才能判断存储格式
+                List<Map<String, Object>> rows = chatMessageMapper.selectMaps(new QueryWrapper<ChatMessagePO>()
+                        .select("id", "chat_content")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + properties.getMigrationBatchSize()));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : rows) {
+                    Long id = ((Number) value(row, "id")).longValue();
+                    String stored = text(value(row, "chat_content"));
+                    if (chatContentCodec.needsRewrite(stored)) {
+                        ChatMessagePO po = new ChatMessagePO();
+                        po.setId(id);
+                        po.setChatContent(chatContentCodec.toCompactJson(stored));
+                        chatMessageMapper.updateById(po);
+                        rewritten++;
+                    }
+                    lastId = id;
+                }
+                scanned += rows.size();
+                redisUtil.set(progressKey, lastId);
+                Thread.sleep(properties.getMigrationBatchInterval());
+            }
+            log.info("聊天消息存储格式改写{}: scanned={}, rewritten={}, lastId={}", stopped ? "已暂停" : "完成", scanned, rewritten, lastId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("改写聊天消息存储格式失败: lastId={}", lastId, e);
+        }
+    }
+
+    private static String text(Object value) throws SQLException {
+        if (value instanceof Clob clob) {
+            return clob.getSubString(1, (int) clob.length());
+        }
+        // PostgreSQL JSONB 列返回 PGobject，toString 即为 JSON 文本
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * 不同数据库返回的列名大小写不同
+     */
+    private static Object value(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+        return value != null ? value : row.get(column.toUpperCase());
+    }
+}
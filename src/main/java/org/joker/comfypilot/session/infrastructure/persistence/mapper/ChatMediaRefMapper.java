@@ -0,0 +1,12 @@
+package org.joker.comfypilot.session.infrastructure.persistence.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.joker.comfypilot.session.infrastructure.persistence.po.ChatMediaRefPO;
+
+/**
+ * 会话多媒体引用 Mapper 接口
+ */
+@Mapper
+public interface ChatMediaRefMapper extends BaseMapper<ChatMediaRefPO> {
+}
@@ -0,0 +1,118 @@
+package org.joker.comfypilot.session.infrastructure.persistence.media;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.constant.RedisKeyConstants;
+import org.joker.comfypilot.common.util.RedisUtil;
+import org.joker.comfypilot.session.infrastructure.config.ChatMessageStorageProperties;
+import org.joker.comfypilot.session.infrastructure.persistence.codec.ChatContentCodec;
+import org.joker.comfypilot.session.infrastructure.persistence.mapper.ChatMessageMapper;
+import org.joker.comfypilot.session.infrastructure.persistence.po.ChatMessagePO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已有消息的多媒体引用后台补录
+ * <p>
+ * 启动后按消息ID顺序分批读取消息内容数据，为记录多媒体引用之前保存的消息补录引用。
+ * 进度保存在 Redis 中，重启后从上次位置继续，全部完成后不再扫描
+ */
+@Slf4j
+@Component
+public class ChatMediaRefBackfill implements CommandLineRunner {
+
+    /**
+     * 补录完成后保存的进度
+     */
+    private static final long COMPLETED = -1L;
+
+    @Autowired
+    private ChatMessageMapper chatMessageMapper;
+    @Autowired
+    private ChatContentCodec chatContentCodec;
+    @Autowired
+    private ChatMediaRefRecorder chatMediaRefRecorder;
+    @Autowired
+    private ChatMessageStorageProperties properties;
+    @Autowired
+    private RedisUtil redisUtil;
+
+    private volatile boolean stopped;
+
+    @Override
+    public void run(String... args) {
+        if (!Boolean.TRUE.equals(properties.getMigrationEnabled())) {
+            return;
+        }
+        Thread thread = new Thread(this::backfill, "chat-media-ref-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopped = true;
+    }
+
+    private void backfill() {
+        String progressKey = RedisKeyConstants.CHAT_MEDIA_REF_BACKFILLED_KEY;
+        Object progress = redisUtil.get(progressKey);
+        long lastId = progress instanceof Number number ? number.longValue() : 0L;
+        if (lastId == COMPLETED) {
+            return;
+        }
+        long scanned = 0;
+        log.info("开始补录会话多媒体引用: fromId={}", lastId);
+
+        try {
+            while (!stopped) {
+                List<Map<String, Object>> rows = chatMessageMapper.selectMaps(new QueryWrapper<ChatMessagePO>()
+                        .select("id", "session_id", "chat_content")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + properties.getMigrationBatchSize()));
+                if (rows.isEmpty()) {
+                    redisUtil.set(progressKey, COMPLETED);
+                    break;
+                }
+                for (Map<String, Object> row : rows) {
+                    Long id = ((Number) value(row, "id")).longValue();
+                    Long sessionId = ((Number) value(row, "session_id")).longValue();
+                    chatMediaRefRecorder.record(sessionId, chatContentCodec.decode(text(value(row, "chat_content"))));
+                    lastId = id;
+                }
+                scanned += rows.size();
+                redisUtil.set(progressKey, lastId);
+                Thread.sleep(properties.getMigrationBatchInterval());
+            }
+            log.info("会话多媒体引用补录{}: scanned={}, lastId={}", stopped ? "已暂停" : "完成", scanned, lastId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("补录会话多媒体引用失败: lastId={}", lastId, e);
+        }
+    }
+
+    private static String text(Object value) throws SQLException {
+        if (value instanceof Clob clob) {
+            return clob.getSubString(1, (int) clob.length());
+        }
+        // PostgreSQL JSONB 列返回 PGobject，toString 即为 JSON 文本
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * 不同数据库返回的列名大小写不同
+     */
+    private static Object value(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+        return value != null ? value : row.get(column.toUpperCase());
+    }
+}
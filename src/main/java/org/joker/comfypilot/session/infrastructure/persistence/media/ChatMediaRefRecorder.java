@@ -0,0 +1,96 @@
+package org.joker.comfypilot.session.infrastructure.persistence.media;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.apache.commons.lang3.StringUtils;
+import org.joker.comfypilot.session.infrastructure.persistence.mapper.ChatMediaRefMapper;
+import org.joker.comfypilot.session.infrastructure.persistence.po.ChatMediaRefPO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 会话多媒体引用记录
+ * <p>
+ * 消息内容数据中的多媒体内容只保存哈希引用（{@code "mediaHash":"<SHA-256>"}），
+ * 保存消息时记录 会话ID -> 内容哈希，访问多媒体内容时按 (session_id, media_hash) 索引校验，不再扫描会话的全部消息。
+ * 表上没有唯一约束（并发保存时可能重复记录，不影响校验），插入失败不会中断外层事务
+ */
+@Component
+public class ChatMediaRefRecorder {
+
+    private static final String MEDIA_HASH_FIELD = "\"mediaHash\"";
+
+    /**
+     * 兼容紧凑格式和旧的带缩进格式
+     */
+    private static final Pattern MEDIA_HASH_PATTERN = Pattern.compile("\"mediaHash\"\\s*:\\s*\"([0-9a-f]{64})\"");
+
+    @Autowired
+    private ChatMediaRefMapper chatMediaRefMapper;
+
+    /**
+     * 记录消息内容数据中引用的多媒体内容
+     *
+     * @param sessionId   会话ID
+     * @param chatContent 消息内容数据（JSON）
+     */
+    public void record(Long sessionId, String chatContent) {
+        if (sessionId == null) {
+            return;
+        }
+        for (String mediaHash : extractMediaHashes(chatContent)) {
+            if (!exists(sessionId, mediaHash)) {
+                chatMediaRefMapper.insert(ChatMediaRefPO.builder()
+                        .sessionId(sessionId)
+                        .mediaHash(mediaHash)
+                        .createTime(LocalDateTime.now())
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * 会话的消息是否引用了多媒体内容
+     *
+     * @param sessionId 会话ID
+     * @param mediaHash 内容哈希
+     * @return 是否引用
+     */
+    public boolean exists(Long sessionId, String mediaHash) {
+        LambdaQueryWrapper<ChatMediaRefPO> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ChatMediaRefPO::getSessionId, sessionId)
+                .eq(ChatMediaRefPO::getMediaHash, mediaHash);
+        return chatMediaRefMapper.exists(wrapper);
+    }
+
+    /**
+     * 删除会话的全部多媒体引用
+     *
+     * @param sessionId 会话ID
+     */
+    public void deleteBySessionId(Long sessionId) {
+        LambdaQueryWrapper<ChatMediaRefPO> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ChatMediaRefPO::getSessionId, sessionId);
+        chatMediaRefMapper.delete(wrapper);
+    }
+
+    /**
+     * 提取消息内容数据中的多媒体内容哈希（去重，保持出现顺序）
+     */
+    static Set<String> extractMediaHashes(String chatContent) {
+        Set<String> hashes = new LinkedHashSet<>();
+        if (StringUtils.isEmpty(chatContent) || !chatContent.contains(MEDIA_HASH_FIELD)) {
+            return hashes;
+        }
+        Matcher matcher = MEDIA_HASH_PATTERN.matcher(chatContent);
+        while (matcher.find()) {
+            hashes.add(matcher.group(1));
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,44 @@
+package org.joker.comfypilot.session.infrastructure.persistence.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话多媒体引用持久化对象
+ * 记录会话消息中引用的多媒体内容哈希，用于按索引校验多媒体内容的访问权限
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("chat_media_ref")
+public class ChatMediaRefPO {
+
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 会话ID
+     */
+    private Long sessionId;
+
+    /**
+     * 内容哈希（SHA-256）
+     */
+    private String mediaHash;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
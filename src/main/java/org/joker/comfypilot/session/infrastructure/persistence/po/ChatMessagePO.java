@@ -1,12 +1,16 @@
 package org.joker.comfypilot.session.infrastructure.persistence.po;
 
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
+import org.joker.comfypilot.common.infrastructure.persistence.annotation.IgnoreLogicalDeleteInsert;
 import org.joker.comfypilot.common.infrastructure.persistence.po.BasePO;
+import org.joker.comfypilot.session.infrastructure.persistence.typehandler.ChatContentTypeHandler;
+import org.joker.comfypilot.session.infrastructure.persistence.typehandler.JsonTextTypeHandler;
 
 /**
  * 消息持久化对象
@@ -16,6 +20,7 @@ import org.joker.comfypilot.common.infrastructure.persistence.po.BasePO;
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
+@IgnoreLogicalDeleteInsert
 @TableName(value = "chat_message", autoResultMap = true)
 public class ChatMessagePO extends BasePO {
 
@@ -52,12 +57,14 @@ public class ChatMessagePO extends BasePO {
     private String content;
 
     /**
-     * 消息内容数据
+     * 消息内容数据（存储格式见 ChatContentCodec）
      */
+    @TableField(typeHandler = ChatContentTypeHandler.class)
     private String chatContent;
 
     /**
      * 元数据（JSON类型）
      */
+    @TableField(typeHandler = JsonTextTypeHandler.class)
     private String metadata;
 }
@@ -6,13 +6,22 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.joker.comfypilot.common.enums.MessageRole;
 import org.joker.comfypilot.session.domain.entity.ChatMessage;
 import org.joker.comfypilot.session.domain.enums.MessageStatus;
+import org.joker.comfypilot.session.domain.event.ChatMessageDeletedEvent;
+import org.joker.comfypilot.session.domain.event.ChatMessagesSavedEvent;
+import org.joker.comfypilot.session.domain.event.ChatSessionMessagesDeletedEvent;
 import org.joker.comfypilot.session.domain.repository.ChatMessageRepository;
+import org.joker.comfypilot.session.infrastructure.config.ChatMessageWriteBehindProperties;
 import org.joker.comfypilot.session.infrastructure.persistence.converter.ChatMessageConverter;
 import org.joker.comfypilot.session.infrastructure.persistence.mapper.ChatMessageMapper;
+import org.joker.comfypilot.session.infrastructure.persistence.media.ChatMediaRefRecorder;
 import org.joker.comfypilot.session.infrastructure.persistence.po.ChatMessagePO;
+import org.joker.comfypilot.session.infrastructure.persistence.writebehind.ChatMessageWriteBehindBuffer;
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -23,22 +32,80 @@ import java.util.stream.Collectors;
 @Repository
 public class ChatMessageRepositoryImpl implements ChatMessageRepository {
 
+    /**
+     * 客户端展示的消息角色
+     */
+    private static final List<String> CLIENT_ROLES = List.of(
+            MessageRole.USER.name(),
+            MessageRole.ASSISTANT.name(),
+            MessageRole.AGENT_MESSAGE.name(),
+            MessageRole.AGENT_PLAN.name(),
+            MessageRole.AGENT_STATUS.name(),
+            MessageRole.USER_ORDER.name(),
+            MessageRole.AGENT_ERROR.name()
+    );
+
+    /**
+     * 加载到聊天记忆的消息角色
+     */
+    private static final List<String> MEMORY_ROLES = List.of(
+            MessageRole.USER.name(),
+            MessageRole.ASSISTANT.name(),
+            MessageRole.TOOL_EXECUTION_RESULT.name(),
+            MessageRole.AGENT_PROMPT.name(),
+            MessageRole.ASSISTANT_PROMPT.name()
+    );
+
     @Autowired
     private ChatMessageMapper chatMessageMapper;
     @Autowired
     private ChatMessageConverter chatMessageConverter;
+    @Autowired
+    private ChatMessageWriteBehindBuffer writeBehindBuffer;
+    @Autowired
+    private ChatMessageWriteBehindProperties writeBehindProperties;
+    @Autowired
+    private ChatMediaRefRecorder chatMediaRefRecorder;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public ChatMessage save(ChatMessage chatMessage) {
         ChatMessagePO po = chatMessageConverter.toPO(chatMessage);
         chatMessageMapper.insert(po);
-        return chatMessageConverter.toDomain(po);
+        chatMediaRefRecorder.record(po.getSessionId(), po.getChatContent());
+        ChatMessage saved = chatMessageConverter.toDomain(po);
+        eventPublisher.publishEvent(new ChatMessagesSavedEvent(List.of(saved)));
+        return saved;
     }
 
     @Override
     public void saveAll(List<ChatMessage> chatMessages) {
         List<ChatMessagePO> poList = chatMessages.stream().map(chatMessageConverter::toPO).toList();
         chatMessageMapper.insert(poList);
+        poList.forEach(po -> chatMediaRefRecorder.record(po.getSessionId(), po.getChatContent()));
+        eventPublisher.publishEvent(new ChatMessagesSavedEvent(poList.stream().map(chatMessageConverter::toDomain).toList()));
+    }
+
+    @Override
+    public ChatMessage saveDeferred(ChatMessage chatMessage) {
+        if (!Boolean.TRUE.equals(writeBehindProperties.getEnabled())) {
+            return save(chatMessage);
+        }
+        ChatMessagePO po = chatMessageConverter.toPO(chatMessage);
+        writeBehindBuffer.enqueue(po);
+        chatMediaRefRecorder.record(po.getSessionId(), po.getChatContent());
+        ChatMessage saved = chatMessageConverter.toDomain(po);
+        eventPublisher.publishEvent(new ChatMessagesSavedEvent(List.of(saved)));
+        return saved;
+    }
+
+    /**
+     * 按会话读取或批量修改前都会先调用，保证能看到延迟保存的消息
+     */
+    @Override
+    public void flushDeferred(Long sessionId) {
+        writeBehindBuffer.flush(sessionId);
     }
 
     @Override
@@ -49,17 +116,10 @@ public class ChatMessageRepositoryImpl implements ChatMessageRepository {
 
     @Override
     public List<ChatMessage> findClientMessagesBySessionId(Long sessionId) {
+        flushDeferred(sessionId);
         LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(ChatMessagePO::getSessionId, sessionId)
-                .in(ChatMessagePO::getRole, List.of(
-                        MessageRole.USER.name(),
-                        MessageRole.ASSISTANT.name(),
-                        MessageRole.AGENT_MESSAGE.name(),
-                        MessageRole.AGENT_PLAN.name(),
-                        MessageRole.AGENT_STATUS.name(),
-                        MessageRole.USER_ORDER.name(),
-                        MessageRole.AGENT_ERROR.name()
-                ))
+                .in(ChatMessagePO::getRole, CLIENT_ROLES)
                 .orderByAsc(ChatMessagePO::getRequestId, ChatMessagePO::getCreateTime);
         return chatMessageMapper.selectList(wrapper).stream()
                 .map(chatMessageConverter::toDomain)
@@ -68,15 +128,10 @@ public class ChatMessageRepositoryImpl implements ChatMessageRepository {
 
     @Override
     public List<ChatMessage> findMessagesBySessionId(Long sessionId) {
+        flushDeferred(sessionId);
         LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(ChatMessagePO::getSessionId, sessionId)
-                .in(ChatMessagePO::getRole, List.of(
-                        MessageRole.USER.name(),
-                        MessageRole.ASSISTANT.name(),
-                        MessageRole.TOOL_EXECUTION_RESULT.name(),
-                        MessageRole.AGENT_PROMPT.name(),
-                        MessageRole.ASSISTANT_PROMPT.name()
-                ))
+                .in(ChatMessagePO::getRole, MEMORY_ROLES)
                 .eq(ChatMessagePO::getStatus, MessageStatus.ACTIVE.name())
                 .orderByAsc(ChatMessagePO::getRequestId, ChatMessagePO::getCreateTime);
         return chatMessageMapper.selectList(wrapper).stream()
@@ -84,8 +139,58 @@ public class ChatMessageRepositoryImpl implements ChatMessageRepository {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<ChatMessage> findClientMessagesBefore(Long sessionId, String requestId, LocalDateTime createTime, Long id, int limit) {
+        flushDeferred(sessionId);
+        LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ChatMessagePO::getSessionId, sessionId)
+                .in(ChatMessagePO::getRole, CLIENT_ROLES);
+        if (requestId != null) {
+            // (request_id, create_time, id) < (游标)
+            wrapper.and(w -> w.lt(ChatMessagePO::getRequestId, requestId)
+                    .or(w1 -> w1.eq(ChatMessagePO::getRequestId, requestId).lt(ChatMessagePO::getCreateTime, createTime))
+                    .or(w2 -> w2.eq(ChatMessagePO::getRequestId, requestId).eq(ChatMessagePO::getCreateTime, createTime).lt(ChatMessagePO::getId, id)));
+        }
+        wrapper.orderByDesc(ChatMessagePO::getRequestId, ChatMessagePO::getCreateTime, ChatMessagePO::getId)
+                .last("LIMIT " + limit);
+        return chatMessageMapper.selectList(wrapper).stream()
+                .map(chatMessageConverter::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ChatMessage> findLatestMessagesBySessionId(Long sessionId, int limit) {
+        flushDeferred(sessionId);
+        LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ChatMessagePO::getSessionId, sessionId)
+                .in(ChatMessagePO::getRole, MEMORY_ROLES)
+                .eq(ChatMessagePO::getStatus, MessageStatus.ACTIVE.name())
+                .orderByDesc(ChatMessagePO::getRequestId, ChatMessagePO::getCreateTime, ChatMessagePO::getId)
+                .last("LIMIT " + limit);
+        List<ChatMessage> messages = chatMessageMapper.selectList(wrapper).stream()
+                .map(chatMessageConverter::toDomain)
+                .collect(Collectors.toList());
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    @Override
+    public List<ChatMessage> findEarliestMessagesBySessionId(Long sessionId, int limit) {
+        flushDeferred(sessionId);
+        LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ChatMessagePO::getSessionId, sessionId)
+                .in(ChatMessagePO::getRole, MEMORY_ROLES)
+                .eq(ChatMessagePO::getStatus, MessageStatus.ACTIVE.name())
+                .orderByAsc(ChatMessagePO::getRequestId, ChatMessagePO::getCreateTime, ChatMessagePO::getId)
+                .last("LIMIT " + limit);
+        return chatMessageMapper.selectList(wrapper).stream()
+                .map(chatMessageConverter::toDomain)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<ChatMessage> findBySessionIdWithPagination(Long sessionId, int offset, int limit) {
+        flushDeferred(sessionId);
         Page<ChatMessagePO> page = new Page<>(offset / limit + 1, limit);
         LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(ChatMessagePO::getSessionId, sessionId)
@@ -98,6 +203,7 @@ public class ChatMessageRepositoryImpl implements ChatMessageRepository {
 
     @Override
     public long countBySessionId(Long sessionId) {
+        flushDeferred(sessionId);
         LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(ChatMessagePO::getSessionId, sessionId);
         return chatMessageMapper.selectCount(wrapper);
@@ -110,19 +216,51 @@ public class ChatMessageRepositoryImpl implements ChatMessageRepository {
             po.setIsDeleted(System.currentTimeMillis());
             chatMessageMapper.updateById(po);
         }
+        eventPublisher.publishEvent(new ChatMessageDeletedEvent(id));
     }
 
     @Override
     public void deleteBySessionId(Long sessionId) {
+        flushDeferred(sessionId);
         LambdaQueryWrapper<ChatMessagePO> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(ChatMessagePO::getSessionId, sessionId);
         chatMessageMapper.delete(wrapper);
+        chatMediaRefRecorder.deleteBySessionId(sessionId);
+        eventPublisher.publishEvent(new ChatSessionMessagesDeletedEvent(sessionId));
+    }
+
+    @Override
+    public boolean existsMediaReference(Long sessionId, String mediaHash) {
+        return chatMediaRefRecorder.exists(sessionId, mediaHash);
     }
 
     @Override
     public void archiveBySessionId(Long sessionId) {
+        flushDeferred(sessionId);
         LambdaUpdateWrapper<ChatMessagePO> wrapper = new LambdaUpdateWrapper<>();
         wrapper.eq(ChatMessagePO::getSessionId, sessionId).set(ChatMessagePO::getStatus, MessageStatus.ARCHIVED.name());
         chatMessageMapper.update(wrapper);
     }
+
+    @Override
+    public String archiveBySessionIdBeforeRequest(Long sessionId, String requestId) {
+        flushDeferred(sessionId);
+        LambdaQueryWrapper<ChatMessagePO> queryWrapper = new LambdaQueryWrapper<ChatMessagePO>()
+                .select(ChatMessagePO::getRequestId)
+                .eq(ChatMessagePO::getSessionId, sessionId)
+                .lt(ChatMessagePO::getRequestId, requestId)
+                .orderByDesc(ChatMessagePO::getRequestId)
+                .last("LIMIT 1");
+        List<ChatMessagePO> latest = chatMessageMapper.selectList(queryWrapper);
+        if (latest.isEmpty()) {
+            return null;
+        }
+
+        LambdaUpdateWrapper<ChatMessagePO> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.eq(ChatMessagePO::getSessionId, sessionId)
+                .lt(ChatMessagePO::getRequestId, requestId)
+                .set(ChatMessagePO::getStatus, MessageStatus.ARCHIVED.name());
+        chatMessageMapper.update(wrapper);
+        return latest.get(0).getRequestId();
+    }
 }
@@ -2,12 +2,15 @@ package org.joker.comfypilot.session.infrastructure.persistence.repository;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import org.joker.comfypilot.session.domain.entity.ChatSession;
+import org.joker.comfypilot.session.domain.event.ChatSessionDeletedEvent;
+import org.joker.comfypilot.session.domain.event.ChatSessionSavedEvent;
 import org.joker.comfypilot.session.domain.repository.ChatSessionRepository;
 import org.joker.comfypilot.session.infrastructure.persistence.converter.ChatSessionConverter;
 import org.joker.comfypilot.session.infrastructure.persistence.mapper.ChatSessionMapper;
 import org.joker.comfypilot.session.infrastructure.persistence.po.ChatSessionPO;
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,12 +26,16 @@ public class ChatSessionRepositoryImpl implements ChatSessionRepository {
     private ChatSessionMapper chatSessionMapper;
     @Autowired
     private ChatSessionConverter chatSessionConverter;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public ChatSession save(ChatSession chatSession) {
         ChatSessionPO po = chatSessionConverter.toPO(chatSession);
         chatSessionMapper.insert(po);
-        return chatSessionConverter.toDomain(po);
+        ChatSession saved = chatSessionConverter.toDomain(po);
+        eventPublisher.publishEvent(new ChatSessionSavedEvent(saved));
+        return saved;
     }
 
     @Override
@@ -36,7 +43,9 @@ public class ChatSessionRepositoryImpl implements ChatSessionRepository {
         ChatSessionPO po = chatSessionConverter.toPO(chatSession);
         po.setId(id);
         chatSessionMapper.updateById(po);
-        return chatSessionConverter.toDomain(po);
+        ChatSession updated = chatSessionConverter.toDomain(po);
+        eventPublisher.publishEvent(new ChatSessionSavedEvent(updated));
+        return updated;
     }
 
     @Override
@@ -53,6 +62,13 @@ public class ChatSessionRepositoryImpl implements ChatSessionRepository {
         return Optional.ofNullable(po).map(chatSessionConverter::toDomain);
     }
 
+    @Override
+    public List<ChatSession> findAll() {
+        return chatSessionMapper.selectList(null).stream()
+                .map(chatSessionConverter::toDomain)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<ChatSession> findByUserId(Long userId) {
         LambdaQueryWrapper<ChatSessionPO> wrapper = new LambdaQueryWrapper<>();
@@ -80,11 +96,14 @@ public class ChatSessionRepositoryImpl implements ChatSessionRepository {
     public ChatSession updateById(ChatSession chatSession) {
         ChatSessionPO po = chatSessionConverter.toPO(chatSession);
         chatSessionMapper.updateById(po);
-        return chatSessionConverter.toDomain(po);
+        ChatSession updated = chatSessionConverter.toDomain(po);
+        eventPublisher.publishEvent(new ChatSessionSavedEvent(updated));
+        return updated;
     }
 
     @Override
     public void deleteById(Long id) {
         chatSessionMapper.deleteById(id);
+        eventPublisher.publishEvent(new ChatSessionDeletedEvent(id));
     }
 }
@@ -0,0 +1,31 @@
+package org.joker.comfypilot.session.infrastructure.persistence.typehandler;
+
+import org.joker.comfypilot.common.util.SpringContextUtil;
+import org.joker.comfypilot.session.infrastructure.persistence.codec.ChatContentCodec;
+
+/**
+ * 消息内容数据（chat_content）类型处理器，读写时经过 {@link ChatContentCodec} 编解码
+ */
+public class ChatContentTypeHandler extends JsonTextTypeHandler {
+
+    private volatile ChatContentCodec codec;
+
+    @Override
+    protected String toStored(String value) {
+        return codec().encode(value);
+    }
+
+    @Override
+    protected String fromStored(String stored) {
+        return codec().decode(stored);
+    }
+
+    private ChatContentCodec codec() {
+        ChatContentCodec current = codec;
+        if (current == null) {
+            current = SpringContextUtil.getBean(ChatContentCodec.class);
+            codec = current;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,60 @@
+package org.joker.comfypilot.session.infrastructure.persistence.typehandler;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.*;
+
+/**
+ * JSON 文本类型处理器
+ * PostgreSQL 上以未指定类型传参，由数据库按列类型（JSONB 或 TEXT）转换；其他数据库（内嵌 H2）按字符串处理。
+ * 空字符串不是合法 JSON，保存为 null。
+ */
+public class JsonTextTypeHandler extends BaseTypeHandler<String> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        String value = toStored(parameter);
+        if (!isPostgres(ps)) {
+            ps.setString(i, value);
+        } else if (StringUtils.isBlank(value)) {
+            ps.setNull(i, Types.OTHER);
+        } else {
+            ps.setObject(i, value, Types.OTHER);
+        }
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return fromStored(rs.getString(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return fromStored(rs.getString(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return fromStored(cs.getString(columnIndex));
+    }
+
+    /**
+     * 转换为存储内容
+     */
+    protected String toStored(String value) {
+        return value;
+    }
+
+    /**
+     * 从存储内容转换
+     */
+    protected String fromStored(String stored) {
+        return stored;
+    }
+
+    private static boolean isPostgres(PreparedStatement ps) throws SQLException {
+        return "PostgreSQL".equals(ps.getConnection().getMetaData().getDatabaseProductName());
+    }
+}
@@ -0,0 +1,198 @@
+package org.joker.comfypilot.session.infrastructure.persistence.writebehind;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.session.infrastructure.persistence.po.ChatMessagePO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 聊天消息本地持久化日志
+ * 每个会话一个日志文件（每行一条 JSON 格式的 ChatMessagePO），
+ * 追加后立即 fsync，批量写入数据库成功后清空。
+ * 上次进程残留的日志在恢复时先改名为 {@code <会话ID>.<时间戳>.recovering}，与之后新写入的日志分开，
+ * 补写到数据库后删除，补写失败时保留到下次启动再恢复。
+ * <p>
+ * 使用独立的 ObjectMapper（ISO 时间格式、Long 不转字符串），保证恢复时时间精度不丢失
+ */
+@Slf4j
+public class ChatMessageJournal {
+
+    private static final String FILE_SUFFIX = ".journal";
+
+    private static final String RECOVERING_SUFFIX = ".recovering";
+
+    private final Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    public ChatMessageJournal(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new BusinessException("创建消息日志目录失败: " + directory, e);
+        }
+    }
+
+    /**
+     * 打开会话的日志文件（追加模式）
+     */
+    public FileChannel open(Long sessionId) throws IOException {
+        return FileChannel.open(resolve(sessionId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 追加一条消息并刷盘，返回即表示消息已确认
+     */
+    public void append(FileChannel channel, ChatMessagePO po) throws IOException {
+        byte[] line = objectMapper.writeValueAsBytes(po);
+        ByteBuffer buffer = ByteBuffer.allocate(line.length + 1);
+        buffer.put(line).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * 清空日志（消息已全部写入数据库）
+     */
+    public void reset(FileChannel channel) throws IOException {
+        channel.truncate(0);
+        channel.force(false);
+    }
+
+    /**
+     * 关闭日志文件，日志为空时删除文件
+     */
+    public void close(Long sessionId, FileChannel channel) {
+        try {
+            boolean empty = channel.size() == 0;
+            channel.close();
+            if (empty) {
+                Files.deleteIfExists(resolve(sessionId));
+            }
+        } catch (IOException e) {
+            log.warn("关闭消息日志失败: sessionId={}", sessionId, e);
+        }
+    }
+
+    /**
+     * 读取所有残留的日志（上次进程未写入数据库的消息）
+     * 残留日志先改名，之后同一会话新写入的消息进入新的日志文件，清空新日志不会影响未恢复的消息
+     *
+     * @return 残留日志（同一会话按改名先后排列，文件内按写入顺序）
+     */
+    public List<RecoveredJournal> recover() {
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                Long sessionId = parseSessionId(file);
+                if (sessionId != null) {
+                    Files.move(file, directory.resolve(sessionId + "." + now + RECOVERING_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        } catch (IOException e) {
+            throw new BusinessException("读取消息日志失败: " + directory, e);
+        }
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + RECOVERING_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            throw new BusinessException("读取消息日志失败: " + directory, e);
+        }
+        files.sort(null);
+
+        List<RecoveredJournal> recovered = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                Long sessionId = parseSessionId(file);
+                if (sessionId == null) {
+                    continue;
+                }
+                List<ChatMessagePO> messages = new ArrayList<>();
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isBlank()) {
+                            continue;
+                        }
+                        try {
+                            messages.add(objectMapper.readValue(line, ChatMessagePO.class));
+                        } catch (IOException e) {
+                            // 崩溃时最后一行可能只写了一半，该行未完成刷盘，不属于已确认的消息
+                            log.warn("跳过损坏的消息日志行: file={}", file, e);
+                        }
+                    }
+                }
+                if (messages.isEmpty()) {
+                    delete(file);
+                } else {
+                    recovered.add(new RecoveredJournal(sessionId, file, messages));
+                }
+            }
+        } catch (IOException e) {
+            throw new BusinessException("读取消息日志失败: " + directory, e);
+        }
+        return recovered;
+    }
+
+    /**
+     * 删除已恢复的日志文件
+     */
+    public void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除消息日志失败: file={}", file, e);
+        }
+    }
+
+    private Path resolve(Long sessionId) {
+        return directory.resolve(sessionId + FILE_SUFFIX);
+    }
+
+    /**
+     * 从文件名解析会话ID，非本组件写入的文件（文件名不以会话ID开头）返回 null，不影响其他日志的恢复
+     */
+    private static Long parseSessionId(Path file) {
+        String fileName = file.getFileName().toString();
+        try {
+            return Long.valueOf(fileName.substring(0, fileName.indexOf('.')));
+        } catch (NumberFormatException e) {
+            log.warn("跳过无法识别的消息日志文件: file={}", file);
+            return null;
+        }
+    }
+
+    /**
+     * 残留的日志
+     *
+     * @param sessionId 会话ID
+     * @param file      改名后的日志文件
+     * @param messages  消息列表（按写入顺序）
+     */
+    public record RecoveredJournal(Long sessionId, Path file, List<ChatMessagePO> messages) {
+    }
+}
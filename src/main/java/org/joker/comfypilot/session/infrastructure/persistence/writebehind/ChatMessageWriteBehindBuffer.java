@@ -0,0 +1,241 @@
+package org.joker.comfypilot.session.infrastructure.persistence.writebehind;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.session.infrastructure.config.ChatMessageWriteBehindProperties;
+import org.joker.comfypilot.session.infrastructure.persistence.mapper.ChatMessageMapper;
+import org.joker.comfypilot.session.infrastructure.persistence.po.ChatMessagePO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 聊天消息延迟批量写入缓冲区
+ * 每个会话一个缓冲区：消息先写入本地日志并刷盘（即视为已确认），再进入内存缓冲，
+ * 在迭代结束、中断、连接关闭、缓冲达到批量大小或定时任务触发时，通过 JDBC 批量插入数据库。
+ * <p>
+ * 消息ID与创建时间在入队时分配，保证批量写入后的顺序与入队顺序一致；
+ * Bean 初始化时（接收请求之前）会把上次进程残留在日志中的消息补写到数据库。
+ */
+@Slf4j
+@Component
+public class ChatMessageWriteBehindBuffer {
+
+    @Autowired
+    private ChatMessageMapper chatMessageMapper;
+    @Autowired
+    private ChatMessageWriteBehindProperties properties;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ChatMessageJournal journal;
+
+    /**
+     * Key: 会话ID
+     * Value: 会话缓冲区
+     */
+    private final Map<Long, SessionBuffer> buffers = new ConcurrentHashMap<>(1024);
+
+    @PostConstruct
+    public void init() {
+        journal = new ChatMessageJournal(Path.of(properties.getJournalPath()));
+        // 在 Web 服务启动、定时任务开始之前完成恢复，恢复期间不会有新消息入队
+        recover();
+    }
+
+    /**
+     * 恢复日志中未写入数据库的消息
+     */
+    private void recover() {
+        for (ChatMessageJournal.RecoveredJournal recovered : journal.recover()) {
+            Long sessionId = recovered.sessionId();
+            List<ChatMessagePO> messages = recovered.messages();
+            try {
+                // 日志清空前进程可能已经提交了部分批次，过滤掉已存在的消息
+                Set<Long> existIds = chatMessageMapper.selectBatchIds(messages.stream().map(ChatMessagePO::getId).toList())
+                        .stream()
+                        .map(ChatMessagePO::getId)
+                        .collect(Collectors.toSet());
+                List<ChatMessagePO> missing = messages.stream().filter(po -> !existIds.contains(po.getId())).toList();
+                if (!missing.isEmpty()) {
+                    insertBatch(missing);
+                }
+                journal.delete(recovered.file());
+                log.info("从日志恢复聊天消息: sessionId={}, recovered={}", sessionId, missing.size());
+            } catch (Exception e) {
+                log.error("从日志恢复聊天消息失败，保留日志文件到下次启动: sessionId={}, file={}", sessionId, recovered.file(), e);
+            }
+        }
+    }
+
+    /**
+     * 消息入队，返回时消息已写入本地日志
+     *
+     * @param po 消息持久化对象（ID与创建时间为空时在此分配）
+     */
+    public void enqueue(ChatMessagePO po) {
+        if (po.getSessionId() == null) {
+            throw new BusinessException("消息缺少会话ID");
+        }
+        if (po.getId() == null) {
+            po.setId(IdWorker.getId());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (po.getCreateTime() == null) {
+            po.setCreateTime(now);
+        }
+        if (po.getUpdateTime() == null) {
+            po.setUpdateTime(now);
+        }
+        if (po.getIsDeleted() == null) {
+            po.setIsDeleted(0L);
+        }
+
+        boolean needFlush;
+        while (true) {
+            SessionBuffer buffer = buffers.computeIfAbsent(po.getSessionId(), SessionBuffer::new);
+            buffer.lock.lock();
+            try {
+                if (buffer.evicted) {
+                    // 缓冲区已被释放，重新获取
+                    continue;
+                }
+                if (buffer.channel == null) {
+                    buffer.channel = journal.open(buffer.sessionId);
+                }
+                journal.append(buffer.channel, po);
+                buffer.pending.add(po);
+                buffer.lastActiveTime = System.currentTimeMillis();
+                needFlush = buffer.pending.size() >= properties.getBatchSize();
+            } catch (IOException e) {
+                throw new BusinessException("写入消息日志失败", e);
+            } finally {
+                buffer.lock.unlock();
+            }
+            break;
+        }
+
+        if (needFlush) {
+            flush(po.getSessionId());
+        }
+    }
+
+    /**
+     * 将会话缓冲的消息批量写入数据库
+     *
+     * @param sessionId 会话ID
+     * @return 是否全部写入成功（没有待写入的消息也视为成功）
+     */
+    public boolean flush(Long sessionId) {
+        if (sessionId == null) {
+            return true;
+        }
+        SessionBuffer buffer = buffers.get(sessionId);
+        if (buffer == null) {
+            return true;
+        }
+        buffer.lock.lock();
+        try {
+            if (buffer.pending.isEmpty()) {
+                return true;
+            }
+            insertBatch(buffer.pending);
+            int flushed = buffer.pending.size();
+            buffer.pending.clear();
+            if (buffer.channel != null) {
+                journal.reset(buffer.channel);
+            }
+            log.debug("聊天消息批量写入完成: sessionId={}, count={}", sessionId, flushed);
+            return true;
+        } catch (Exception e) {
+            // 消息仍保留在缓冲区和日志中，由下一次刷新重试
+            log.error("聊天消息批量写入失败: sessionId={}, pending={}", sessionId, buffer.pending.size(), e);
+            return false;
+        } finally {
+            buffer.lock.unlock();
+        }
+    }
+
+    /**
+     * 定时刷新所有会话缓冲，并释放空闲的缓冲区
+     */
+    @Scheduled(fixedDelayString = "${session.message.write-behind.flush-interval:1000}")
+    public void flushAll() {
+        long now = System.currentTimeMillis();
+        for (SessionBuffer buffer : buffers.values()) {
+            flush(buffer.sessionId);
+
+            if (now - buffer.lastActiveTime > properties.getIdleTimeout() && buffer.lock.tryLock()) {
+                try {
+                    if (buffer.pending.isEmpty() && !buffer.evicted) {
+                        buffer.evicted = true;
+                        buffers.remove(buffer.sessionId, buffer);
+                        if (buffer.channel != null) {
+                            journal.close(buffer.sessionId, buffer.channel);
+                            buffer.channel = null;
+                        }
+                    }
+                } finally {
+                    buffer.lock.unlock();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (SessionBuffer buffer : buffers.values()) {
+            flush(buffer.sessionId);
+            buffer.lock.lock();
+            try {
+                if (buffer.channel != null) {
+                    journal.close(buffer.sessionId, buffer.channel);
+                    buffer.channel = null;
+                }
+            } finally {
+                buffer.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中批量插入，保证一个批次要么全部写入要么全部回滚
+     */
+    private void insertBatch(List<ChatMessagePO> messages) {
+        List<ChatMessagePO> batch = new ArrayList<>(messages);
+        transactionTemplate.executeWithoutResult(status -> chatMessageMapper.insert(batch));
+    }
+
+    /**
+     * 单个会话的缓冲区
+     */
+    private static class SessionBuffer {
+
+        private final Long sessionId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<ChatMessagePO> pending = new ArrayList<>();
+        private FileChannel channel;
+        private volatile long lastActiveTime = System.currentTimeMillis();
+        private boolean evicted;
+
+        private SessionBuffer(Long sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.joker.comfypilot.session.infrastructure.websocket;
+
+import org.joker.comfypilot.session.infrastructure.config.WebSocketStreamProperties;
+
+/**
+ * 流式输出自适应发送策略
+ * <p>
+ * 决定缓冲的增量何时作为一帧发送：
+ * <ul>
+ *   <li>首个增量、块边界（代码块、工具调用开始）立即发送</li>
+ *   <li>发送间隔从最小间隔起，按出站队列积压和连接写入延迟增加，不超过最大间隔</li>
+ *   <li>模型输出慢（预计下一个增量到达时缓冲内容已超过最大间隔）时不再等待，立即发送</li>
+ * </ul>
+ * 策略只在增量到达时判断，缓冲内容在 {@link #getMaxFlushInterval()} 内没有后续增量时，由调用方的定时器发送。
+ * 每个请求一个实例，非线程安全
+ */
+public class AdaptiveStreamFlushPolicy {
+
+    private static final String CODE_FENCE = "```";
+
+    private final long minFlushInterval;
+    private final long maxFlushInterval;
+    private final int maxChunkChars;
+    private final int queueDepthStep;
+    private final double latencyWeight;
+    private final double rateSmoothing;
+
+    /**
+     * 上一个增量的到达时间，0 表示尚未收到
+     */
+    private long lastChunkTime;
+
+    /**
+     * 增量到达间隔的平滑值（毫秒），负数表示尚无样本
+     */
+    private double chunkInterval = -1;
+
+    /**
+     * 上次发送时间，0 表示尚未发送
+     */
+    private long lastFlushTime;
+
+    public AdaptiveStreamFlushPolicy(WebSocketStreamProperties properties) {
+        this.minFlushInterval = Math.max(0, properties.getMinFlushInterval());
+        this.maxFlushInterval = Math.max(minFlushInterval, properties.getMaxFlushInterval());
+        this.maxChunkChars = Math.max(1, properties.getMaxChunkChars());
+        this.queueDepthStep = Math.max(1, properties.getQueueDepthStep());
+        this.latencyWeight = Math.max(0, properties.getLatencyWeight());
+        this.rateSmoothing = Math.min(1, Math.max(0.01, properties.getRateSmoothing()));
+    }
+
+    /**
+     * 记录增量到达
+     */
+    public void recordChunk(long now) {
+        if (lastChunkTime > 0) {
+            long interval = Math.max(0, now - lastChunkTime);
+            chunkInterval = chunkInterval < 0 ? interval : chunkInterval + rateSmoothing * (interval - chunkInterval);
+        }
+        lastChunkTime = now;
+    }
+
+    /**
+     * 记录发送
+     */
+    public void recordFlush(long now) {
+        lastFlushTime = now;
+    }
+
+    /**
+     * 是否发送缓冲的增量
+     *
+     * @param now            当前时间
+     * @param bufferedChars  缓冲的字符数
+     * @param bufferedSince  缓冲中最早的增量到达时间
+     * @param boundary       本次增量是否开始了新的块
+     * @param queueDepth     连接出站队列中排队的消息数
+     * @param latencyMillis  连接的写入延迟估计（毫秒）
+     */
+    public boolean shouldFlush(long now, int bufferedChars, long bufferedSince, boolean boundary, int queueDepth, long latencyMillis) {
+        if (bufferedChars <= 0) {
+            return false;
+        }
+        if (lastFlushTime == 0 || boundary || bufferedChars >= maxChunkChars) {
+            return true;
+        }
+        if (now - lastFlushTime >= flushInterval(queueDepth, latencyMillis)) {
+            return true;
+        }
+        return chunkInterval >= 0 && now + chunkInterval - bufferedSince > maxFlushInterval;
+    }
+
+    /**
+     * 缓冲内容的最长停留时间
+     */
+    public long getMaxFlushInterval() {
+        return maxFlushInterval;
+    }
+
+    /**
+     * 新追加的内容是否包含代码块标记（标记可能跨增量，从追加前内容末尾的两个字符开始查找）
+     *
+     * @param buffer         缓冲内容
+     * @param previousLength 追加前的长度
+     */
+    public static boolean containsCodeFence(StringBuilder buffer, int previousLength) {
+        return buffer.indexOf(CODE_FENCE, Math.max(0, previousLength - (CODE_FENCE.length() - 1))) >= 0;
+    }
+
+    /**
+     * 当前的发送间隔
+     */
+    long flushInterval(int queueDepth, long latencyMillis) {
+        double interval = minFlushInterval
+                + (double) Math.max(0, queueDepth) / queueDepthStep * minFlushInterval
+                + Math.max(0, latencyMillis) * latencyWeight;
+        return Math.min(maxFlushInterval, Math.round(interval));
+    }
+}
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.data.message.*;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.joker.comfypilot.agent.domain.agent.OrderAgent;
@@ -23,11 +24,13 @@ import org.joker.comfypilot.session.application.dto.ChatMessageDTO;
 import org.joker.comfypilot.session.application.dto.WebSocketMessage;
 import org.joker.comfypilot.session.application.dto.WebSocketMessageData;
 import org.joker.comfypilot.session.application.dto.client2server.AgentToolCallResponseData;
+import org.joker.comfypilot.session.application.dto.client2server.ResumeRequestData;
 import org.joker.comfypilot.session.application.dto.server2client.AgentPromptData;
 import org.joker.comfypilot.session.application.service.ChatSessionService;
 import org.joker.comfypilot.session.domain.context.WebSocketSessionContext;
 import org.joker.comfypilot.session.domain.enums.AgentPromptType;
 import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
+import org.joker.comfypilot.session.infrastructure.cluster.WebSocketClusterRouter;
 import org.joker.comfypilot.agent.domain.toolcall.ToolCallWaitManager;
 import org.joker.comfypilot.tool.domain.service.Tool;
 import org.joker.comfypilot.tool.domain.service.ToolRegistry;
@@ -41,7 +44,9 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 聊天WebSocket处理器
@@ -61,6 +66,14 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     private ObjectMapper objectMapper;
     @Autowired
     private ToolCallWaitManager toolCallWaitManager;
+    @Autowired
+    private WebSocketClusterRouter clusterRouter;
+
+    @PostConstruct
+    public void init() {
+        // 其他节点转发来的消息在会话归属节点上按相同方式处理
+        clusterRouter.setInboundHandler(this::dispatch);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -142,16 +155,19 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     return;
                 }
 
-                // 根据消息类型处理
-                switch (messageType) {
-                    case USER_MESSAGE -> handleUserMessage(context, wsMessage);
-                    case USER_ORDER -> handleUserOrder(context, wsMessage);
-                    case AGENT_TOOL_CALL_RESPONSE -> handleToolCallResponse(context, wsMessage);
-                    case INTERRUPT -> handleInterrupt(context, wsMessage);
-                    case PING -> handlePing(context, wsMessage);
-                    default -> log.warn("未处理的消息类型: {}", messageType);
+                // 会话归属于其他节点时转发
+                if (clusterRouter.routeInbound(context, messageType, payload)) {
+                    return;
+                }
+                if (context.getRemoteOwner() != null
+                        && (messageType == WebSocketMessageType.USER_MESSAGE || messageType == WebSocketMessageType.USER_ORDER)) {
+                    // 之前的请求在其他节点执行，重新加载聊天记忆
+                    context.setRemoteOwner(null);
+                    initHistoryChatMemory(context);
                 }
 
+                dispatch(context, messageType, wsMessage);
+
             } catch (Exception e) {
                 log.error("处理WebSocket消息失败: wsSessionId={}, error={}", wsSessionId, e.getMessage(), e);
                 context.sendErrorMessage(e.getMessage(), requestId);
@@ -161,9 +177,27 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * 根据消息类型处理
+     */
+    private void dispatch(WebSocketSessionContext context, WebSocketMessageType messageType, WebSocketMessage<?> wsMessage) throws Exception {
+        switch (messageType) {
+            case USER_MESSAGE -> handleUserMessage(context, wsMessage);
+            case USER_ORDER -> handleUserOrder(context, wsMessage);
+            case AGENT_TOOL_CALL_RESPONSE -> handleToolCallResponse(context, wsMessage);
+            case INTERRUPT -> handleInterrupt(context, wsMessage);
+            case PING -> handlePing(context, wsMessage);
+            case RESUME -> handleResume(context, wsMessage);
+            default -> log.warn("未处理的消息类型: {}", messageType);
+        }
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String sessionId = session.getId();
+        WebSocketSessionContext context = sessionManager.getContext(sessionId);
+        flushDeferredMessages(context);
+        notifyRemoteOwner(sessionId, context);
         sessionManager.removeSession(sessionId);
         log.info("WebSocket连接已关闭: sessionId={}, status={}", sessionId, status);
     }
@@ -171,17 +205,21 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         String sessionId = session.getId();
+        WebSocketSessionContext context = sessionManager.getContext(sessionId);
+        flushDeferredMessages(context);
+        notifyRemoteOwner(sessionId, context);
         sessionManager.removeSession(sessionId);
         log.error("WebSocket传输错误: sessionId={}, error={}", sessionId, exception.getMessage(), exception);
     }
 
     /**
      * 初始化历史聊天记忆
+     * 只加载最新的窗口内消息，更早的历史已由摘要代替或由前端分页查询
      */
     private void initHistoryChatMemory(WebSocketSessionContext context) throws JsonProcessingException {
-        String wsSessionId = context.getWebSocketSession().getId();
+        String wsSessionId = context.getConnectSessionId();
         String sessionCode = context.getSessionCode();
-        List<ChatMessageDTO> messageHistory = chatSessionService.getMessageHistory(sessionCode);
+        List<ChatMessageDTO> messageHistory = chatSessionService.getRecentMessageHistory(sessionCode);
         if (messageHistory == null || messageHistory.isEmpty()) {
             if (chatMemoryChatMemoryStore.updateMessages(wsSessionId, new ArrayList<>())) {
                 throw new BusinessException("当前会话已中断");
@@ -267,22 +305,39 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 toolCallWaitManager.cancelWait(responseData.getToolCallId(), responseData.getToolName());
             }
 
+            // 已取消或由服务端直接执行的工具调用没有等待，避免重复执行服务端工具
+            if (!toolCallWaitManager.isWaiting(responseData.getToolCallId(), responseData.getToolName())) {
+                log.warn("未找到对应的工具调用等待，忽略响应: sessionCode={}, requestId={}, toolName={}",
+                        wsMessage.getSessionCode(), wsMessage.getRequestId(), responseData.getToolName());
+                return;
+            }
+
             if (Boolean.FALSE.equals(responseData.getIsMcpTool()) && Boolean.FALSE.equals(responseData.getIsClientTool())) {
                 Tool serverTool = SpringContextUtil.getBean(ToolRegistry.class).getToolByName(responseData.getToolName());
                 if (serverTool != null) {
+                    CompletableFuture<String> executeFuture;
                     try {
                         AgentExecutionContextHolder.set(executionContext);
-                        String executeResult = serverTool.executeTool(responseData.getToolCallId(), responseData.getToolName(), responseData.getToolArgs());
-                        responseData.setSuccess(true);
-                        responseData.setResult(executeResult);
-                    } catch (Exception e) {
-                        log.error("服务端工具执行失败", e);
-                        responseData.setSuccess(false);
-                        responseData.setResult(ExceptionUtil.stacktraceToString(e));
-                        responseData.setError(e.getMessage());
+                        executeFuture = serverTool.executeToolAsync(responseData.getToolCallId(), responseData.getToolName(), responseData.getToolArgs());
                     } finally {
                         AgentExecutionContextHolder.clear();
                     }
+                    // 异步工具（如 MCP 外部工具）在响应到达时完成等待，不阻塞当前线程
+                    executeFuture.whenComplete((executeResult, e) -> {
+                        TraceIdUtil.setTraceId(executionContext.getTraceId());
+                        if (e == null) {
+                            responseData.setSuccess(true);
+                            responseData.setResult(executeResult);
+                        } else {
+                            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                            log.error("服务端工具执行失败", cause);
+                            responseData.setSuccess(false);
+                            responseData.setResult(ExceptionUtil.stacktraceToString(cause));
+                            responseData.setError(cause.getMessage());
+                        }
+                        completeToolCallWait(context, wsMessage, responseData);
+                    });
+                    return;
                 } else {
                     responseData.setSuccess(false);
                     responseData.setError("找不到该工具");
@@ -295,6 +350,19 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 }
             }
 
+            completeToolCallWait(context, wsMessage, responseData);
+
+        } catch (Exception e) {
+            log.error("处理工具调用响应失败: wsSessionId={}, sessionCode={}, error={}", context.getWebSocketSession().getId(), context.getSessionCode(), e.getMessage(), e);
+            context.sendErrorMessage("处理工具调用响应失败: " + e.getMessage(), wsMessage.getRequestId());
+        }
+    }
+
+    /**
+     * 完成工具调用等待，唤醒等待的Agent线程
+     */
+    private void completeToolCallWait(WebSocketSessionContext context, WebSocketMessage<?> wsMessage, AgentToolCallResponseData responseData) {
+        try {
             log.info("收到工具调用响应: wsSessionId={}, sessionCode={}, toolName={}, isAllow={}, success={}",
                     context.getWebSocketSession().getId(), context.getSessionCode(), responseData.getToolName(), responseData.getIsAllow(), responseData.getSuccess());
 
@@ -310,7 +378,6 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     .error(responseData.getError())
                     .build();
 
-            // 完成工具调用等待，唤醒等待的Agent线程
             boolean completed = toolCallWaitManager.completeWait(
                     callToolResult.getToolCallId(),
                     callToolResult.getToolName(),
@@ -321,7 +388,6 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 log.warn("未找到对应的工具调用等待: sessionCode={}, requestId={}, toolName={}",
                         wsMessage.getSessionCode(), wsMessage.getRequestId(), responseData.getToolName());
             }
-
         } catch (Exception e) {
             log.error("处理工具调用响应失败: wsSessionId={}, sessionCode={}, error={}", context.getWebSocketSession().getId(), context.getSessionCode(), e.getMessage(), e);
             context.sendErrorMessage("处理工具调用响应失败: " + e.getMessage(), wsMessage.getRequestId());
@@ -342,10 +408,49 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         if (lastLLMFuture != null) {
             lastLLMFuture.cancel(true);
         }
+        chatSessionService.flushMessages(executionContext.getSessionId());
 
         log.info("执行申请中断: wsSessionId={}, sessionCode={}", context.getWebSocketSession().getId(), context.getSessionCode());
     }
 
+    /**
+     * 连接关闭时把当前执行中延迟保存的消息写入数据库
+     */
+    private void flushDeferredMessages(WebSocketSessionContext context) {
+        if (context == null) {
+            return;
+        }
+        AgentExecutionContext executionContext = context.getAgentExecutionContext().get();
+        if (executionContext != null) {
+            chatSessionService.flushMessages(executionContext.getSessionId());
+        }
+    }
+
+    /**
+     * 连接关闭时通知会话归属节点，归属节点按连接断开处理（等待重连或结束会话上下文）
+     */
+    private void notifyRemoteOwner(String sessionId, WebSocketSessionContext context) {
+        if (context != null && context.getRemoteOwner() != null && Objects.equals(sessionId, context.getConnectionId())) {
+            clusterRouter.detach(context);
+        }
+    }
+
+    /**
+     * 处理恢复输出消息
+     * 断线重连后，把执行中的请求切换到当前连接，并补发客户端最后收到的帧之后的帧
+     */
+    private void handleResume(WebSocketSessionContext context, WebSocketMessage<?> wsMessage) {
+        if (!StringUtils.equals(context.getSessionCode(), wsMessage.getSessionCode())) {
+            context.sendErrorMessage("会话编码与当前连接不一致", wsMessage.getRequestId());
+            return;
+        }
+        long lastSeq = 0;
+        if (wsMessage.getData() instanceof ResumeRequestData resumeData && resumeData.getLastSeq() != null) {
+            lastSeq = resumeData.getLastSeq();
+        }
+        sessionManager.resumeSession(context.getWebSocketSession().getId(), wsMessage.getRequestId(), lastSeq);
+    }
+
     /**
      * 处理心跳消息
      */
@@ -0,0 +1,132 @@
+package org.joker.comfypilot.session.infrastructure.websocket;
+
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
+
+import java.util.Objects;
+
+/**
+ * AGENT_STREAM 增量帧编码器
+ * <p>
+ * 流式输出是发送频率最高的帧，且结构固定（type、sessionCode、requestId、content、timestamp、seq），
+ * 不经过 ObjectMapper，直接写入复用的缓冲区：同一请求的固定字段前缀只生成一次，每帧只转义增量内容。
+ * 输出与 {@link org.joker.comfypilot.common.config.JacksonConfig} 的 ObjectMapper 逐字节一致
+ * （字段顺序、省略 null、Long 序列化为字符串、转义规则）。
+ * <p>
+ * 非线程安全，每个出站队列的发送任务持有一个实例
+ */
+public final class StreamFrameEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 缓冲区超过该容量时不再复用，避免长期持有偶发的大帧
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final String TYPE_PREFIX = "{\"type\":\"" + WebSocketMessageType.AGENT_STREAM.name() + "\"";
+
+    private StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+
+    /**
+     * 最近一次生成的固定字段前缀及其对应的会话编码和请求ID
+     */
+    private String prefixSessionCode;
+    private String prefixRequestId;
+    private String prefix;
+
+    /**
+     * 是否可由本编码器编码（不带附加数据的 AGENT_STREAM 帧）
+     */
+    public static boolean supports(WebSocketMessage<?> message) {
+        return WebSocketMessageType.AGENT_STREAM.name().equals(message.getType()) && message.getData() == null;
+    }
+
+    public String encode(WebSocketMessage<?> message) {
+        return encode(message, message.getContent(), message.getSeq());
+    }
+
+    /**
+     * 编码流式帧
+     *
+     * @param message 帧（取 sessionCode、requestId、timestamp）
+     * @param content 流式内容（合并后的内容可直接传入，无需先转换为 String）
+     * @param seq     帧序号
+     */
+    public String encode(WebSocketMessage<?> message, CharSequence content, Long seq) {
+        StringBuilder out = buffer;
+        out.setLength(0);
+        out.append(prefix(message.getSessionCode(), message.getRequestId()));
+        if (content != null) {
+            out.append(",\"content\":\"");
+            escape(content, out);
+            out.append('"');
+        }
+        if (message.getTimestamp() != null) {
+            out.append(",\"timestamp\":\"").append(message.getTimestamp().longValue()).append('"');
+        }
+        if (seq != null) {
+            out.append(",\"seq\":\"").append(seq.longValue()).append('"');
+        }
+        out.append('}');
+        String json = out.toString();
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(INITIAL_CAPACITY);
+        }
+        return json;
+    }
+
+    private String prefix(String sessionCode, String requestId) {
+        if (prefix != null && Objects.equals(prefixSessionCode, sessionCode) && Objects.equals(prefixRequestId, requestId)) {
+            return prefix;
+        }
+        StringBuilder sb = new StringBuilder(TYPE_PREFIX.length() + 64).append(TYPE_PREFIX);
+        if (sessionCode != null) {
+            sb.append(",\"sessionCode\":\"");
+            escape(sessionCode, sb);
+            sb.append('"');
+        }
+        if (requestId != null) {
+            sb.append(",\"requestId\":\"");
+            escape(requestId, sb);
+            sb.append('"');
+        }
+        prefixSessionCode = sessionCode;
+        prefixRequestId = requestId;
+        prefix = sb.toString();
+        return prefix;
+    }
+
+    /**
+     * 按 Jackson 默认规则转义：双引号、反斜杠和控制字符，其余字符（含非 ASCII）原样输出
+     */
+    static void escape(CharSequence value, StringBuilder out) {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            if (i > start) {
+                out.append(value, start, i);
+            }
+            start = i + 1;
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        if (start < length) {
+            out.append(value, start, length);
+        }
+    }
+}
@@ -18,22 +18,31 @@ import org.joker.comfypilot.session.application.service.ChatSessionService;
 import org.joker.comfypilot.session.domain.context.WebSocketSessionContext;
 import org.joker.comfypilot.session.domain.enums.AgentPromptType;
 import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
-import org.springframework.web.socket.TextMessage;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketStreamProperties;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
  * WebSocket输出回调实现
+ * 流式增量先缓冲，由 {@link AdaptiveStreamFlushPolicy} 决定何时合并为一帧发送
  */
 @Slf4j
 public class WebSocketAgentCallback implements AgentCallback {
 
+    /**
+     * 缓冲超时发送的定时器，所有回调共用（任务只把帧放入出站队列）
+     */
+    private static final ScheduledThreadPoolExecutor FLUSH_SCHEDULER = createFlushScheduler();
+
     private final WebSocketSession webSocketSession;
     private final WebSocketSessionContext sessionContext;
     private final AgentExecutionContext agentExecutionContext;
@@ -44,8 +53,13 @@ public class WebSocketAgentCallback implements AgentCallback {
     private final ChatMemoryChatMemoryStore chatMemoryChatMemoryStore;
     private final ChatSessionService chatSessionService;
 
-    private final StringBuffer chunkBuffer = new StringBuffer();
-    private volatile long lastSendChunkTime = 0;
+    /**
+     * 待发送的流式增量，由 this 保护
+     */
+    private final StringBuilder chunkBuffer = new StringBuilder();
+    private long bufferedSince = 0;
+    private ScheduledFuture<?> scheduledFlush;
+    private final AdaptiveStreamFlushPolicy flushPolicy;
 
     public WebSocketAgentCallback(WebSocketSession webSocketSession, WebSocketSessionContext sessionContext, AgentExecutionContext agentExecutionContext, String sessionCode, String requestId, ObjectMapper objectMapper) {
         this.webSocketSession = webSocketSession;
@@ -57,17 +71,15 @@ public class WebSocketAgentCallback implements AgentCallback {
 
         this.chatMemoryChatMemoryStore = SpringContextUtil.getBean(ChatMemoryChatMemoryStore.class);
         this.chatSessionService = SpringContextUtil.getBean(ChatSessionService.class);
+        this.flushPolicy = new AdaptiveStreamFlushPolicy(SpringContextUtil.getBean(WebSocketStreamProperties.class));
     }
 
     @Override
     public void onPrompt(AgentPromptType promptType, String message, boolean needSave) {
         log.debug("Agent提示: sessionCode={}, promptType={}, message={}", sessionCode, promptType, message);
 
-        if (AgentPromptType.TERMINAL_OUTPUT_END.equals(promptType) && !chunkBuffer.isEmpty()) {
-            sendMessage(WebSocketMessageType.AGENT_STREAM, chunkBuffer.toString());
-            chunkBuffer.setLength(0);
-            lastSendChunkTime = System.currentTimeMillis();
-        }
+        // 提示前发送缓冲的增量，保持输出顺序
+        flushChunks();
 
         // 构建提示数据
         AgentPromptData promptData = AgentPromptData.builder()
@@ -96,7 +108,7 @@ public class WebSocketAgentCallback implements AgentCallback {
                         .content(message)
                         .chatContent(null)
                         .build();
-                chatSessionService.saveMessage(agentPlanChatMessage);
+                chatSessionService.saveMessageDeferred(agentPlanChatMessage);
             } else if (AgentPromptType.STATUS_UPDATE.equals(promptType)) {
                 ChatMessageDTO agentPlanChatMessage = ChatMessageDTO.builder()
                         .sessionId(agentExecutionContext.getSessionId())
@@ -107,7 +119,7 @@ public class WebSocketAgentCallback implements AgentCallback {
                         .content(message)
                         .chatContent(null)
                         .build();
-                chatSessionService.saveMessage(agentPlanChatMessage);
+                chatSessionService.saveMessageDeferred(agentPlanChatMessage);
             } else if (AgentPromptType.AGENT_MESSAGE_BLOCK.equals(promptType)) {
                 ChatMessageDTO agentMessageChatMessage = ChatMessageDTO.builder()
                         .sessionId(agentExecutionContext.getSessionId())
@@ -118,7 +130,7 @@ public class WebSocketAgentCallback implements AgentCallback {
                         .content(message)
                         .chatContent(null)
                         .build();
-                chatSessionService.saveMessage(agentMessageChatMessage);
+                chatSessionService.saveMessageDeferred(agentMessageChatMessage);
             } else if (AgentPromptType.ERROR.equals(promptType)) {
                 ChatMessageDTO agentMessageChatMessage = ChatMessageDTO.builder()
                         .sessionId(agentExecutionContext.getSessionId())
@@ -129,24 +141,58 @@ public class WebSocketAgentCallback implements AgentCallback {
                         .content(message)
                         .chatContent(null)
                         .build();
-                chatSessionService.saveMessage(agentMessageChatMessage);
+                chatSessionService.saveMessageDeferred(agentMessageChatMessage);
             }
         }
     }
 
     @Override
-    public void onStream(String chunk) {
+    public synchronized void onStream(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        flushPolicy.recordChunk(now);
+        if (chunkBuffer.isEmpty()) {
+            bufferedSince = now;
+        }
+        int previousLength = chunkBuffer.length();
         chunkBuffer.append(chunk);
-        if (System.currentTimeMillis() - lastSendChunkTime > 200 || chunkBuffer.length() >= 500) {
-            sendMessage(WebSocketMessageType.AGENT_STREAM, chunkBuffer.toString());
-            chunkBuffer.setLength(0);
-            lastSendChunkTime = System.currentTimeMillis();
+        boolean boundary = AdaptiveStreamFlushPolicy.containsCodeFence(chunkBuffer, previousLength);
+
+        WebSocketOutbound outbound = sessionContext.getOutbound();
+        if (flushPolicy.shouldFlush(now, chunkBuffer.length(), bufferedSince, boundary, outbound.size(), outbound.getLatencyMillis())) {
+            flushChunks();
+        } else if (scheduledFlush == null) {
+            // 后续增量迟迟不到时，缓冲内容最多停留最大发送间隔
+            long delay = Math.max(0, bufferedSince + flushPolicy.getMaxFlushInterval() - now);
+            scheduledFlush = FLUSH_SCHEDULER.schedule(this::flushChunks, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 发送缓冲的流式增量
+     */
+    private synchronized void flushChunks() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
         }
+        if (chunkBuffer.isEmpty()) {
+            return;
+        }
+        String content = chunkBuffer.toString();
+        chunkBuffer.setLength(0);
+        flushPolicy.recordFlush(System.currentTimeMillis());
+        sendMessage(WebSocketMessageType.AGENT_STREAM, content);
     }
 
     @Override
-    public void onToolCall(boolean isClientTool, boolean isMcpTool, String toolCallId, String toolName, String toolArgs) {
-        log.info("Agent调用工具: sessionCode={}, tool={}, args={}, isClientTool={}, isMcpTool={}", sessionCode, toolName, toolArgs, isClientTool, isMcpTool);
+    public void onToolCall(boolean isClientTool, boolean isMcpTool, boolean isDirectExecute, String toolCallId, String toolName, String toolArgs) {
+        log.info("Agent调用工具: sessionCode={}, tool={}, args={}, isClientTool={}, isMcpTool={}, isDirectExecute={}", sessionCode, toolName, toolArgs, isClientTool, isMcpTool, isDirectExecute);
+
+        // 工具调用开始前发送缓冲的增量
+        flushChunks();
 
         // 构建工具调用请求数据
         AgentToolCallRequestData requestData = AgentToolCallRequestData.builder()
@@ -155,6 +201,7 @@ public class WebSocketAgentCallback implements AgentCallback {
                 .toolArgs(toolArgs)
                 .isClientTool(isClientTool)
                 .isMcpTool(isMcpTool)
+                .isDirectExecute(isDirectExecute)
                 .build();
 
         WebSocketMessage<AgentToolCallRequestData> message = WebSocketMessage.<AgentToolCallRequestData>builder()
@@ -179,6 +226,8 @@ public class WebSocketAgentCallback implements AgentCallback {
 
     @Override
     public void onTokenUsage(Map<String, Object> agentScope, Integer inputTokens, Integer outputTokens, Integer totalTokens, Integer messageCount) {
+        flushChunks();
+
         WebSocketMessage<?> message = WebSocketMessage.builder()
                 .type(WebSocketMessageType.AGENT_TOKEN_USAGE.name())
                 .sessionCode(sessionCode)
@@ -202,11 +251,7 @@ public class WebSocketAgentCallback implements AgentCallback {
     public void onStreamComplete(Map<String, Object> agentScope, String fullContent, Integer inputTokens, Integer outputTokens, Integer totalTokens, Integer messageCount) {
         log.info("Agent流式输出执行完成: sessionCode={}", sessionCode);
 
-        if (!chunkBuffer.isEmpty()) {
-            sendMessage(WebSocketMessageType.AGENT_STREAM, chunkBuffer.toString());
-            chunkBuffer.setLength(0);
-            lastSendChunkTime = System.currentTimeMillis();
-        }
+        flushChunks();
 
         // 流式调用不需要返回
         WebSocketMessage<?> message = WebSocketMessage.builder()
@@ -279,25 +324,23 @@ public class WebSocketAgentCallback implements AgentCallback {
     }
 
     /**
-     * 发送WebSocket消息
+     * 发送WebSocket消息（分配帧序号后放入连接的出站队列，不等待网络写入；连接断开等待重连期间只缓冲）
      */
     private void sendWebSocketMessage(WebSocketMessage<?> message) {
-        try {
-            if (webSocketSession.isOpen()) {
-                String json = objectMapper.writeValueAsString(message);
-                try {
-                    sessionContext.getSendMessageLock().lock();
-                    webSocketSession.sendMessage(new TextMessage(json));
-                } finally {
-                    sessionContext.getSendMessageLock().unlock();
-                }
-            } else {
-                log.warn("WebSocket连接已关闭,无法发送消息: sessionCode={}", sessionCode);
-                throw new BusinessException("WebSocket连接已关闭,无法发送消息");
-            }
-        } catch (Exception e) {
-            log.error("发送WebSocket消息失败: sessionCode={}, error={}", sessionCode, e.getMessage(), e);
-            throw new BusinessException("发送WebSocket消息失败");
+        if (!sessionContext.sendAgentMessage(message)) {
+            log.warn("WebSocket连接已关闭,无法发送消息: sessionCode={}", sessionCode);
+            throw new BusinessException("WebSocket连接已关闭,无法发送消息");
         }
     }
+
+    private static ScheduledThreadPoolExecutor createFlushScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "ws-stream-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 大部分定时任务在后续增量触发发送时取消，取消后立即移出队列
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
 }
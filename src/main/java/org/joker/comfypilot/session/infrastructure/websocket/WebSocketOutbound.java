@@ -0,0 +1,50 @@
+package org.joker.comfypilot.session.infrastructure.websocket;
+
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.springframework.web.socket.CloseStatus;
+
+/**
+ * WebSocket 出站通道
+ * <p>
+ * 会话上下文通过出站通道向客户端发送消息：客户端连接在本节点时为 {@link WebSocketOutboundQueue}，
+ * 连接在其他节点时由集群路由转发到该节点
+ */
+public interface WebSocketOutbound {
+
+    /**
+     * 连接标识，本节点连接为 WebSocket Session ID
+     */
+    String getConnectionId();
+
+    /**
+     * 发送消息，不阻塞
+     *
+     * @param message 消息（发送后不应再修改）
+     * @return 通道已关闭时返回 false
+     */
+    boolean offer(WebSocketMessage<?> message);
+
+    /**
+     * 排队等待发送的消息数
+     */
+    default int size() {
+        return 0;
+    }
+
+    /**
+     * 消息从入队到写入连接的平均耗时（毫秒）
+     */
+    default long getLatencyMillis() {
+        return 0;
+    }
+
+    /**
+     * 关闭通道，丢弃未发送的消息
+     */
+    void close();
+
+    /**
+     * 关闭通道并关闭客户端连接
+     */
+    void closeConnection(CloseStatus status);
+}
@@ -0,0 +1,339 @@
+package org.joker.comfypilot.session.infrastructure.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketOutboundProperties;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * WebSocket 连接的出站消息队列
+ * <p>
+ * 发送方只把消息放入有界队列即返回，序列化和网络写入由独立的发送任务按顺序完成，
+ * 慢客户端不会阻塞产生消息的 Agent 线程。
+ * <ul>
+ *   <li>排队消息数达到高水位时，连续的同一请求的 AGENT_STREAM 增量合并为一条消息</li>
+ *   <li>控制消息（提示、工具调用、完成等）从不丢弃；队列已满时断开连接</li>
+ *   <li>排队消息数持续超过高水位超过 {@code slow-client-timeout} 时断开连接</li>
+ * </ul>
+ */
+@Slf4j
+public class WebSocketOutboundQueue implements WebSocketOutbound {
+
+    private final WebSocketSession webSocketSession;
+    private final ObjectMapper objectMapper;
+    private final Executor writerExecutor;
+    private final int capacity;
+    private final int highWaterMark;
+    private final long slowClientTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 流式帧编码器，只在发送任务中使用（同一时刻只有一个发送任务）
+     */
+    private final StreamFrameEncoder streamEncoder = new StreamFrameEncoder();
+
+    /**
+     * 待发送消息，由 lock 保护
+     */
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+    /**
+     * 是否有发送任务在执行，由 lock 保护
+     */
+    private boolean draining;
+
+    /**
+     * 排队消息数开始超过高水位的时间，0 表示未超过，由 lock 保护
+     */
+    private long overHighWaterSince;
+
+    private volatile boolean closed;
+
+    /**
+     * 消息从入队到写入连接的耗时的平滑值（纳秒）
+     */
+    private volatile long latencyNanos;
+
+    public WebSocketOutboundQueue(WebSocketSession webSocketSession, ObjectMapper objectMapper, Executor writerExecutor,
+                                  WebSocketOutboundProperties properties) {
+        this.webSocketSession = webSocketSession;
+        this.objectMapper = objectMapper;
+        this.writerExecutor = writerExecutor;
+        this.capacity = Math.max(1, properties.getCapacity());
+        this.highWaterMark = Math.min(Math.max(1, properties.getHighWaterMark()), capacity);
+        this.slowClientTimeout = properties.getSlowClientTimeout();
+    }
+
+    @Override
+    public String getConnectionId() {
+        return webSocketSession.getId();
+    }
+
+    /**
+     * 消息入队，不阻塞
+     *
+     * @param message 消息（入队后不应再修改）
+     * @return 连接已关闭或因队列积压被断开时返回 false
+     */
+    @Override
+    public boolean offer(WebSocketMessage<?> message) {
+        if (closed || !webSocketSession.isOpen()) {
+            return false;
+        }
+
+        String disconnectReason = null;
+        boolean schedule = false;
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (frames.size() >= highWaterMark && coalesce(message)) {
+                disconnectReason = checkSlowClient();
+            } else if (frames.size() >= capacity) {
+                disconnectReason = "出站队列已满";
+            } else {
+                frames.addLast(new Frame(message));
+                disconnectReason = checkSlowClient();
+                if (disconnectReason == null && !draining) {
+                    draining = true;
+                    schedule = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (disconnectReason != null) {
+            disconnect(disconnectReason);
+            return false;
+        }
+        if (schedule) {
+            try {
+                writerExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drain();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前排队的消息数
+     */
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭队列，丢弃未发送的消息（连接已关闭时调用）
+     */
+    @Override
+    public void close() {
+        closed = true;
+        lock.lock();
+        try {
+            frames.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把 AGENT_STREAM 增量合并到队尾的同一请求的 AGENT_STREAM 消息中
+     * 队尾消息尚未被发送任务取出，可以安全修改
+     */
+    private boolean coalesce(WebSocketMessage<?> message) {
+        if (!isStreamDelta(message)) {
+            return false;
+        }
+        Frame tail = frames.peekLast();
+        if (tail == null || !isStreamDelta(tail.message)
+                || !Objects.equals(tail.message.getRequestId(), message.getRequestId())
+                || !Objects.equals(tail.message.getSessionCode(), message.getSessionCode())) {
+            return false;
+        }
+        tail.append(message);
+        return true;
+    }
+
+    private static boolean isStreamDelta(WebSocketMessage<?> message) {
+        return WebSocketMessageType.AGENT_STREAM.name().equals(message.getType()) && message.getData() == null;
+    }
+
+    /**
+     * 记录超过高水位的时间，持续超过 slow-client-timeout 时返回断开原因
+     */
+    private String checkSlowClient() {
+        if (frames.size() < highWaterMark) {
+            overHighWaterSince = 0;
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (overHighWaterSince == 0) {
+            overHighWaterSince = now;
+            return null;
+        }
+        if (slowClientTimeout > 0 && now - overHighWaterSince > slowClientTimeout) {
+            return "客户端接收过慢";
+        }
+        return null;
+    }
+
+    /**
+     * 按顺序发送队列中的消息，队列为空时结束
+     */
+    private void drain() {
+        while (true) {
+            Frame frame;
+            lock.lock();
+            try {
+                frame = closed ? null : frames.pollFirst();
+                if (frame == null) {
+                    draining = false;
+                    return;
+                }
+                if (frames.size() < highWaterMark) {
+                    overHighWaterSince = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                webSocketSession.sendMessage(new TextMessage(frame.toJson(objectMapper, streamEncoder)));
+                recordLatency(System.nanoTime() - frame.enqueuedAt);
+            } catch (IOException | IllegalStateException e) {
+                log.warn("发送WebSocket消息失败，关闭出站队列: wsSessionId={}, error={}", webSocketSession.getId(), e.getMessage());
+                close();
+                lock.lock();
+                try {
+                    draining = false;
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            } catch (Exception e) {
+                log.error("发送WebSocket消息失败: wsSessionId={}, error={}", webSocketSession.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public long getLatencyMillis() {
+        return latencyNanos / 1_000_000;
+    }
+
+    /**
+     * 只有发送任务写入，按 1/8 权重平滑
+     */
+    private void recordLatency(long nanos) {
+        long current = latencyNanos;
+        latencyNanos = current == 0 ? nanos : current + (nanos - current) / 8;
+    }
+
+    /**
+     * 丢弃排队的消息并断开连接，客户端重连后重新获取状态
+     */
+    private void disconnect(String reason) {
+        int pending = size();
+        log.warn("WebSocket出站消息积压，断开连接: wsSessionId={}, reason={}, pending={}", webSocketSession.getId(), reason, pending);
+        closeConnection(CloseStatus.SESSION_NOT_RELIABLE.withReason(reason));
+    }
+
+    /**
+     * 关闭队列并关闭连接
+     * 关闭在发送线程上执行，不阻塞调用方
+     */
+    @Override
+    public void closeConnection(CloseStatus status) {
+        close();
+        Runnable closeTask = () -> {
+            try {
+                webSocketSession.close(status);
+            } catch (Exception e) {
+                log.debug("关闭WebSocket连接失败: wsSessionId={}, error={}", webSocketSession.getId(), e.getMessage());
+            }
+        };
+        try {
+            writerExecutor.execute(closeTask);
+        } catch (RejectedExecutionException e) {
+            closeTask.run();
+        }
+    }
+
+    /**
+     * 待发送的消息
+     */
+    private static final class Frame {
+
+        private final WebSocketMessage<?> message;
+
+        /**
+         * 入队时间（纳秒），合并的帧取最早的
+         */
+        private final long enqueuedAt = System.nanoTime();
+
+        /**
+         * 合并后的流式内容，未合并时为 null
+         */
+        private StringBuilder coalescedContent;
+
+        /**
+         * 最后合并的帧序号
+         */
+        private Long lastSeq;
+
+        Frame(WebSocketMessage<?> message) {
+            this.message = message;
+        }
+
+        void append(WebSocketMessage<?> next) {
+            if (coalescedContent == null) {
+                coalescedContent = new StringBuilder(Objects.toString(message.getContent(), ""));
+            }
+            if (next.getContent() != null) {
+                coalescedContent.append(next.getContent());
+            }
+            lastSeq = next.getSeq();
+        }
+
+        /**
+         * 序列化，流式帧使用专用编码器，合并的内容直接写入，不修改原消息（可能同时保存在补发缓冲区中）；
+         * 其他帧合并过时使用副本，序号取最后合并的帧
+         */
+        String toJson(ObjectMapper objectMapper, StreamFrameEncoder streamEncoder) throws IOException {
+            if (StreamFrameEncoder.supports(message)) {
+                return coalescedContent == null
+                        ? streamEncoder.encode(message)
+                        : streamEncoder.encode(message, coalescedContent, lastSeq);
+            }
+            if (coalescedContent == null) {
+                return objectMapper.writeValueAsString(message);
+            }
+            WebSocketMessage<?> merged = message.toBuilder()
+                    .content(coalescedContent.toString())
+                    .seq(lastSeq)
+                    .build();
+            return objectMapper.writeValueAsString(merged);
+        }
+    }
+}
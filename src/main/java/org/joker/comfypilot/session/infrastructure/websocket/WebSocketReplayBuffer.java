@@ -0,0 +1,85 @@
+package org.joker.comfypilot.session.infrastructure.websocket;
+
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * WebSocket 帧补发环形缓冲区
+ * <p>
+ * 为同一请求的出站帧分配递增序号（从 1 开始）并保留最近的若干帧，
+ * 客户端断线重连后提交最后收到的序号，补发之后的帧。新请求的第一帧会清空缓冲区并重新计数。
+ * <p>
+ * 非线程安全，由调用方加锁。
+ */
+public class WebSocketReplayBuffer {
+
+    private final WebSocketMessage<?>[] frames;
+
+    /**
+     * 当前缓冲的请求ID
+     */
+    private String requestId;
+
+    /**
+     * 下一帧的序号
+     */
+    private long nextSeq = 1;
+
+    /**
+     * 缓冲区中的帧数
+     */
+    private int size;
+
+    public WebSocketReplayBuffer(int capacity) {
+        this.frames = new WebSocketMessage<?>[Math.max(1, capacity)];
+    }
+
+    /**
+     * 为帧分配序号并放入缓冲区，缓冲区已满时覆盖最早的帧
+     *
+     * @param message 出站帧（放入后不应再修改）
+     */
+    public void append(WebSocketMessage<?> message) {
+        if (!Objects.equals(requestId, message.getRequestId())) {
+            requestId = message.getRequestId();
+            nextSeq = 1;
+            size = 0;
+        }
+        long seq = nextSeq++;
+        message.setSeq(seq);
+        frames[(int) (seq % frames.length)] = message;
+        size = Math.min(size + 1, frames.length);
+    }
+
+    /**
+     * 获取序号大于 lastSeq 的帧
+     *
+     * @param requestId 请求ID
+     * @param lastSeq   客户端最后收到的序号，0 表示从头补发
+     * @return 待补发的帧；请求不匹配或所需的帧已被覆盖时返回 null
+     */
+    public List<WebSocketMessage<?>> framesAfter(String requestId, long lastSeq) {
+        if (!Objects.equals(this.requestId, requestId) || lastSeq < 0 || lastSeq >= nextSeq) {
+            return null;
+        }
+        long firstSeq = nextSeq - size;
+        if (lastSeq + 1 < firstSeq) {
+            return null;
+        }
+        List<WebSocketMessage<?>> result = new ArrayList<>((int) (nextSeq - lastSeq - 1));
+        for (long seq = lastSeq + 1; seq < nextSeq; seq++) {
+            result.add(frames[(int) (seq % frames.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * 当前缓冲的请求ID
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+}
@@ -1,29 +1,54 @@
 package org.joker.comfypilot.session.infrastructure.websocket;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.session.domain.context.WebSocketSessionContext;
+import org.joker.comfypilot.session.infrastructure.cluster.SessionOwnershipRegistry;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketOutboundProperties;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketResumeProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * WebSocket会话管理器
  * 管理所有活跃的WebSocket连接
+ * <p>
+ * 执行中的连接断开时，会话上下文保留 {@code session.websocket.resume.timeout}，
+ * 期间客户端可在新连接上恢复（{@link #resumeSession}），超时后才按连接关闭处理。
+ * 多节点部署时客户端也可能在其他节点上重连，由集群路由调用 {@link #resumeRemote} 等方法切换到远程连接
  */
 @Slf4j
 @Component
 public class WebSocketSessionManager {
 
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private WebSocketOutboundProperties outboundProperties;
+    @Autowired
+    private WebSocketResumeProperties resumeProperties;
+    @Autowired
+    @Qualifier("webSocketWriterExecutor")
+    private Executor webSocketWriterExecutor;
+    @Autowired
+    private SessionOwnershipRegistry ownershipRegistry;
+
     /**
      * 存储所有活跃的WebSocket会话
-     * Key: WebSocket Session ID
+     * Key: WebSocket Session ID（首次连接的ID，以及断线恢复后当前连接的ID）
      * Value: WebSocketSessionContext
      */
     private final Map<String, WebSocketSessionContext> sessions = new ConcurrentHashMap<>(1024);
@@ -36,13 +61,17 @@ public class WebSocketSessionManager {
     public WebSocketSessionContext addSession(String wsSessionId, WebSocketSession webSocketSession, Long userId, String sessionCode) {
         WebSocketSessionContext context = WebSocketSessionContext.builder()
                 .webSocketSession(webSocketSession)
+                .connectSessionId(wsSessionId)
                 .userId(userId)
                 .sessionCode(sessionCode)
                 .currentRequestId(new AtomicReference<>(null))
                 .createTime(System.currentTimeMillis())
                 .agentExecutionContext(new AtomicReference<>(null))
                 .lastActiveTime(System.currentTimeMillis())
-                .sendMessageLock(new ReentrantLock())
+                .outbound(new WebSocketOutboundQueue(webSocketSession, objectMapper, webSocketWriterExecutor, outboundProperties))
+                .replayBuffer(Boolean.TRUE.equals(resumeProperties.getEnabled())
+                        ? new WebSocketReplayBuffer(resumeProperties.getReplayBufferSize())
+                        : null)
                 .build();
 
         sessionRemoveCallbacks.put(wsSessionId, new ConcurrentLinkedQueue<>());
@@ -59,13 +88,179 @@ public class WebSocketSessionManager {
     }
 
     /**
-     * 移除会话
+     * 移除会话（连接关闭时调用）
+     * 有执行中的请求时会话上下文进入等待重连状态，不立即结束
      */
     public void removeSession(String sessionId) {
-        WebSocketSessionContext context = sessions.remove(sessionId);
-        if (context != null) {
-            log.info("WebSocket会话已移除: sessionId={}", sessionId);
+        WebSocketSessionContext context = sessions.get(sessionId);
+        if (context == null) {
+            runRemovedCallbacks(sessionId);
+            return;
+        }
+        synchronized (context) {
+            if (!Objects.equals(sessionId, context.getConnectionId())) {
+                // 已在新连接上恢复，只移除旧连接的映射
+                if (!sessionId.equals(context.getConnectSessionId())) {
+                    sessions.remove(sessionId, context);
+                }
+                return;
+            }
+            if (Boolean.TRUE.equals(resumeProperties.getEnabled()) && context.getReplayBuffer() != null
+                    && context.getCurrentRequestId().get() != null && !context.isClosed()) {
+                context.detach();
+                if (!sessionId.equals(context.getConnectSessionId())) {
+                    sessions.remove(sessionId, context);
+                }
+                log.info("WebSocket连接已断开，等待重连: sessionId={}, requestId={}", sessionId, context.getCurrentRequestId().get());
+                return;
+            }
+            closeContext(context);
+        }
+    }
+
+    /**
+     * 在新连接上恢复断线前执行中的会话上下文，并补发客户端未收到的帧
+     * 新连接初始化的上下文被丢弃，之后新连接的消息使用恢复的上下文处理
+     *
+     * @param wsSessionId 新连接的 Session ID
+     * @param requestId   断线前执行中的请求ID
+     * @param lastSeq     客户端最后收到的帧序号
+     * @return 恢复的上下文
+     */
+    public WebSocketSessionContext resumeSession(String wsSessionId, String requestId, long lastSeq) {
+        WebSocketSessionContext current = sessions.get(wsSessionId);
+        if (current == null) {
+            throw new BusinessException("未找到WebSocket会话上下文");
+        }
+        if (current.getCurrentRequestId().get() != null) {
+            throw new BusinessException("当前连接有执行中的请求，无法恢复");
+        }
+        WebSocketSessionContext target = sessions.values().stream()
+                .filter(context -> context != current && !context.isClosed() && context.getReplayBuffer() != null)
+                .filter(context -> Objects.equals(context.getUserId(), current.getUserId())
+                        && Objects.equals(context.getSessionCode(), current.getSessionCode()))
+                .filter(context -> Objects.equals(context.getReplayBuffer().getRequestId(), requestId))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException("没有可恢复的请求: " + requestId));
+
+        synchronized (target) {
+            if (target.isClosed()) {
+                throw new BusinessException("没有可恢复的请求: " + requestId);
+            }
+            if (!target.resume(current.getWebSocketSession(), current.getOutbound(), requestId, lastSeq)) {
+                throw new BusinessException("断线期间的输出已超出补发范围，请重新加载会话");
+            }
+            sessions.put(wsSessionId, target);
+        }
+        // 新连接初始化的聊天记忆等不再使用
+        runRemovedCallbacks(wsSessionId);
+        log.info("WebSocket会话已恢复: wsSessionId={}, connectSessionId={}, requestId={}, lastSeq={}",
+                wsSessionId, target.getConnectSessionId(), requestId, lastSeq);
+        return target;
+    }
+
+    /**
+     * 查找会话在本节点上的上下文（供其他节点转发的消息使用）
+     *
+     * @param requestId 执行中的请求ID，为 null 时返回会话的任一上下文
+     */
+    public WebSocketSessionContext findOwnerContext(Long userId, String sessionCode, String requestId) {
+        return sessions.values().stream()
+                .filter(context -> !context.isClosed())
+                .filter(context -> Objects.equals(context.getUserId(), userId)
+                        && Objects.equals(context.getSessionCode(), sessionCode))
+                .filter(context -> requestId == null
+                        || Objects.equals(context.getCurrentRequestId().get(), requestId)
+                        || context.getReplayBuffer() != null && Objects.equals(context.getReplayBuffer().getRequestId(), requestId))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 在其他节点上的连接恢复会话上下文，并补发客户端未收到的帧
+     */
+    public void resumeRemote(WebSocketSessionContext context, WebSocketOutbound remoteOutbound, String requestId, long lastSeq) {
+        synchronized (context) {
+            if (context.isClosed()) {
+                throw new BusinessException("没有可恢复的请求: " + requestId);
+            }
+            if (!context.resume(null, remoteOutbound, requestId, lastSeq)) {
+                throw new BusinessException("断线期间的输出已超出补发范围，请重新加载会话");
+            }
         }
+        log.info("WebSocket会话已在其他节点恢复: connectionId={}, connectSessionId={}, requestId={}, lastSeq={}",
+                remoteOutbound.getConnectionId(), context.getConnectSessionId(), requestId, lastSeq);
+    }
+
+    /**
+     * 之后的输出发送到其他节点上的连接，不补发
+     */
+    public void attachRemote(WebSocketSessionContext context, WebSocketOutbound remoteOutbound) {
+        synchronized (context) {
+            context.attach(remoteOutbound);
+        }
+        log.info("WebSocket会话已切换到其他节点的连接: connectionId={}, connectSessionId={}",
+                remoteOutbound.getConnectionId(), context.getConnectSessionId());
+    }
+
+    /**
+     * 其他节点上的连接已关闭，与本节点连接关闭（{@link #removeSession}）的处理一致
+     */
+    public void detachRemote(Long userId, String sessionCode, String connectionId) {
+        for (WebSocketSessionContext context : sessions.values()) {
+            if (!Objects.equals(context.getUserId(), userId) || !Objects.equals(context.getSessionCode(), sessionCode)) {
+                continue;
+            }
+            synchronized (context) {
+                if (context.isClosed() || !Objects.equals(connectionId, context.getConnectionId())) {
+                    continue;
+                }
+                if (Boolean.TRUE.equals(resumeProperties.getEnabled()) && context.getReplayBuffer() != null
+                        && context.getCurrentRequestId().get() != null) {
+                    context.detach();
+                    log.info("其他节点的WebSocket连接已断开，等待重连: connectionId={}", connectionId);
+                } else {
+                    closeContext(context);
+                }
+            }
+        }
+    }
+
+    /**
+     * 结束等待重连超时的会话上下文
+     */
+    @Scheduled(fixedDelayString = "${session.websocket.resume.sweep-interval:5000}")
+    public void expireDetachedSessions() {
+        long now = System.currentTimeMillis();
+        for (WebSocketSessionContext context : sessions.values()) {
+            Long detachedTime = context.getDetachedTime();
+            if (detachedTime == null || now - detachedTime < resumeProperties.getTimeout()) {
+                continue;
+            }
+            synchronized (context) {
+                if (context.getDetachedTime() != null && !context.isClosed()) {
+                    log.info("WebSocket会话等待重连超时: connectSessionId={}", context.getConnectSessionId());
+                    closeContext(context);
+                }
+            }
+        }
+    }
+
+    /**
+     * 结束会话上下文：移除所有连接映射，释放执行名额，执行移除回调
+     */
+    private void closeContext(WebSocketSessionContext context) {
+        String connectSessionId = context.getConnectSessionId();
+        sessions.remove(connectSessionId, context);
+        sessions.remove(context.getWebSocketSession().getId(), context);
+        context.close();
+        context.releaseExecutionPermit();
+        ownershipRegistry.release(context.getSessionCode(), connectSessionId);
+        log.info("WebSocket会话已移除: sessionId={}", connectSessionId);
+        runRemovedCallbacks(connectSessionId);
+    }
+
+    private void runRemovedCallbacks(String sessionId) {
         ConcurrentLinkedQueue<Runnable> removedCallbacks = sessionRemoveCallbacks.remove(sessionId);
         if (removedCallbacks != null) {
             Runnable polled = removedCallbacks.poll();
@@ -3,14 +3,20 @@ package org.joker.comfypilot.session.interfaces.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.joker.comfypilot.auth.infrastructure.context.UserContextHolder;
+import org.joker.comfypilot.common.application.dto.CursorPageResponse;
+import org.joker.comfypilot.common.infrastructure.storage.MediaBlobStore;
 import org.joker.comfypilot.common.interfaces.response.Result;
+import org.joker.comfypilot.common.util.FileServingUtil;
 import org.joker.comfypilot.session.application.dto.*;
 import org.joker.comfypilot.session.application.service.ChatSessionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -25,6 +31,9 @@ public class ChatSessionController {
     @Autowired
     private ChatSessionService chatSessionService;
 
+    @Autowired
+    private MediaBlobStore mediaBlobStore;
+
     @Operation(summary = "创建会话", description = "创建一个新的对话会话（返回会话编码）")
     @PostMapping
     public Result<String> createSession(@RequestBody CreateSessionRequest request) {
@@ -81,6 +90,32 @@ public class ChatSessionController {
         return Result.success(messages);
     }
 
+    @Operation(summary = "分页查询消息历史", description = "从最新消息开始向前分页查询会话消息历史，使用上一页返回的游标查询更早的消息")
+    @GetMapping("/{sessionCode}/messages/page")
+    public Result<CursorPageResponse<ChatMessageDTO>> getMessagePage(
+            @Parameter(description = "会话编码", required = true) @PathVariable String sessionCode,
+            @Parameter(description = "上一页返回的游标，为空时查询最新一页") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页数量") @RequestParam(required = false) Integer pageSize) {
+        Long userId = UserContextHolder.getCurrentUserId();
+        return Result.success(chatSessionService.getClientMessagePage(sessionCode, userId, cursor, pageSize));
+    }
+
+    @Operation(summary = "获取消息多媒体内容", description = "根据内容哈希获取当前用户会话消息中引用的图片、音频、视频、PDF")
+    @GetMapping("/media/{mediaHash}")
+    public void getMedia(
+            @Parameter(description = "内容哈希", required = true) @PathVariable String mediaHash,
+            @Parameter(description = "引用该内容的会话编码", required = true) @RequestParam String sessionCode,
+            @Parameter(description = "MIME类型") @RequestParam(required = false) String mimeType,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        // 内容按哈希去重存储，不属于某个用户，只能通过用户自己会话中的消息引用访问
+        chatSessionService.checkMediaAccess(sessionCode, UserContextHolder.getCurrentUserId(), mediaHash);
+        // 只允许多媒体类型，避免以 text/html 等类型输出用户上传的内容
+        String contentType = mimeType != null && mimeType.matches("^(image|audio|video)/[\\w.+-]+$|^application/pdf$")
+                ? mimeType : "application/octet-stream";
+        FileServingUtil.serve(request, response, mediaBlobStore.getPath(mediaHash), contentType, mediaHash);
+    }
+
     @Operation(summary = "删除会话", description = "删除会话")
     @DeleteMapping("/{sessionCode}")
     public Result<Void> deleteSession(
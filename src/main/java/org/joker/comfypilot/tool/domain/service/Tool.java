@@ -5,6 +5,7 @@ import org.joker.comfypilot.tool.infrastructure.service.ClientTool;
 import org.joker.comfypilot.tool.infrastructure.service.ServerTool;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 工具接口
@@ -95,6 +96,25 @@ public interface Tool {
      */
     String executeTool(String toolCallId, String name, String arguments);
 
+    /**
+     * 异步执行工具
+     * <p>
+     * 默认在调用线程上同步执行 {@link #executeTool}，执行失败时返回异常完成的 Future。
+     * 基于网络调用的工具（如 MCP 外部工具）应覆盖此方法，在响应到达时直接完成 Future，不占用调用线程。
+     *
+     * @param toolCallId 工具调用ID
+     * @param name       工具名称
+     * @param arguments  JSON 格式的参数字符串
+     * @return JSON 格式的执行结果
+     */
+    default CompletableFuture<String> executeToolAsync(String toolCallId, String name, String arguments) {
+        try {
+            return CompletableFuture.completedFuture(executeTool(toolCallId, name, arguments));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     default boolean isServerTool() {
         return ServerTool.class.equals(getClass());
     }
@@ -103,4 +123,14 @@ public interface Tool {
         return ClientTool.class.equals(getClass());
     }
 
+    /**
+     * 是否无需用户确认、可在服务端直接执行
+     *
+     * @return true-直接执行，false-需要经过客户端确认
+     * @see org.joker.comfypilot.common.annotation.DirectExecute
+     */
+    default boolean isDirectExecute() {
+        return false;
+    }
+
 }
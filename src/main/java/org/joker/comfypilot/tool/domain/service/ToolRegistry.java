@@ -32,4 +32,21 @@ public interface ToolRegistry {
      */
     List<Tool> getToolsByClass(Class<?> clazz);
 
+    /**
+     * 注册外部工具（如 MCP 服务器提供的工具），替换该来源之前注册的全部工具
+     * <p>
+     * 与其他来源的工具重名时跳过该工具
+     *
+     * @param source 工具来源
+     * @param tools  该来源当前的全部工具，为空时移除该来源的工具
+     */
+    void registerTools(String source, List<Tool> tools);
+
+    /**
+     * 获取所有已注册的外部工具
+     *
+     * @return 外部工具列表
+     */
+    List<Tool> getExternalTools();
+
 }
@@ -17,6 +17,11 @@ public class McpProperties {
      */
     private Boolean enabled = true;
 
+    /**
+     * mcp.json 配置文件路径，文件不存在时不加载外部工具
+     */
+    private String configPath;
+
     /**
      * 是否只允许url方式的mcp tool
      */
@@ -37,6 +42,16 @@ public class McpProperties {
      */
     private Integer retryAttempts = 3;
 
+    /**
+     * 重试初始间隔（毫秒），按指数退避递增
+     */
+    private Integer retryBackoff = 200;
+
+    /**
+     * 每个 MCP 服务器保持的会话数
+     */
+    private Integer sessionPoolSize = 2;
+
     /**
      * 连接失败是否阻止应用启动
      * true: 连接失败时抛出异常，阻止启动
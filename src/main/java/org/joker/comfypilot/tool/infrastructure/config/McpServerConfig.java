@@ -54,4 +54,14 @@ public class McpServerConfig {
      * 环境变量
      */
     private Map<String, String> env;
+
+    /**
+     * 会话数，为空时使用 {@code mcp.session-pool-size}
+     */
+    private Integer poolSize;
+
+    /**
+     * 该服务器的工具是否无需用户确认、直接在服务端执行
+     */
+    private Boolean directExecute;
 }
@@ -0,0 +1,157 @@
+package org.joker.comfypilot.tool.infrastructure.service;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.tool.domain.service.Tool;
+import org.joker.comfypilot.tool.domain.service.ToolRegistry;
+import org.joker.comfypilot.tool.infrastructure.config.McpProperties;
+import org.joker.comfypilot.tool.infrastructure.config.McpServerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MCP 客户端管理器
+ * <p>
+ * 启动时并行连接 mcp.json 中配置的所有 MCP 服务器，为每个服务器建立会话池，
+ * 获取工具列表并注册到 {@link ToolRegistry}（来源为 {@code mcp:<服务器名称>}）。
+ * 服务器发送 tools/list_changed 通知后自动刷新该服务器的工具。
+ * <p>
+ * 除 {@code mcp.fail-fast=true} 外，服务器连接在后台进行，不阻塞应用启动。
+ */
+@Slf4j
+@Service
+public class McpClientManager implements CommandLineRunner {
+
+    private static final String TRANSPORT_STREAMABLE_HTTP = "streamable-http";
+
+    @Autowired
+    private McpProperties mcpProperties;
+    @Autowired
+    private McpConfigLoader mcpConfigLoader;
+    @Autowired
+    private ToolRegistry toolRegistry;
+
+    /**
+     * Key: 服务器名称
+     * Value: 会话池
+     */
+    private final Map<String, McpSessionPool> sessionPools = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(String... args) {
+        if (!Boolean.TRUE.equals(mcpProperties.getEnabled())) {
+            log.info("MCP 工具加载已禁用");
+            return;
+        }
+
+        Map<String, McpServerConfig> serverConfigs;
+        try {
+            serverConfigs = mcpConfigLoader.loadServerConfigs();
+        } catch (Exception e) {
+            String errorMsg = "加载 MCP 配置文件失败: " + e.getMessage();
+            log.error(errorMsg, e);
+            if (Boolean.TRUE.equals(mcpProperties.getFailFast())) {
+                throw new BusinessException(errorMsg);
+            }
+            return;
+        }
+        if (serverConfigs.isEmpty()) {
+            return;
+        }
+
+        Mono<Void> startup = Flux.fromIterable(serverConfigs.values())
+                .filter(this::isSupported)
+                .flatMap(config -> startServer(config)
+                        .onErrorResume(e -> {
+                            String errorMsg = String.format("加载 MCP 服务器 %s 的工具失败: %s", config.getName(), e.getMessage());
+                            log.error(errorMsg, e);
+                            return Boolean.TRUE.equals(mcpProperties.getFailFast())
+                                    ? Mono.error(new BusinessException(errorMsg))
+                                    : Mono.empty();
+                        }))
+                .then()
+                .doOnSuccess(v -> log.info("MCP 工具加载完成，共 {} 个服务器", sessionPools.size()));
+
+        if (Boolean.TRUE.equals(mcpProperties.getFailFast())) {
+            startup.block();
+        } else {
+            startup.subscribe(v -> {
+            }, e -> log.error("MCP 工具加载失败: {}", e.getMessage(), e));
+        }
+    }
+
+    /**
+     * 获取已连接的服务器名称
+     */
+    public List<String> getServerNames() {
+        return new ArrayList<>(sessionPools.keySet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessionPools.values().forEach(McpSessionPool::close);
+        sessionPools.clear();
+    }
+
+    private boolean isSupported(McpServerConfig config) {
+        String transport = StringUtils.defaultIfBlank(config.getTransport(), TRANSPORT_STREAMABLE_HTTP);
+        if (!TRANSPORT_STREAMABLE_HTTP.equalsIgnoreCase(transport)) {
+            log.warn("暂不支持的传输方式: serverName={}, transport={}", config.getName(), config.getTransport());
+            return false;
+        }
+        if (StringUtils.isBlank(config.getUrl())) {
+            log.warn("MCP 服务器 URL 未配置: {}", config.getName());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 建立会话池并注册服务器上的工具
+     */
+    private Mono<Void> startServer(McpServerConfig config) {
+        log.info("连接 MCP 服务器: serverName={}, url={}", config.getName(), config.getUrl());
+        McpSessionPool sessionPool = new McpSessionPool(config, mcpProperties,
+                (pool, tools) -> registerTools(config, pool, tools));
+        return sessionPool.start()
+                .then(sessionPool.listTools())
+                .doOnNext(tools -> {
+                    McpSessionPool previous = sessionPools.put(config.getName(), sessionPool);
+                    if (previous != null) {
+                        previous.close();
+                    }
+                    registerTools(config, sessionPool, tools);
+                })
+                .doOnError(e -> sessionPool.close())
+                .then();
+    }
+
+    /**
+     * 注册（或刷新）服务器的工具
+     */
+    private void registerTools(McpServerConfig config, McpSessionPool sessionPool, List<McpSchema.Tool> toolSchemas) {
+        boolean directExecute = Boolean.TRUE.equals(config.getDirectExecute());
+        List<Tool> tools = new ArrayList<>(toolSchemas.size());
+        for (McpSchema.Tool toolSchema : toolSchemas) {
+            try {
+                tools.add(new McpServerTool(config.getName(), toolSchema, sessionPool, directExecute));
+            } catch (Exception e) {
+                log.error("创建 MCP 工具失败: serverName={}, toolName={}, error={}",
+                        config.getName(), toolSchema.name(), e.getMessage(), e);
+            }
+        }
+        toolRegistry.registerTools("mcp:" + config.getName(), tools);
+        log.info("从 MCP 服务器 {} 加载了 {} 个工具", config.getName(), tools.size());
+    }
+}
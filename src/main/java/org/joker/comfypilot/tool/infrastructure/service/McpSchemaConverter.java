@@ -0,0 +1,127 @@
+package org.joker.comfypilot.tool.infrastructure.service;
+
+import dev.langchain4j.model.chat.request.json.*;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MCP 工具输入 Schema 转换
+ * <p>
+ * 将 MCP 服务器返回的 JSON Schema 转换为 LangChain4j 的 {@link JsonSchemaElement}，
+ * 支持基本类型、枚举、数组、嵌套对象、anyOf/oneOf 以及 $defs 引用。
+ * 无法识别的类型按字符串处理。
+ */
+final class McpSchemaConverter {
+
+    private McpSchemaConverter() {
+    }
+
+    /**
+     * 转换工具输入 Schema
+     *
+     * @param inputSchema MCP 输入 Schema
+     * @return LangChain4j JsonObjectSchema，输入为 null 时返回 null
+     */
+    static JsonObjectSchema toObjectSchema(McpSchema.JsonSchema inputSchema) {
+        if (inputSchema == null) {
+            return null;
+        }
+        Map<String, Object> definitions = inputSchema.defs() != null ? inputSchema.defs() : inputSchema.definitions();
+        return buildObjectSchema(null, inputSchema.properties(), inputSchema.required(),
+                inputSchema.additionalProperties(), definitions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JsonSchemaElement toElement(Object schema) {
+        if (!(schema instanceof Map<?, ?> map)) {
+            return JsonStringSchema.builder().build();
+        }
+        Map<String, Object> node = (Map<String, Object>) map;
+        String description = node.get("description") instanceof String text ? text : null;
+
+        if (node.get("$ref") instanceof String ref) {
+            return JsonReferenceSchema.builder()
+                    .reference(ref.substring(ref.lastIndexOf('/') + 1))
+                    .build();
+        }
+        if (node.get("enum") instanceof List<?> values) {
+            return JsonEnumSchema.builder()
+                    .enumValues(values.stream().map(String::valueOf).toList())
+                    .description(description)
+                    .build();
+        }
+        Object anyOf = node.get("anyOf") != null ? node.get("anyOf") : node.get("oneOf");
+        if (anyOf instanceof List<?> options) {
+            return anyOf(options.stream().map(McpSchemaConverter::toElement).toList(), description);
+        }
+
+        Object type = node.get("type");
+        if (type instanceof List<?> types) {
+            // 例如 ["string", "null"]
+            List<JsonSchemaElement> elements = new ArrayList<>(types.size());
+            for (Object item : types) {
+                Map<String, Object> single = new LinkedHashMap<>(node);
+                single.put("type", item);
+                if (types.size() > 1) {
+                    single.remove("description");
+                }
+                elements.add(toElement(single));
+            }
+            return elements.size() == 1 ? elements.get(0) : anyOf(elements, description);
+        }
+
+        if (type == null) {
+            type = node.containsKey("properties") ? "object" : node.containsKey("items") ? "array" : null;
+        }
+        if (type == null) {
+            return JsonStringSchema.builder().description(description).build();
+        }
+        return switch (type.toString()) {
+            case "integer" -> JsonIntegerSchema.builder().description(description).build();
+            case "number" -> JsonNumberSchema.builder().description(description).build();
+            case "boolean" -> JsonBooleanSchema.builder().description(description).build();
+            case "null" -> new JsonNullSchema();
+            case "array" -> JsonArraySchema.builder()
+                    .items(node.get("items") != null ? toElement(node.get("items")) : JsonStringSchema.builder().build())
+                    .description(description)
+                    .build();
+            case "object" -> buildObjectSchema(description,
+                    (Map<String, Object>) node.get("properties"),
+                    (List<String>) node.get("required"),
+                    node.get("additionalProperties") instanceof Boolean additional ? additional : null,
+                    (Map<String, Object>) (node.get("$defs") != null ? node.get("$defs") : node.get("definitions")));
+            default -> JsonStringSchema.builder().description(description).build();
+        };
+    }
+
+    private static JsonObjectSchema buildObjectSchema(String description, Map<String, Object> properties, List<String> required,
+                                                      Boolean additionalProperties, Map<String, Object> definitions) {
+        JsonObjectSchema.Builder builder = JsonObjectSchema.builder().description(description);
+        if (properties != null) {
+            properties.forEach((name, property) -> builder.addProperty(name, toElement(property)));
+        }
+        if (required != null && !required.isEmpty()) {
+            builder.required(required);
+        }
+        if (additionalProperties != null) {
+            builder.additionalProperties(additionalProperties);
+        }
+        if (definitions != null && !definitions.isEmpty()) {
+            Map<String, JsonSchemaElement> converted = new LinkedHashMap<>();
+            definitions.forEach((name, definition) -> converted.put(name, toElement(definition)));
+            builder.definitions(converted);
+        }
+        return builder.build();
+    }
+
+    private static JsonSchemaElement anyOf(List<JsonSchemaElement> elements, String description) {
+        return JsonAnyOfSchema.builder()
+                .anyOf(elements)
+                .description(description)
+                .build();
+    }
+}
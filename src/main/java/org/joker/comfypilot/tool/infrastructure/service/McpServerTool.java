@@ -1,29 +1,32 @@
 package org.joker.comfypilot.tool.infrastructure.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
 import io.modelcontextprotocol.spec.McpSchema;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.joker.comfypilot.common.config.JacksonConfig;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.tool.domain.service.Tool;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * MCP 外部服务器工具实现类
  * <p>
- * 封装对外部 MCP Server 的工具调用，通过 Streamable HTTP 协议与远程服务器通信。
+ * 封装对外部 MCP Server 的工具调用，通过 {@link McpSessionPool} 中的持久会话与远程服务器通信。
  * <p>
  * <b>核心功能：</b>
  * <ul>
  *   <li>将 MCP 工具元数据转换为 LangChain4j ToolSpecification</li>
- *   <li>通过 HTTP 调用远程 MCP Server 的工具</li>
- *   <li>支持超时、重试机制</li>
+ *   <li>非阻塞调用远程 MCP Server 的工具，响应到达时直接完成返回的 Future</li>
+ *   <li>支持超时、重试机制（由会话池处理）</li>
  *   <li>完善的异常处理和日志记录</li>
  * </ul>
  */
@@ -31,6 +34,9 @@ import java.util.Map;
 @EqualsAndHashCode(callSuper = false)
 public class McpServerTool implements Tool {
 
+    private static final TypeReference<Map<String, Object>> ARGUMENTS_TYPE = new TypeReference<>() {
+    };
+
     /**
      * 工具名称（带前缀）
      */
@@ -57,41 +63,34 @@ public class McpServerTool implements Tool {
     private final ToolSpecification toolSpecification;
 
     /**
-     * WebClient 用于 HTTP 调用
-     */
-    private final WebClient webClient;
-
-    /**
-     * 调用超时时间（毫秒）
+     * 服务器会话池
      */
-    private final int callTimeout;
+    @EqualsAndHashCode.Exclude
+    private final McpSessionPool sessionPool;
 
     /**
-     * 重试次数
+     * 是否无需用户确认、直接在服务端执行
      */
-    private final int retryAttempts;
+    private final boolean directExecute;
 
     /**
      * 构造 MCP 外部服务器工具
      *
      * @param serverName    服务器名称
      * @param toolSchema    MCP 工具规范
-     * @param webClient     WebClient 实例
-     * @param callTimeout   调用超时时间（毫秒）
-     * @param retryAttempts 重试次数
+     * @param sessionPool   服务器会话池
+     * @param directExecute 是否直接在服务端执行
      */
-    public McpServerTool(String serverName,
-                         McpSchema.Tool toolSchema,
-                         WebClient webClient,
-                         int callTimeout,
-                         int retryAttempts) {
+    McpServerTool(String serverName,
+                  McpSchema.Tool toolSchema,
+                  McpSessionPool sessionPool,
+                  boolean directExecute) {
         this.serverName = serverName;
         this.toolSchema = toolSchema;
         this.originalToolName = toolSchema.name();
         this.toolName = "mcp_" + serverName + "_" + originalToolName;
-        this.webClient = webClient;
-        this.callTimeout = callTimeout;
-        this.retryAttempts = retryAttempts;
+        this.sessionPool = sessionPool;
+        this.directExecute = directExecute;
         this.toolSpecification = convertToToolSpecification(toolSchema);
 
         log.debug("创建 MCP 外部工具: serverName={}, toolName={}, originalName={}",
@@ -108,51 +107,91 @@ public class McpServerTool implements Tool {
         return toolSpecification;
     }
 
+    @Override
+    public boolean isDirectExecute() {
+        return directExecute;
+    }
+
     /**
-     * 执行工具
-     * <p>
-     * 通过 HTTP 调用远程 MCP Server 的工具。
+     * 执行工具（阻塞等待 {@link #executeToolAsync} 的结果）
      *
      * @param name      工具名称（用于日志记录）
      * @param arguments JSON 格式的参数字符串
-     * @return JSON 格式的执行结果
+     * @return 工具执行结果
      * @throws BusinessException 工具执行失败时抛出
      */
     @Override
     public String executeTool(String toolCallId, String name, String arguments) {
         try {
-            log.debug("开始执行 MCP 外部工具: serverName={}, toolName={}, toolCallId={}, arguments={}",
-                    serverName, originalToolName, toolCallId, arguments);
-
-            // 构建请求体
-            Map<String, Object> requestBody = Map.of(
-                    "method", "tools/call",
-                    "params", Map.of(
-                            "name", originalToolName,
-                            "arguments", JacksonConfig.getObjectMapper().readValue(arguments, Map.class)
-                    )
-            );
-
-            // 发送 HTTP 请求
-            String result = webClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofMillis(callTimeout))
-                    .retryWhen(Retry.fixedDelay(retryAttempts, Duration.ofSeconds(1))
-                            .doBeforeRetry(signal -> log.warn("重试 MCP 工具调用: serverName={}, toolName={}, attempt={}",
-                                    serverName, originalToolName, signal.totalRetries() + 1)))
-                    .block();
-
-            log.debug("MCP 工具执行成功: serverName={}, toolName={}, result={}",
-                    serverName, originalToolName, result);
-
-            return result;
+            return executeToolAsync(toolCallId, name, arguments).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof BusinessException businessException) {
+                throw businessException;
+            }
+            throw new BusinessException("MCP 工具执行失败: " + cause.getMessage());
+        }
+    }
+
+    /**
+     * 异步执行工具
+     * <p>
+     * 请求通过会话池发送，不占用调用线程；服务端返回 isError 时 Future 以 {@link BusinessException} 异常完成。
+     *
+     * @param name      工具名称（用于日志记录）
+     * @param arguments JSON 格式的参数字符串
+     * @return 工具执行结果（文本内容，非文本内容为 JSON）
+     */
+    @Override
+    public CompletableFuture<String> executeToolAsync(String toolCallId, String name, String arguments) {
+        log.debug("开始执行 MCP 外部工具: serverName={}, toolName={}, toolCallId={}, arguments={}",
+                serverName, originalToolName, toolCallId, arguments);
+
+        Map<String, Object> args;
+        try {
+            args = StringUtils.isBlank(arguments)
+                    ? Map.of()
+                    : JacksonConfig.getObjectMapper().readValue(arguments, ARGUMENTS_TYPE);
+        } catch (Exception e) {
+            log.error("MCP 工具参数错误: serverName={}, toolName={}, arguments={}, error={}",
+                    serverName, originalToolName, arguments, e.getMessage());
+            return CompletableFuture.failedFuture(new BusinessException("工具参数错误: " + e.getMessage()));
+        }
+
+        return sessionPool.callTool(originalToolName, args)
+                .map(result -> {
+                    String text = toResultText(result);
+                    if (Boolean.TRUE.equals(result.isError())) {
+                        throw new BusinessException("MCP 工具执行失败: " + text);
+                    }
+                    log.debug("MCP 工具执行成功: serverName={}, toolName={}, result={}",
+                            serverName, originalToolName, text);
+                    return text;
+                })
+                .doOnError(e -> log.error("MCP 工具执行失败: serverName={}, toolName={}, arguments={}, error={}",
+                        serverName, originalToolName, arguments, e.getMessage()))
+                .onErrorMap(e -> !(e instanceof BusinessException),
+                        e -> new BusinessException("MCP 工具执行失败: " + e.getMessage()))
+                .toFuture();
+    }
 
+    /**
+     * 将工具结果转换为文本：全部为文本内容时直接拼接，否则序列化为 JSON
+     */
+    private String toResultText(McpSchema.CallToolResult result) {
+        List<McpSchema.Content> contents = result.content();
+        if (contents == null || contents.isEmpty()) {
+            return "";
+        }
+        if (contents.stream().allMatch(McpSchema.TextContent.class::isInstance)) {
+            return contents.stream()
+                    .map(content -> ((McpSchema.TextContent) content).text())
+                    .collect(Collectors.joining("\n"));
+        }
+        try {
+            return JacksonConfig.getObjectMapper().writeValueAsString(contents);
         } catch (Exception e) {
-            log.error("MCP 工具执行失败: serverName={}, toolName={}, arguments={}, error={}",
-                    serverName, originalToolName, arguments, e.getMessage(), e);
-            throw new BusinessException("MCP 工具执行失败: " + e.getMessage());
+            throw new BusinessException("序列化 MCP 工具结果失败: " + e.getMessage());
         }
     }
 
@@ -165,13 +204,11 @@ public class McpServerTool implements Tool {
      */
     private ToolSpecification convertToToolSpecification(McpSchema.Tool mcpTool) {
         try {
-            String name = mcpTool.name();
-            String description = mcpTool.description();
-            JsonObjectSchema parameters = convertInputSchema(mcpTool.inputSchema());
+            JsonObjectSchema parameters = McpSchemaConverter.toObjectSchema(mcpTool.inputSchema());
 
             return ToolSpecification.builder()
                     .name(toolName)
-                    .description(description)
+                    .description(mcpTool.description())
                     .parameters(parameters)
                     .metadata(mcpTool.meta())
                     .build();
@@ -182,35 +219,4 @@ public class McpServerTool implements Tool {
             throw new BusinessException("转换 MCP 工具规范失败: " + e.getMessage());
         }
     }
-
-    /**
-     * 转换 MCP 输入 Schema 为 LangChain4j JsonObjectSchema
-     * <p>
-     * 手动构建 JsonObjectSchema，因为它没有无参构造函数。
-     *
-     * @param inputSchema MCP 输入 Schema
-     * @return LangChain4j JsonObjectSchema
-     */
-    private JsonObjectSchema convertInputSchema(McpSchema.JsonSchema inputSchema) {
-        if (inputSchema == null) {
-            return null;
-        }
-
-        try {
-            // 将 McpSchema.JsonSchema 序列化为 JSON 字符串
-            String schemaJson = JacksonConfig.getObjectMapper().writeValueAsString(inputSchema);
-
-            // 再反序列化为 JsonNode
-            com.fasterxml.jackson.databind.JsonNode schemaNode = JacksonConfig.getObjectMapper().readTree(schemaJson);
-
-            // 使用 JsonObjectSchema.builder() 构建
-            // 注意：JsonObjectSchema 可能需要通过其他方式构建，这里先返回 null
-            // LangChain4j 会自动处理 null 的情况
-            log.debug("Schema JSON: {}", schemaJson);
-            return null;
-        } catch (Exception e) {
-            log.warn("转换 Schema 失败，使用 null: {}", e.getMessage());
-            return null;
-        }
-    }
 }
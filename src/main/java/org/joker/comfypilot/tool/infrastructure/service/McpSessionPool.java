@@ -0,0 +1,322 @@
+package org.joker.comfypilot.tool.infrastructure.service;
+
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.transport.HttpClientStreamableHttpTransport;
+import io.modelcontextprotocol.spec.McpError;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpTransportSessionNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.joker.comfypilot.common.exception.BusinessException;
+import org.joker.comfypilot.tool.infrastructure.config.McpProperties;
+import org.joker.comfypilot.tool.infrastructure.config.McpServerConfig;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * MCP 服务器会话池
+ * <p>
+ * 对一个 streamable-http MCP 服务器保持固定数量的已初始化会话（每个会话对应一个 Mcp-Session-Id），
+ * 调用时选择进行中请求最少的会话，所有调用均为非阻塞。
+ * 会话出现传输层错误时在后台重建，调用按指数退避重试；服务端返回的 JSON-RPC 错误不重试。
+ * 非幂等调用（callTool）只在请求确定没有发出时重试（没有可用会话、连接失败、服务端不认识会话），
+ * 请求可能已被服务端执行时（连接中断、超时等）直接返回错误，避免工具被重复执行。
+ */
+@Slf4j
+class McpSessionPool {
+
+    private static final McpSchema.Implementation CLIENT_INFO = new McpSchema.Implementation("comfy-pilot", "1.0.0");
+
+    /**
+     * SDK 收到会话不存在（404）后关闭会话，以此消息结束该会话上所有等待中的请求，原始异常不会传递给这些请求
+     */
+    private static final String SESSION_TERMINATED_MESSAGE = "MCP session with server terminated";
+
+    private final McpServerConfig config;
+
+    private final McpProperties properties;
+
+    /**
+     * 工具列表变更回调（收到 notifications/tools/list_changed 后触发）
+     */
+    private final BiConsumer<McpSessionPool, List<McpSchema.Tool>> toolsChangeListener;
+
+    private final Session[] sessions;
+
+    private volatile boolean closed;
+
+    McpSessionPool(McpServerConfig config, McpProperties properties,
+                   BiConsumer<McpSessionPool, List<McpSchema.Tool>> toolsChangeListener) {
+        this.config = config;
+        this.properties = properties;
+        this.toolsChangeListener = toolsChangeListener;
+        int poolSize = Math.max(1, config.getPoolSize() != null ? config.getPoolSize() : properties.getSessionPoolSize());
+        this.sessions = new Session[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            sessions[i] = new Session(i);
+        }
+    }
+
+    String serverName() {
+        return config.getName();
+    }
+
+    /**
+     * 并行建立所有会话，至少一个会话建立成功即视为启动成功
+     */
+    Mono<Void> start() {
+        AtomicReference<Throwable> lastError = new AtomicReference<>();
+        return Flux.fromArray(sessions)
+                .doOnNext(session -> session.reconnecting.set(true))
+                .flatMap(session -> connect(session)
+                        .doFinally(signal -> session.reconnecting.set(false))
+                        .thenReturn(true)
+                        .onErrorResume(e -> {
+                            lastError.set(e);
+                            log.warn("建立 MCP 会话失败: serverName={}, session={}, error={}", serverName(), session.index, e.getMessage());
+                            return Mono.just(false);
+                        }))
+                .filter(Boolean::booleanValue)
+                .count()
+                .flatMap(connected -> {
+                    if (connected == 0) {
+                        Throwable e = lastError.get();
+                        return Mono.error(new BusinessException("连接 MCP 服务器失败: " + serverName()
+                                + (e != null ? ", " + e.getMessage() : "")));
+                    }
+                    log.info("MCP 服务器已连接: serverName={}, sessions={}/{}", serverName(), connected, sessions.length);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 获取服务器上的全部工具（自动翻页）
+     */
+    Mono<List<McpSchema.Tool>> listTools() {
+        return withSession(client -> listTools(client, null, new ArrayList<>()), true);
+    }
+
+    /**
+     * 调用工具
+     *
+     * @param toolName  工具名称（服务器上的原始名称）
+     * @param arguments 工具参数
+     */
+    Mono<McpSchema.CallToolResult> callTool(String toolName, Map<String, Object> arguments) {
+        McpSchema.CallToolRequest request = new McpSchema.CallToolRequest(toolName, arguments);
+        return withSession(client -> client.callTool(request), false);
+    }
+
+    /**
+     * 关闭所有会话
+     */
+    void close() {
+        closed = true;
+        for (Session session : sessions) {
+            McpAsyncClient client = session.client.getAndSet(null);
+            if (client != null) {
+                closeQuietly(client);
+            }
+        }
+    }
+
+    private Mono<List<McpSchema.Tool>> listTools(McpAsyncClient client, String cursor, List<McpSchema.Tool> tools) {
+        return client.listTools(cursor).flatMap(result -> {
+            if (result.tools() != null) {
+                tools.addAll(result.tools());
+            }
+            return StringUtils.isNotEmpty(result.nextCursor())
+                    ? listTools(client, result.nextCursor(), tools)
+                    : Mono.just(tools);
+        });
+    }
+
+    /**
+     * 选择进行中请求最少的会话执行调用
+     *
+     * @param idempotent 调用是否幂等，幂等调用在传输层错误和超时后都会重试，非幂等调用只在请求未发出时重试
+     */
+    private <T> Mono<T> withSession(Function<McpAsyncClient, Mono<T>> call, boolean idempotent) {
+        return Mono.defer(() -> {
+                    Session session = select();
+                    McpAsyncClient client = session != null ? session.client.get() : null;
+                    if (client == null) {
+                        return Mono.error(new NoSessionAvailableException("MCP 服务器没有可用的会话: " + serverName()));
+                    }
+                    session.inFlight.incrementAndGet();
+                    return call.apply(client)
+                            .timeout(Duration.ofMillis(properties.getCallTimeout()))
+                            .doOnError(e -> {
+                                if (isTransportError(e)) {
+                                    reconnect(session, client);
+                                }
+                            })
+                            .doFinally(signal -> session.inFlight.decrementAndGet());
+                })
+                .retryWhen(Retry.backoff(properties.getRetryAttempts(), Duration.ofMillis(properties.getRetryBackoff()))
+                        .filter(e -> !closed && (idempotent ? isTransportError(e) || e instanceof TimeoutException : isNotSent(e)))
+                        .doBeforeRetry(signal -> log.warn("重试 MCP 调用: serverName={}, attempt={}, error={}",
+                                serverName(), signal.totalRetries() + 1, signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private Session select() {
+        Session selected = null;
+        for (Session session : sessions) {
+            if (session.client.get() == null) {
+                // 之前重建失败的会话，借调用时机再次尝试
+                reconnect(session, null);
+                continue;
+            }
+            if (selected == null || session.inFlight.get() < selected.inFlight.get()) {
+                selected = session;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 在后台重建会话，同一会话同时只有一个重建任务
+     */
+    private void reconnect(Session session, McpAsyncClient failed) {
+        if (closed || !session.reconnecting.compareAndSet(false, true)) {
+            return;
+        }
+        if (failed != null) {
+            if (!session.client.compareAndSet(failed, null)) {
+                // 已被其他调用重建
+                session.reconnecting.set(false);
+                return;
+            }
+            closeQuietly(failed);
+        }
+        log.info("重建 MCP 会话: serverName={}, session={}", serverName(), session.index);
+        connect(session)
+                .doFinally(signal -> session.reconnecting.set(false))
+                .subscribe(
+                        client -> log.info("MCP 会话已重建: serverName={}, session={}", serverName(), session.index),
+                        e -> log.warn("重建 MCP 会话失败: serverName={}, session={}, error={}", serverName(), session.index, e.getMessage())
+                );
+    }
+
+    private Mono<McpAsyncClient> connect(Session session) {
+        McpAsyncClient client = createClient(session.index == 0);
+        return client.initialize()
+                .thenReturn(client)
+                .doOnNext(connected -> {
+                    McpAsyncClient previous = session.client.getAndSet(connected);
+                    if (previous != null) {
+                        closeQuietly(previous);
+                    }
+                    if (closed) {
+                        close();
+                    }
+                })
+                .doOnError(e -> closeQuietly(client));
+    }
+
+    private McpAsyncClient createClient(boolean listenToolsChange) {
+        URI uri = URI.create(config.getUrl().trim());
+        String baseUri = uri.getScheme() + "://" + uri.getRawAuthority();
+        String endpoint = StringUtils.defaultIfEmpty(uri.getRawPath(), "/mcp")
+                + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+
+        HttpClientStreamableHttpTransport transport = HttpClientStreamableHttpTransport.builder(baseUri)
+                .endpoint(endpoint)
+                .connectTimeout(Duration.ofMillis(properties.getConnectionTimeout()))
+                .customizeRequest(request -> {
+                    if (config.getHeaders() != null) {
+                        config.getHeaders().forEach(request::header);
+                    }
+                })
+                // 保持服务端推送流，接收 notifications/tools/list_changed
+                .openConnectionOnStartup(listenToolsChange)
+                .build();
+
+        McpClient.AsyncSpec spec = McpClient.async(transport)
+                .clientInfo(CLIENT_INFO)
+                .requestTimeout(Duration.ofMillis(properties.getCallTimeout()))
+                .initializationTimeout(Duration.ofMillis(properties.getConnectionTimeout()));
+        if (listenToolsChange) {
+            // 多个会话会收到相同的通知，只在第一个会话上监听
+            spec.toolsChangeConsumer(tools -> Mono.fromRunnable(() -> toolsChangeListener.accept(this, tools)));
+        }
+        return spec.build();
+    }
+
+    private static boolean isTransportError(Throwable e) {
+        return !(e instanceof McpError) && !(e instanceof TimeoutException);
+    }
+
+    /**
+     * 请求是否确定没有被服务端处理：没有可用会话、建立连接失败、服务端不认识会话（会话失效，请求未执行）。
+     * 会话失效时，同一会话上等待中的请求可能先收到 SDK 关闭会话产生的异常，同样视为未执行
+     */
+    private static boolean isNotSent(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof NoSessionAvailableException
+                    || cause instanceof ConnectException
+                    || cause instanceof HttpConnectTimeoutException
+                    || cause instanceof UnknownHostException
+                    || cause instanceof McpTransportSessionNotFoundException
+                    || SESSION_TERMINATED_MESSAGE.equals(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void closeQuietly(McpAsyncClient client) {
+        client.closeGracefully()
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+
+    /**
+     * 没有可用的会话，请求未发出
+     */
+    private static final class NoSessionAvailableException extends IllegalStateException {
+
+        private NoSessionAvailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 池中的一个会话
+     */
+    private static final class Session {
+
+        private final int index;
+
+        private final AtomicReference<McpAsyncClient> client = new AtomicReference<>();
+
+        /**
+         * 进行中的请求数
+         */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicBoolean reconnecting = new AtomicBoolean();
+
+        private Session(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -1,16 +1,15 @@
 package org.joker.comfypilot.tool.infrastructure.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.annotation.DirectExecute;
 import org.joker.comfypilot.common.config.JacksonConfig;
 import org.joker.comfypilot.common.exception.BusinessException;
 import org.joker.comfypilot.tool.domain.service.Tool;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 
 /**
  * 服务端工具实现类
@@ -21,7 +20,7 @@ import java.lang.reflect.Parameter;
  * <b>核心功能：</b>
  * <ul>
  *   <li>自动解析 JSON 参数为 Java 方法参数</li>
- *   <li>通过反射调用工具方法</li>
+ *   <li>通过注册时预先生成的 {@link ToolMethodInvoker} 调用工具方法</li>
  *   <li>序列化返回值为 JSON 字符串</li>
  *   <li>完善的异常处理和日志记录</li>
  * </ul>
@@ -45,11 +44,12 @@ import java.lang.reflect.Parameter;
  * }
  *
  * // 工具执行
- * ExecutableTool tool = new ExecutableTool(
+ * ServerTool tool = new ServerTool(
  *     "createUser",
  *     method,
  *     userToolInstance,
- *     toolSpecification
+ *     toolSpecification,
+ *     ToolMethodInvoker.of(method, userToolInstance)
  * );
  *
  * String result = tool.executeTool("createUser", "{\"name\":\"张三\",\"age\":25}");
@@ -100,6 +100,14 @@ public class ServerTool implements Tool {
      */
     private ToolSpecification toolSpecification;
 
+    /**
+     * 工具方法调用器
+     * <p>
+     * 注册时预先生成，缓存参数反序列化器和方法调用句柄。
+     */
+    @EqualsAndHashCode.Exclude
+    private ToolMethodInvoker invoker;
+
     /**
      * {@inheritDoc}
      */
@@ -116,14 +124,25 @@ public class ServerTool implements Tool {
         return toolSpecification;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 工具方法或其所属类标记了 {@link DirectExecute} 时返回 true
+     */
+    @Override
+    public boolean isDirectExecute() {
+        return method.isAnnotationPresent(DirectExecute.class)
+                || method.getDeclaringClass().isAnnotationPresent(DirectExecute.class);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
      * <b>执行流程：</b>
      * <ol>
      *   <li>记录执行开始日志</li>
-     *   <li>调用 {@link #buildArguments(Method, String)} 解析 JSON 参数</li>
-     *   <li>通过反射调用工具方法</li>
+     *   <li>调用 {@link ToolMethodInvoker#bind(String)} 解析 JSON 参数</li>
+     *   <li>通过方法句柄调用工具方法</li>
      *   <li>序列化返回值为 JSON 字符串</li>
      *   <li>记录执行成功日志</li>
      * </ol>
@@ -131,7 +150,6 @@ public class ServerTool implements Tool {
      * <b>异常处理：</b>
      * <ul>
      *   <li>{@link IllegalArgumentException} - 参数类型不匹配或缺少必需参数</li>
-     *   <li>{@link IllegalAccessException} - 方法访问权限不足</li>
      *   <li>{@link java.lang.reflect.InvocationTargetException} - 方法执行过程中抛出异常</li>
      *   <li>{@link Exception} - 其他未预期的异常</li>
      * </ul>
@@ -148,10 +166,10 @@ public class ServerTool implements Tool {
             log.debug("开始执行工具: toolCallId={} toolName={}, arguments={}", toolCallId, name, arguments);
 
             // 1. 构建方法参数
-            Object[] args = buildArguments(method, arguments);
+            Object[] args = invoker.bind(arguments);
 
-            // 2. 反射调用方法
-            Object result = method.invoke(instance, args);
+            // 2. 调用方法
+            Object result = invoker.invoke(args);
 
             // 3. 序列化结果
             String resultJson = JacksonConfig.getObjectMapper().writeValueAsString(result);
@@ -165,11 +183,6 @@ public class ServerTool implements Tool {
                      name, arguments, e.getMessage(), e);
             throw new BusinessException("工具参数错误: " + e.getMessage());
 
-        } catch (IllegalAccessException e) {
-            // 方法访问权限问题
-            log.error("工具方法访问失败: toolName={}, error={}", name, e.getMessage(), e);
-            throw new BusinessException("工具方法访问失败: " + e.getMessage());
-
         } catch (java.lang.reflect.InvocationTargetException e) {
             // 方法执行过程中抛出异常
             Throwable cause = e.getCause();
@@ -185,98 +198,4 @@ public class ServerTool implements Tool {
             throw new BusinessException("工具执行失败: " + e.getMessage());
         }
     }
-
-    /**
-     * 构建方法参数数组
-     * <p>
-     * 将 JSON 格式的参数字符串解析为 Java 方法参数数组。
-     * 支持两种参数匹配策略：
-     * <ol>
-     *   <li><b>参数名匹配（推荐）：</b>通过参数名从 JSON 中获取对应值</li>
-     *   <li><b>索引匹配（降级）：</b>当检测到编译器生成的参数名时，通过索引获取值</li>
-     * </ol>
-     * <p>
-     * <b>参数名匹配示例：</b>
-     * <pre>{@code
-     * // 方法定义
-     * public int add(int a, int b) { ... }
-     *
-     * // JSON 参数
-     * {"a": 10, "b": 20}
-     *
-     * // 解析结果
-     * Object[] args = [10, 20]
-     * }</pre>
-     * <p>
-     * <b>索引匹配示例（降级策略）：</b>
-     * <pre>{@code
-     * // 如果参数名为 arg0, arg1（未启用 -parameters）
-     * // JSON 参数（数组形式）
-     * [10, 20]
-     *
-     * // 解析结果
-     * Object[] args = [10, 20]
-     * }</pre>
-     * <p>
-     * <b>支持的参数类型：</b>
-     * <ul>
-     *   <li>基本类型：int, long, double, boolean 等</li>
-     *   <li>包装类型：Integer, Long, Double, Boolean 等</li>
-     *   <li>字符串：String</li>
-     *   <li>复杂对象：任何 Jackson 可反序列化的 POJO</li>
-     *   <li>集合类型：List, Set, Map 等</li>
-     * </ul>
-     *
-     * @param method        目标方法，用于获取参数信息
-     * @param argumentsJson JSON 格式的参数字符串
-     * @return 方法参数数组，顺序与方法参数定义一致
-     * @throws IllegalArgumentException 参数缺失或格式错误时抛出
-     * @throws Exception                JSON 解析失败或类型转换失败时抛出
-     */
-    private Object[] buildArguments(Method method, String argumentsJson) throws Exception {
-        Parameter[] parameters = method.getParameters();
-
-        // 如果方法没有参数，直接返回空数组
-        if (parameters.length == 0) {
-            return new Object[0];
-        }
-
-        JsonNode root = JacksonConfig.getObjectMapper().readTree(argumentsJson);
-        Object[] args = new Object[parameters.length];
-
-        for (int i = 0; i < parameters.length; i++) {
-            Parameter p = parameters[i];
-            String paramName = p.getName();
-
-            // 检查参数名是否为编译器生成的默认名称（arg0, arg1, ...）
-            if (paramName.matches("arg\\d+")) {
-                log.warn("检测到编译器生成的参数名: {}，建议启用 -parameters 编译选项", paramName);
-
-                // 尝试通过索引获取参数（假设 JSON 是数组或按顺序的对象）
-                JsonNode valueNode = root.get(i);
-                if (valueNode == null) {
-                    throw new IllegalArgumentException(
-                        String.format("""
-                                无法获取第 %d 个参数的值。请确保：
-                                1. Maven/Gradle 配置了 -parameters 编译选项
-                                2. JSON 参数格式正确""", i)
-                    );
-                }
-                args[i] = JacksonConfig.getObjectMapper().treeToValue(valueNode, p.getType());
-            } else {
-                // 使用参数名从 JSON 中获取值
-                JsonNode valueNode = root.get(paramName);
-                if (valueNode == null) {
-                    throw new IllegalArgumentException(
-                        String.format("缺少参数: %s (类型: %s)", paramName, p.getType().getSimpleName())
-                    );
-                }
-                args[i] = JacksonConfig.getObjectMapper().treeToValue(valueNode, p.getType());
-            }
-
-            log.debug("参数解析: name={}, type={}, value={}", paramName, p.getType().getSimpleName(), args[i]);
-        }
-
-        return args;
-    }
 }
@@ -0,0 +1,212 @@
+package org.joker.comfypilot.tool.infrastructure.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.common.config.JacksonConfig;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 工具方法调用器
+ * <p>
+ * 在工具注册时为每个工具方法预先生成参数绑定信息和调用句柄，执行工具时不再重复反射：
+ * <ul>
+ *   <li>每个参数按其泛型类型缓存 {@link ObjectReader}</li>
+ *   <li>参数 JSON 以流式方式逐个字段解析，按字段名直接分发到对应参数，不构建中间 JsonNode 树</li>
+ *   <li>通过绑定了 Bean 实例的 {@link MethodHandle} 调用工具方法</li>
+ * </ul>
+ * 参数名为编译器生成的默认名称（arg0, arg1...）时，按数组元素顺序绑定参数。
+ */
+@Slf4j
+public final class ToolMethodInvoker {
+
+    private static final Pattern GENERATED_PARAMETER_NAME = Pattern.compile("arg\\d+");
+
+    /**
+     * 参数名
+     */
+    private final String[] parameterNames;
+
+    /**
+     * 参数类型
+     */
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * 参数反序列化器，与参数顺序一致
+     */
+    private final ObjectReader[] readers;
+
+    /**
+     * Key: 参数名
+     * Value: 参数位置
+     */
+    private final Map<String, Integer> parameterIndex;
+
+    /**
+     * 是否按位置绑定参数（未启用 -parameters 编译选项）
+     */
+    private final boolean positional;
+
+    /**
+     * 调用句柄，签名统一为 (Object[])Object
+     */
+    private final MethodHandle handle;
+
+    private ToolMethodInvoker(String[] parameterNames, Class<?>[] parameterTypes, ObjectReader[] readers,
+                              Map<String, Integer> parameterIndex, boolean positional, MethodHandle handle) {
+        this.parameterNames = parameterNames;
+        this.parameterTypes = parameterTypes;
+        this.readers = readers;
+        this.parameterIndex = parameterIndex;
+        this.positional = positional;
+        this.handle = handle;
+    }
+
+    /**
+     * 为工具方法生成调用器
+     *
+     * @param method   工具方法（需已可访问）
+     * @param instance 工具所属的 Bean 实例，静态方法可为 null
+     * @return 调用器
+     * @throws IllegalStateException 无法生成调用句柄时抛出
+     */
+    public static ToolMethodInvoker of(Method method, Object instance) {
+        ObjectMapper objectMapper = JacksonConfig.getObjectMapper();
+        Parameter[] parameters = method.getParameters();
+
+        String[] names = new String[parameters.length];
+        Class<?>[] types = new Class<?>[parameters.length];
+        ObjectReader[] readers = new ObjectReader[parameters.length];
+        Map<String, Integer> index = new HashMap<>(parameters.length * 2);
+        boolean positional = false;
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter p = parameters[i];
+            names[i] = p.getName();
+            types[i] = p.getType();
+            readers[i] = objectMapper.readerFor(objectMapper.constructType(p.getParameterizedType()));
+            index.put(names[i], i);
+            if (GENERATED_PARAMETER_NAME.matcher(names[i]).matches()) {
+                positional = true;
+            }
+        }
+        if (positional) {
+            log.warn("检测到编译器生成的参数名: method={}，建议启用 -parameters 编译选项", method.getName());
+        }
+
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("工具方法不可访问: " + method, e);
+        }
+        if (!Modifier.isStatic(method.getModifiers())) {
+            handle = handle.bindTo(instance);
+        }
+        handle = handle.asSpreader(Object[].class, parameters.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+
+        return new ToolMethodInvoker(names, types, readers, index, positional, handle);
+    }
+
+    /**
+     * 将 JSON 参数绑定为方法参数数组
+     *
+     * @param argumentsJson JSON 格式的参数字符串
+     * @return 方法参数数组，顺序与方法参数定义一致
+     * @throws IllegalArgumentException 参数缺失时抛出
+     * @throws Exception                JSON 解析失败或类型转换失败时抛出
+     */
+    public Object[] bind(String argumentsJson) throws Exception {
+        int count = readers.length;
+        Object[] args = new Object[count];
+        if (count == 0) {
+            return args;
+        }
+
+        boolean[] present = new boolean[count];
+        if (argumentsJson != null && !argumentsJson.isBlank()) {
+            try (JsonParser parser = JacksonConfig.getObjectMapper().createParser(argumentsJson)) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    bindFields(parser, args, present);
+                } else if (token == JsonToken.START_ARRAY && positional) {
+                    bindElements(parser, args, present);
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (!present[i]) {
+                if (positional) {
+                    throw new IllegalArgumentException(
+                            String.format("""
+                                    无法获取第 %d 个参数的值。请确保：
+                                    1. Maven/Gradle 配置了 -parameters 编译选项
+                                    2. JSON 参数格式正确""", i)
+                    );
+                }
+                throw new IllegalArgumentException(
+                        String.format("缺少参数: %s (类型: %s)", parameterNames[i], parameterTypes[i].getSimpleName())
+                );
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("参数解析: name={}, type={}, value={}", parameterNames[i], parameterTypes[i].getSimpleName(), args[i]);
+            }
+        }
+        return args;
+    }
+
+    /**
+     * 调用工具方法
+     *
+     * @param args 方法参数
+     * @return 方法返回值
+     * @throws InvocationTargetException 工具方法执行过程中抛出异常
+     */
+    public Object invoke(Object[] args) throws InvocationTargetException {
+        try {
+            return (Object) handle.invokeExact(args);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private void bindFields(JsonParser parser, Object[] args, boolean[] present) throws Exception {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Integer i = parameterIndex.get(parser.currentName());
+            parser.nextToken();
+            if (i == null) {
+                parser.skipChildren();
+                continue;
+            }
+            args[i] = readers[i].readValue(parser);
+            present[i] = true;
+        }
+    }
+
+    private void bindElements(JsonParser parser, Object[] args, boolean[] present) throws Exception {
+        int i = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (i < args.length) {
+                args[i] = readers[i].readValue(parser);
+                present[i] = true;
+            } else {
+                parser.skipChildren();
+            }
+            i++;
+        }
+    }
+}
@@ -14,8 +14,11 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -40,6 +43,13 @@ public class ToolRegistryImpl implements CommandLineRunner, ToolRegistry, Applic
      */
     private final Map<Class<?>, List<Tool>> classToolMap = new ConcurrentHashMap<>();
 
+    /**
+     * 外部工具来源到 Tool 列表的映射表
+     * Key: 工具来源
+     * Value: 该来源下已注册的 Tool 列表
+     */
+    private final Map<String, List<Tool>> sourceToolMap = new ConcurrentHashMap<>();
+
     private ApplicationContext applicationContext;
 
     @Override
@@ -143,7 +153,8 @@ public class ToolRegistryImpl implements CommandLineRunner, ToolRegistry, Applic
                 if (toolMap.containsKey(toolName)) {
                     throw new BusinessException("注册工具出错:工具名:" + toolName + " 重复！");
                 }
-                Tool tool = new ServerTool(toolName, method, toolBean, toolSpecification);
+                Tool tool = new ServerTool(toolName, method, toolBean, toolSpecification,
+                        ToolMethodInvoker.of(method, toolBean));
                 toolMap.put(toolName, tool);
                 classTools.add(tool);
                 methodCount++;
@@ -214,4 +225,43 @@ public class ToolRegistryImpl implements CommandLineRunner, ToolRegistry, Applic
         return tools != null ? tools : List.of();
     }
 
+    @Override
+    public synchronized void registerTools(String source, List<Tool> tools) {
+        List<Tool> previous = sourceToolMap.getOrDefault(source, List.of());
+        Set<Tool> previousTools = new HashSet<>(previous);
+
+        // 先放入新工具再移除已下线的工具，注册过程中不会出现查不到工具的情况
+        List<Tool> registered = new ArrayList<>(tools.size());
+        Set<String> registeredNames = new HashSet<>();
+        for (Tool tool : tools) {
+            Tool existing = toolMap.get(tool.toolName());
+            if (existing != null && !previousTools.contains(existing)) {
+                log.warn("外部工具与已注册工具重名，跳过: source={}, toolName={}", source, tool.toolName());
+                continue;
+            }
+            toolMap.put(tool.toolName(), tool);
+            registered.add(tool);
+            registeredNames.add(tool.toolName());
+        }
+        for (Tool tool : previous) {
+            if (!registeredNames.contains(tool.toolName())) {
+                toolMap.remove(tool.toolName(), tool);
+            }
+        }
+
+        if (registered.isEmpty()) {
+            sourceToolMap.remove(source);
+        } else {
+            sourceToolMap.put(source, List.copyOf(registered));
+        }
+        log.info("注册外部工具: source={}, tools={}", source, registeredNames);
+    }
+
+    @Override
+    public List<Tool> getExternalTools() {
+        List<Tool> tools = new ArrayList<>();
+        sourceToolMap.values().forEach(tools::addAll);
+        return tools;
+    }
+
 }
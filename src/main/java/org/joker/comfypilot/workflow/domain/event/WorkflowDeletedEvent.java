@@ -0,0 +1,18 @@
+package org.joker.comfypilot.workflow.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 工作流已删除事件
+ */
+@Data
+@AllArgsConstructor
+public class WorkflowDeletedEvent {
+
+    /**
+     * 工作流ID
+     */
+    private Long workflowId;
+
+}
@@ -0,0 +1,19 @@
+package org.joker.comfypilot.workflow.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.joker.comfypilot.workflow.domain.entity.Workflow;
+
+/**
+ * 工作流已保存事件（新增或更新）
+ */
+@Data
+@AllArgsConstructor
+public class WorkflowSavedEvent {
+
+    /**
+     * 保存后的工作流
+     */
+    private Workflow workflow;
+
+}
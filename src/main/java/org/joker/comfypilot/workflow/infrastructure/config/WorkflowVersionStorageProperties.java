@@ -0,0 +1,29 @@
+package org.joker.comfypilot.workflow.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工作流版本存储配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "workflow.version.storage")
+public class WorkflowVersionStorageProperties {
+
+    /**
+     * 是否启用增量存储，关闭时每个版本都保存完整内容（仍压缩）
+     */
+    private Boolean deltaEnabled = true;
+
+    /**
+     * 关键帧间隔：连续增量版本数达到该值时保存一次完整内容，限制还原时需要应用的补丁数量
+     */
+    private Integer keyframeInterval = 10;
+
+    /**
+     * 已还原版本内容的本地缓存数量
+     */
+    private Integer cacheSize = 256;
+}
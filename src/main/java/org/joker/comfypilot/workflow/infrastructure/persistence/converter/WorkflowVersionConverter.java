@@ -3,6 +3,7 @@ package org.joker.comfypilot.workflow.infrastructure.persistence.converter;
 import org.joker.comfypilot.workflow.domain.entity.WorkflowVersion;
 import org.joker.comfypilot.workflow.infrastructure.persistence.po.WorkflowVersionPO;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 /**
  * 工作流版本PO与Entity转换器
@@ -20,9 +21,15 @@ public interface WorkflowVersionConverter {
 
     /**
      * 领域实体转PO
+     * 存储字段（压缩内容、存储类型、增量基准）由仓储按存储策略填充
      *
      * @param domain 领域实体
      * @return 持久化对象
      */
+    @Mapping(target = "contentData", ignore = true)
+    @Mapping(target = "storageType", ignore = true)
+    @Mapping(target = "baseVersionId", ignore = true)
+    @Mapping(target = "keyframeId", ignore = true)
+    @Mapping(target = "chainDepth", ignore = true)
     WorkflowVersionPO toPO(WorkflowVersion domain);
 }
@@ -2,13 +2,24 @@ package org.joker.comfypilot.workflow.infrastructure.persistence.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.joker.comfypilot.workflow.infrastructure.persistence.po.WorkflowVersionPO;
 
+import java.util.List;
+
 /**
  * 工作流版本Mapper接口
  */
 @Mapper
 public interface WorkflowVersionMapper extends BaseMapper<WorkflowVersionPO> {
 
+    /**
+     * 查询同一关键帧下的所有版本（包含已逻辑删除的版本，它们可能仍是其他版本的补丁基准）
+     *
+     * @param keyframeId 关键帧版本ID
+     * @return 版本列表
+     */
+    @Select("SELECT * FROM workflow_version WHERE keyframe_id = #{keyframeId}")
+    List<WorkflowVersionPO> selectByKeyframeId(@Param("keyframeId") Long keyframeId);
 }
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 import org.joker.comfypilot.common.infrastructure.persistence.annotation.UniqueKey;
 import org.joker.comfypilot.common.infrastructure.persistence.po.BasePO;
+import org.joker.comfypilot.workflow.infrastructure.persistence.storage.WorkflowVersionStorageType;
 
 /**
  * 工作流版本持久化对象
@@ -40,10 +41,35 @@ public class WorkflowVersionPO extends BasePO {
     private String fromVersionCode;
 
     /**
-     * 版本内容（JSON格式）
+     * 版本内容（JSON格式，仅旧数据使用，新版本存储在 contentData 中）
      */
     private String content;
 
+    /**
+     * 压缩后的版本内容（完整内容或相对基准版本的 JSON Patch）
+     */
+    private byte[] contentData;
+
+    /**
+     * 存储方式
+     */
+    private WorkflowVersionStorageType storageType;
+
+    /**
+     * 补丁基准版本ID（完整存储时为空）
+     */
+    private Long baseVersionId;
+
+    /**
+     * 所属关键帧版本ID（完整存储时为自身ID）
+     */
+    private Long keyframeId;
+
+    /**
+     * 距关键帧的补丁数量
+     */
+    private Integer chainDepth;
+
     /**
      * 内容的SHA-256哈希值
      */
@@ -2,12 +2,15 @@ package org.joker.comfypilot.workflow.infrastructure.persistence.repository;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import org.joker.comfypilot.workflow.domain.entity.Workflow;
+import org.joker.comfypilot.workflow.domain.event.WorkflowDeletedEvent;
+import org.joker.comfypilot.workflow.domain.event.WorkflowSavedEvent;
 import org.joker.comfypilot.workflow.domain.repository.WorkflowRepository;
 import org.joker.comfypilot.workflow.infrastructure.persistence.converter.WorkflowConverter;
 import org.joker.comfypilot.workflow.infrastructure.persistence.mapper.WorkflowMapper;
 import org.joker.comfypilot.workflow.infrastructure.persistence.po.WorkflowPO;
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +26,8 @@ public class WorkflowRepositoryImpl implements WorkflowRepository {
     private WorkflowMapper workflowMapper;
     @Autowired
     private WorkflowConverter workflowConverter;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public Optional<Workflow> findById(Long id) {
@@ -53,11 +58,14 @@ public class WorkflowRepositoryImpl implements WorkflowRepository {
     public Workflow save(Workflow workflow) {
         WorkflowPO po = workflowConverter.toPO(workflow);
         workflowMapper.insertOrUpdate(po);
-        return workflowConverter.toDomain(po);
+        Workflow saved = workflowConverter.toDomain(po);
+        eventPublisher.publishEvent(new WorkflowSavedEvent(saved));
+        return saved;
     }
 
     @Override
     public void deleteById(Long id) {
         workflowMapper.deleteById(id);
+        eventPublisher.publishEvent(new WorkflowDeletedEvent(id));
     }
 }
@@ -1,20 +1,24 @@
 package org.joker.comfypilot.workflow.infrastructure.persistence.repository;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import org.joker.comfypilot.workflow.domain.entity.WorkflowVersion;
 import org.joker.comfypilot.workflow.domain.repository.WorkflowVersionRepository;
 import org.joker.comfypilot.workflow.infrastructure.persistence.converter.WorkflowVersionConverter;
 import org.joker.comfypilot.workflow.infrastructure.persistence.mapper.WorkflowVersionMapper;
 import org.joker.comfypilot.workflow.infrastructure.persistence.po.WorkflowVersionPO;
+import org.joker.comfypilot.workflow.infrastructure.persistence.storage.WorkflowVersionContentCodec;
 import org.springframework.stereotype.Repository;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
  * 工作流版本仓储实现
+ * 版本内容以增量 + 关键帧的形式压缩存储（见 {@link WorkflowVersionContentCodec}），读取时还原为完整内容
  */
 @Repository
 public class WorkflowVersionRepositoryImpl implements WorkflowVersionRepository {
@@ -23,6 +27,8 @@ public class WorkflowVersionRepositoryImpl implements WorkflowVersionRepository
     private WorkflowVersionMapper versionMapper;
     @Autowired
     private WorkflowVersionConverter versionConverter;
+    @Autowired
+    private WorkflowVersionContentCodec contentCodec;
 
     @Override
     public Optional<WorkflowVersion> findByWorkflowIdAndVersionCode(Long workflowId, String versionCode) {
@@ -31,7 +37,7 @@ public class WorkflowVersionRepositoryImpl implements WorkflowVersionRepository
                         .eq(WorkflowVersionPO::getWorkflowId, workflowId)
                         .eq(WorkflowVersionPO::getVersionCode, versionCode)
         );
-        return Optional.ofNullable(po).map(versionConverter::toDomain);
+        return Optional.ofNullable(po).map(this::toDomain);
     }
 
     @Override
@@ -40,8 +46,11 @@ public class WorkflowVersionRepositoryImpl implements WorkflowVersionRepository
         wrapper.eq(WorkflowVersionPO::getWorkflowId, workflowId)
                 .orderByDesc(WorkflowVersionPO::getCreateTime);
         List<WorkflowVersionPO> poList = versionMapper.selectList(wrapper);
+
+        // 同一工作流的版本互为补丁链，批量还原
+        Map<Long, String> contents = contentCodec.decodeAll(poList, versionMapper::selectByKeyframeId);
         return poList.stream()
-                .map(versionConverter::toDomain)
+                .map(po -> toDomain(po, contents.get(po.getId())))
                 .collect(Collectors.toList());
     }
 
@@ -51,18 +60,56 @@ public class WorkflowVersionRepositoryImpl implements WorkflowVersionRepository
         wrapper.eq(WorkflowVersionPO::getWorkflowId, workflowId)
                 .eq(WorkflowVersionPO::getContentHash, contentHash);
         WorkflowVersionPO po = versionMapper.selectOne(wrapper);
-        return Optional.ofNullable(po).map(versionConverter::toDomain);
+        return Optional.ofNullable(po).map(this::toDomain);
     }
 
     @Override
     public WorkflowVersion save(WorkflowVersion version) {
         WorkflowVersionPO po = versionConverter.toPO(version);
+        if (po.getId() == null) {
+            // 完整存储的版本以自身ID作为关键帧ID，需要在插入前分配
+            po.setId(IdWorker.getId());
+        }
+
+        // 以来源版本（未指定时为最新版本）作为补丁基准
+        WorkflowVersionPO base = findBase(version);
+        String baseContent = base == null ? null : contentCodec.decode(base, versionMapper::selectByKeyframeId);
+        contentCodec.encode(po, version.getContent(), base, baseContent);
+
         versionMapper.insertOrUpdate(po);
-        return versionConverter.toDomain(po);
+        return toDomain(po, version.getContent());
     }
 
     @Override
     public void deleteById(Long id) {
+        // 逻辑删除，行仍保留，可继续作为其他版本的补丁基准
         versionMapper.deleteById(id);
+        contentCodec.evict(id);
+    }
+
+    /**
+     * 查找补丁基准版本
+     */
+    private WorkflowVersionPO findBase(WorkflowVersion version) {
+        LambdaQueryWrapper<WorkflowVersionPO> wrapper = new LambdaQueryWrapper<WorkflowVersionPO>()
+                .eq(WorkflowVersionPO::getWorkflowId, version.getWorkflowId());
+        if (version.getFromVersionCode() != null) {
+            wrapper.eq(WorkflowVersionPO::getVersionCode, version.getFromVersionCode());
+        } else {
+            wrapper.orderByDesc(WorkflowVersionPO::getCreateTime)
+                    .last("LIMIT 1");
+        }
+        List<WorkflowVersionPO> candidates = versionMapper.selectList(wrapper);
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    private WorkflowVersion toDomain(WorkflowVersionPO po) {
+        return toDomain(po, contentCodec.decode(po, versionMapper::selectByKeyframeId));
+    }
+
+    private WorkflowVersion toDomain(WorkflowVersionPO po, String content) {
+        WorkflowVersion version = versionConverter.toDomain(po);
+        version.setContent(content);
+        return version;
     }
 }
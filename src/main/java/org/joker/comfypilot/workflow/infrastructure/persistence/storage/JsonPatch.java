@@ -0,0 +1,205 @@
+package org.joker.comfypilot.workflow.infrastructure.persistence.storage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * JSON Patch（RFC 6902）生成与应用
+ * <p>
+ * 只使用 add / remove / replace 三种操作：
+ * <ul>
+ *   <li>对象：逐字段比较，递归生成子节点差异</li>
+ *   <li>数组：跳过相同的前缀和后缀，中间部分按下标逐个递归比较，多余元素删除、新增元素插入</li>
+ *   <li>其他类型或类型不同：整体替换</li>
+ * </ul>
+ * ComfyUI 工作流的编辑通常只移动少量节点或修改少量参数，生成的补丁远小于完整内容。
+ */
+public final class JsonPatch {
+
+    private static final String OP = "op";
+    private static final String PATH = "path";
+    private static final String VALUE = "value";
+
+    private JsonPatch() {
+    }
+
+    /**
+     * 生成从 source 到 target 的补丁
+     *
+     * @param source 原内容
+     * @param target 目标内容
+     * @return 补丁（操作数组）
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        diff(patch, "", source, target);
+        return patch;
+    }
+
+    /**
+     * 在 source 的副本上应用补丁
+     *
+     * @param source 原内容（不会被修改）
+     * @param patch  补丁
+     * @return 应用补丁后的内容
+     */
+    public static JsonNode apply(JsonNode source, JsonNode patch) {
+        JsonNode result = source.deepCopy();
+        for (JsonNode operation : patch) {
+            String op = operation.path(OP).asText();
+            String path = operation.path(PATH).asText();
+            JsonNode value = operation.get(VALUE);
+            if (path.isEmpty()) {
+                // 根节点只支持整体替换
+                if (!"replace".equals(op)) {
+                    throw new IllegalArgumentException("不支持的根节点补丁操作: " + op);
+                }
+                result = value.deepCopy();
+                continue;
+            }
+            int lastSlash = path.lastIndexOf('/');
+            JsonNode parent = resolve(result, path.substring(0, lastSlash));
+            String token = unescape(path.substring(lastSlash + 1));
+            switch (op) {
+                case "add" -> add(parent, token, value.deepCopy());
+                case "remove" -> remove(parent, token);
+                case "replace" -> replace(parent, token, value.deepCopy());
+                default -> throw new IllegalArgumentException("不支持的补丁操作: " + op);
+            }
+        }
+        return result;
+    }
+
+    private static void diff(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        if (source.equals(target)) {
+            return;
+        }
+        if (source.isObject() && target.isObject()) {
+            diffObject(patch, path, source, target);
+        } else if (source.isArray() && target.isArray()) {
+            diffArray(patch, path, (ArrayNode) source, (ArrayNode) target);
+        } else {
+            addOperation(patch, "replace", path, target);
+        }
+    }
+
+    private static void diffObject(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        Iterator<Map.Entry<String, JsonNode>> sourceFields = source.fields();
+        while (sourceFields.hasNext()) {
+            Map.Entry<String, JsonNode> field = sourceFields.next();
+            String fieldPath = path + "/" + escape(field.getKey());
+            JsonNode targetValue = target.get(field.getKey());
+            if (targetValue == null) {
+                addOperation(patch, "remove", fieldPath, null);
+            } else {
+                diff(patch, fieldPath, field.getValue(), targetValue);
+            }
+        }
+        Iterator<Map.Entry<String, JsonNode>> targetFields = target.fields();
+        while (targetFields.hasNext()) {
+            Map.Entry<String, JsonNode> field = targetFields.next();
+            if (!source.has(field.getKey())) {
+                addOperation(patch, "add", path + "/" + escape(field.getKey()), field.getValue());
+            }
+        }
+    }
+
+    private static void diffArray(ArrayNode patch, String path, ArrayNode source, ArrayNode target) {
+        int sourceSize = source.size();
+        int targetSize = target.size();
+
+        // 相同前缀
+        int prefix = 0;
+        while (prefix < sourceSize && prefix < targetSize && source.get(prefix).equals(target.get(prefix))) {
+            prefix++;
+        }
+        // 相同后缀（不与前缀重叠）
+        int suffix = 0;
+        while (suffix < sourceSize - prefix && suffix < targetSize - prefix
+                && source.get(sourceSize - 1 - suffix).equals(target.get(targetSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        int sourceMiddle = sourceSize - prefix - suffix;
+        int targetMiddle = targetSize - prefix - suffix;
+        int common = Math.min(sourceMiddle, targetMiddle);
+
+        // 中间部分逐个比较（不改变数组长度）
+        for (int i = prefix; i < prefix + common; i++) {
+            diff(patch, path + "/" + i, source.get(i), target.get(i));
+        }
+        // 删除多余元素（始终删除同一下标）
+        for (int i = common; i < sourceMiddle; i++) {
+            addOperation(patch, "remove", path + "/" + (prefix + common), null);
+        }
+        // 插入新增元素
+        for (int i = common; i < targetMiddle; i++) {
+            addOperation(patch, "add", path + "/" + (prefix + i), target.get(prefix + i));
+        }
+    }
+
+    private static void addOperation(ArrayNode patch, String op, String path, JsonNode value) {
+        ObjectNode operation = patch.addObject();
+        operation.put(OP, op);
+        operation.put(PATH, path);
+        if (value != null) {
+            operation.set(VALUE, value);
+        }
+    }
+
+    private static JsonNode resolve(JsonNode root, String pointer) {
+        JsonNode node = root;
+        if (pointer.isEmpty()) {
+            return node;
+        }
+        for (String rawToken : pointer.substring(1).split("/", -1)) {
+            String token = unescape(rawToken);
+            node = node.isArray() ? node.get(Integer.parseInt(token)) : node.get(token);
+            if (node == null) {
+                throw new IllegalArgumentException("补丁路径不存在: " + pointer);
+            }
+        }
+        return node;
+    }
+
+    private static void add(JsonNode parent, String token, JsonNode value) {
+        if (parent instanceof ArrayNode array) {
+            if ("-".equals(token)) {
+                array.add(value);
+            } else {
+                array.insert(Integer.parseInt(token), value);
+            }
+        } else {
+            ((ObjectNode) parent).set(token, value);
+        }
+    }
+
+    private static void remove(JsonNode parent, String token) {
+        if (parent instanceof ArrayNode array) {
+            array.remove(Integer.parseInt(token));
+        } else {
+            ((ObjectNode) parent).remove(token);
+        }
+    }
+
+    private static void replace(JsonNode parent, String token, JsonNode value) {
+        if (parent instanceof ArrayNode array) {
+            array.set(Integer.parseInt(token), value);
+        } else {
+            ((ObjectNode) parent).set(token, value);
+        }
+    }
+
+    private static String escape(String token) {
+        return token.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static String unescape(String token) {
+        return token.replace("~1", "/").replace("~0", "~");
+    }
+}
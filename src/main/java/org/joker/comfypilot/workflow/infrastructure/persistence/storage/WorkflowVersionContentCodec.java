@@ -0,0 +1,224 @@
+package org.joker.comfypilot.workflow.infrastructure.persistence.storage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.joker.comfypilot.workflow.infrastructure.config.WorkflowVersionStorageProperties;
+import org.joker.comfypilot.workflow.infrastructure.persistence.po.WorkflowVersionPO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 工作流版本内容编解码器
+ * <p>
+ * 存储格式：
+ * <ul>
+ *   <li>FULL：完整内容，GZIP 压缩后存入 content_data</li>
+ *   <li>DELTA：相对基准版本（base_version_id）的 JSON Patch，GZIP 压缩后存入 content_data</li>
+ *   <li>旧数据：content_data 为空，完整内容以明文存放在 content 列</li>
+ * </ul>
+ * 同一关键帧衍生出的版本记录相同的 keyframe_id，还原时一次查询即可取到整条补丁链。
+ * 增量补丁只有在能够逐字节还原原始内容时才使用（内容哈希去重依赖原始字符串），否则退回完整存储。
+ */
+@Slf4j
+@Component
+public class WorkflowVersionContentCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private WorkflowVersionStorageProperties properties;
+
+    /**
+     * 已还原内容缓存（LRU）
+     * Key: 版本ID
+     * Value: 完整内容
+     */
+    private Map<Long, String> materializedCache;
+
+    @PostConstruct
+    public void init() {
+        int cacheSize = Math.max(0, properties.getCacheSize());
+        materializedCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * 编码新版本内容，填充 PO 的存储字段
+     *
+     * @param po          待保存的版本（必须已分配ID）
+     * @param content     完整内容
+     * @param base        基准版本（可为null）
+     * @param baseContent 基准版本完整内容（base 为null时忽略）
+     */
+    public void encode(WorkflowVersionPO po, String content, WorkflowVersionPO base, String baseContent) {
+        po.setContent(null);
+        if (base != null && canUseDelta(base)) {
+            byte[] delta = createDelta(baseContent, content);
+            if (delta != null) {
+                po.setStorageType(WorkflowVersionStorageType.DELTA);
+                po.setBaseVersionId(base.getId());
+                po.setKeyframeId(base.getKeyframeId());
+                po.setChainDepth(depthOf(base) + 1);
+                po.setContentData(delta);
+                materializedCache.put(po.getId(), content);
+                return;
+            }
+        }
+        po.setStorageType(WorkflowVersionStorageType.FULL);
+        po.setBaseVersionId(null);
+        po.setKeyframeId(po.getId());
+        po.setChainDepth(0);
+        po.setContentData(compress(content));
+        materializedCache.put(po.getId(), content);
+    }
+
+    /**
+     * 还原单个版本的完整内容
+     *
+     * @param po          版本
+     * @param chainLoader 按关键帧ID加载同组所有版本（缓存未命中且为增量版本时调用）
+     * @return 完整内容
+     */
+    public String decode(WorkflowVersionPO po, Function<Long, List<WorkflowVersionPO>> chainLoader) {
+        return decodeAll(List.of(po), chainLoader).get(po.getId());
+    }
+
+    /**
+     * 还原一组版本的完整内容（例如同一工作流的版本列表，组内版本互相作为补丁链，缺少的基准版本按关键帧加载）
+     *
+     * @param versions    版本列表
+     * @param chainLoader 按关键帧ID加载同组所有版本
+     * @return Key: 版本ID，Value: 完整内容
+     */
+    public Map<Long, String> decodeAll(List<WorkflowVersionPO> versions, Function<Long, List<WorkflowVersionPO>> chainLoader) {
+        Map<Long, WorkflowVersionPO> group = new HashMap<>();
+        versions.forEach(version -> group.put(version.getId(), version));
+        Map<Long, String> result = new HashMap<>();
+        for (WorkflowVersionPO version : versions) {
+            result.put(version.getId(), materialize(version, group, chainLoader));
+        }
+        return result;
+    }
+
+    /**
+     * 版本删除后移除缓存
+     *
+     * @param versionId 版本ID
+     */
+    public void evict(Long versionId) {
+        materializedCache.remove(versionId);
+    }
+
+    /**
+     * 沿补丁链还原内容（链上任意版本命中缓存即停止向上查找），链上各版本的还原结果都会写入缓存
+     */
+    private String materialize(WorkflowVersionPO po, Map<Long, WorkflowVersionPO> group,
+                               Function<Long, List<WorkflowVersionPO>> chainLoader) {
+        String cached = materializedCache.get(po.getId());
+        if (cached != null) {
+            return cached;
+        }
+        String content;
+        if (po.getContentData() == null) {
+            // 旧数据：明文完整内容
+            content = po.getContent();
+        } else if (po.getStorageType() != WorkflowVersionStorageType.DELTA) {
+            content = decompress(po.getContentData());
+        } else {
+            WorkflowVersionPO base = group.get(po.getBaseVersionId());
+            if (base == null) {
+                chainLoader.apply(po.getKeyframeId()).forEach(member -> group.putIfAbsent(member.getId(), member));
+                base = group.get(po.getBaseVersionId());
+            }
+            if (base == null) {
+                throw new IllegalStateException("工作流版本补丁链不完整, versionId: " + po.getId()
+                        + ", baseVersionId: " + po.getBaseVersionId());
+            }
+            content = applyDelta(materialize(base, group, chainLoader), po.getContentData());
+        }
+        materializedCache.put(po.getId(), content);
+        return content;
+    }
+
+    private boolean canUseDelta(WorkflowVersionPO base) {
+        return Boolean.TRUE.equals(properties.getDeltaEnabled())
+                && base.getContentData() != null
+                && depthOf(base) + 1 < properties.getKeyframeInterval();
+    }
+
+    private int depthOf(WorkflowVersionPO po) {
+        return po.getChainDepth() == null ? 0 : po.getChainDepth();
+    }
+
+    /**
+     * 生成压缩后的补丁，无法逐字节还原或补丁不比完整内容小时返回null
+     */
+    private byte[] createDelta(String baseContent, String content) {
+        try {
+            JsonNode baseNode = MAPPER.readTree(baseContent);
+            JsonNode targetNode = MAPPER.readTree(content);
+            ArrayNode patch = JsonPatch.diff(baseNode, targetNode);
+            String restored = MAPPER.writeValueAsString(JsonPatch.apply(baseNode, patch));
+            if (!restored.equals(content)) {
+                log.debug("工作流内容格式无法通过补丁逐字节还原，使用完整存储");
+                return null;
+            }
+            String patchJson = MAPPER.writeValueAsString(patch);
+            if (patchJson.length() >= content.length()) {
+                return null;
+            }
+            return compress(patchJson);
+        } catch (IOException | RuntimeException e) {
+            log.debug("生成工作流版本补丁失败，使用完整存储: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String applyDelta(String baseContent, byte[] delta) {
+        try {
+            JsonNode patch = MAPPER.readTree(decompress(delta));
+            return MAPPER.writeValueAsString(JsonPatch.apply(MAPPER.readTree(baseContent), patch));
+        } catch (IOException e) {
+            throw new UncheckedIOException("应用工作流版本补丁失败", e);
+        }
+    }
+
+    private static byte[] compress(String content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, content.length() / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("压缩工作流版本内容失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String decompress(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("解压工作流版本内容失败", e);
+        }
+    }
+}
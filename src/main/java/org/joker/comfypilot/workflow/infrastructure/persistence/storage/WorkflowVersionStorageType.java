@@ -0,0 +1,17 @@
+package org.joker.comfypilot.workflow.infrastructure.persistence.storage;
+
+/**
+ * 工作流版本内容存储方式
+ */
+public enum WorkflowVersionStorageType {
+
+    /**
+     * 完整内容（关键帧）
+     */
+    FULL,
+
+    /**
+     * 相对基准版本的 JSON Patch
+     */
+    DELTA
+}
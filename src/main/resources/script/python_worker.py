@@ -0,0 +1,185 @@
+# -*- coding: utf-8 -*-
+"""
+ComfyPilot Python 工作进程
+
+长期运行的解释器，通过 stdin/stdout 以每行一个 JSON 的协议接收执行请求并返回结果：
+  请求: {"id": 1, "type": "file" | "module", "target": "<脚本路径或模块名>", "args": [...], "recycle": false}
+  响应: {"id": 1, "exitCode": 0, "output": "...", "recycle": false}
+
+每次执行前后恢复 sys.argv、sys.path、当前目录和环境变量，并移除执行期间导入的脚本本地模块；
+已导入的标准库和第三方库保留，后续执行无需重复导入。
+执行期间文件描述符 1/2 指向临时文件，脚本的标准输出、标准错误以及 C 扩展或子进程直接写入描述符的内容
+按写入顺序合并后作为 output 返回。
+
+用法: python python_worker.py <内存上限MB，0 表示不限制>
+"""
+import contextlib
+import io
+import json
+import os
+import runpy
+import site
+import sys
+import tempfile
+import traceback
+
+
+def _set_memory_limit(limit_mb):
+    if limit_mb <= 0:
+        return
+    try:
+        import resource
+        limit = limit_mb * 1024 * 1024
+        # 限制数据段（堆和私有可写映射）而不是地址空间：torch、CUDA、OpenBLAS 会预留远超实际使用量的虚拟地址，
+        # RLIMIT_AS 下导入即失败
+        _, hard = resource.getrlimit(resource.RLIMIT_DATA)
+        if hard != resource.RLIM_INFINITY:
+            limit = min(limit, hard)
+        resource.setrlimit(resource.RLIMIT_DATA, (limit, hard))
+    except (ImportError, ValueError, OSError) as e:
+        sys.stderr.write("无法设置内存上限: %s\n" % e)
+
+
+def _library_roots():
+    roots = {sys.prefix, sys.base_prefix, sys.exec_prefix}
+    try:
+        roots.add(site.getusersitepackages())
+    except AttributeError:
+        pass
+    return tuple(os.path.normcase(os.path.abspath(root)) for root in roots if root)
+
+
+LIBRARY_ROOTS = _library_roots()
+
+
+def _is_library_module(module):
+    path = getattr(module, "__file__", None)
+    if not path:
+        return True
+    return os.path.normcase(os.path.abspath(path)).startswith(LIBRARY_ROOTS)
+
+
+def _flush_c_stdio():
+    # C 扩展通过 stdio 写入的内容可能还在 libc 缓冲区中，恢复描述符前先刷新
+    try:
+        import ctypes
+        ctypes.CDLL(None).fflush(None)
+    except Exception:
+        pass
+
+
+def _execute(request):
+    # 描述符级输出和 Python 层输出写入同一个文件（共享偏移），保持写入顺序
+    capture = tempfile.TemporaryFile()
+    stream = io.TextIOWrapper(io.FileIO(os.dup(capture.fileno()), "w"),
+                              encoding="utf-8", errors="backslashreplace", write_through=True)
+    saved_fds = (os.dup(1), os.dup(2))
+    # 执行结束后追加的异常信息
+    output = io.StringIO()
+    exit_code = 0
+    recycle = bool(request.get("recycle", False))
+
+    saved_argv = list(sys.argv)
+    saved_path = list(sys.path)
+    saved_cwd = os.getcwd()
+    saved_env = dict(os.environ)
+    saved_modules = set(sys.modules)
+    saved_stdin = sys.stdin
+
+    try:
+        sys.stdin = io.StringIO("")
+        args = [str(arg) for arg in request.get("args") or []]
+        os.dup2(capture.fileno(), 1)
+        os.dup2(capture.fileno(), 2)
+        with contextlib.redirect_stdout(stream), contextlib.redirect_stderr(stream):
+            if request.get("type") == "module":
+                sys.argv = [request["target"]] + args
+                runpy.run_module(request["target"], run_name="__main__", alter_sys=True)
+            else:
+                path = os.path.abspath(request["target"])
+                sys.argv = [path] + args
+                sys.path.insert(0, os.path.dirname(path))
+                runpy.run_path(path, run_name="__main__")
+    except SystemExit as e:
+        if e.code is None:
+            exit_code = 0
+        elif isinstance(e.code, int):
+            exit_code = e.code
+        else:
+            output.write("%s\n" % e.code)
+            exit_code = 1
+    except MemoryError:
+        output.write("MemoryError: 超出工作进程内存上限\n")
+        exit_code = 1
+        recycle = True
+    except BaseException:
+        output.write(traceback.format_exc())
+        exit_code = 1
+    finally:
+        _flush_c_stdio()
+        try:
+            stream.flush()
+        except (OSError, ValueError):
+            pass
+        os.dup2(saved_fds[0], 1)
+        os.dup2(saved_fds[1], 2)
+        os.close(saved_fds[0])
+        os.close(saved_fds[1])
+        sys.stdin = saved_stdin
+        sys.argv = saved_argv
+        sys.path[:] = saved_path
+        try:
+            os.chdir(saved_cwd)
+        except OSError:
+            pass
+        os.environ.clear()
+        os.environ.update(saved_env)
+        for name in set(sys.modules) - saved_modules:
+            module = sys.modules.get(name)
+            if module is not None and not _is_library_module(module):
+                del sys.modules[name]
+
+    try:
+        stream.close()
+    except (OSError, ValueError):
+        pass
+    capture.seek(0)
+    captured = capture.read().decode("utf-8", errors="replace")
+    capture.close()
+    return {"exitCode": exit_code, "output": captured + output.getvalue(), "recycle": recycle}
+
+
+def main():
+    _set_memory_limit(int(sys.argv[1]) if len(sys.argv) > 1 else 0)
+
+    # 协议通道使用复制出的描述符，原描述符 0 指向空设备、1 指向标准错误，
+    # 避免脚本、C 扩展或子进程读写破坏协议
+    protocol_in = os.fdopen(os.dup(0), "r", encoding="utf-8")
+    protocol_out = os.fdopen(os.dup(1), "w", encoding="utf-8")
+    devnull = os.open(os.devnull, os.O_RDONLY)
+    os.dup2(devnull, 0)
+    os.close(devnull)
+    os.dup2(2, 1)
+
+    def respond(message):
+        protocol_out.write(json.dumps(message, ensure_ascii=False))
+        protocol_out.write("\n")
+        protocol_out.flush()
+
+    respond({"ready": True, "pid": os.getpid()})
+    for line in protocol_in:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            request = json.loads(line)
+        except ValueError as e:
+            respond({"id": None, "exitCode": 1, "output": "无效的请求: %s" % e, "recycle": False})
+            continue
+        result = _execute(request)
+        result["id"] = request.get("id")
+        respond(result)
+
+
+if __name__ == "__main__":
+    main()
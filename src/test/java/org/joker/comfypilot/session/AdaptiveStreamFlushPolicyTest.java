@@ -0,0 +1,114 @@
+package org.joker.comfypilot.session;
+
+import org.joker.comfypilot.session.infrastructure.config.WebSocketStreamProperties;
+import org.joker.comfypilot.session.infrastructure.websocket.AdaptiveStreamFlushPolicy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveStreamFlushPolicy 测试
+ * 使用默认配置：最小间隔 40ms，最大间隔 300ms，单次最多 2000 字符，每积压 16 条增加一个最小间隔，延迟权重 0.5
+ */
+class AdaptiveStreamFlushPolicyTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void testFirstChunkFlushesImmediately() {
+        AdaptiveStreamFlushPolicy policy = new AdaptiveStreamFlushPolicy(new WebSocketStreamProperties());
+        policy.recordChunk(START);
+        assertTrue(policy.shouldFlush(START, 1, START, false, 0, 0));
+        assertFalse(policy.shouldFlush(START, 0, START, true, 0, 0));
+    }
+
+    @Test
+    void testMinFlushInterval() {
+        AdaptiveStreamFlushPolicy policy = flushedAt(START);
+        assertFalse(policy.shouldFlush(START + 10, 5, START + 10, false, 0, 0));
+        assertFalse(policy.shouldFlush(START + 39, 5, START + 10, false, 0, 0));
+        assertTrue(policy.shouldFlush(START + 40, 5, START + 10, false, 0, 0));
+    }
+
+    @Test
+    void testBoundaryAndMaxChunkChars() {
+        AdaptiveStreamFlushPolicy policy = flushedAt(START);
+        assertTrue(policy.shouldFlush(START + 1, 5, START + 1, true, 0, 0));
+        assertTrue(policy.shouldFlush(START + 1, 2000, START + 1, false, 0, 0));
+        assertFalse(policy.shouldFlush(START + 1, 1999, START + 1, false, 0, 0));
+    }
+
+    @Test
+    void testCodeFenceAcrossChunks() {
+        StringBuilder buffer = new StringBuilder("text `");
+        int previousLength = buffer.length();
+        buffer.append("``python");
+        assertTrue(AdaptiveStreamFlushPolicy.containsCodeFence(buffer, previousLength));
+
+        buffer = new StringBuilder("text ``");
+        previousLength = buffer.length();
+        buffer.append("`");
+        assertTrue(AdaptiveStreamFlushPolicy.containsCodeFence(buffer, previousLength));
+
+        // 已在之前的增量中出现过的标记不再视为新的块
+        buffer = new StringBuilder("```python\nprint(1)");
+        previousLength = buffer.length();
+        buffer.append("\nprint(2)");
+        assertFalse(AdaptiveStreamFlushPolicy.containsCodeFence(buffer, previousLength));
+
+        buffer = new StringBuilder("a ``");
+        previousLength = buffer.length();
+        buffer.append(" b");
+        assertFalse(AdaptiveStreamFlushPolicy.containsCodeFence(buffer, previousLength));
+    }
+
+    @Test
+    void testIntervalScalesWithQueueDepthAndLatency() {
+        AdaptiveStreamFlushPolicy policy = flushedAt(START);
+        // 积压 16 条：40 + 40 = 80ms
+        assertFalse(policy.shouldFlush(START + 79, 5, START + 1, false, 16, 0));
+        assertTrue(policy.shouldFlush(START + 80, 5, START + 1, false, 16, 0));
+        // 写入延迟 100ms：40 + 50 = 90ms
+        assertFalse(policy.shouldFlush(START + 89, 5, START + 1, false, 0, 100));
+        assertTrue(policy.shouldFlush(START + 90, 5, START + 1, false, 0, 100));
+        // 两者叠加：40 + 80 + 50 = 170ms
+        assertFalse(policy.shouldFlush(START + 169, 5, START + 1, false, 32, 100));
+        assertTrue(policy.shouldFlush(START + 170, 5, START + 1, false, 32, 100));
+    }
+
+    @Test
+    void testIntervalCappedAtMax() {
+        AdaptiveStreamFlushPolicy policy = flushedAt(START);
+        assertEquals(300, policy.getMaxFlushInterval());
+        assertFalse(policy.shouldFlush(START + 299, 5, START + 1, false, 10_000, 60_000));
+        assertTrue(policy.shouldFlush(START + 300, 5, START + 1, false, 10_000, 60_000));
+    }
+
+    @Test
+    void testSlowModelFlushesWithoutWaiting() {
+        // 积压使发送间隔达到上限 300ms
+        int queueDepth = 160;
+
+        // 增量每 400ms 到达一次，上次发送（工具调用前）后 50ms 到达的增量不再等待下一个增量，立即发送
+        AdaptiveStreamFlushPolicy slow = new AdaptiveStreamFlushPolicy(new WebSocketStreamProperties());
+        slow.recordChunk(START);
+        slow.recordFlush(START + 350);
+        slow.recordChunk(START + 400);
+        assertTrue(slow.shouldFlush(START + 400, 5, START + 400, false, queueDepth, 0));
+
+        // 增量每 10ms 到达一次，继续合并
+        AdaptiveStreamFlushPolicy fast = new AdaptiveStreamFlushPolicy(new WebSocketStreamProperties());
+        for (long t = START; t <= START + 400; t += 10) {
+            fast.recordChunk(t);
+        }
+        fast.recordFlush(START + 350);
+        assertFalse(fast.shouldFlush(START + 400, 5, START + 360, false, queueDepth, 0));
+    }
+
+    private static AdaptiveStreamFlushPolicy flushedAt(long time) {
+        AdaptiveStreamFlushPolicy policy = new AdaptiveStreamFlushPolicy(new WebSocketStreamProperties());
+        policy.recordChunk(time);
+        policy.recordFlush(time);
+        return policy;
+    }
+}
@@ -0,0 +1,68 @@
+package org.joker.comfypilot.session;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joker.comfypilot.common.config.JacksonConfig;
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
+import org.joker.comfypilot.session.infrastructure.websocket.StreamFrameEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AGENT_STREAM 帧编码基准测试
+ * 对比 StreamFrameEncoder 与 ObjectMapper 的单帧耗时，运行 main 方法时附带 GC 分析器输出每帧分配字节数。
+ * 输出一致性由 {@link StreamFrameEncoderTest} 保证
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamFrameEncoderBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private StreamFrameEncoder encoder;
+
+    private WebSocketMessage<?> message;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new JacksonConfig().objectMapper(new Jackson2ObjectMapperBuilder());
+        encoder = new StreamFrameEncoder();
+        message = WebSocketMessage.builder()
+                .type(WebSocketMessageType.AGENT_STREAM.name())
+                .sessionCode("3f6c1a2e-session")
+                .requestId("1718000000000")
+                .content("模型输出的一段流式增量，包含 \"引号\" 和换行\n以及 code `x = 1`")
+                .timestamp(1718000000123L)
+                .seq(128L)
+                .build();
+    }
+
+    @Benchmark
+    public void objectMapper(Blackhole blackhole) throws JsonProcessingException {
+        blackhole.consume(objectMapper.writeValueAsString(message));
+    }
+
+    @Benchmark
+    public void streamFrameEncoder(Blackhole blackhole) {
+        blackhole.consume(encoder.encode(message));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StreamFrameEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,90 @@
+package org.joker.comfypilot.session;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joker.comfypilot.common.config.JacksonConfig;
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
+import org.joker.comfypilot.session.infrastructure.websocket.StreamFrameEncoder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamFrameEncoder 测试
+ * 与 ObjectMapper 的输出逐字节比较，耗时和内存分配见 {@link StreamFrameEncoderBenchmark}
+ */
+class StreamFrameEncoderTest {
+
+    private static ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void setUp() {
+        objectMapper = new JacksonConfig().objectMapper(new Jackson2ObjectMapperBuilder());
+    }
+
+    /**
+     * 各类内容的编码结果应与 ObjectMapper 一致
+     */
+    @Test
+    void testSameOutputAsJackson() throws Exception {
+        List<String> contents = Arrays.asList(
+                null,
+                "",
+                "plain ascii delta",
+                "中文增量输出，包含标点。",
+                "emoji 😀 and lone surrogate \uD800",
+                "quote \" backslash \\ slash / done",
+                "line\nbreak\r\ttab\bbackspace\fformfeed",
+                "control \u0000 \u0001 \u001F \u007F",
+                "separators \u2028 \u2029 <script>&</script>",
+                "```python\nprint(\"hello\")\n```"
+        );
+        StreamFrameEncoder encoder = new StreamFrameEncoder();
+        for (String content : contents) {
+            WebSocketMessage<?> message = streamMessage("session-1", "req-1", content, 7L);
+            assertEquals(objectMapper.writeValueAsString(message), encoder.encode(message), "content=" + content);
+        }
+
+        // 字段为 null、会话编码和请求ID需要转义、前缀缓存切换
+        WebSocketMessage<?> noSeq = streamMessage("session-1", "req-1", "x", null);
+        assertEquals(objectMapper.writeValueAsString(noSeq), encoder.encode(noSeq));
+        WebSocketMessage<?> escapedIds = streamMessage("s\"1", "r\\1\n", "x", 1L);
+        assertEquals(objectMapper.writeValueAsString(escapedIds), encoder.encode(escapedIds));
+        WebSocketMessage<?> nullIds = WebSocketMessage.builder().type(WebSocketMessageType.AGENT_STREAM.name()).content("x").build();
+        assertEquals(objectMapper.writeValueAsString(nullIds), encoder.encode(nullIds));
+        WebSocketMessage<?> again = streamMessage("session-1", "req-1", "y", Long.MAX_VALUE);
+        assertEquals(objectMapper.writeValueAsString(again), encoder.encode(again));
+
+        // 合并的内容直接传入
+        StringBuilder coalesced = new StringBuilder("a\"b").append("中\n文");
+        WebSocketMessage<?> merged = again.toBuilder().content(coalesced.toString()).seq(9L).build();
+        assertEquals(objectMapper.writeValueAsString(merged), encoder.encode(again, coalesced, 9L));
+
+        // 超过复用容量的大帧之后仍可正常编码
+        WebSocketMessage<?> large = streamMessage("session-1", "req-1", "长".repeat(100_000), 10L);
+        assertEquals(objectMapper.writeValueAsString(large), encoder.encode(large));
+        assertEquals(objectMapper.writeValueAsString(again), encoder.encode(again));
+    }
+
+    @Test
+    void testSupports() {
+        assertTrue(StreamFrameEncoder.supports(streamMessage("s", "r", "x", 1L)));
+        assertFalse(StreamFrameEncoder.supports(WebSocketMessage.builder().type(WebSocketMessageType.PONG.name()).build()));
+    }
+
+    private static WebSocketMessage<?> streamMessage(String sessionCode, String requestId, String content, Long seq) {
+        return WebSocketMessage.builder()
+                .type(WebSocketMessageType.AGENT_STREAM.name())
+                .sessionCode(sessionCode)
+                .requestId(requestId)
+                .content(content)
+                .timestamp(1718000000123L)
+                .seq(seq)
+                .build();
+    }
+}
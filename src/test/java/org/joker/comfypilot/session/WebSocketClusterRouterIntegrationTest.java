@@ -0,0 +1,270 @@
+package org.joker.comfypilot.session;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joker.comfypilot.common.config.JacksonConfig;
+import org.joker.comfypilot.session.application.dto.WebSocketMessage;
+import org.joker.comfypilot.session.application.dto.WebSocketMessageData;
+import org.joker.comfypilot.session.application.dto.client2server.AgentToolCallResponseData;
+import org.joker.comfypilot.session.domain.context.WebSocketSessionContext;
+import org.joker.comfypilot.session.domain.enums.WebSocketMessageType;
+import org.joker.comfypilot.session.infrastructure.cluster.SessionOwnershipRegistry;
+import org.joker.comfypilot.session.infrastructure.cluster.WebSocketClusterRouter;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketClusterProperties;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketOutboundProperties;
+import org.joker.comfypilot.session.infrastructure.config.WebSocketResumeProperties;
+import org.joker.comfypilot.session.infrastructure.websocket.WebSocketSessionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * WebSocket 多节点路由集成测试
+ * 在同一 JVM 中启动两个节点（各自的会话管理器、归属登记和路由），通过内嵌 Redis 转发消息
+ */
+class WebSocketClusterRouterIntegrationTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String SESSION_CODE = "cluster-session";
+    private static final String REQUEST_ID = "req-1";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static ExecutorService executor;
+    private static ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.newRedisServer().port(port).setting("bind 127.0.0.1").build();
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        objectMapper = new JacksonConfig().objectMapper(new Jackson2ObjectMapperBuilder());
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    /**
+     * 单个节点
+     */
+    private static class Node {
+        final SessionOwnershipRegistry registry = new SessionOwnershipRegistry();
+        final WebSocketSessionManager sessionManager = new WebSocketSessionManager();
+        final WebSocketClusterRouter router = new WebSocketClusterRouter();
+        final BlockingQueue<Inbound> inbound = new LinkedBlockingQueue<>();
+
+        Node(String nodeId) {
+            WebSocketClusterProperties clusterProperties = new WebSocketClusterProperties();
+            clusterProperties.setEnabled(true);
+            clusterProperties.setNodeId(nodeId);
+            StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+
+            ReflectionTestUtils.setField(registry, "properties", clusterProperties);
+            ReflectionTestUtils.setField(registry, "stringRedisTemplate", redisTemplate);
+            registry.init();
+
+            ReflectionTestUtils.setField(sessionManager, "objectMapper", objectMapper);
+            ReflectionTestUtils.setField(sessionManager, "outboundProperties", new WebSocketOutboundProperties());
+            ReflectionTestUtils.setField(sessionManager, "resumeProperties", new WebSocketResumeProperties());
+            ReflectionTestUtils.setField(sessionManager, "webSocketWriterExecutor", executor);
+            ReflectionTestUtils.setField(sessionManager, "ownershipRegistry", registry);
+
+            ReflectionTestUtils.setField(router, "ownershipRegistry", registry);
+            ReflectionTestUtils.setField(router, "sessionManager", sessionManager);
+            ReflectionTestUtils.setField(router, "stringRedisTemplate", redisTemplate);
+            ReflectionTestUtils.setField(router, "redisConnectionFactory", connectionFactory);
+            ReflectionTestUtils.setField(router, "objectMapper", objectMapper);
+            ReflectionTestUtils.setField(router, "inboundExecutor", executor);
+            router.init();
+            // 代替 WebSocket 处理器：记录转发来的消息，收到工具调用响应时输出一帧
+            router.setInboundHandler((context, messageType, wsMessage) -> {
+                inbound.add(new Inbound(context, messageType, wsMessage));
+                if (messageType == WebSocketMessageType.AGENT_TOOL_CALL_RESPONSE) {
+                    context.sendAgentMessage(WebSocketMessage.builder()
+                            .type(WebSocketMessageType.AGENT_STREAM.name())
+                            .sessionCode(SESSION_CODE)
+                            .requestId(REQUEST_ID)
+                            .content("tool result received")
+                            .timestamp(System.currentTimeMillis())
+                            .build());
+                }
+            });
+        }
+    }
+
+    private record Inbound(WebSocketSessionContext context, WebSocketMessageType messageType, WebSocketMessage<?> message) {
+    }
+
+    @Test
+    void testRouteToOwnerNode() throws Exception {
+        Node nodeA = new Node("node-a");
+        Node nodeB = new Node("node-b");
+        try {
+            // 节点 A 执行会话的请求
+            WebSocketSession sessionA = mockSession("ws-a", new CopyOnWriteArrayList<>());
+            WebSocketSessionContext contextA = nodeA.sessionManager.addSession("ws-a", sessionA, USER_ID, SESSION_CODE);
+            assertTrue(contextA.startExecution(REQUEST_ID));
+            nodeA.registry.claim(SESSION_CODE, contextA.getConnectSessionId());
+            assertEquals("node-a", nodeB.registry.getOwner(SESSION_CODE));
+
+            // 客户端断线后在节点 B 重连
+            nodeA.sessionManager.removeSession("ws-a");
+            assertNotNull(contextA.getDetachedTime());
+            List<String> sentB = new CopyOnWriteArrayList<>();
+            WebSocketSession sessionB = mockSession("ws-b", sentB);
+            WebSocketSessionContext contextB = nodeB.sessionManager.addSession("ws-b", sessionB, USER_ID, SESSION_CODE);
+
+            // 工具调用响应转发到节点 A，由节点 A 的会话上下文处理，输出转发回节点 B 的连接
+            assertTrue(nodeB.router.routeInbound(contextB, WebSocketMessageType.AGENT_TOOL_CALL_RESPONSE,
+                    toolCallResponsePayload()));
+            assertEquals("node-a", contextB.getRemoteOwner());
+            Inbound toolResponse = nodeA.inbound.poll(5, TimeUnit.SECONDS);
+            assertNotNull(toolResponse);
+            assertSame(contextA, toolResponse.context());
+            assertEquals(WebSocketMessageType.AGENT_TOOL_CALL_RESPONSE, toolResponse.messageType());
+            assertInstanceOf(AgentToolCallResponseData.class, toolResponse.message().getData());
+            assertEquals("node-b/ws-b", contextA.getConnectionId());
+            assertNull(contextA.getDetachedTime());
+            await(() -> sentB.stream().anyMatch(text -> text.contains("tool result received")));
+
+            // 中断转发到节点 A
+            assertTrue(nodeB.router.routeInbound(contextB, WebSocketMessageType.INTERRUPT,
+                    payload(WebSocketMessageType.INTERRUPT, null)));
+            Inbound interrupt = nodeA.inbound.poll(5, TimeUnit.SECONDS);
+            assertNotNull(interrupt);
+            assertSame(contextA, interrupt.context());
+            assertEquals(WebSocketMessageType.INTERRUPT, interrupt.messageType());
+
+            // 节点 B 的连接关闭，节点 A 的会话上下文进入等待重连
+            nodeB.router.detach(contextB);
+            await(() -> contextA.getDetachedTime() != null);
+
+            // 节点 A 下线后，消息在节点 B 处理并清除失效登记
+            nodeA.router.shutdown();
+            assertFalse(nodeB.router.routeInbound(contextB, WebSocketMessageType.INTERRUPT,
+                    payload(WebSocketMessageType.INTERRUPT, null)));
+            assertNull(nodeB.registry.getOwner(SESSION_CODE));
+        } finally {
+            nodeA.router.shutdown();
+            nodeB.router.shutdown();
+        }
+    }
+
+    @Test
+    void testDetachWhenConnectionNodeOffline() throws Exception {
+        Node nodeA = new Node("node-a");
+        Node nodeB = new Node("node-b");
+        try {
+            WebSocketSession sessionA = mockSession("ws-a", new CopyOnWriteArrayList<>());
+            WebSocketSessionContext contextA = nodeA.sessionManager.addSession("ws-a", sessionA, USER_ID, SESSION_CODE);
+            assertTrue(contextA.startExecution(REQUEST_ID));
+            nodeA.registry.claim(SESSION_CODE, contextA.getConnectSessionId());
+            nodeA.sessionManager.removeSession("ws-a");
+
+            // 客户端在节点 B 重连，节点 A 的输出转发到节点 B
+            WebSocketSession sessionB = mockSession("ws-b", new CopyOnWriteArrayList<>());
+            WebSocketSessionContext contextB = nodeB.sessionManager.addSession("ws-b", sessionB, USER_ID, SESSION_CODE);
+            assertTrue(nodeB.router.routeInbound(contextB, WebSocketMessageType.INTERRUPT,
+                    payload(WebSocketMessageType.INTERRUPT, null)));
+            assertNotNull(nodeA.inbound.poll(5, TimeUnit.SECONDS));
+            assertEquals("node-b/ws-b", contextA.getConnectionId());
+            assertNull(contextA.getDetachedTime());
+
+            // 节点 B 下线后转发失败，节点 A 的会话上下文进入等待重连
+            nodeB.router.shutdown();
+            contextA.sendAgentMessage(WebSocketMessage.builder()
+                    .type(WebSocketMessageType.AGENT_STREAM.name())
+                    .sessionCode(SESSION_CODE)
+                    .requestId(REQUEST_ID)
+                    .content("lost")
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+            await(() -> contextA.getDetachedTime() != null);
+        } finally {
+            nodeA.router.shutdown();
+            nodeB.router.shutdown();
+        }
+    }
+
+    private static String toolCallResponsePayload() throws Exception {
+        AgentToolCallResponseData data = new AgentToolCallResponseData();
+        data.setToolCallId("call-1");
+        data.setToolName("clientTool");
+        data.setIsClientTool(true);
+        data.setIsMcpTool(false);
+        data.setSuccess(true);
+        data.setResult("ok");
+        return payload(WebSocketMessageType.AGENT_TOOL_CALL_RESPONSE, data);
+    }
+
+    private static <T extends WebSocketMessageData> String payload(WebSocketMessageType type, T data) throws Exception {
+        WebSocketMessage<T> message = WebSocketMessage.<T>builder()
+                .type(type.name())
+                .sessionCode(SESSION_CODE)
+                .requestId(REQUEST_ID)
+                .data(data)
+                .build();
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private static WebSocketSession mockSession(String id, List<String> sent) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            sent.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.joker.comfypilot.tool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joker.comfypilot.common.config.JacksonConfig;
+import org.joker.comfypilot.tool.infrastructure.service.ToolMethodInvoker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ToolMethodInvoker 基准测试
+ * 对比预编译调用器与原反射调用路径的单次调用耗时，运行 main 方法时附带 GC 分析器输出每次调用分配字节数。
+ * 结果一致性由 {@link ToolMethodInvokerTest} 保证
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolMethodInvokerBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private ToolMethodInvokerTest.SampleTool tool;
+
+    private Method method;
+
+    private ToolMethodInvoker invoker;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new JacksonConfig().objectMapper(new Jackson2ObjectMapperBuilder());
+        tool = new ToolMethodInvokerTest.SampleTool();
+        method = ToolMethodInvokerTest.SampleTool.class.getMethod("generate", String.class, int.class, double.class, List.class, Map.class);
+        method.setAccessible(true);
+        invoker = ToolMethodInvoker.of(method, tool);
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws Exception {
+        blackhole.consume(method.invoke(tool, ToolMethodInvokerTest.reflectiveArguments(objectMapper, method, ToolMethodInvokerTest.ARGUMENTS)));
+    }
+
+    @Benchmark
+    public void precompiled(Blackhole blackhole) throws Exception {
+        blackhole.consume(invoker.invoke(invoker.bind(ToolMethodInvokerTest.ARGUMENTS)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ToolMethodInvokerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
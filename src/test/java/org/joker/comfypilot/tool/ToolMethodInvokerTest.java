@@ -0,0 +1,74 @@
+package org.joker.comfypilot.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.joker.comfypilot.common.config.JacksonConfig;
+import org.joker.comfypilot.tool.infrastructure.service.ToolMethodInvoker;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolMethodInvoker 测试
+ * 预编译调用器与原反射调用路径（readTree + treeToValue + Method.invoke）的结果应一致，耗时见 {@link ToolMethodInvokerBenchmark}
+ */
+class ToolMethodInvokerTest {
+
+    static final String ARGUMENTS = """
+            {"prompt":"a cat sitting on a chair","steps":20,"cfg":7.5,"tags":["cat","chair"],"options":{"seed":42,"sampler":"euler"}}""";
+
+    private static ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void setUp() {
+        objectMapper = new JacksonConfig().objectMapper(new Jackson2ObjectMapperBuilder());
+    }
+
+    public static class SampleTool {
+
+        public String generate(String prompt, int steps, double cfg, List<String> tags, Map<String, Object> options) {
+            return prompt + steps + cfg + tags.size() + options.size();
+        }
+    }
+
+    /**
+     * 两种路径的调用结果应一致
+     */
+    @Test
+    void testSameResultAsReflection() throws Exception {
+        SampleTool tool = new SampleTool();
+        Method method = SampleTool.class.getMethod("generate", String.class, int.class, double.class, List.class, Map.class);
+        method.setAccessible(true);
+        ToolMethodInvoker invoker = ToolMethodInvoker.of(method, tool);
+
+        Object expected = method.invoke(tool, reflectiveArguments(objectMapper, method, ARGUMENTS));
+        Object actual = invoker.invoke(invoker.bind(ARGUMENTS));
+        assertEquals(expected, actual);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> invoker.bind("{\"prompt\":\"x\"}"));
+        assertTrue(e.getMessage().contains("steps"));
+    }
+
+    /**
+     * 原 ServerTool 的参数解析方式
+     */
+    static Object[] reflectiveArguments(ObjectMapper objectMapper, Method method, String argumentsJson) throws Exception {
+        Parameter[] parameters = method.getParameters();
+        JsonNode root = objectMapper.readTree(argumentsJson);
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter p = parameters[i];
+            String paramName = p.getName();
+            JsonNode valueNode = paramName.matches("arg\\d+") ? root.get(i) : root.get(paramName);
+            args[i] = objectMapper.treeToValue(valueNode, p.getType());
+        }
+        return args;
+    }
+}
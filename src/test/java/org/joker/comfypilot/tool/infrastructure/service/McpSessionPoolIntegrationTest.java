@@ -0,0 +1,234 @@
+package org.joker.comfypilot.tool.infrastructure.service;
+
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.transport.HttpServletStreamableServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.joker.comfypilot.tool.infrastructure.config.McpProperties;
+import org.joker.comfypilot.tool.infrastructure.config.McpServerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * McpSessionPool 集成测试
+ * 在内嵌 Tomcat 上启动 SDK 的 streamable-http 服务端，覆盖工具列表、工具调用、服务端重启后重连，以及非幂等调用不重试
+ */
+class McpSessionPoolIntegrationTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * 服务端执行 echo 工具的次数
+     */
+    private final AtomicInteger echoCalls = new AtomicInteger();
+
+    /**
+     * 为 true 时服务端拒绝所有 POST 请求（读取请求体后返回 500，模拟请求已送达后失败）
+     */
+    private final AtomicBoolean failPosts = new AtomicBoolean();
+
+    /**
+     * 失败模式下送达服务端的 tools/call 请求数
+     */
+    private final AtomicInteger rejectedToolCalls = new AtomicInteger();
+
+    private StandInServer server;
+
+    private McpSessionPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StandInServer(0);
+
+        McpProperties properties = new McpProperties();
+        properties.setConnectionTimeout(3000);
+        properties.setCallTimeout(5000);
+        properties.setRetryAttempts(5);
+        properties.setRetryBackoff(100);
+        McpServerConfig config = McpServerConfig.builder()
+                .name("stand-in")
+                .url("http://127.0.0.1:" + server.port + "/mcp")
+                .poolSize(2)
+                .build();
+        pool = new McpSessionPool(config, properties, (source, tools) -> {
+        });
+        pool.start().block(TIMEOUT);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testListAndCall() {
+        List<McpSchema.Tool> tools = pool.listTools().block(TIMEOUT);
+        assertNotNull(tools);
+        assertEquals(List.of("echo"), tools.stream().map(McpSchema.Tool::name).toList());
+
+        McpSchema.CallToolResult result = pool.callTool("echo", Map.of("text", "hello")).block(TIMEOUT);
+        assertNotNull(result);
+        assertNotEquals(Boolean.TRUE, result.isError());
+        assertEquals("echo: hello", ((McpSchema.TextContent) result.content().get(0)).text());
+        assertEquals(1, echoCalls.get());
+    }
+
+    @Test
+    void testReconnectAfterServerRestart() throws Exception {
+        assertEquals(1, pool.listTools().block(TIMEOUT).size());
+
+        // 重启后服务端不认识原来的会话，会话在后台重建
+        int port = server.port;
+        server.stop();
+        server = new StandInServer(port);
+
+        List<McpSchema.Tool> tools = pool.listTools().block(TIMEOUT);
+        assertNotNull(tools);
+        assertEquals(1, tools.size());
+
+        McpSchema.CallToolResult result = pool.callTool("echo", Map.of("text", "again")).block(TIMEOUT);
+        assertNotNull(result);
+        assertEquals("echo: again", ((McpSchema.TextContent) result.content().get(0)).text());
+        assertEquals(1, echoCalls.get());
+    }
+
+    @Test
+    void testNoRetryAfterToolCallSent() {
+        assertEquals(1, pool.listTools().block(TIMEOUT).size());
+
+        // 请求送达服务端后失败，callTool 不能重试
+        failPosts.set(true);
+        assertThrows(RuntimeException.class, () -> pool.callTool("echo", Map.of("text", "once")).block(TIMEOUT));
+        assertEquals(1, rejectedToolCalls.get());
+
+        // 服务端恢复后，会话重建期间没有可用会话的调用会重试
+        failPosts.set(false);
+        McpSchema.CallToolResult result = pool.callTool("echo", Map.of("text", "recovered")).block(TIMEOUT);
+        assertNotNull(result);
+        assertEquals("echo: recovered", ((McpSchema.TextContent) result.content().get(0)).text());
+        assertEquals(1, rejectedToolCalls.get());
+    }
+
+    /**
+     * 进程内的 MCP 服务端
+     */
+    private final class StandInServer {
+
+        private final Tomcat tomcat;
+
+        private final McpAsyncServer mcpServer;
+
+        private final int port;
+
+        private StandInServer(int port) throws Exception {
+            HttpServletStreamableServerTransportProvider transportProvider = HttpServletStreamableServerTransportProvider.builder()
+                    .mcpEndpoint("/mcp")
+                    .build();
+
+            McpSchema.Tool echo = McpSchema.Tool.builder()
+                    .name("echo")
+                    .description("返回输入的文本")
+                    .inputSchema(new McpSchema.JsonSchema("object", Map.of("text", Map.of("type", "string")),
+                            List.of("text"), null, null, null))
+                    .build();
+            mcpServer = McpServer.async(transportProvider)
+                    .serverInfo("stand-in", "1.0.0")
+                    .capabilities(McpSchema.ServerCapabilities.builder().tools(true).build())
+                    .tools(McpServerFeatures.AsyncToolSpecification.builder()
+                            .tool(echo)
+                            .callHandler((exchange, request) -> {
+                                echoCalls.incrementAndGet();
+                                return Mono.just(McpSchema.CallToolResult.builder()
+                                        .addTextContent("echo: " + request.arguments().get("text"))
+                                        .isError(false)
+                                        .build());
+                            })
+                            .build())
+                    .build();
+
+            tomcat = new Tomcat();
+            tomcat.setBaseDir(Files.createTempDirectory("mcp-tomcat").toString());
+            tomcat.setPort(port);
+            Context context = tomcat.addContext("", null);
+            Wrapper wrapper = Tomcat.addServlet(context, "mcp", new FaultInjectingServlet(transportProvider));
+            wrapper.setAsyncSupported(true);
+            context.addServletMappingDecoded("/*", "mcp");
+            tomcat.start();
+            this.port = tomcat.getConnector().getLocalPort();
+        }
+
+        private void stop() throws Exception {
+            mcpServer.closeGracefully().block(TIMEOUT);
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    /**
+     * 失败模式下拒绝 POST 请求，其余请求交给 SDK 的传输层处理
+     */
+    private final class FaultInjectingServlet extends HttpServlet {
+
+        private final HttpServlet delegate;
+
+        private FaultInjectingServlet(HttpServlet delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void init(ServletConfig config) throws ServletException {
+            super.init(config);
+            delegate.init(config);
+        }
+
+        @Override
+        public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
+            HttpServletRequest request = (HttpServletRequest) req;
+            HttpServletResponse response = (HttpServletResponse) res;
+            if (failPosts.get() && "POST".equals(request.getMethod())) {
+                String body = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                if (body.contains("tools/call")) {
+                    rejectedToolCalls.incrementAndGet();
+                }
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return;
+            }
+            delegate.service(req, res);
+        }
+
+        @Override
+        public void destroy() {
+            delegate.destroy();
+            super.destroy();
+        }
+    }
+}